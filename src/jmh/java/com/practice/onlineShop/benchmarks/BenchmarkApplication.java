@@ -0,0 +1,114 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.OnlineShopApplication;
+import com.practice.onlineShop.entities.Address;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.repositories.UserRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static com.practice.onlineShop.enums.Currencies.RON;
+
+/**
+ * Starts the application on its own in-memory H2 database, without a web server unless the
+ * benchmark goes through HTTP, and seeds the data the benchmarks need.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraProperties) {
+        return start(WebApplicationType.NONE, extraProperties);
+    }
+
+    /**
+     * Same application behind an embedded Tomcat on a random port, see {@link #getPort}.
+     */
+    static ConfigurableApplicationContext startWebServer(String... extraProperties) {
+        List<String> properties = new ArrayList<>(Arrays.asList(extraProperties));
+        properties.add("server.port=0");
+        return start(WebApplicationType.SERVLET, properties.toArray(new String[0]));
+    }
+
+    static int getPort(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... extraProperties) {
+        List<String> properties = new ArrayList<>();
+        properties.add("spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        properties.add("spring.main.banner-mode=off");
+        properties.add("logging.level.root=WARN");
+        properties.addAll(Arrays.asList(extraProperties));
+
+        // passed as command line arguments so that they win over application.properties
+        List<String> arguments = new ArrayList<>(properties.size());
+        for (String property : properties) {
+            arguments.add("--" + property);
+        }
+        return new SpringApplicationBuilder(BenchmarkConfiguration.class)
+                .web(webApplicationType)
+                .run(arguments.toArray(new String[0]));
+    }
+
+    /**
+     * The application's own configuration, minus the test configurations that are on the
+     * benchmark classpath too.
+     */
+    @Configuration
+    @EnableAutoConfiguration
+    @AutoConfigurationPackage(basePackageClasses = OnlineShopApplication.class)
+    @ComponentScan(basePackageClasses = OnlineShopApplication.class, excludeFilters = {
+            @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = OnlineShopApplication.class),
+            @ComponentScan.Filter(type = FilterType.REGEX, pattern = {".*Test.*", "com\\.practice\\.onlineShop\\.utils\\..*"})})
+    static class BenchmarkConfiguration {
+    }
+
+    static Users saveUserWithRole(ConfigurableApplicationContext context, Roles role) {
+        Users user = new Users();
+        user.setFirstname("benchmark");
+        user.setRoles(new ArrayList<>(Collections.singletonList(role)));
+        Address address = new Address();
+        address.setCity("Bucuresti");
+        user.setAddress(address);
+        return context.getBean(UserRepository.class).save(user);
+    }
+
+    static List<Product> saveProducts(ConfigurableApplicationContext context, String codePrefix, int count, int stock) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(product(codePrefix + i, stock));
+        }
+        List<Product> savedProducts = new ArrayList<>(count);
+        context.getBean(ProductRepository.class).saveAll(products).forEach(savedProducts::add);
+        return savedProducts;
+    }
+
+    static Product product(String code, int stock) {
+        Product product = new Product();
+        product.setCode(code);
+        product.setDescription("benchmark product " + code);
+        product.setCurrency(RON);
+        product.setPrice(100);
+        product.setStock(stock);
+        product.setValid(true);
+        return product;
+    }
+}
@@ -0,0 +1,104 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.catalog.CatalogFilter;
+import com.practice.onlineShop.catalog.CatalogMatches;
+import com.practice.onlineShop.catalog.CatalogSnapshot;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.Currencies;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of {@code GET /product/filter} on a large catalog, without the db read of the page:
+ * the {@link CatalogSnapshot} scan on one thread and on the fork-join pool, against the same
+ * predicates evaluated over a list of {@link Product} objects, which is what filtering the
+ * catalog held as entities costs. Prices are uniform between 0 and 1000, a tenth of the products
+ * is sold out and a tenth is not valid; the filter keeps about 5% of them.
+ *
+ * The parallel scan only pays off with several cores, run it where the application runs.
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="CatalogFilter"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatalogFilterBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final double MIN_PRICE = 100;
+    private static final double MAX_PRICE = 300;
+    private static final Currencies CURRENCY = Currencies.RON;
+
+    @Param({"1000000"})
+    private int productCount;
+
+    private CatalogSnapshot snapshot;
+    private List<Product> products;
+    private CatalogFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        Currencies[] currencies = Currencies.values();
+        // the entities of a real catalog are scattered over the heap, not allocated in id order
+        List<Long> ids = new ArrayList<>(productCount);
+        for (long id = 1; id <= productCount; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, random);
+        products = new ArrayList<>(productCount);
+        for (long id : ids) {
+            Product product = new Product();
+            product.setId(id);
+            product.setCode("SKU-" + id);
+            product.setPrice(random.nextInt(100_000) / 100.0);
+            product.setStock(random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(100));
+            product.setCurrency(currencies[random.nextInt(currencies.length)]);
+            product.setValid(random.nextInt(10) != 0);
+            products.add(product);
+        }
+        products.sort(Comparator.comparingLong(Product::getId));
+        snapshot = CatalogSnapshot.of(products);
+        filter = new CatalogFilter(MIN_PRICE, MAX_PRICE, CURRENCY, true, true);
+    }
+
+    @Benchmark
+    public CatalogMatches snapshotScan() {
+        return snapshot.filter(filter, 0, PAGE_SIZE, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public CatalogMatches snapshotParallelScan() {
+        return snapshot.filter(filter, 0, PAGE_SIZE, 0);
+    }
+
+    @Benchmark
+    public long objectScan(Blackhole blackhole) {
+        long[] ids = new long[PAGE_SIZE];
+        int idCount = 0;
+        long count = 0;
+        for (Product product : products) {
+            if (product.getPrice() >= MIN_PRICE && product.getPrice() <= MAX_PRICE && product.getCurrency() == CURRENCY
+                    && product.getStock() > 0 && product.isValid()) {
+                count++;
+                if (idCount < PAGE_SIZE) {
+                    ids[idCount++] = product.getId();
+                }
+            }
+        }
+        blackhole.consume(ids);
+        return count;
+    }
+}
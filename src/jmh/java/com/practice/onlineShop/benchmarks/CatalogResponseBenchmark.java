@@ -0,0 +1,76 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.catalog.CatalogResponseCache;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /product} over HTTP for an unchanged catalog, with the body served from
+ * {@link CatalogResponseCache} or read and serialized for each request, plain and gzipped. The
+ * client takes the bytes as they come, without decompressing them.
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="CatalogResponse"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatalogResponseBenchmark {
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    @Param({"true", "false"})
+    private boolean responseCache;
+
+    @Param({"true", "false"})
+    private boolean gzip;
+
+    private ConfigurableApplicationContext context;
+    private CloseableHttpClient httpClient;
+    private HttpGet request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        context = BenchmarkApplication.startWebServer(
+                "onlineshop.catalog.response-cache.enabled=" + responseCache,
+                "onlineshop.audit.enabled=false");
+        BenchmarkApplication.saveProducts(context, "catalog-", catalogSize, 10);
+        if (responseCache) {
+            // built in the background, wait for it rather than measure the reads that fall back
+            CatalogResponseCache catalogResponseCache = context.getBean(CatalogResponseCache.class);
+            while (!catalogResponseCache.get().isPresent()) {
+                Thread.sleep(10);
+            }
+        }
+        httpClient = HttpClients.custom().disableContentCompression().build();
+        request = new HttpGet("http://localhost:" + BenchmarkApplication.getPort(context) + "/product");
+        request.setHeader(HttpHeaders.ACCEPT_ENCODING, gzip ? "gzip" : "identity");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] getProducts() throws IOException {
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            return EntityUtils.toByteArray(response.getEntity());
+        }
+    }
+}
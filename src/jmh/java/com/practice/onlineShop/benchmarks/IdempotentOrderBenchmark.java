@@ -0,0 +1,75 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.services.IdempotentOrderService;
+import com.practice.onlineShop.services.OrderService;
+import com.practice.onlineShop.vos.OrderVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a retried {@code POST /order} with an {@code Idempotency-Key}: {@code addOrder} places a
+ * new order every time, {@code replay} sends the key of an order already placed and gets its stored
+ * outcome, from the keys in memory or in the db.
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="IdempotentOrder"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IdempotentOrderBenchmark {
+
+    @Param({"MEMORY", "DATABASE"})
+    private String store;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private IdempotentOrderService idempotentOrderService;
+    private OrderVO orderVO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start("onlineshop.order.idempotency.store=" + store);
+        orderService = context.getBean(OrderService.class);
+        idempotentOrderService = context.getBean(IdempotentOrderService.class);
+
+        Users client = BenchmarkApplication.saveUserWithRole(context, Roles.CLIENT);
+        List<Product> products = BenchmarkApplication.saveProducts(context, "idempotent-", 3, Integer.MAX_VALUE);
+
+        Map<Integer, Integer> productsIdsToQuantity = new HashMap<>();
+        for (Product product : products) {
+            productsIdsToQuantity.put((int) product.getId(), 1);
+        }
+        orderVO = new OrderVO();
+        orderVO.setUserId((int) client.getId());
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+        idempotentOrderService.addOrder("placed", orderVO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void addOrder() throws Exception {
+        orderService.addOrder(orderVO);
+    }
+
+    @Benchmark
+    public void replay() throws Exception {
+        idempotentOrderService.addOrder("placed", orderVO);
+    }
+}
@@ -0,0 +1,111 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.catalog.OffHeapProductStore;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.mappers.ProductMapper;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.vos.ProductVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One product read by code from a large catalog: from the db through JPA, as
+ * {@code onlineshop.catalog.store=DATABASE} does on a product cache miss, from a map of
+ * {@link ProductVO} objects on the heap, which is what caching the whole catalog would keep alive,
+ * and from the {@link OffHeapProductStore}. The codes are read in random order.
+ *
+ * Run it with the gc profiler to see the allocations per read and the time spent in collections
+ * next to the latencies; the heap map also makes every collection trace its million objects.
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="OffHeapCatalog -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OffHeapCatalogBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    @Param({"100000", "1000000"})
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductMapper productMapper;
+    private OffHeapProductStore offHeapProductStore;
+    private Map<String, ProductVO> heapCatalog;
+    private String[] codes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("onlineshop.catalog.store=OFF_HEAP",
+                "onlineshop.catalog.response-cache.enabled=false");
+        productRepository = context.getBean(ProductRepository.class);
+        productMapper = context.getBean(ProductMapper.class);
+        offHeapProductStore = context.getBean(OffHeapProductStore.class);
+
+        ProductJdbcRepository productJdbcRepository = context.getBean(ProductJdbcRepository.class);
+        List<Product> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < catalogSize; i++) {
+            batch.add(BenchmarkApplication.product("off-heap-" + i, 10));
+            if (batch.size() == INSERT_BATCH_SIZE || i == catalogSize - 1) {
+                productJdbcRepository.insert(batch);
+                batch.clear();
+            }
+        }
+        offHeapProductStore.reload();
+
+        heapCatalog = new HashMap<>(catalogSize * 2);
+        for (ProductVO productVO : offHeapProductStore.findAll()) {
+            heapCatalog.put(productVO.getCode(), productVO);
+        }
+
+        Random random = new Random(42);
+        codes = new String[1 << 16];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = "off-heap-" + random.nextInt(catalogSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String nextCode(OffHeapCatalogBenchmark benchmark) {
+            return benchmark.codes[next++ & (benchmark.codes.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public ProductVO jpa(Cursor cursor) {
+        return productRepository.findByCode(cursor.nextCode(this)).map(productMapper::toVO).orElse(null);
+    }
+
+    @Benchmark
+    public ProductVO heapMap(Cursor cursor) {
+        return heapCatalog.get(cursor.nextCode(this));
+    }
+
+    @Benchmark
+    public ProductVO offHeap(Cursor cursor) {
+        return offHeapProductStore.find(cursor.nextCode(this)).orElse(null);
+    }
+}
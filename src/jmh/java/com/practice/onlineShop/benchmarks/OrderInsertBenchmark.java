@@ -0,0 +1,93 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.services.OrderService;
+import com.practice.onlineShop.vos.OrderVO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a 20-item {@link OrderService#addOrder(OrderVO)} with and without JDBC batching of
+ * the inserts. The {@link InsertCounters} show next to the score how many statements Hibernate
+ * prepared and how many entities it inserted, a batch of inserts counts once; divide them by
+ * {@code orders} for the numbers per order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderInsertBenchmark {
+
+    private static final int ORDER_ITEMS = 20;
+
+    @Param({"1", "50"})
+    private int jdbcBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private Statistics statistics;
+    private OrderVO orderVO;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class InsertCounters {
+        public long orders;
+        public long statementsPrepared;
+        public long entitiesInserted;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            orders = 0;
+            statementsPrepared = 0;
+            entitiesInserted = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                "spring.jpa.properties.hibernate.generate_statistics=true");
+        orderService = context.getBean(OrderService.class);
+
+        Users client = BenchmarkApplication.saveUserWithRole(context, Roles.CLIENT);
+        List<Product> products = BenchmarkApplication.saveProducts(context, "insert-", ORDER_ITEMS, Integer.MAX_VALUE);
+
+        Map<Integer, Integer> productsIdsToQuantity = new HashMap<>();
+        for (Product product : products) {
+            productsIdsToQuantity.put((int) product.getId(), 1);
+        }
+        orderVO = new OrderVO();
+        orderVO.setUserId((int) client.getId());
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void addOrderWith20Items(InsertCounters counters) throws Exception {
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long insertsBefore = statistics.getEntityInsertCount();
+        orderService.addOrder(orderVO);
+        counters.orders++;
+        counters.statementsPrepared += statistics.getPrepareStatementCount() - statementsBefore;
+        counters.entitiesInserted += statistics.getEntityInsertCount() - insertsBefore;
+    }
+}
@@ -0,0 +1,91 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.journal.OrderJournal;
+import com.practice.onlineShop.services.OrderService;
+import com.practice.onlineShop.vos.OrderVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time until {@link OrderService#addOrder(OrderVO)} acknowledges an order, and orders acknowledged
+ * per second, when the order is inserted in the request ({@code DATABASE}) and when it is appended
+ * to the {@link OrderJournal}, with and without the fsync. The stock is in the ledger in every
+ * case, so the order write is what differs; the journal's applier inserts the orders meanwhile,
+ * on the same db. With one thread every journaled order waits for its own fsync, with several
+ * they share them.
+ *
+ * The fsync costs what the disk under the journal directory costs, run it there.
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="OrderJournal"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderJournalBenchmark {
+
+    @Param({"DATABASE", "JOURNAL", "JOURNAL_WITHOUT_FSYNC"})
+    private String writePath;
+
+    private Path journalDirectory;
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderVO orderVO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journalDirectory = Files.createTempDirectory("order-journal-benchmark");
+        context = BenchmarkApplication.start("onlineshop.stock.engine=LEDGER",
+                "onlineshop.order.write-mode=" + (writePath.equals("DATABASE") ? "DATABASE" : "JOURNAL"),
+                "onlineshop.order.journal.fsync=" + !writePath.equals("JOURNAL_WITHOUT_FSYNC"),
+                "onlineshop.order.journal.directory=" + journalDirectory);
+        orderService = context.getBean(OrderService.class);
+
+        Users client = BenchmarkApplication.saveUserWithRole(context, Roles.CLIENT);
+        List<Product> products = BenchmarkApplication.saveProducts(context, "journal-", 3, Integer.MAX_VALUE);
+
+        Map<Integer, Integer> productsIdsToQuantity = new HashMap<>();
+        for (Product product : products) {
+            productsIdsToQuantity.put((int) product.getId(), 1);
+        }
+        orderVO = new OrderVO();
+        orderVO.setUserId((int) client.getId());
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(journalDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void addOrder() throws Exception {
+        orderService.addOrder(orderVO);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addOrderFromEightClients() throws Exception {
+        orderService.addOrder(orderVO);
+    }
+}
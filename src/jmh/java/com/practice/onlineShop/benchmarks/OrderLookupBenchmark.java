@@ -0,0 +1,113 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.OrderStatus;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.services.OrderService;
+import com.practice.onlineShop.vos.OrderDetailsVO;
+import com.practice.onlineShop.vos.OrderPageVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order lookups on a large orders table, with the status indexes and with them dropped. The
+ * {@code order_item(order_id)} index stays in both cases: H2, like MySQL, uses it for the foreign
+ * key and would create an equivalent one without it. The orders
+ * are inserted with plain JDBC: one item each, spread over {@value #USERS} customers, one in a
+ * hundred still {@code PLACED} and the rest delivered, returned or canceled.
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="OrderLookup"
+ *   mvn -Pbenchmark verify -Djmh.args="OrderLookup -p orderCount=100000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderLookupBenchmark {
+
+    private static final int USERS = 1000;
+    private static final int PRODUCTS = 100;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final OrderStatus[] DONE_STATUSES = {OrderStatus.DELIVERED, OrderStatus.RETURNED, OrderStatus.CANCELED};
+
+    @Param({"1000000"})
+    private int orderCount;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private long[] userIds;
+    private long adminId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("onlineshop.audit.enabled=false");
+        orderService = context.getBean(OrderService.class);
+
+        userIds = new long[USERS];
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = BenchmarkApplication.saveUserWithRole(context, Roles.CLIENT).getId();
+        }
+        adminId = BenchmarkApplication.saveUserWithRole(context, Roles.ADMIN).getId();
+        List<Product> products = BenchmarkApplication.saveProducts(context, "lookup-", PRODUCTS, 10);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        insertOrders(jdbcTemplate, products);
+        if (!indexed) {
+            jdbcTemplate.execute("drop index orders_user_id_status_idx");
+            jdbcTemplate.execute("drop index orders_status_idx");
+        }
+        jdbcTemplate.execute("analyze");
+    }
+
+    private void insertOrders(JdbcTemplate jdbcTemplate, List<Product> products) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Object[]> orders = new ArrayList<>(INSERT_BATCH_SIZE);
+        List<Object[]> orderItems = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (long id = 1; id <= orderCount; id++) {
+            OrderStatus status = random.nextInt(100) == 0 ? OrderStatus.PLACED : DONE_STATUSES[random.nextInt(DONE_STATUSES.length)];
+            orders.add(new Object[]{id, userIds[random.nextInt(USERS)], status.name()});
+            orderItems.add(new Object[]{id, id, products.get(random.nextInt(PRODUCTS)).getId(), 1 + random.nextInt(3)});
+            if (orders.size() == INSERT_BATCH_SIZE || id == orderCount) {
+                jdbcTemplate.batchUpdate("insert into orders (id, user_id, status, version) values (?, ?, ?, 0)", orders);
+                jdbcTemplate.batchUpdate("insert into order_item (id, order_id, product_id, quantity) values (?, ?, ?, ?)", orderItems);
+                orders.clear();
+                orderItems.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OrderDetailsVO getOrder() throws Exception {
+        return orderService.getOrder(1 + ThreadLocalRandom.current().nextInt(orderCount), adminId);
+    }
+
+    @Benchmark
+    public OrderPageVO getPlacedOrdersOfUser() {
+        return orderService.getOrders(userIds[ThreadLocalRandom.current().nextInt(USERS)], OrderStatus.PLACED, 0, null, adminId);
+    }
+
+    @Benchmark
+    public OrderPageVO getPlacedOrders() {
+        return orderService.getOrders(null, OrderStatus.PLACED, ThreadLocalRandom.current().nextInt(orderCount), null, adminId);
+    }
+}
@@ -0,0 +1,68 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.services.OrderService;
+import com.practice.onlineShop.vos.OrderVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OrderService#addOrder(OrderVO)} end to end: security advice, product loading,
+ * stock reservation and the insert of the order with its items. The sixteen client variant
+ * places the same basket from every thread, so they all contend on the stock of the same products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderPlacementBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int basketSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private OrderVO orderVO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        orderService = context.getBean(OrderService.class);
+
+        Users client = BenchmarkApplication.saveUserWithRole(context, Roles.CLIENT);
+        List<Product> products = BenchmarkApplication.saveProducts(context, "order-", basketSize, Integer.MAX_VALUE);
+
+        Map<Integer, Integer> productsIdsToQuantity = new HashMap<>();
+        for (Product product : products) {
+            productsIdsToQuantity.put((int) product.getId(), 1);
+        }
+        orderVO = new OrderVO();
+        orderVO.setUserId((int) client.getId());
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void addOrder() throws Exception {
+        orderService.addOrder(orderVO);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void addOrderFromSixteenClients() throws Exception {
+        orderService.addOrder(orderVO);
+    }
+}
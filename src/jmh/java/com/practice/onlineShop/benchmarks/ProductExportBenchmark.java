@@ -0,0 +1,114 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.Currencies;
+import com.practice.onlineShop.enums.ProductExportFormat;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import com.practice.onlineShop.services.ProductExportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A full export of a multi-million row catalog, per format, with and without gzip, written to a
+ * stream that only counts the bytes. Each operation is one complete dump. The heap is capped well
+ * below what the catalog would take as {@code ProductVO}s; run with {@code -prof gc} to see that
+ * the allocation is short-lived garbage only.
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="ProductExport"
+ *   mvn -Pbenchmark verify -Djmh.args="ProductExport -p productCount=5000000 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ProductExportBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    @Param({"2000000"})
+    private int productCount;
+
+    @Param({"CSV", "NDJSON"})
+    private ProductExportFormat format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ConfigurableApplicationContext context;
+    private ProductExportService productExportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("onlineshop.audit.enabled=false");
+        productExportService = context.getBean(ProductExportService.class);
+
+        ProductJdbcRepository productJdbcRepository = context.getBean(ProductJdbcRepository.class);
+        List<Product> products = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < productCount; i++) {
+            Product product = BenchmarkApplication.product("export-" + i, i % 100);
+            product.setCurrency(i % 2 == 0 ? Currencies.RON : Currencies.EUR);
+            product.setValid(i % 10 != 0);
+            products.add(product);
+            if (products.size() == INSERT_BATCH_SIZE || i == productCount - 1) {
+                productJdbcRepository.insert(products);
+                products.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long exportAll() throws IOException {
+        return export(null, null);
+    }
+
+    @Benchmark
+    public long exportValidInRon() throws IOException {
+        return export(true, Currencies.RON);
+    }
+
+    private long export(Boolean valid, Currencies currency) throws IOException {
+        CountingOutputStream countingOutputStream = new CountingOutputStream();
+        if (gzip) {
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(countingOutputStream, GZIP_BUFFER_SIZE);
+            productExportService.exportProducts(format, valid, currency, gzipOutputStream);
+            gzipOutputStream.finish();
+        } else {
+            productExportService.exportProducts(format, valid, currency, countingOutputStream);
+        }
+        return countingOutputStream.count;
+    }
+
+    /**
+     * Stands in for the response, so that only the export itself is measured.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
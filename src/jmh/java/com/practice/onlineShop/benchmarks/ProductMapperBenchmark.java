@@ -0,0 +1,31 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.mappers.ProductMapper;
+import com.practice.onlineShop.vos.ProductVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductMapperBenchmark {
+
+    private final ProductMapper productMapper = new ProductMapper();
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        product = BenchmarkApplication.product("mapper", 10);
+        product.setId(1);
+    }
+
+    @Benchmark
+    public ProductVO toVO() {
+        return productMapper.toVO(product);
+    }
+}
@@ -0,0 +1,157 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.search.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductSearchIndex#search} on a large catalog, without the db read of the matches. The
+ * descriptions are 4 to 8 words drawn from a vocabulary of {@value #VOCABULARY_SIZE} made-up words
+ * with a Zipf distribution, like real text: a few words are in a large share of the products, most
+ * are rare. Each query kind cycles through {@value #QUERIES} pre-built queries:
+ * <ul>
+ *     <li>rareWord: a word outside the 1000 most frequent ones</li>
+ *     <li>twoWords: two words of the same product, a frequent one and a rarer one</li>
+ *     <li>prefix: the first three letters of a word outside the 100 most frequent</li>
+ *     <li>code: a whole product code, whose {@code sku} term is in every product</li>
+ *     <li>frequentWord: one of the 10 most frequent words, the worst case, every match is ranked</li>
+ * </ul>
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="ProductSearch"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProductSearchBenchmark {
+
+    private static final int VOCABULARY_SIZE = 20_000;
+    private static final int QUERIES = 1024;
+    private static final int LIMIT = 20;
+    private static final String[] SYLLABLES = {"ba", "ce", "di", "fo", "gu", "la", "me", "ni", "po", "ru", "sa", "te", "vi", "zo", "ca", "ma"};
+
+    @Param({"1000000"})
+    private int productCount;
+
+    private ProductSearchIndex index;
+    private String[] rareWordQueries;
+    private String[] twoWordQueries;
+    private String[] prefixQueries;
+    private String[] codeQueries;
+    private String[] frequentWordQueries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = word(i);
+        }
+        double[] cumulative = zipf(VOCABULARY_SIZE);
+
+        index = new ProductSearchIndex(null);
+        int[][] wordsByProduct = new int[QUERIES][];
+        for (int product = 0; product < productCount; product++) {
+            int[] words = new int[4 + random.nextInt(5)];
+            StringBuilder description = new StringBuilder();
+            for (int i = 0; i < words.length; i++) {
+                words[i] = draw(cumulative, random);
+                description.append(vocabulary[words[i]]).append(' ');
+            }
+            if (product < QUERIES) {
+                wordsByProduct[product] = words;
+            }
+            index.index("SKU-" + product, description.toString());
+        }
+
+        rareWordQueries = new String[QUERIES];
+        twoWordQueries = new String[QUERIES];
+        prefixQueries = new String[QUERIES];
+        codeQueries = new String[QUERIES];
+        frequentWordQueries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            rareWordQueries[i] = vocabulary[1000 + random.nextInt(VOCABULARY_SIZE - 1000)];
+            int[] words = wordsByProduct[i];
+            int frequent = 0;
+            int rare = 0;
+            for (int j = 1; j < words.length; j++) {
+                frequent = words[j] < words[frequent] ? j : frequent;
+                rare = words[j] > words[rare] ? j : rare;
+            }
+            twoWordQueries[i] = vocabulary[words[frequent]] + " " + vocabulary[words[rare]];
+            prefixQueries[i] = vocabulary[100 + random.nextInt(VOCABULARY_SIZE - 100)].substring(0, 3);
+            codeQueries[i] = "SKU-" + random.nextInt(productCount);
+            frequentWordQueries[i] = vocabulary[random.nextInt(10)];
+        }
+    }
+
+    @Benchmark
+    public List<String> rareWord() {
+        return index.search(rareWordQueries[nextQuery()], LIMIT);
+    }
+
+    @Benchmark
+    public List<String> twoWords() {
+        return index.search(twoWordQueries[nextQuery()], LIMIT);
+    }
+
+    @Benchmark
+    public List<String> prefix() {
+        return index.search(prefixQueries[nextQuery()], LIMIT);
+    }
+
+    @Benchmark
+    public List<String> code() {
+        return index.search(codeQueries[nextQuery()], LIMIT);
+    }
+
+    @Benchmark
+    public List<String> frequentWord() {
+        return index.search(frequentWordQueries[nextQuery()], LIMIT);
+    }
+
+    private int nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+
+    /**
+     * Distinct for every number: its digits in base 16, one syllable each.
+     */
+    private static String word(int number) {
+        StringBuilder word = new StringBuilder();
+        int rest = number + SYLLABLES.length * SYLLABLES.length;
+        while (rest > 0) {
+            word.append(SYLLABLES[rest % SYLLABLES.length]);
+            rest /= SYLLABLES.length;
+        }
+        return word.toString();
+    }
+
+    private static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int draw(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+    }
+}
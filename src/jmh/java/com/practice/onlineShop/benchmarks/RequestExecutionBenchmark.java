@@ -0,0 +1,96 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.enums.ExecutionMode;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained throughput of {@code GET /product/{code}} over HTTP with many more clients than
+ * cores, for each {@link ExecutionMode}. The in-flight limit is set below the number of clients,
+ * so {@link Outcomes#shed} shows how much of the load was answered with 503 instead of waiting.
+ *
+ * <pre>
+ *   mvn -Pbenchmark verify -Djmh.args="RequestExecution"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(128)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RequestExecutionBenchmark {
+
+    private static final int PRODUCT_COUNT = 1000;
+
+    @Param({"SERVLET", "BOUNDED", "VIRTUAL"})
+    private ExecutionMode executionMode;
+
+    @Param({"96"})
+    private int maxInFlight;
+
+    private ConfigurableApplicationContext context;
+    private CloseableHttpClient httpClient;
+    private String productUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWebServer(
+                "onlineshop.web.execution-mode=" + executionMode,
+                "onlineshop.web.executor.threads=32",
+                "onlineshop.web.max-in-flight=" + maxInFlight,
+                "onlineshop.audit.enabled=false");
+        BenchmarkApplication.saveProducts(context, "load-", PRODUCT_COUNT, 10);
+        httpClient = HttpClients.custom()
+                .setMaxConnTotal(256)
+                .setMaxConnPerRoute(256)
+                .build();
+        productUrl = "http://localhost:" + BenchmarkApplication.getPort(context) + "/product/load-";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        httpClient.close();
+        context.close();
+    }
+
+    /**
+     * Responses per thread by kind, reported next to the total throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long ok;
+        public long shed;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            ok = 0;
+            shed = 0;
+        }
+    }
+
+    @Benchmark
+    public int getProduct(Outcomes outcomes) throws IOException {
+        HttpGet request = new HttpGet(productUrl + ThreadLocalRandom.current().nextInt(PRODUCT_COUNT));
+        HttpResponse response = httpClient.execute(request);
+        EntityUtils.consume(response.getEntity());
+        int status = response.getStatusLine().getStatusCode();
+        if (status == 503) {
+            outcomes.shed++;
+        } else {
+            outcomes.ok++;
+        }
+        return status;
+    }
+}
@@ -0,0 +1,71 @@
+package com.practice.onlineShop.benchmarks;
+
+import com.practice.onlineShop.aspects.SecurityAspect;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.services.ProductService;
+import com.practice.onlineShop.vos.ProductVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.AopTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same {@link ProductService#updateProduct(ProductVO, Long)} call through a proxy that applies
+ * only {@link SecurityAspect}, and on the bare target. The difference between the two is what the
+ * security check costs; the other aspects and the transaction are in neither.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SecurityAspectBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ProductService advisedProductService;
+    private ProductService plainProductService;
+    private ProductVO productVO;
+    private Long adminId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        plainProductService = AopTestUtils.getUltimateTargetObject(context.getBean(ProductService.class));
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(plainProductService);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(context.getBean(SecurityAspect.class));
+        advisedProductService = proxyFactory.getProxy();
+
+        Users admin = BenchmarkApplication.saveUserWithRole(context, Roles.ADMIN);
+        adminId = admin.getId();
+        Product product = BenchmarkApplication.saveProducts(context, "security-", 1, 10).get(0);
+
+        productVO = new ProductVO();
+        productVO.setCode(product.getCode());
+        productVO.setDescription(product.getDescription());
+        productVO.setCurrency(product.getCurrency());
+        productVO.setPrice(product.getPrice());
+        productVO.setStock(product.getStock());
+        productVO.setValid(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void withSecurityAdvice() throws Exception {
+        advisedProductService.updateProduct(productVO, adminId);
+    }
+
+    @Benchmark
+    public void withoutSecurityAdvice() throws Exception {
+        plainProductService.updateProduct(productVO, adminId);
+    }
+}
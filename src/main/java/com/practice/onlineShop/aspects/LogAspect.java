@@ -1,82 +1,115 @@
 package com.practice.onlineShop.aspects;
 
-import org.aspectj.lang.JoinPoint;
+import com.practice.onlineShop.audit.AuditLog;
+import com.practice.onlineShop.vos.OrderVO;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
 import org.springframework.stereotype.Component;
 
-import java.util.Date;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.lang.reflect.UndeclaredThrowableException;
 
 @Aspect
 @Component
+@RequiredArgsConstructor
 public class LogAspect {
+
+    private final AuditLog auditLog;
+
     @Pointcut("execution(* com.practice.onlineShop.controllers.ProductController.addProduct(..))")
     public void addProductPointcut(){
     }
     @Pointcut("execution(* com.practice.onlineShop.controllers.ProductController.updateProduct(..))")
     public void updateProductPointcut(){
     }
+    @Pointcut("execution(* com.practice.onlineShop.controllers.ProductController.deletProduct(..))")
+    public void deleteProductPointcut(){
+    }
     @Pointcut("execution(* com.practice.onlineShop.controllers.OrderController.addOrder(..))")
     public void addOrderPointcut(){
     }
+    @Pointcut("execution(* com.practice.onlineShop.controllers.OrderController.addOrders(..))")
+    public void addOrdersPointcut(){
+    }
     @Pointcut("execution(* com.practice.onlineShop.controllers.OrderController.deliver(..))")
     public void deliverPointcut(){
     }
+    @Pointcut("execution(* com.practice.onlineShop.controllers.OrderController.deliverOrders(..))")
+    public void deliverOrdersPointcut(){
+    }
+    @Pointcut("execution(* com.practice.onlineShop.controllers.OrderController.cancelOrders(..))")
+    public void cancelOrdersPointcut(){
+    }
     @Pointcut("execution(* com.practice.onlineShop.controllers.OrderController.cancelOrder(..))")
     public void cancelOrderPointcut(){
     }
     @Pointcut("execution(* com.practice.onlineShop.controllers.OrderController.returnOrder(..))")
     public void returnOrderPointcut(){
     }
+    @Pointcut("execution(* com.practice.onlineShop.controllers.ProductController.importProducts(..))")
+    public void importProductsPointcut(){
+    }
     @Pointcut("execution(* com.practice.onlineShop.controllers.ProductController.addStock(..))")
     public void addStockPointcut(){
     }
 
-    @Before("com.practice.onlineShop.aspects.LogAspect.addProductPointcut()")
-    public void before (JoinPoint joinPoint){
-        System.out.println("In before aspects at " + new Date());
-        System.out.println("ProductVO: " + joinPoint.getArgs()[0]);
-        System.out.println("The user had id:" + joinPoint.getArgs()[1]);
-    }
-    @Before("com.practice.onlineShop.aspects.LogAspect.addStockPointcut()")
-    public void beforeAddingStock (JoinPoint joinPoint){
-        System.out.println("In before aspects at " + new Date() + " before adding stock");
-        System.out.println("Product code: " + joinPoint.getArgs()[0]);
-        System.out.println("Product quantity: " + joinPoint.getArgs()[1]);
-        System.out.println("The user had id:" + joinPoint.getArgs()[2]);
-    }
-    @Before("com.practice.onlineShop.aspects.LogAspect.deliverPointcut()")
-    public void beforeDeliver (JoinPoint joinPoint){
-        System.out.println("In before aspects at " + new Date() +" for doing a delivery");
-        System.out.println("OrderId: " + joinPoint.getArgs()[0]);
-        System.out.println("The user had id:" + joinPoint.getArgs()[1]);
-    }
-    @Before("com.practice.onlineShop.aspects.LogAspect.cancelOrderPointcut()")
-    public void beforeCancelingOrder (JoinPoint joinPoint){
-        System.out.println("In before aspects at " + new Date()+ "for doing a canceltion");
-        System.out.println("OrderId: " + joinPoint.getArgs()[0]);
-        System.out.println("The user had id:" + joinPoint.getArgs()[1]);
-    }
-    @Before("com.practice.onlineShop.aspects.LogAspect.returnOrderPointcut()")
-    public void beforeReturningOrder (JoinPoint joinPoint){
-        System.out.println("In before aspects at " + new Date()+ "for doing a return");
-        System.out.println("OrderId: " + joinPoint.getArgs()[0]);
-        System.out.println("The user had id:" + joinPoint.getArgs()[1]);
-    }
-    @Before("com.practice.onlineShop.aspects.LogAspect.updateProductPointcut()")
-    public void beforeUpdate (JoinPoint joinPoint){
-        System.out.println("In before aspects at " + new Date() + "for doing an update");
-        System.out.println("ProductVO: " + joinPoint.getArgs()[0]);
-        System.out.println("The user had id:" + joinPoint.getArgs()[1]);
-    }
-    @After("com.practice.onlineShop.aspects.LogAspect.updateProductPointcut()")
-    public void after (JoinPoint joinPoint){
-        System.out.println("In after aspects at " + new Date());
+    @Around("addProductPointcut() || updateProductPointcut() || deleteProductPointcut() || addStockPointcut()" +
+            " || addOrderPointcut() || addOrdersPointcut() || deliverPointcut() || cancelOrderPointcut() || returnOrderPointcut()" +
+            " || deliverOrdersPointcut() || cancelOrdersPointcut() || importProductsPointcut()")
+    public Object audit(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        String outcome = "OK";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            outcome = getOutcome(throwable);
+            throw throwable;
+        } finally {
+            Object[] arguments = getAuditedArguments(joinPoint.getArgs());
+            auditLog.record(joinPoint.getSignature().getName(), getUserId(arguments), arguments, System.nanoTime() - start, outcome);
+        }
     }
 
-    @Before("com.practice.onlineShop.aspects.LogAspect.addOrderPointcut()")
-    public void beforeAddingAnOrder (JoinPoint joinPoint){
-        System.out.println("In before aspects at " + new Date());
-        System.out.println("OrderVO " + joinPoint.getArgs()[0]);
+    /**
+     * The servlet request and response of the import are recycled once the request ends, before
+     * the audit writer gets to them, so they are logged as placeholders.
+     */
+    private Object[] getAuditedArguments(Object[] arguments) {
+        Object[] auditedArguments = arguments.clone();
+        for(int i = 0; i < auditedArguments.length; i++){
+            if(auditedArguments[i] instanceof ServletRequest){
+                auditedArguments[i] = "request body";
+            } else if(auditedArguments[i] instanceof ServletResponse){
+                auditedArguments[i] = "response body";
+            }
+        }
+        return auditedArguments;
+    }
+
+    /**
+     * Checked exceptions thrown by the security advice reach the controllers wrapped,
+     * the outcome names the original one.
+     */
+    private String getOutcome(Throwable throwable) {
+        if(throwable instanceof UndeclaredThrowableException && throwable.getCause() != null){
+            return throwable.getCause().getClass().getSimpleName();
+        }
+        return throwable.getClass().getSimpleName();
+    }
 
+    /**
+     * The user is the last argument of the product and order operations, or is inside the order.
+     */
+    private Long getUserId(Object[] arguments) {
+        Object lastArgument = arguments[arguments.length - 1];
+        if(lastArgument instanceof Long){
+            return (Long) lastArgument;
+        }
+        if(lastArgument instanceof OrderVO && ((OrderVO) lastArgument).getUserId() != null){
+            return ((OrderVO) lastArgument).getUserId().longValue();
+        }
+        return null;
     }
 }
@@ -0,0 +1,59 @@
+package com.practice.onlineShop.aspects;
+
+import com.practice.onlineShop.metrics.MetricsRegistry;
+import com.practice.onlineShop.metrics.OperationMetrics;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Times every controller and service call. It runs first, so a service's latency includes its
+ * security check and its transaction commit.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class MetricsAspect {
+
+    private final MetricsRegistry metricsRegistry;
+
+    @Pointcut("within(com.practice.onlineShop.controllers..*) && !within(com.practice.onlineShop.controllers.MetricsController)")
+    public void controllerPointcut(){
+    }
+    @Pointcut("within(com.practice.onlineShop.services..*)")
+    public void servicePointcut(){
+    }
+
+    @Around("controllerPointcut() || servicePointcut()")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        if(!metricsRegistry.isEnabled()){
+            return joinPoint.proceed();
+        }
+        OperationMetrics metrics = metricsRegistry.getMetrics(((MethodSignature) joinPoint.getSignature()).getMethod());
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            metrics.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (Throwable throwable) {
+            metrics.recordFailure(System.nanoTime() - start, getExceptionType(throwable));
+            throw throwable;
+        }
+    }
+
+    private Class<?> getExceptionType(Throwable throwable) {
+        if(throwable instanceof UndeclaredThrowableException && throwable.getCause() != null){
+            return throwable.getCause().getClass();
+        }
+        return throwable.getClass();
+    }
+}
@@ -0,0 +1,67 @@
+package com.practice.onlineShop.aspects;
+
+import com.practice.onlineShop.metrics.MetricsRegistry;
+import com.practice.onlineShop.metrics.OperationMetrics;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Retries {@link RetryOnConflict} methods that fail on a version check. It is ordered right after
+ * the metrics and before the transaction, so every attempt reads the entity again in a fresh
+ * transaction. Between attempts it waits a random time below an exponentially growing bound,
+ * so the writers that collided do not collide again.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RetryAspect {
+
+    private final MetricsRegistry metricsRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    public RetryAspect(MetricsRegistry metricsRegistry,
+                       @Value("${onlineshop.retry.max-attempts:5}") int maxAttempts,
+                       @Value("${onlineshop.retry.initial-backoff-millis:2}") long initialBackoffMillis,
+                       @Value("${onlineshop.retry.max-backoff-millis:100}") long maxBackoffMillis) {
+        this.metricsRegistry = metricsRegistry;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+    }
+
+    @Around("@annotation(com.practice.onlineShop.aspects.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        OperationMetrics metrics = metricsRegistry.getMetrics(((MethodSignature) joinPoint.getSignature()).getMethod());
+        for(int attempt = 1; ; attempt++){
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException conflict) {
+                metrics.recordConflict();
+                if(attempt >= maxAttempts){
+                    metrics.recordRetriesExhausted();
+                    throw conflict;
+                }
+                LockSupport.parkNanos(getBackoffNanos(attempt));
+            }
+        }
+    }
+
+    private long getBackoffNanos(int attempt) {
+        long bound = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 20));
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+}
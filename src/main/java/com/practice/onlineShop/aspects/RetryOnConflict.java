@@ -0,0 +1,15 @@
+package com.practice.onlineShop.aspects;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the method again, in a new transaction, when it loses an optimistic locking race on a
+ * versioned entity. See {@link RetryAspect} for the attempts and the backoff.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
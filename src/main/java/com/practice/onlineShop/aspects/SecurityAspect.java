@@ -1,10 +1,10 @@
 package com.practice.onlineShop.aspects;
 
-import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.caches.UserRoleCache;
 import com.practice.onlineShop.enums.Roles;
 import com.practice.onlineShop.exceptions.InvalidCustomerIdException;
 import com.practice.onlineShop.exceptions.InvalidOperationException;
-import com.practice.onlineShop.repositories.UserRepository;
+import com.practice.onlineShop.repositories.OrderRepository;
 import com.practice.onlineShop.vos.OrderVO;
 import lombok.RequiredArgsConstructor;
 import org.aspectj.lang.JoinPoint;
@@ -13,9 +13,11 @@ import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 import org.springframework.stereotype.Component;
 
-import javax.jws.soap.SOAPBinding;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.practice.onlineShop.enums.Roles.*;
 
@@ -23,7 +25,8 @@ import static com.practice.onlineShop.enums.Roles.*;
 @Component
 @RequiredArgsConstructor
 public class SecurityAspect {
-    private final UserRepository userRepository;
+    private final UserRoleCache userRoleCache;
+    private final OrderRepository orderRepository;
 
     @Pointcut("execution(* com.practice.onlineShop.services.ProductService.addProduct(..))")
     public void addProduct(){
@@ -32,6 +35,10 @@ public class SecurityAspect {
     @Pointcut("execution(* com.practice.onlineShop.services.ProductService.updateProduct(..))")
     public void updateProduct(){
 
+    }
+    @Pointcut("execution(* com.practice.onlineShop.services.ProductImportService.importProducts(..))")
+    public void importProducts(){
+
     }
     @Pointcut("execution(* com.practice.onlineShop.services.ProductService.deleteProduct(..))")
     public void deleteProduct(){
@@ -50,51 +57,64 @@ public class SecurityAspect {
     }@Pointcut("execution(* com.practice.onlineShop.services.OrderService.returnOrder(..))")
     public void returnOrderPointCut(){
 
+    }
+    @Pointcut("execution(* com.practice.onlineShop.services.OrderService.getOrder(..))")
+    public void getOrderPointCut(){
+
+    }
+    @Pointcut("execution(* com.practice.onlineShop.services.OrderService.getOrders(..))")
+    public void getOrdersPointCut(){
+
     }
     @Pointcut("execution(* com.practice.onlineShop.services.ProductService.addStock(..))")
     public void addStockPointCut(){
 
+    }
+    @Pointcut("execution(* com.practice.onlineShop.services.OrderBatchService.addOrders(..))")
+    public void addOrdersPointCut(){
+
+    }
+    @Pointcut("execution(* com.practice.onlineShop.services.OrderBatchService.deliverOrders(..))")
+    public void deliverOrdersPointCut(){
+
+    }
+    @Pointcut("execution(* com.practice.onlineShop.services.OrderBatchService.cancelOrders(..))")
+    public void cancelOrdersPointCut(){
+
     }
 
 
     @Before("com.practice.onlineShop.aspects.SecurityAspect.addProduct()")
     public void checkSecurityBeforeAddingProduct(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
         Long customerId = (Long) joinPoint.getArgs()[1];
-        Optional<Users> userOptional = userRepository.findById(customerId);
-        if(! userOptional.isPresent()){
-        throw new InvalidCustomerIdException();
-        }
-        Users user = userOptional.get();
-        if(userIsNotAllowesToAddProduct(user.getRoles())){
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToAddProduct(roles)){
         throw new InvalidOperationException();
         }
-        System.out.println(customerId);
+    }
+    @Before("com.practice.onlineShop.aspects.SecurityAspect.importProducts()")
+    public void checkSecurityBeforeImportingProducts(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
+        Long customerId = (Long) joinPoint.getArgs()[3];
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToAddProduct(roles)){
+            throw new InvalidOperationException();
+        }
     }
     @Before("com.practice.onlineShop.aspects.SecurityAspect.updateProduct()")
     public void checkSecurityBeforeUpdatingProduct(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
         Long customerId = (Long) joinPoint.getArgs()[1];
-        Optional<Users> userOptional = userRepository.findById(customerId);
-        if(! userOptional.isPresent()){
-            throw new InvalidCustomerIdException();
-        }
-        Users user = userOptional.get();
-        if(userIsNotAllowesToUpdateProduct(user.getRoles())){
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToUpdateProduct(roles)){
             throw new InvalidOperationException();
         }
-        System.out.println(customerId);
     }
     @Before("com.practice.onlineShop.aspects.SecurityAspect.addStockPointCut()")
     public void checkSecurityBeforeAddingStock(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
         Long customerId = (Long) joinPoint.getArgs()[2];
-        Optional<Users> userOptional = userRepository.findById(customerId);
-        if(! userOptional.isPresent()){
-            throw new InvalidCustomerIdException();
-        }
-        Users user = userOptional.get();
-        if(userIsNotAllowesToAddStock(user.getRoles())){
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToAddStock(roles)){
             throw new InvalidOperationException();
         }
-        System.out.println(customerId);
     }
 
 
@@ -102,15 +122,10 @@ public class SecurityAspect {
     @Before("com.practice.onlineShop.aspects.SecurityAspect.deleteProduct()")
     public void checkSecurityBeforeDeletingProduct(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
         Long customerId = (Long) joinPoint.getArgs()[1];
-        Optional<Users> userOptional = userRepository.findById(customerId);
-        if(! userOptional.isPresent()){
-            throw new InvalidCustomerIdException();
-        }
-        Users user = userOptional.get();
-        if(userIsNotAllowesToDeleteProduct(user.getRoles())){
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToDeleteProduct(roles)){
             throw new InvalidOperationException();
         }
-        System.out.println(customerId);
     }
 
     @Before("com.practice.onlineShop.aspects.SecurityAspect.addOrderPointCut()")
@@ -120,57 +135,107 @@ public class SecurityAspect {
         if(orderVO.getUserId() == null){
             throw new InvalidCustomerIdException();
         }
-        Optional<Users> userOptional = userRepository.findById(orderVO.getUserId().longValue());
-
-        if(! userOptional.isPresent()){
-            throw new InvalidCustomerIdException();
-        }
-        Users user = userOptional.get();
+        Set<Roles> roles = getRolesOrThrowException(orderVO.getUserId().longValue());
 
-        if(userIsNotAllowesToAddAnOrder(user.getRoles())){
+        if(userIsNotAllowesToAddAnOrder(roles)){
             throw new InvalidOperationException();
         }
 
     }
+    @Before("com.practice.onlineShop.aspects.SecurityAspect.addOrdersPointCut()")
+    public void checkSecurityBeforeAddingOrders(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
+        List<?> orderVOs = (List<?>) joinPoint.getArgs()[0];
+
+        Set<Integer> checkedUserIds = new HashSet<>();
+        for(Object element : orderVOs){
+            if(!(element instanceof OrderVO)){
+                continue;
+            }
+            OrderVO orderVO = (OrderVO) element;
+            // a missing or unknown customer is reported for its own order by the service
+            if(orderVO.getUserId() == null || !checkedUserIds.add(orderVO.getUserId())){
+                continue;
+            }
+            Optional<Set<Roles>> roles = userRoleCache.getRoles(orderVO.getUserId().longValue());
+            if(roles.isPresent() && userIsNotAllowesToAddAnOrder(roles.get())){
+                throw new InvalidOperationException();
+            }
+        }
+    }
     @Before("com.practice.onlineShop.aspects.SecurityAspect.deliverPointCut()")
     public void checkSecurityBeforeDeliver(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
         Long customerId = (Long) joinPoint.getArgs()[1];
-        Optional<Users> userOptional = userRepository.findById(customerId);
-        if(! userOptional.isPresent()){
-            throw new InvalidCustomerIdException();
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToDeliver(roles)){
+            throw new InvalidOperationException();
         }
-        Users user = userOptional.get();
-        if(userIsNotAllowesToDeliver(user.getRoles())){
+    }
+    @Before("com.practice.onlineShop.aspects.SecurityAspect.deliverOrdersPointCut()")
+    public void checkSecurityBeforeDeliveringOrders(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
+        Long customerId = (Long) joinPoint.getArgs()[1];
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToDeliver(roles)){
             throw new InvalidOperationException();
         }
-        System.out.println(customerId);
     }
     @Before("com.practice.onlineShop.aspects.SecurityAspect.cancelOrderPointCut()")
     public void checkSecurityBeforeCancelingOrder(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
         Long customerId = (Long) joinPoint.getArgs()[1];
-        Optional<Users> userOptional = userRepository.findById(customerId);
-        if(! userOptional.isPresent()){
-            throw new InvalidCustomerIdException();
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToCancel(roles)){
+            throw new InvalidOperationException();
         }
-        Users user = userOptional.get();
-        if(userIsNotAllowesToCancel(user.getRoles())){
+    }
+    @Before("com.practice.onlineShop.aspects.SecurityAspect.cancelOrdersPointCut()")
+    public void checkSecurityBeforeCancelingOrders(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
+        Long customerId = (Long) joinPoint.getArgs()[1];
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowesToCancel(roles)){
             throw new InvalidOperationException();
         }
-        System.out.println(customerId);
     }
     @Before("com.practice.onlineShop.aspects.SecurityAspect.returnOrderPointCut()")
     public void checkSecurityBeforeReturningOrder(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
         Long customerId = (Long) joinPoint.getArgs()[1];
-        Optional<Users> usersOptional = userRepository.findById(customerId);
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsNotAllowedToReturnOrder(roles)){
+            throw new InvalidOperationException();
+        }
+    }
+
+    @Before("com.practice.onlineShop.aspects.SecurityAspect.getOrderPointCut()")
+    public void checkSecurityBeforeReadingOrder(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
+        Integer orderId = (Integer) joinPoint.getArgs()[0];
+        Long customerId = (Long) joinPoint.getArgs()[1];
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(userIsAllowedToReadAllOrders(roles) || orderId == null){
+            return;
+        }
+        // a missing order is reported by the service
+        Optional<Long> ownerId = orderRepository.findUserId(orderId.longValue());
+        if(ownerId.isPresent() && !ownerId.get().equals(customerId)){
+            throw new InvalidOperationException();
+        }
+    }
+    @Before("com.practice.onlineShop.aspects.SecurityAspect.getOrdersPointCut()")
+    public void checkSecurityBeforeReadingOrders(JoinPoint joinPoint) throws InvalidCustomerIdException, InvalidOperationException {
+        Long userId = (Long) joinPoint.getArgs()[0];
+        Long customerId = (Long) joinPoint.getArgs()[4];
+        Set<Roles> roles = getRolesOrThrowException(customerId);
+        if(!userIsAllowedToReadAllOrders(roles) && !customerId.equals(userId)){
+            throw new InvalidOperationException();
+        }
+    }
 
-        if(!usersOptional.isPresent()){
+    private Set<Roles> getRolesOrThrowException(Long customerId) throws InvalidCustomerIdException {
+        if(customerId == null){
             throw new InvalidCustomerIdException();
         }
-        Users user = usersOptional.get();
-        
-        if(userIsNotAllowedToReturnOrder(user.getRoles())){
-            throw new InvalidOperationException();
+        Optional<Set<Roles>> rolesOptional = userRoleCache.getRoles(customerId);
+        if(!rolesOptional.isPresent()){
+            throw new InvalidCustomerIdException();
         }
+        return rolesOptional.get();
     }
 
     private boolean userIsNotAllowedToReturnOrder(Collection<Roles> roles) {
@@ -185,6 +250,10 @@ public class SecurityAspect {
         return !roles.contains(EXPEDITOR);
     }
 
+    private boolean userIsAllowedToReadAllOrders(Collection<Roles> roles) {
+        return roles.contains(ADMIN) || roles.contains(EXPEDITOR);
+    }
+
     private boolean userIsNotAllowesToAddAnOrder(Collection<Roles> roles) {
         return !roles.contains(CLIENT);
     }
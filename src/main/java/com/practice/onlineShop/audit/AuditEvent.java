@@ -0,0 +1,19 @@
+package com.practice.onlineShop.audit;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * One audited operation. Arguments are kept as the objects the operation received and are
+ * only turned into text by the background writer, never on the request thread.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AuditEvent {
+    private final long timestampMillis;
+    private final String operation;
+    private final Long userId;
+    private final Object[] arguments;
+    private final long latencyNanos;
+    private final String outcome;
+}
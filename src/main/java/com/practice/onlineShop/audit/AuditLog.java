@@ -0,0 +1,159 @@
+package com.practice.onlineShop.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.onlineShop.enums.AuditOverflowPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.practice.onlineShop.enums.AuditOverflowPolicy.DROP_OLDEST;
+
+/**
+ * Audit trail of the shop's write operations. Request threads only put an {@link AuditEvent} in a
+ * lock-free ring buffer; a background thread takes them out in batches and appends them as JSON
+ * lines to a rolling file. When the buffer is full the configured {@link AuditOverflowPolicy}
+ * decides which event is lost, the request thread never waits.
+ */
+@Slf4j
+@Component
+public class AuditLog {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final boolean enabled;
+    private final AuditRingBuffer ringBuffer;
+    private final AuditOverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final String file;
+    private final long maxFileSizeBytes;
+    private final int maxBackups;
+    private final ObjectMapper objectMapper;
+
+    private final LongAdder droppedEvents = new LongAdder();
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AuditLog(ObjectMapper objectMapper,
+                    @Value("${onlineshop.audit.enabled:true}") boolean enabled,
+                    @Value("${onlineshop.audit.buffer-capacity:8192}") int bufferCapacity,
+                    @Value("${onlineshop.audit.overflow-policy:DROP_NEWEST}") AuditOverflowPolicy overflowPolicy,
+                    @Value("${onlineshop.audit.batch-size:256}") int batchSize,
+                    @Value("${onlineshop.audit.file:logs/audit.log}") String file,
+                    @Value("${onlineshop.audit.max-file-size-mb:50}") long maxFileSizeMb,
+                    @Value("${onlineshop.audit.max-backups:5}") int maxBackups) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ringBuffer = new AuditRingBuffer(bufferCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.batchSize = batchSize;
+        this.file = file;
+        this.maxFileSizeBytes = maxFileSizeMb * 1024 * 1024;
+        this.maxBackups = maxBackups;
+    }
+
+    public void record(String operation, Long userId, Object[] arguments, long latencyNanos, String outcome) {
+        if(!enabled){
+            return;
+        }
+        AuditEvent event = new AuditEvent(System.currentTimeMillis(), operation, userId, arguments, latencyNanos, outcome);
+        if(ringBuffer.offer(event)){
+            return;
+        }
+        if(overflowPolicy == DROP_OLDEST && ringBuffer.poll() != null){
+            droppedEvents.increment();
+            if(ringBuffer.offer(event)){
+                return;
+            }
+        }
+        droppedEvents.increment();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if(!enabled){
+            return;
+        }
+        RollingFileWriter fileWriter = new RollingFileWriter(Paths.get(file), maxFileSizeBytes, maxBackups);
+        running = true;
+        writerThread = new Thread(() -> writeEvents(fileWriter), "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if(writerThread == null){
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void writeEvents(RollingFileWriter fileWriter) {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        try (JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(fileWriter)) {
+            jsonGenerator.setRootValueSeparator(null);
+            while(true){
+                boolean stopping = !running;
+                if(ringBuffer.drainTo(batch, batchSize) == 0){
+                    if(stopping){
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                for(AuditEvent event : batch){
+                    writeEvent(jsonGenerator, event);
+                }
+                batch.clear();
+                jsonGenerator.flush();
+                fileWriter.rollIfNeeded();
+            }
+        } catch (IOException e) {
+            log.error("The audit writer stopped, audit events are no longer written to {}", file, e);
+        }
+    }
+
+    private void writeEvent(JsonGenerator jsonGenerator, AuditEvent event) throws IOException {
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeStringField("timestamp", Instant.ofEpochMilli(event.getTimestampMillis()).toString());
+        jsonGenerator.writeStringField("operation", event.getOperation());
+        if(event.getUserId() != null){
+            jsonGenerator.writeNumberField("userId", event.getUserId());
+        }
+        jsonGenerator.writeArrayFieldStart("arguments");
+        for(Object argument : event.getArguments()){
+            writeArgument(jsonGenerator, argument);
+        }
+        jsonGenerator.writeEndArray();
+        jsonGenerator.writeNumberField("latencyMicros", TimeUnit.NANOSECONDS.toMicros(event.getLatencyNanos()));
+        jsonGenerator.writeStringField("outcome", event.getOutcome());
+        jsonGenerator.writeEndObject();
+        jsonGenerator.writeRaw('\n');
+    }
+
+    private void writeArgument(JsonGenerator jsonGenerator, Object argument) throws IOException {
+        try {
+            jsonGenerator.writeRawValue(objectMapper.writeValueAsString(argument));
+        } catch (IOException e) {
+            jsonGenerator.writeString(String.valueOf(argument));
+        }
+    }
+}
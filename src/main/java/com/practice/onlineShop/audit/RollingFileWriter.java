@@ -0,0 +1,87 @@
+package com.practice.onlineShop.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Appends to a file and rolls it over once it grows past a size: audit.log becomes audit.log.1,
+ * audit.log.1 becomes audit.log.2 and so on, keeping at most {@code maxBackups} old files.
+ * Only the audit writer thread uses it.
+ */
+class RollingFileWriter extends OutputStream {
+
+    private final Path file;
+    private final long maxFileSizeBytes;
+    private final int maxBackups;
+    private OutputStream outputStream;
+    private long writtenBytes;
+
+    RollingFileWriter(Path file, long maxFileSizeBytes, int maxBackups) throws IOException {
+        this.file = file;
+        this.maxFileSizeBytes = maxFileSizeBytes;
+        this.maxBackups = maxBackups;
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        open();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        outputStream.write(b);
+        writtenBytes++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        outputStream.write(bytes, offset, length);
+        writtenBytes += length;
+    }
+
+    /**
+     * Rolls over between batches only, so one record never spans two files.
+     */
+    void rollIfNeeded() throws IOException {
+        if (writtenBytes < maxFileSizeBytes) {
+            return;
+        }
+        outputStream.close();
+        for (int backup = maxBackups - 1; backup >= 1; backup--) {
+            Path source = backupFile(backup);
+            if (Files.exists(source)) {
+                Files.move(source, backupFile(backup + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxBackups > 0) {
+            Files.move(file, backupFile(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private Path backupFile(int backup) {
+        return file.resolveSibling(file.getFileName() + "." + backup);
+    }
+
+    private void open() throws IOException {
+        outputStream = new BufferedOutputStream(new FileOutputStream(file.toFile(), true), 64 * 1024);
+        writtenBytes = Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+}
@@ -0,0 +1,151 @@
+package com.practice.onlineShop.caches;
+
+import com.practice.onlineShop.vos.CacheStatisticsVO;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Small in-process read-through cache with a size bound, a time to live and hit/miss counters.
+ * Lookups are a single {@link ConcurrentHashMap} read. A value loaded while the cache was being
+ * invalidated is returned to its caller but not stored, so an eviction can never be undone by a
+ * load that read the old state.
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxSize, long ttl, TimeUnit ttlUnit) {
+        this(maxSize, ttl, ttlUnit, System::nanoTime);
+    }
+
+    ExpiringCache(int maxSize, long ttl, TimeUnit ttlUnit, LongSupplier nanoClock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlUnit.toNanos(ttl);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the cached value or calls the loader. A null from the loader means "absent" and is
+     * not cached, so the next call asks the loader again.
+     */
+    public V get(K key, Function<K, V> loader) {
+        long now = nanoClock.getAsLong();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt - now > 0) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+
+        long invalidationsBeforeLoad = invalidations.get();
+        long loadStart = nanoClock.getAsLong();
+        V value = loader.apply(key);
+        long loadEnd = nanoClock.getAsLong();
+        loadNanos.add(loadEnd - loadStart);
+
+        if (value != null && invalidations.get() == invalidationsBeforeLoad) {
+            makeRoomFor(key);
+            entries.put(key, new Entry<>(value, loadEnd + ttlNanos));
+            if (invalidations.get() != invalidationsBeforeLoad) {
+                entries.remove(key);
+            }
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    private void makeRoomFor(K key) {
+        if (entries.size() < maxSize || entries.containsKey(key)) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        entries.entrySet().removeIf(entry -> entry.getValue().expiresAt - now <= 0);
+
+        // still full: drop a tenth of the entries rather than scanning the map on every insert
+        int toEvict = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (toEvict > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+            toEvict--;
+        }
+    }
+
+    public CacheStatisticsVO statistics(String name) {
+        CacheStatisticsVO statistics = new CacheStatisticsVO();
+        statistics.setName(name);
+        statistics.setSize(size());
+        statistics.setHits(getHitCount());
+        statistics.setMisses(getMissCount());
+        statistics.setEvictions(getEvictionCount());
+        statistics.setHitRatio(getHitRatio());
+        statistics.setAverageLoadMillis(getAverageLoadMillis());
+        return statistics;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long requestCount = hitCount + misses.sum();
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    public double getAverageLoadMillis() {
+        long loadCount = misses.sum();
+        return loadCount == 0 ? 0 : loadNanos.sum() / 1_000_000.0 / loadCount;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.practice.onlineShop.caches;
+
+import com.practice.onlineShop.events.ProductChangedEvent;
+import com.practice.onlineShop.vos.CacheStatisticsVO;
+import com.practice.onlineShop.vos.ProductVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Products by code, in front of {@code ProductRepository.findByCode}. An entry is dropped once the
+ * transaction that changed the product has committed, so a read that starts after a write has
+ * returned always goes to the db.
+ */
+@Component
+public class ProductCache {
+
+    private final ExpiringCache<String, ProductVO> productsByCode;
+
+    public ProductCache(@Value("${onlineshop.cache.products.max-size:10000}") int maxSize,
+                        @Value("${onlineshop.cache.products.ttl-seconds:60}") long ttlSeconds) {
+        this.productsByCode = new ExpiringCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    public ProductVO get(String productCode, Function<String, ProductVO> loader) {
+        return productsByCode.get(productCode, loader);
+    }
+
+    public void evict(String productCode) {
+        productsByCode.invalidate(productCode);
+    }
+
+    public void evictAll() {
+        productsByCode.invalidateAll();
+    }
+
+    // before the ETags of CatalogVersions move on, so a read with the new ETag misses the cache
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if(event.getProductCode() == null){
+            evictAll();
+            return;
+        }
+        evict(event.getProductCode());
+    }
+
+    public CacheStatisticsVO getStatistics() {
+        return productsByCode.statistics("products");
+    }
+}
@@ -0,0 +1,65 @@
+package com.practice.onlineShop.caches;
+
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.events.UserChangedEvent;
+import com.practice.onlineShop.repositories.UserRepository;
+import com.practice.onlineShop.vos.CacheStatisticsVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the roles of recently seen users in memory so the security checks don't query
+ * the user and its roles before every protected operation.
+ */
+@Component
+public class UserRoleCache {
+
+    private final UserRepository userRepository;
+    private final ExpiringCache<Long, Set<Roles>> rolesByUserId;
+
+    public UserRoleCache(UserRepository userRepository,
+                         @Value("${onlineshop.cache.user-roles.max-size:10000}") int maxSize,
+                         @Value("${onlineshop.cache.user-roles.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.rolesByUserId = new ExpiringCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    public Optional<Set<Roles>> getRoles(long userId) {
+        return Optional.ofNullable(rolesByUserId.get(userId, this::loadRoles));
+    }
+
+    private Set<Roles> loadRoles(Long userId) {
+        Optional<Users> userOptional = userRepository.findWithRolesById(userId);
+        if(!userOptional.isPresent()){
+            return null;
+        }
+        Set<Roles> roles = EnumSet.noneOf(Roles.class);
+        roles.addAll(userOptional.get().getRoles());
+        return Collections.unmodifiableSet(roles);
+    }
+
+    public void evict(long userId) {
+        rolesByUserId.invalidate(userId);
+    }
+
+    public void evictAll() {
+        rolesByUserId.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        evict(event.getUserId());
+    }
+
+    public CacheStatisticsVO getStatistics() {
+        return rolesByUserId.statistics("userRoles");
+    }
+}
@@ -0,0 +1,41 @@
+package com.practice.onlineShop.catalog;
+
+import com.practice.onlineShop.enums.Currencies;
+
+/**
+ * What {@code GET /product/filter} asks for, turned into the bounds the snapshot scan compares
+ * against. Every criterion left null matches all products.
+ */
+public class CatalogFilter {
+
+    final double minPrice;
+    final double maxPrice;
+    final int minStock;
+    final int maxStock;
+    final boolean anyCurrency;
+    final byte currency;
+    final Boolean valid;
+
+    /**
+     * @param minPrice lowest price, inclusive
+     * @param maxPrice highest price, inclusive
+     * @param inStock  true for products with stock left, false for the ones sold out
+     */
+    public CatalogFilter(Double minPrice, Double maxPrice, Currencies currency, Boolean inStock, Boolean valid) {
+        this.minPrice = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        this.maxPrice = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        this.minStock = inStock != null && inStock ? 1 : Integer.MIN_VALUE;
+        this.maxStock = inStock != null && !inStock ? 0 : Integer.MAX_VALUE;
+        this.anyCurrency = currency == null;
+        this.currency = currency == null ? CatalogSnapshot.NO_CURRENCY : (byte) currency.ordinal();
+        this.valid = valid;
+    }
+
+    boolean hasPriceRange() {
+        return minPrice != Double.NEGATIVE_INFINITY || maxPrice != Double.POSITIVE_INFINITY;
+    }
+
+    boolean hasStockRange() {
+        return minStock != Integer.MIN_VALUE || maxStock != Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,24 @@
+package com.practice.onlineShop.catalog;
+
+/**
+ * One page of a snapshot scan: the ids of the matching products after the requested id, in id
+ * order, and how many products match in the whole catalog.
+ */
+public class CatalogMatches {
+
+    private final long[] ids;
+    private final long totalCount;
+
+    CatalogMatches(long[] ids, long totalCount) {
+        this.ids = ids;
+        this.totalCount = totalCount;
+    }
+
+    public long[] getIds() {
+        return ids;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+}
@@ -0,0 +1,296 @@
+package com.practice.onlineShop.catalog;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.onlineShop.mappers.ProductMapper;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import com.practice.onlineShop.services.StockService;
+import com.practice.onlineShop.vos.ProductVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The body of {@code GET /product}, serialized once per version of the catalog instead of once per
+ * request: the JSON array of every product, and the same bytes gzipped, kept in direct buffers
+ * outside the heap. The body is keyed by the {@link CatalogVersions} catalog version and built on a
+ * single background thread, which every move of that version wakes up; a read never builds. Until
+ * the body of the current version is there, the readers read the catalog themselves, so a read that
+ * follows a committed change never gets the body from before it. Changes that come in while a body
+ * is built, such as a stream of orders, are folded into one more build, at most one per
+ * {@code onlineshop.catalog.response-cache.min-rebuild-interval-millis}.
+ *
+ * Off by default, it pays off for catalogs read much more often than they change. Like the
+ * versions it is keyed by, it does not see the writes of other application instances, so it
+ * serves one instance only. A catalog larger than {@code onlineshop.catalog.response-cache.max-size-mb}
+ * is not kept, it is read and serialized for each request as with the cache off.
+ */
+@Slf4j
+@Component
+public class CatalogResponseCache {
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductMapper productMapper;
+    private final StockService stockService;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersions catalogVersions;
+    private final boolean enabled;
+    private final long maxSizeBytes;
+    private final long minRebuildIntervalMillis;
+
+    // null when the cache is off
+    private final ScheduledExecutorService builder;
+    private final AtomicBoolean buildScheduled = new AtomicBoolean();
+    private volatile long lastBuildStartedAt;
+    private volatile SerializedCatalog catalog;
+
+    public CatalogResponseCache(ProductJdbcRepository productJdbcRepository,
+                                ProductMapper productMapper,
+                                StockService stockService,
+                                ObjectMapper objectMapper,
+                                CatalogVersions catalogVersions,
+                                @Value("${onlineshop.catalog.response-cache.enabled:false}") boolean enabled,
+                                @Value("${onlineshop.catalog.response-cache.max-size-mb:64}") long maxSizeMb,
+                                @Value("${onlineshop.catalog.response-cache.min-rebuild-interval-millis:1000}") long minRebuildIntervalMillis) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.productMapper = productMapper;
+        this.stockService = stockService;
+        this.objectMapper = objectMapper;
+        this.catalogVersions = catalogVersions;
+        this.enabled = enabled;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.minRebuildIntervalMillis = minRebuildIntervalMillis;
+        if(enabled){
+            this.builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "catalog-response-builder");
+                thread.setDaemon(true);
+                return thread;
+            });
+            catalogVersions.addCatalogListener(this::scheduleBuild);
+        } else {
+            this.builder = null;
+        }
+    }
+
+    /**
+     * The body of the current catalog version, never built by the caller.
+     *
+     * @return empty when the cache is off, the catalog is too large or the body of the current
+     * version is not built yet: the caller reads the catalog itself
+     */
+    public Optional<SerializedCatalog> get() {
+        if(!enabled){
+            return Optional.empty();
+        }
+        SerializedCatalog current = catalog;
+        if(current == null || current.version != catalogVersions.getCatalogVersion()){
+            // the first read, or a build that failed: the version listener asks for the others
+            scheduleBuild();
+            return Optional.empty();
+        }
+        return current.json == null ? Optional.empty() : Optional.of(current);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if(builder != null){
+            builder.shutdownNow();
+            builder.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * At most one build waits at a time, whatever the number of changes meanwhile.
+     */
+    private void scheduleBuild() {
+        if(!buildScheduled.compareAndSet(false, true)){
+            return;
+        }
+        long delay = Math.max(0, lastBuildStartedAt + minRebuildIntervalMillis - System.currentTimeMillis());
+        builder.schedule(this::buildCurrentVersion, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void buildCurrentVersion() {
+        // a change from now on schedules the next build
+        buildScheduled.set(false);
+        lastBuildStartedAt = System.currentTimeMillis();
+        // read before the products, so the body is at least as new as its ETag says
+        CatalogVersions.Version version = catalogVersions.getCatalogVersion();
+        SerializedCatalog current = catalog;
+        if(current != null && current.version == version){
+            return;
+        }
+        try {
+            catalog = build(version);
+        } catch (RuntimeException e) {
+            log.warn("Could not build the catalog response, trying again with the next read or change", e);
+        }
+    }
+
+    private SerializedCatalog build(CatalogVersions.Version version) {
+        BoundedByteArrayOutputStream json = new BoundedByteArrayOutputStream(maxSizeBytes);
+        try(JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(json)){
+            jsonGenerator.writeStartArray();
+            productJdbcRepository.forEachProduct(product -> {
+                ProductVO productVO = productMapper.toVO(product);
+                productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
+                try {
+                    jsonGenerator.writeObject(productVO);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            jsonGenerator.writeEndArray();
+        } catch (CatalogTooLargeException e) {
+            // remembered for this version, so the reads do not try again until the catalog changes
+            return new SerializedCatalog(version, null, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SerializedCatalog(version, toDirectBuffer(json.toByteArray()), toDirectBuffer(gzip(json)));
+    }
+
+    /**
+     * Built once per version, so it can take the best compression.
+     */
+    private static byte[] gzip(ByteArrayOutputStream json) {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(Math.max(json.size() / 8, 512));
+        try(GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped, 64 * 1024) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }){
+            json.writeTo(gzipOutputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return gzipped.toByteArray();
+    }
+
+    private static ByteBuffer toDirectBuffer(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * One body and its version. The buffers are read-only, every reader gets its own view of them.
+     */
+    public static final class SerializedCatalog {
+        private final CatalogVersions.Version version;
+        // null when the catalog of this version was too large to keep
+        private final ByteBuffer json;
+        private final ByteBuffer gzippedJson;
+
+        private SerializedCatalog(CatalogVersions.Version version, ByteBuffer json, ByteBuffer gzippedJson) {
+            this.version = version;
+            this.json = json;
+            this.gzippedJson = gzippedJson;
+        }
+
+        public CatalogVersions.Version getVersion() {
+            return version;
+        }
+
+        /**
+         * The body as a resource the response is written from, straight out of the direct buffer.
+         */
+        public Resource getBody(boolean gzipped) {
+            return new ByteBufferResource(gzipped ? gzippedJson : json);
+        }
+    }
+
+    private static final class ByteBufferResource extends AbstractResource {
+        private final ByteBuffer buffer;
+
+        private ByteBufferResource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public String getDescription() {
+            return "serialized catalog";
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            ByteBuffer view = buffer.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return view.hasRemaining() ? view.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    if(!view.hasRemaining()){
+                        return -1;
+                    }
+                    int read = Math.min(length, view.remaining());
+                    view.get(bytes, offset, read);
+                    return read;
+                }
+
+                @Override
+                public int available() {
+                    return view.remaining();
+                }
+            };
+        }
+    }
+
+    private static final class BoundedByteArrayOutputStream extends ByteArrayOutputStream {
+        private final long maxSize;
+
+        private BoundedByteArrayOutputStream(long maxSize) {
+            super(64 * 1024);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            checkSize(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            checkSize(length);
+            super.write(bytes, offset, length);
+        }
+
+        private void checkSize(int length) {
+            if(count + (long) length > maxSize){
+                throw new CatalogTooLargeException();
+            }
+        }
+    }
+
+    private static final class CatalogTooLargeException extends RuntimeException {
+        private CatalogTooLargeException() {
+            super(null, null, false, false);
+        }
+    }
+}
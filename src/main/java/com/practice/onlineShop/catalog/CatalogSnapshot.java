@@ -0,0 +1,465 @@
+package com.practice.onlineShop.catalog;
+
+import com.practice.onlineShop.entities.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The columns of the catalog that {@code GET /product/filter} compares, laid out as primitive
+ * arrays instead of one object per product: the scan of a million products reads a few megabytes
+ * of contiguous doubles and ints, with no pointer chasing and no boxing.
+ *
+ * The rows are sorted by id and split in chunks of {@value #CHUNK_SIZE}, every chunk but the last
+ * one full. A snapshot is never changed once published: {@link #patch} copies only the chunks it
+ * touches and shares the others with the previous snapshot, so the readers need no lock and a
+ * burst of stock changes does not copy the whole catalog.
+ *
+ * Deleted products stay in their chunk with the live bit cleared until there are enough of them
+ * to be worth a {@link #compact}.
+ */
+public final class CatalogSnapshot {
+
+    public static final CatalogSnapshot EMPTY = new CatalogSnapshot(new Chunk[0], 0, 0);
+
+    static final int CHUNK_SIZE = 4096;
+    static final byte NO_CURRENCY = -1;
+    private static final int WORDS_PER_CHUNK = CHUNK_SIZE / 64;
+    private static final int MIN_CHUNKS_PER_TASK = 4;
+
+    private final Chunk[] chunks;
+    private final int rowCount;
+    private final int deadCount;
+
+    private CatalogSnapshot(Chunk[] chunks, int rowCount, int deadCount) {
+        this.chunks = chunks;
+        this.rowCount = rowCount;
+        this.deadCount = deadCount;
+    }
+
+    /**
+     * @param productsInIdOrder sorted by id, as {@code forEachProduct} reads them
+     */
+    public static CatalogSnapshot of(Iterable<Product> productsInIdOrder) {
+        Builder builder = new Builder();
+        for(Product product : productsInIdOrder){
+            builder.add(product);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The products still in the catalog.
+     */
+    public int size() {
+        return rowCount - deadCount;
+    }
+
+    int getDeadCount() {
+        return deadCount;
+    }
+
+    /**
+     * Counts the products matching the filter and collects the ids of the first {@code limit} of
+     * them after {@code afterId}. Catalogs of at least {@code parallelThreshold} products are
+     * scanned on the common fork-join pool, a range of chunks per task.
+     */
+    public CatalogMatches filter(CatalogFilter filter, long afterId, int limit, int parallelThreshold) {
+        int startPosition = firstPositionAfter(afterId);
+        Partial partial = rowCount >= parallelThreshold && chunks.length >= 2 * MIN_CHUNKS_PER_TASK
+                ? ForkJoinPool.commonPool().invoke(new FilterTask(filter, startPosition, limit, 0, chunks.length))
+                : scan(filter, startPosition, limit, 0, chunks.length);
+        return new CatalogMatches(Arrays.copyOf(partial.ids, partial.idCount), partial.count);
+    }
+
+    /**
+     * A new snapshot with the given products written over the rows with the same id, or added, and
+     * the products with the given codes left out. The products are added in place when their ids
+     * come after every id already here, as new products do; otherwise the whole snapshot is rebuilt.
+     *
+     * @param savedProducts  the current state of products created or changed since this snapshot
+     * @param removedCodes   products deleted since this snapshot
+     */
+    public CatalogSnapshot patch(Collection<Product> savedProducts, Set<String> removedCodes) {
+        Chunk[] newChunks = chunks.clone();
+        boolean[] copied = new boolean[newChunks.length];
+        int newDeadCount = deadCount;
+
+        List<Product> insertedProducts = new ArrayList<>();
+        for(Product product : savedProducts){
+            int position = positionOf(product.getId());
+            Chunk chunk = position < 0 ? null : chunks[position / CHUNK_SIZE];
+            int row = position % CHUNK_SIZE;
+            if(chunk == null || !chunk.isLive(row) || !Objects.equals(product.getCode(), chunk.codes[row])){
+                insertedProducts.add(product);
+                continue;
+            }
+            writableChunk(newChunks, copied, position / CHUNK_SIZE).set(row, product);
+        }
+
+        // a code deleted and created again comes back with a new id, the old row goes
+        Set<String> codesToRemove = new HashSet<>(removedCodes);
+        for(Product product : insertedProducts){
+            codesToRemove.add(product.getCode());
+        }
+        if(!codesToRemove.isEmpty()){
+            for(int c = 0; c < newChunks.length; c++){
+                Chunk chunk = newChunks[c];
+                for(int row = 0; row < chunk.size; row++){
+                    if(chunk.isLive(row) && codesToRemove.contains(chunk.codes[row])){
+                        writableChunk(newChunks, copied, c).kill(row);
+                        newDeadCount++;
+                    }
+                }
+            }
+        }
+
+        CatalogSnapshot patched = new CatalogSnapshot(newChunks, rowCount, newDeadCount);
+        if(insertedProducts.isEmpty()){
+            return patched;
+        }
+        insertedProducts.sort(Comparator.comparingLong(Product::getId));
+        if(rowCount > 0 && insertedProducts.get(0).getId() <= lastId()){
+            return patched.merge(insertedProducts);
+        }
+        return patched.append(insertedProducts, copied);
+    }
+
+    /**
+     * True when the deleted products left behind take enough room to be worth a {@link #compact}.
+     */
+    public boolean needsCompaction() {
+        return deadCount > CHUNK_SIZE && deadCount > rowCount / 4;
+    }
+
+    /**
+     * The same products without the rows of the deleted ones.
+     */
+    public CatalogSnapshot compact() {
+        return merge(new ArrayList<>());
+    }
+
+    private CatalogSnapshot append(List<Product> insertedProducts, boolean[] copied) {
+        // the chunk array is already this patch's own copy, only the chunks in it may be shared
+        Chunk[] newChunks = chunks;
+        int last = newChunks.length - 1;
+        boolean lastWritable = last >= 0 && copied[last];
+        int newRowCount = rowCount;
+        for(Product product : insertedProducts){
+            if(last < 0 || newChunks[last].size == CHUNK_SIZE){
+                newChunks = Arrays.copyOf(newChunks, newChunks.length + 1);
+                newChunks[++last] = new Chunk();
+                lastWritable = true;
+            } else if(!lastWritable){
+                newChunks[last] = newChunks[last].copy();
+                lastWritable = true;
+            }
+            newChunks[last].add(product);
+            newRowCount++;
+        }
+        return new CatalogSnapshot(newChunks, newRowCount, deadCount);
+    }
+
+    /**
+     * Rebuilds the rows from the live ones here and the given products, which are sorted by id.
+     */
+    private CatalogSnapshot merge(List<Product> insertedProducts) {
+        Builder builder = new Builder();
+        int next = 0;
+        for(Chunk chunk : chunks){
+            for(int row = 0; row < chunk.size; row++){
+                if(!chunk.isLive(row)){
+                    continue;
+                }
+                while(next < insertedProducts.size() && insertedProducts.get(next).getId() < chunk.ids[row]){
+                    builder.add(insertedProducts.get(next++));
+                }
+                builder.add(chunk, row);
+            }
+        }
+        while(next < insertedProducts.size()){
+            builder.add(insertedProducts.get(next++));
+        }
+        return builder.build();
+    }
+
+    private static Chunk writableChunk(Chunk[] chunks, boolean[] copied, int index) {
+        if(!copied[index]){
+            chunks[index] = chunks[index].copy();
+            copied[index] = true;
+        }
+        return chunks[index];
+    }
+
+    private long lastId() {
+        Chunk last = chunks[chunks.length - 1];
+        return last.ids[last.size - 1];
+    }
+
+    /**
+     * @return the position of the row with this id, negative when there is none
+     */
+    private int positionOf(long id) {
+        int position = firstPositionAfter(id - 1);
+        if(position == rowCount){
+            return -1;
+        }
+        return chunks[position / CHUNK_SIZE].ids[position % CHUNK_SIZE] == id ? position : -1;
+    }
+
+    /**
+     * @return the position of the first row with a greater id, {@link #rowCount} when there is none
+     */
+    private int firstPositionAfter(long afterId) {
+        int low = 0;
+        int high = chunks.length;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            Chunk chunk = chunks[middle];
+            if(chunk.ids[chunk.size - 1] <= afterId){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if(low == chunks.length){
+            return rowCount;
+        }
+        Chunk chunk = chunks[low];
+        int row = Arrays.binarySearch(chunk.ids, 0, chunk.size, afterId);
+        return low * CHUNK_SIZE + (row < 0 ? -row - 1 : row + 1);
+    }
+
+    private Partial scan(CatalogFilter filter, int startPosition, int limit, int fromChunk, int toChunk) {
+        Partial partial = new Partial(limit);
+        for(int c = fromChunk; c < toChunk; c++){
+            Chunk chunk = chunks[c];
+            int chunkStart = c * CHUNK_SIZE;
+            for(int word = 0; word < WORDS_PER_CHUNK; word++){
+                long matches = matchWord(chunk, word, filter);
+                if(matches == 0){
+                    continue;
+                }
+                partial.count += Long.bitCount(matches);
+                int wordStart = chunkStart + (word << 6);
+                if(partial.idCount == limit || wordStart + 63 < startPosition){
+                    continue;
+                }
+                while(matches != 0 && partial.idCount < limit){
+                    int bit = Long.numberOfTrailingZeros(matches);
+                    matches &= matches - 1;
+                    if(wordStart + bit >= startPosition){
+                        partial.ids[partial.idCount++] = chunk.ids[(word << 6) + bit];
+                    }
+                }
+            }
+        }
+        return partial;
+    }
+
+    /**
+     * One bit per row of the 64 starting at {@code word * 64}, set when the row matches. The price
+     * column is read for every live row, without a branch per row; the rows left after it are
+     * usually few, so stock and currency are only read for them.
+     */
+    private static long matchWord(Chunk chunk, int word, CatalogFilter filter) {
+        long matches = chunk.live[word];
+        if(filter.valid != null){
+            matches &= filter.valid ? chunk.valid[word] : ~chunk.valid[word];
+        }
+        int base = word << 6;
+        if(matches != 0 && filter.hasPriceRange()){
+            matches &= priceMask(chunk.prices, base, filter.minPrice, filter.maxPrice);
+        }
+        if(matches != 0 && (filter.hasStockRange() || !filter.anyCurrency)){
+            long remaining = matches;
+            while(remaining != 0){
+                int bit = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                int row = base + bit;
+                int stock = chunk.stocks[row];
+                boolean rejected = stock < filter.minStock | stock > filter.maxStock
+                        | !filter.anyCurrency & chunk.currencies[row] != filter.currency;
+                matches &= ~((rejected ? 1L : 0L) << bit);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * A row is in the range when neither {@code price - minPrice} nor {@code maxPrice - price} is
+     * negative; their sign bits are combined as integers, which is more than twice as fast as two
+     * comparisons turned into a bit. Equal prices give +0.0, whose sign bit is clear.
+     */
+    private static long priceMask(double[] prices, int base, double minPrice, double maxPrice) {
+        long mask = 0;
+        for(int bit = 0; bit < 64; bit++){
+            double price = prices[base + bit];
+            long outside = (Double.doubleToRawLongBits(price - minPrice) | Double.doubleToRawLongBits(maxPrice - price)) >>> 63;
+            mask |= (outside ^ 1L) << bit;
+        }
+        return mask;
+    }
+
+    private final class FilterTask extends RecursiveTask<Partial> {
+        private final CatalogFilter filter;
+        private final int startPosition;
+        private final int limit;
+        private final int fromChunk;
+        private final int toChunk;
+
+        private FilterTask(CatalogFilter filter, int startPosition, int limit, int fromChunk, int toChunk) {
+            this.filter = filter;
+            this.startPosition = startPosition;
+            this.limit = limit;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected Partial compute() {
+            if(toChunk - fromChunk <= MIN_CHUNKS_PER_TASK){
+                return scan(filter, startPosition, limit, fromChunk, toChunk);
+            }
+            int middle = (fromChunk + toChunk) >>> 1;
+            FilterTask right = new FilterTask(filter, startPosition, limit, middle, toChunk);
+            right.fork();
+            Partial left = new FilterTask(filter, startPosition, limit, fromChunk, middle).compute();
+            return left.append(right.join());
+        }
+    }
+
+    /**
+     * What a range of chunks contributes: its match count and its first ids, in id order.
+     */
+    private static final class Partial {
+        private final long[] ids;
+        private int idCount;
+        private long count;
+
+        private Partial(int limit) {
+            this.ids = new long[limit];
+        }
+
+        private Partial append(Partial next) {
+            count += next.count;
+            int taken = Math.min(next.idCount, ids.length - idCount);
+            System.arraycopy(next.ids, 0, ids, idCount, taken);
+            idCount += taken;
+            return this;
+        }
+    }
+
+    /**
+     * {@value #CHUNK_SIZE} rows, whatever the size, so the 64-row scan never needs a bounds check
+     * on the last word; the rows past {@link #size} are never live.
+     */
+    private static final class Chunk {
+        private final long[] ids;
+        private final String[] codes;
+        private final double[] prices;
+        private final int[] stocks;
+        private final byte[] currencies;
+        private final long[] valid;
+        private final long[] live;
+        private int size;
+
+        private Chunk() {
+            this(new long[CHUNK_SIZE], new String[CHUNK_SIZE], new double[CHUNK_SIZE], new int[CHUNK_SIZE],
+                    new byte[CHUNK_SIZE], new long[WORDS_PER_CHUNK], new long[WORDS_PER_CHUNK], 0);
+        }
+
+        private Chunk(long[] ids, String[] codes, double[] prices, int[] stocks, byte[] currencies, long[] valid, long[] live, int size) {
+            this.ids = ids;
+            this.codes = codes;
+            this.prices = prices;
+            this.stocks = stocks;
+            this.currencies = currencies;
+            this.valid = valid;
+            this.live = live;
+            this.size = size;
+        }
+
+        private Chunk copy() {
+            return new Chunk(ids.clone(), codes.clone(), prices.clone(), stocks.clone(), currencies.clone(), valid.clone(), live.clone(), size);
+        }
+
+        private void add(Product product) {
+            ids[size] = product.getId();
+            codes[size] = product.getCode();
+            live[size >>> 6] |= 1L << size;
+            set(size++, product);
+        }
+
+        private void add(Chunk from, int row) {
+            ids[size] = from.ids[row];
+            codes[size] = from.codes[row];
+            prices[size] = from.prices[row];
+            stocks[size] = from.stocks[row];
+            currencies[size] = from.currencies[row];
+            live[size >>> 6] |= 1L << size;
+            if((from.valid[row >>> 6] & 1L << row) != 0){
+                valid[size >>> 6] |= 1L << size;
+            }
+            size++;
+        }
+
+        private void set(int row, Product product) {
+            prices[row] = product.getPrice();
+            stocks[row] = product.getStock();
+            currencies[row] = product.getCurrency() == null ? NO_CURRENCY : (byte) product.getCurrency().ordinal();
+            if(product.isValid()){
+                valid[row >>> 6] |= 1L << row;
+            } else {
+                valid[row >>> 6] &= ~(1L << row);
+            }
+        }
+
+        private void kill(int row) {
+            live[row >>> 6] &= ~(1L << row);
+        }
+
+        private boolean isLive(int row) {
+            return (live[row >>> 6] & 1L << row) != 0;
+        }
+    }
+
+    /**
+     * Fills chunks in id order, for the full builds.
+     */
+    static final class Builder {
+        private final List<Chunk> chunks = new ArrayList<>();
+        private Chunk current;
+        private int rowCount;
+
+        void add(Product product) {
+            nextChunk().add(product);
+            rowCount++;
+        }
+
+        private void add(Chunk from, int row) {
+            nextChunk().add(from, row);
+            rowCount++;
+        }
+
+        private Chunk nextChunk() {
+            if(current == null || current.size == CHUNK_SIZE){
+                current = new Chunk();
+                chunks.add(current);
+            }
+            return current;
+        }
+
+        CatalogSnapshot build() {
+            return new CatalogSnapshot(chunks.toArray(new Chunk[0]), rowCount, 0);
+        }
+    }
+}
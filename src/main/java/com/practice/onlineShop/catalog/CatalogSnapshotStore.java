@@ -0,0 +1,144 @@
+package com.practice.onlineShop.catalog;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.events.ProductChangedEvent;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import com.practice.onlineShop.tasks.PeriodicTask;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CatalogSnapshot} and replaces it as the products change. A change only
+ * marks the product's code; a scheduler reads the marked products back from the db every
+ * {@code onlineshop.catalog.snapshot.refresh-interval-millis} and publishes one patched snapshot
+ * for all of them, so a burst of orders on the same products costs one patch, not one per order.
+ * The filters see the changes with that much delay.
+ *
+ * The whole snapshot is built again after an import and every
+ * {@code onlineshop.catalog.snapshot.rebuild-interval-seconds}, which also brings in the writes
+ * that publish no event: the stock ledger's write-behind and other application instances.
+ */
+@Component
+public class CatalogSnapshotStore {
+
+    private static final int CODES_PER_QUERY = 1000;
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final long refreshIntervalMillis;
+    private final long rebuildIntervalSeconds;
+    private final int parallelThreshold;
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>(CatalogSnapshot.EMPTY);
+    private final Set<String> changedCodes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private PeriodicTask refreshTask;
+
+    public CatalogSnapshotStore(ProductJdbcRepository productJdbcRepository,
+                                @Value("${onlineshop.catalog.snapshot.refresh-interval-millis:100}") long refreshIntervalMillis,
+                                @Value("${onlineshop.catalog.snapshot.rebuild-interval-seconds:300}") long rebuildIntervalSeconds,
+                                @Value("${onlineshop.catalog.snapshot.parallel-threshold:131072}") int parallelThreshold) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.rebuildIntervalSeconds = rebuildIntervalSeconds;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Builds the first snapshot once the schema is in place, then starts the refreshes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuildRequested.set(true);
+        refresh();
+        refreshTask = PeriodicTask.start("catalog-snapshot-refresh", "refresh the catalog snapshot", this::refresh,
+                refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        if(rebuildIntervalSeconds > 0){
+            refreshTask.scheduleAtFixedRate(() -> rebuildRequested.set(true), rebuildIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if(refreshTask != null){
+            refreshTask.stop();
+        }
+    }
+
+    /**
+     * A null code, from the import, means any product may have changed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if(event.getProductCode() == null){
+            rebuildRequested.set(true);
+        } else {
+            changedCodes.add(event.getProductCode());
+        }
+    }
+
+    public CatalogMatches filter(CatalogFilter filter, long afterId, int limit) {
+        return snapshot.get().filter(filter, afterId, limit, parallelThreshold);
+    }
+
+    public CatalogSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Publishes a snapshot with every change marked so far. Runs on the scheduler; what fails is
+     * marked again and retried by the next run.
+     */
+    public synchronized void refresh() {
+        if(rebuildRequested.getAndSet(false)){
+            // the rows are read after the marks are dropped, a change marked meanwhile is patched next time
+            changedCodes.clear();
+            try {
+                CatalogSnapshot.Builder builder = new CatalogSnapshot.Builder();
+                productJdbcRepository.forEachProduct(builder::add);
+                snapshot.set(builder.build());
+            } catch (RuntimeException e) {
+                rebuildRequested.set(true);
+                throw e;
+            }
+            return;
+        }
+        if(changedCodes.isEmpty()){
+            return;
+        }
+        List<String> codes = new ArrayList<>();
+        Iterator<String> iterator = changedCodes.iterator();
+        while(iterator.hasNext()){
+            codes.add(iterator.next());
+            iterator.remove();
+        }
+        try {
+            List<Product> savedProducts = new ArrayList<>(codes.size());
+            for(int from = 0; from < codes.size(); from += CODES_PER_QUERY){
+                savedProducts.addAll(productJdbcRepository.findByCodes(codes.subList(from, Math.min(from + CODES_PER_QUERY, codes.size()))));
+            }
+            Set<String> removedCodes = new HashSet<>(codes);
+            for(Product product : savedProducts){
+                removedCodes.remove(product.getCode());
+            }
+            CatalogSnapshot patched = snapshot.get().patch(savedProducts, removedCodes);
+            snapshot.set(patched.needsCompaction() ? patched.compact() : patched);
+        } catch (RuntimeException e) {
+            changedCodes.addAll(codes);
+            throw e;
+        }
+    }
+}
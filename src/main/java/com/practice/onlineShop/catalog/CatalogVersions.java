@@ -0,0 +1,131 @@
+package com.practice.onlineShop.catalog;
+
+import com.practice.onlineShop.events.ProductChangedEvent;
+import com.practice.onlineShop.events.ProductStockChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The validators of {@code GET /product} and {@code GET /product/{productCode}}: a version per
+ * product and one for the whole catalog, both moved on by every committed change, so an unchanged
+ * resource is answered with 304 before the db or the serializer is involved.
+ *
+ * The versions live in memory only. They start over with every start of the application, which
+ * also changes the ETags, and they do not see the writes of other application instances: with more
+ * than one instance, set {@code onlineshop.catalog.etags.enabled=false}.
+ */
+@Component
+public class CatalogVersions {
+
+    private final boolean enabled;
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong lastNumber = new AtomicLong();
+    // only products changed since the start or the last import, the others are at baseVersion
+    private final ConcurrentHashMap<String, Version> versionsByCode = new ConcurrentHashMap<>();
+    private volatile Version baseVersion;
+    private volatile Version catalogVersion;
+    private final List<Runnable> catalogListeners = new CopyOnWriteArrayList<>();
+
+    public CatalogVersions(@Value("${onlineshop.catalog.etags.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.baseVersion = nextVersion();
+        this.catalogVersion = baseVersion;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Also moved on by a deletion, so the ETag of a deleted product never matches again.
+     */
+    public Version getProductVersion(String productCode) {
+        Version version = versionsByCode.get(productCode);
+        return version == null ? baseVersion : version;
+    }
+
+    public Version getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    /**
+     * Told after every move of the catalog version, on the thread that moved it and while the
+     * versions are locked: it should only hand the work on.
+     */
+    public void addCatalogListener(Runnable listener) {
+        catalogListeners.add(listener);
+    }
+
+    /**
+     * Runs after the product cache has dropped the product and the off-heap store has the new one,
+     * so a read that sees the new version cannot get the old product.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        changed(event.getProductCode());
+    }
+
+    /**
+     * The ledger changes the stock before the commit and gives it back on a rollback, either way
+     * the readers may have seen a different stock.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        changed(event.getProductCode());
+    }
+
+    /**
+     * Synchronized so that an import that clears the product versions cannot drop a newer version
+     * a product got meanwhile and send it back to an older base version. Changes are rare, the
+     * readers do not lock.
+     *
+     * @param productCode null when any product may have changed
+     */
+    public synchronized void changed(String productCode) {
+        Version version = nextVersion();
+        if(productCode == null){
+            baseVersion = version;
+            versionsByCode.clear();
+        } else {
+            versionsByCode.put(productCode, version);
+        }
+        catalogVersion = version;
+        catalogListeners.forEach(Runnable::run);
+    }
+
+    private Version nextVersion() {
+        return new Version(instanceTag + "-" + lastNumber.incrementAndGet(), System.currentTimeMillis());
+    }
+
+    /**
+     * Weak ETags, the same product gzipped or not is the same version.
+     */
+    public static final class Version {
+        private final String eTag;
+        private final long lastModified;
+
+        private Version(String tag, long lastModified) {
+            this.eTag = "W/\"" + tag + "\"";
+            this.lastModified = lastModified;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * -1 until the second of the change is over: Last-Modified only has whole seconds, and a
+         * client given a second in which the product changes again would never see that change.
+         */
+        public long getLastModified() {
+            return lastModified / 1000 < System.currentTimeMillis() / 1000 ? lastModified : -1;
+        }
+    }
+}
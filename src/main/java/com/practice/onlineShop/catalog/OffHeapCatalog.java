@@ -0,0 +1,412 @@
+package com.practice.onlineShop.catalog;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.Currencies;
+import com.practice.onlineShop.vos.ProductVO;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Products kept outside the Java heap, in direct buffers the garbage collector never scans: a
+ * million products are a few dozen buffers instead of millions of objects.
+ *
+ * <ul>
+ *     <li>records: {@value #RECORD_SIZE} bytes per product, {@code id, price, stock, flags, currency}
+ *     and the references of code and description, in pages of {@value #RECORDS_PER_PAGE}</li>
+ *     <li>strings: length-prefixed UTF-8 in pages of {@value #STRING_PAGE_SIZE} bytes, interned, so
+ *     the descriptions shared by many products are stored once</li>
+ *     <li>an open-addressing index from code to record, with linear probing, and one from string to
+ *     its reference for the interning</li>
+ * </ul>
+ *
+ * Records and strings are only appended; a removed product leaves a dead record and an update can
+ * leave unused strings behind, both reclaimed by {@link #compact}. Not thread-safe: one writer at a
+ * time, and no reader while it writes, see {@link OffHeapProductStore}.
+ */
+public class OffHeapCatalog {
+
+    static final int RECORD_SIZE = 40;
+    static final int RECORDS_PER_PAGE = 1 << 16;
+    static final int STRING_PAGE_SIZE = 1 << 24;
+
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int STOCK = 16;
+    private static final int FLAGS = 20;
+    private static final int CURRENCY = 21;
+    private static final int CODE = 24;
+    private static final int DESCRIPTION = 32;
+
+    private static final byte LIVE = 1;
+    private static final byte VALID = 2;
+    private static final byte NO_CURRENCY = -1;
+    private static final long NO_STRING = -1;
+    private static final Currencies[] CURRENCIES = Currencies.values();
+
+    // code index slot: record number + 1 (0 when empty), hash of the code
+    private static final int CODE_SLOT_SIZE = 8;
+    // string index slot: reference + 1 (0 when empty), hash of the string, padding
+    private static final int STRING_SLOT_SIZE = 16;
+    private static final int INITIAL_SLOTS = 1024;
+
+    private final List<ByteBuffer> recordPages = new ArrayList<>();
+    private final List<ByteBuffer> stringPages = new ArrayList<>();
+    private ByteBuffer codeIndex = ByteBuffer.allocateDirect(INITIAL_SLOTS * CODE_SLOT_SIZE);
+    private int codeSlots = INITIAL_SLOTS;
+    private ByteBuffer stringIndex = ByteBuffer.allocateDirect(INITIAL_SLOTS * STRING_SLOT_SIZE);
+    private int stringSlots = INITIAL_SLOTS;
+
+    private int recordCount;
+    private int liveCount;
+    private int stringCount;
+    private long stringBytes;
+    private long replacedStringBytes;
+
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Direct memory taken by all the buffers, used or not.
+     */
+    public long getOffHeapBytes() {
+        return (long) recordPages.size() * RECORDS_PER_PAGE * RECORD_SIZE
+                + (long) stringPages.size() * STRING_PAGE_SIZE
+                + codeIndex.capacity() + stringIndex.capacity();
+    }
+
+    /**
+     * True when dead records and replaced strings take more room than is worth keeping. The
+     * replaced strings are counted even when another product still uses them, so this errs on
+     * the side of compacting.
+     */
+    public boolean needsCompaction() {
+        long garbage = (long) (recordCount - liveCount) * RECORD_SIZE + replacedStringBytes;
+        long used = (long) recordCount * RECORD_SIZE + stringBytes;
+        return garbage > STRING_PAGE_SIZE && garbage > used / 2;
+    }
+
+    /**
+     * A new catalog with the live products only. This one is left as it is.
+     */
+    public OffHeapCatalog compact() {
+        OffHeapCatalog compacted = new OffHeapCatalog();
+        for(int record = 0; record < recordCount; record++){
+            if(isLive(record)){
+                compacted.put(toProduct(record));
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Adds the product, or overwrites the one with the same code.
+     */
+    public void put(Product product) {
+        byte[] code = product.getCode().getBytes(StandardCharsets.UTF_8);
+        int hash = hash(code);
+        int slot = findCodeSlot(code, hash);
+        int record;
+        if(slot >= 0){
+            record = codeIndex.getInt(slot * CODE_SLOT_SIZE) - 1;
+            ByteBuffer page = recordPage(record);
+            int offset = recordOffset(record);
+            long oldDescription = page.getLong(offset + DESCRIPTION);
+            long newDescription = intern(product.getDescription());
+            if(oldDescription != newDescription){
+                replacedStringBytes += stringSize(oldDescription);
+            }
+            write(page, offset, product, page.getLong(offset + CODE), newDescription);
+            return;
+        }
+        if(2 * (liveCount + 1) > codeSlots){
+            growCodeIndex();
+        }
+        record = recordCount++;
+        if(record / RECORDS_PER_PAGE == recordPages.size()){
+            recordPages.add(ByteBuffer.allocateDirect(RECORDS_PER_PAGE * RECORD_SIZE));
+        }
+        write(recordPage(record), recordOffset(record), product, intern(product.getCode()), intern(product.getDescription()));
+        insertCode(record, hash);
+        liveCount++;
+    }
+
+    /**
+     * @return false when there is no product with this code
+     */
+    public boolean remove(String productCode) {
+        byte[] code = productCode.getBytes(StandardCharsets.UTF_8);
+        int slot = findCodeSlot(code, hash(code));
+        if(slot < 0){
+            return false;
+        }
+        int record = codeIndex.getInt(slot * CODE_SLOT_SIZE) - 1;
+        ByteBuffer page = recordPage(record);
+        int offset = recordOffset(record);
+        page.put(offset + FLAGS, (byte) 0);
+        replacedStringBytes += stringSize(page.getLong(offset + CODE)) + stringSize(page.getLong(offset + DESCRIPTION));
+        deleteCodeSlot(slot);
+        liveCount--;
+        return true;
+    }
+
+    /**
+     * @return a new VO with the stored values, null when there is no product with this code
+     */
+    public ProductVO get(String productCode) {
+        byte[] code = productCode.getBytes(StandardCharsets.UTF_8);
+        int slot = findCodeSlot(code, hash(code));
+        return slot < 0 ? null : toVO(codeIndex.getInt(slot * CODE_SLOT_SIZE) - 1);
+    }
+
+    /**
+     * Every product in the order they were first added, which is id order for a catalog loaded
+     * from the db in id order.
+     */
+    public void forEach(Consumer<ProductVO> consumer) {
+        for(int record = 0; record < recordCount; record++){
+            if(isLive(record)){
+                consumer.accept(toVO(record));
+            }
+        }
+    }
+
+    private void write(ByteBuffer page, int offset, Product product, long code, long description) {
+        page.putLong(offset + ID, product.getId());
+        page.putDouble(offset + PRICE, product.getPrice());
+        page.putInt(offset + STOCK, product.getStock());
+        page.put(offset + FLAGS, (byte) (LIVE | (product.isValid() ? VALID : 0)));
+        page.put(offset + CURRENCY, product.getCurrency() == null ? NO_CURRENCY : (byte) product.getCurrency().ordinal());
+        page.putLong(offset + CODE, code);
+        page.putLong(offset + DESCRIPTION, description);
+    }
+
+    private ProductVO toVO(int record) {
+        ByteBuffer page = recordPage(record);
+        int offset = recordOffset(record);
+        ProductVO productVO = new ProductVO();
+        productVO.setId(page.getLong(offset + ID));
+        productVO.setPrice(page.getDouble(offset + PRICE));
+        productVO.setStock(page.getInt(offset + STOCK));
+        productVO.setValid((page.get(offset + FLAGS) & VALID) != 0);
+        byte currency = page.get(offset + CURRENCY);
+        productVO.setCurrency(currency == NO_CURRENCY ? null : CURRENCIES[currency]);
+        productVO.setCode(readString(page.getLong(offset + CODE)));
+        productVO.setDescription(readString(page.getLong(offset + DESCRIPTION)));
+        return productVO;
+    }
+
+    private Product toProduct(int record) {
+        ProductVO productVO = toVO(record);
+        Product product = new Product();
+        product.setId(productVO.getId());
+        product.setCode(productVO.getCode());
+        product.setDescription(productVO.getDescription());
+        product.setPrice(productVO.getPrice());
+        product.setStock(productVO.getStock());
+        product.setValid(productVO.isValid());
+        product.setCurrency(productVO.getCurrency());
+        return product;
+    }
+
+    private boolean isLive(int record) {
+        return (recordPage(record).get(recordOffset(record) + FLAGS) & LIVE) != 0;
+    }
+
+    private ByteBuffer recordPage(int record) {
+        return recordPages.get(record / RECORDS_PER_PAGE);
+    }
+
+    private static int recordOffset(int record) {
+        return (record % RECORDS_PER_PAGE) * RECORD_SIZE;
+    }
+
+    /**
+     * @return the slot holding this code, -1 when it is not in the index
+     */
+    private int findCodeSlot(byte[] code, int hash) {
+        int mask = codeSlots - 1;
+        for(int slot = hash & mask; ; slot = (slot + 1) & mask){
+            int recordPlusOne = codeIndex.getInt(slot * CODE_SLOT_SIZE);
+            if(recordPlusOne == 0){
+                return -1;
+            }
+            if(codeIndex.getInt(slot * CODE_SLOT_SIZE + 4) == hash){
+                ByteBuffer page = recordPage(recordPlusOne - 1);
+                if(stringEquals(page.getLong(recordOffset(recordPlusOne - 1) + CODE), code)){
+                    return slot;
+                }
+            }
+        }
+    }
+
+    private void insertCode(int record, int hash) {
+        int mask = codeSlots - 1;
+        int slot = hash & mask;
+        while(codeIndex.getInt(slot * CODE_SLOT_SIZE) != 0){
+            slot = (slot + 1) & mask;
+        }
+        codeIndex.putInt(slot * CODE_SLOT_SIZE, record + 1);
+        codeIndex.putInt(slot * CODE_SLOT_SIZE + 4, hash);
+    }
+
+    /**
+     * Backward-shift deletion: the entries after the emptied slot that probed past it move back,
+     * so lookups never need tombstones.
+     */
+    private void deleteCodeSlot(int emptied) {
+        int mask = codeSlots - 1;
+        int slot = emptied;
+        while(true){
+            slot = (slot + 1) & mask;
+            int recordPlusOne = codeIndex.getInt(slot * CODE_SLOT_SIZE);
+            if(recordPlusOne == 0){
+                break;
+            }
+            int ideal = codeIndex.getInt(slot * CODE_SLOT_SIZE + 4) & mask;
+            // the entry may move to the emptied slot only if that is not before its ideal slot
+            if(((slot - ideal) & mask) >= ((slot - emptied) & mask)){
+                codeIndex.putInt(emptied * CODE_SLOT_SIZE, recordPlusOne);
+                codeIndex.putInt(emptied * CODE_SLOT_SIZE + 4, codeIndex.getInt(slot * CODE_SLOT_SIZE + 4));
+                emptied = slot;
+            }
+        }
+        codeIndex.putInt(emptied * CODE_SLOT_SIZE, 0);
+        codeIndex.putInt(emptied * CODE_SLOT_SIZE + 4, 0);
+    }
+
+    private void growCodeIndex() {
+        ByteBuffer old = codeIndex;
+        int oldSlots = codeSlots;
+        codeSlots *= 2;
+        codeIndex = ByteBuffer.allocateDirect(codeSlots * CODE_SLOT_SIZE);
+        for(int slot = 0; slot < oldSlots; slot++){
+            int recordPlusOne = old.getInt(slot * CODE_SLOT_SIZE);
+            if(recordPlusOne != 0){
+                insertCode(recordPlusOne - 1, old.getInt(slot * CODE_SLOT_SIZE + 4));
+            }
+        }
+    }
+
+    /**
+     * @return the reference of the string, stored now unless it was already there
+     */
+    private long intern(String value) {
+        if(value == null){
+            return NO_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        int mask = stringSlots - 1;
+        int slot = hash & mask;
+        for(long referencePlusOne = stringIndex.getLong(slot * STRING_SLOT_SIZE); referencePlusOne != 0;
+            referencePlusOne = stringIndex.getLong(slot * STRING_SLOT_SIZE)){
+            if(stringIndex.getInt(slot * STRING_SLOT_SIZE + 8) == hash && stringEquals(referencePlusOne - 1, bytes)){
+                return referencePlusOne - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        long reference = append(bytes);
+        if(2 * (stringCount + 1) > stringSlots){
+            growStringIndex();
+        }
+        insertString(reference, hash);
+        stringCount++;
+        return reference;
+    }
+
+    private void insertString(long reference, int hash) {
+        int mask = stringSlots - 1;
+        int slot = hash & mask;
+        while(stringIndex.getLong(slot * STRING_SLOT_SIZE) != 0){
+            slot = (slot + 1) & mask;
+        }
+        stringIndex.putLong(slot * STRING_SLOT_SIZE, reference + 1);
+        stringIndex.putInt(slot * STRING_SLOT_SIZE + 8, hash);
+    }
+
+    private void growStringIndex() {
+        ByteBuffer old = stringIndex;
+        int oldSlots = stringSlots;
+        stringSlots *= 2;
+        stringIndex = ByteBuffer.allocateDirect(stringSlots * STRING_SLOT_SIZE);
+        for(int slot = 0; slot < oldSlots; slot++){
+            long referencePlusOne = old.getLong(slot * STRING_SLOT_SIZE);
+            if(referencePlusOne != 0){
+                insertString(referencePlusOne - 1, old.getInt(slot * STRING_SLOT_SIZE + 8));
+            }
+        }
+    }
+
+    /**
+     * A reference is the page number in the high half and the offset in the page in the low half.
+     */
+    private long append(byte[] bytes) {
+        int size = 4 + bytes.length;
+        if(size > STRING_PAGE_SIZE){
+            throw new IllegalArgumentException("A string of " + bytes.length + " bytes does not fit in a page");
+        }
+        ByteBuffer page = stringPages.isEmpty() ? null : stringPages.get(stringPages.size() - 1);
+        if(page == null || page.remaining() < size){
+            page = ByteBuffer.allocateDirect(STRING_PAGE_SIZE);
+            stringPages.add(page);
+        }
+        long reference = ((long) (stringPages.size() - 1) << 32) | page.position();
+        page.putInt(bytes.length);
+        page.put(bytes);
+        stringBytes += size;
+        return reference;
+    }
+
+    private String readString(long reference) {
+        if(reference == NO_STRING){
+            return null;
+        }
+        ByteBuffer page = stringPages.get((int) (reference >>> 32));
+        int offset = (int) reference;
+        int length = page.getInt(offset);
+        if(length < 0 || length > STRING_PAGE_SIZE - offset - 4){
+            // only an optimistic read racing a write sees this, see OffHeapProductStore
+            throw new IllegalStateException("No string at " + reference);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer string = page.duplicate();
+        string.position(offset + 4);
+        string.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(long reference, byte[] bytes) {
+        if(reference == NO_STRING){
+            return false;
+        }
+        ByteBuffer page = stringPages.get((int) (reference >>> 32));
+        int offset = (int) reference;
+        if(page.getInt(offset) != bytes.length){
+            return false;
+        }
+        for(int i = 0; i < bytes.length; i++){
+            if(page.get(offset + 4 + i) != bytes[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long stringSize(long reference) {
+        return reference == NO_STRING ? 0 : 4 + stringPages.get((int) (reference >>> 32)).getInt((int) reference);
+    }
+
+    private static int hash(byte[] bytes) {
+        int hash = 1;
+        for(byte b : bytes){
+            hash = 31 * hash + b;
+        }
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
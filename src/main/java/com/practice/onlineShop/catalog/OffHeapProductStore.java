@@ -0,0 +1,163 @@
+package com.practice.onlineShop.catalog;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.events.ProductChangedEvent;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import com.practice.onlineShop.vos.ProductVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The whole catalog in an {@link OffHeapCatalog}, read by {@code ProductService.getProduct} and
+ * {@code getProducts} instead of the db when {@code onlineshop.catalog.store=OFF_HEAP}.
+ *
+ * Every committed change of a product reads its row back from the db and writes it here before the
+ * writer's request returns, so a read that starts after a write has returned sees it. An import
+ * loads the whole catalog again. The writers take turns on this object's monitor; the readers only
+ * take the write lock's optimistic stamp and try again, under the read lock, if a write came in
+ * between.
+ *
+ * Like the stock ledger, only one application instance may use it on the same database, the writes
+ * of other instances are not seen.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "onlineshop.catalog.store", havingValue = "OFF_HEAP")
+public class OffHeapProductStore {
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final StampedLock lock = new StampedLock();
+    private OffHeapCatalog catalog = new OffHeapCatalog();
+
+    public OffHeapProductStore(ProductJdbcRepository productJdbcRepository) {
+        this.productJdbcRepository = productJdbcRepository;
+    }
+
+    /**
+     * Loads the catalog once the schema is in place.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    /**
+     * A null code, from the import, means any product may have changed. Runs before the ETags of
+     * {@link CatalogVersions} move on, like the product cache: a read that gets the new ETag must
+     * also get the new product, or its client would be answered 304 on the old one.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if(event.getProductCode() == null){
+            reload();
+        } else {
+            refresh(event.getProductCode());
+        }
+    }
+
+    public Optional<ProductVO> find(String productCode) {
+        long stamp = lock.tryOptimisticRead();
+        if(stamp != 0){
+            try {
+                ProductVO productVO = catalog.get(productCode);
+                if(lock.validate(stamp)){
+                    return Optional.ofNullable(productVO);
+                }
+            } catch (RuntimeException e) {
+                // a write moved the buffers under the read, read again under the lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return Optional.ofNullable(catalog.get(productCode));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writers wait until the copy is done.
+     */
+    public List<ProductVO> findAll() {
+        long stamp = lock.readLock();
+        try {
+            List<ProductVO> products = new ArrayList<>(catalog.size());
+            catalog.forEach(products::add);
+            return products;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return catalog.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long getOffHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return catalog.getOffHeapBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Builds a new catalog from the db while the readers keep using the current one. Changes
+     * committed meanwhile wait for the monitor and are applied to the new catalog.
+     */
+    public synchronized void reload() {
+        OffHeapCatalog loaded = new OffHeapCatalog();
+        productJdbcRepository.forEachProduct(loaded::put);
+        replace(loaded);
+        log.info("Loaded {} products off the heap, {} MB of direct memory", loaded.size(), loaded.getOffHeapBytes() >> 20);
+    }
+
+    /**
+     * Reads the product back from the db, the event only carries the code.
+     */
+    public synchronized void refresh(String productCode) {
+        List<Product> products = productJdbcRepository.findByCodes(Collections.singletonList(productCode));
+        long stamp = lock.writeLock();
+        try {
+            if(products.isEmpty()){
+                catalog.remove(productCode);
+            } else {
+                catalog.put(products.get(0));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if(catalog.needsCompaction()){
+            // only this thread writes, the catalog can be read outside the lock
+            replace(catalog.compact());
+        }
+    }
+
+    private void replace(OffHeapCatalog replacement) {
+        long stamp = lock.writeLock();
+        try {
+            catalog = replacement;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.practice.onlineShop.controllers;
+
+import com.practice.onlineShop.audit.AuditLog;
+import com.practice.onlineShop.caches.ProductCache;
+import com.practice.onlineShop.caches.UserRoleCache;
+import com.practice.onlineShop.metrics.MetricsRegistry;
+import com.practice.onlineShop.vos.MetricsVO;
+import com.practice.onlineShop.web.LoadSheddingFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.ResponseEntity.status;
+
+/**
+ * Latency, throughput and error metrics of the shop. Only there with
+ * {@code onlineshop.metrics.endpoint.enabled=true}, and then only answers requests made from the
+ * machine itself. The check trusts the remote address of the connection: behind a reverse proxy on
+ * the same host every caller looks local, so leave the endpoint off there.
+ */
+@RestController
+@ConditionalOnProperty(name = "onlineshop.metrics.endpoint.enabled", havingValue = "true")
+@RequestMapping("/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final MetricsRegistry metricsRegistry;
+    private final ProductCache productCache;
+    private final UserRoleCache userRoleCache;
+    private final AuditLog auditLog;
+    private final Optional<LoadSheddingFilter> loadSheddingFilter;
+
+    @GetMapping
+    public ResponseEntity<MetricsVO> getMetrics(HttpServletRequest request){
+        if(!isLocal(request)){
+            return status(FORBIDDEN).build();
+        }
+        MetricsVO metricsVO = new MetricsVO();
+        metricsVO.setOperations(metricsRegistry.getSnapshot());
+        metricsVO.setCaches(Arrays.asList(productCache.getStatistics(), userRoleCache.getStatistics()));
+        metricsVO.setDroppedAuditEvents(auditLog.getDroppedEvents());
+        loadSheddingFilter.ifPresent(filter -> {
+            metricsVO.setInFlightRequests(filter.getInFlightRequests());
+            metricsVO.setInFlightStreams(filter.getInFlightStreams());
+            metricsVO.setShedRequests(filter.getShedRequests());
+        });
+        return ResponseEntity.ok(metricsVO);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> resetMetrics(HttpServletRequest request){
+        if(!isLocal(request)){
+            return status(FORBIDDEN).build();
+        }
+        metricsRegistry.reset();
+        return ResponseEntity.ok().build();
+    }
+
+    private boolean isLocal(HttpServletRequest request) {
+        try {
+            return InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
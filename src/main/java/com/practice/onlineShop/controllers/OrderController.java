@@ -1,12 +1,20 @@
 package com.practice.onlineShop.controllers;
 
+import com.practice.onlineShop.enums.OrderBatchMode;
+import com.practice.onlineShop.enums.OrderStatus;
 import com.practice.onlineShop.exceptions.*;
+import com.practice.onlineShop.services.IdempotentOrderService;
+import com.practice.onlineShop.services.OrderBatchService;
 import com.practice.onlineShop.services.OrderService;
+import com.practice.onlineShop.vos.OrderDetailsVO;
+import com.practice.onlineShop.vos.OrderPageVO;
+import com.practice.onlineShop.vos.OrderResultVO;
+import com.practice.onlineShop.vos.OrderUpdateResultVO;
 import com.practice.onlineShop.vos.OrderVO;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
-import javax.annotation.PostConstruct;
+import java.util.List;
 
 @RestController
 @RequestMapping("/order")
@@ -14,17 +22,51 @@ import javax.annotation.PostConstruct;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderBatchService orderBatchService;
+    private final IdempotentOrderService idempotentOrderService;
     @PostMapping
-    public void addOrder(@RequestBody OrderVO orderVO) throws InvalidCustomerIdException, InvalidProductsException, InvalidProductIdException, NotEnoughStockException {
-        orderService.addOrder(orderVO);
+    public void addOrder(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey, @RequestBody OrderVO orderVO)
+            throws InvalidCustomerIdException, InvalidProductsException, InvalidProductIdException, NotEnoughStockException,
+            InvalidIdempotencyKeyException, IdempotencyKeyReusedException, IdempotencyKeyInUseException {
+        if(idempotencyKey == null){
+            orderService.addOrder(orderVO);
+            return;
+        }
+        idempotentOrderService.addOrder(idempotencyKey, orderVO);
 
     }
 
+    @PostMapping("/batch")
+    public List<OrderResultVO> addOrders(@RequestBody List<OrderVO> orderVOs, @RequestParam(required = false) OrderBatchMode mode) throws OrderBatchTooLargeException {
+        return orderBatchService.addOrders(orderVOs, mode);
+    }
+
+    @GetMapping("/{orderId}/{customerId}")
+    public OrderDetailsVO getOrder(@PathVariable Integer orderId, @PathVariable Long customerId) throws InvalidOrderIdException {
+        return orderService.getOrder(orderId, customerId);
+    }
+
+    @GetMapping("/list/{customerId}")
+    public OrderPageVO getOrders(@PathVariable Long customerId, @RequestParam(required = false) Long userId, @RequestParam(required = false) OrderStatus status,
+                                 @RequestParam(defaultValue = "0") long afterId, @RequestParam(required = false) Integer size){
+        return orderService.getOrders(userId, status, afterId, size, customerId);
+    }
+
     @PatchMapping("/{orderId}/{customerId}")
     public void deliver(@PathVariable  Integer orderId, @PathVariable  Long customerId) throws InvalidOrderIdException, OrderCanceledException {
         orderService.deliver(orderId, customerId);
     }
 
+    @PatchMapping("/deliver/{customerId}")
+    public List<OrderUpdateResultVO> deliverOrders(@RequestBody List<Long> orderIds, @PathVariable Long customerId) throws OrderBatchTooLargeException {
+        return orderBatchService.deliverOrders(orderIds, customerId);
+    }
+
+    @PatchMapping("/cancel/{customerId}")
+    public List<OrderUpdateResultVO> cancelOrders(@RequestBody List<Long> orderIds, @PathVariable Long customerId) throws OrderBatchTooLargeException {
+        return orderBatchService.cancelOrders(orderIds, customerId);
+    }
+
     @PatchMapping("/cancel/{orderId}/{customerId}")
     public void cancelOrder(@PathVariable Integer orderId, @PathVariable Long customerId) throws InvalidOrderIdException, OrderAlreadyDeliveredException {
         orderService.cancelOrder(orderId,customerId);
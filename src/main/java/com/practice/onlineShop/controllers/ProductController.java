@@ -1,19 +1,60 @@
 package com.practice.onlineShop.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.onlineShop.catalog.CatalogResponseCache;
+import com.practice.onlineShop.catalog.CatalogSnapshotStore;
+import com.practice.onlineShop.catalog.CatalogVersions;
+import com.practice.onlineShop.enums.Currencies;
+import com.practice.onlineShop.enums.ProductExportFormat;
+import com.practice.onlineShop.enums.ProductImportFormat;
 import com.practice.onlineShop.exceptions.InvalidProductCodeException;
+import com.practice.onlineShop.exceptions.InvalidProductImportFileException;
+import com.practice.onlineShop.imports.ProductImportListener;
+import com.practice.onlineShop.services.ProductExportService;
+import com.practice.onlineShop.services.ProductImportService;
 import com.practice.onlineShop.services.ProductService;
+import com.practice.onlineShop.vos.ProductFilterPageVO;
+import com.practice.onlineShop.vos.ProductImportErrorVO;
+import com.practice.onlineShop.vos.ProductImportProgressVO;
+import com.practice.onlineShop.vos.ProductPageVO;
 import com.practice.onlineShop.vos.ProductVO;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/product")
 @RequiredArgsConstructor
 public class ProductController {
 
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final String TEXT_CSV = "text/csv;charset=UTF-8";
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    // clients may keep the products but must ask again, with the ETag, before using them
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersions catalogVersions;
+    private final CatalogResponseCache catalogResponseCache;
 
     @PostMapping("/{customerId}")
     public void addProduct(@RequestBody  ProductVO productVO, @PathVariable Long customerId){
@@ -23,15 +64,165 @@ public class ProductController {
 
     }
 
+    /**
+     * Conditional on the product's version: a matching {@code If-None-Match} or
+     * {@code If-Modified-Since} gets 304 without reading the product.
+     */
     @GetMapping("/{productCode}")
-    public ProductVO getProduct(@PathVariable String productCode) throws InvalidProductCodeException {
-        return productService.getProduct(productCode);
+    public ResponseEntity<ProductVO> getProduct(@PathVariable String productCode, WebRequest webRequest) throws InvalidProductCodeException {
+        if(isNotModified(catalogVersions.getProductVersion(productCode), webRequest)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(productService.getProduct(productCode));
     }
 
+    /**
+     * The body serialized by {@link CatalogResponseCache}, gzipped when the client takes it, written
+     * as it is with no serialization per request; conditional on the version it was built from.
+     * With the cache off, or while another request builds the body, the products are read and
+     * serialized for this request.
+     */
     @GetMapping
-    public ProductVO[] getProducts(){
-        return productService.getProducts().toArray(new ProductVO[]{});
+    public ResponseEntity<?> getProducts(WebRequest webRequest,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        Optional<CatalogResponseCache.SerializedCatalog> serializedCatalog = catalogResponseCache.get();
+        CatalogVersions.Version version = serializedCatalog.isPresent() ? serializedCatalog.get().getVersion() : catalogVersions.getCatalogVersion();
+        if(isNotModified(version, webRequest)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+        }
+        if(!serializedCatalog.isPresent()){
+            return ResponseEntity.ok().cacheControl(REVALIDATE).body(productService.getProducts().toArray(new ProductVO[]{}));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if(acceptsGzip(acceptEncoding)){
+            // already compressed, the server compression leaves it alone
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(serializedCatalog.get().getBody(true));
+        }
+        return response.body(serializedCatalog.get().getBody(false));
+    }
+    @GetMapping("/page")
+    public ProductPageVO getProductsPage(@RequestParam(defaultValue = "0") long afterId, @RequestParam(required = false) Integer size){
+        return productService.getProductsPage(afterId, size);
+    }
+
+    @GetMapping("/search")
+    public ProductVO[] searchProducts(@RequestParam String q, @RequestParam(required = false) Integer limit){
+        return productService.searchProducts(q, limit).toArray(new ProductVO[]{});
+    }
+
+    /**
+     * Products by price range (inclusive), currency, stock and validity, a page at a time like
+     * {@code /page}. The filter runs over the in-memory catalog snapshot, see {@link CatalogSnapshotStore}.
+     */
+    @GetMapping("/filter")
+    public ProductFilterPageVO filterProducts(@RequestParam(required = false) Double minPrice,
+                                              @RequestParam(required = false) Double maxPrice,
+                                              @RequestParam(required = false) Currencies currency,
+                                              @RequestParam(required = false) Boolean inStock,
+                                              @RequestParam(required = false) Boolean valid,
+                                              @RequestParam(defaultValue = "0") long afterId,
+                                              @RequestParam(required = false) Integer size){
+        return productService.filterProducts(minPrice, maxPrice, currency, inStock, valid, afterId, size);
+    }
+
+    @GetMapping(value = "/stream", produces = APPLICATION_NDJSON)
+    public StreamingResponseBody streamProducts(){
+        return outputStream -> {
+            JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(outputStream);
+            jsonGenerator.setRootValueSeparator(null);
+            productService.streamProducts(productVO -> {
+                try {
+                    jsonGenerator.writeObject(productVO);
+                    jsonGenerator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            jsonGenerator.flush();
+        };
+    }
+
+    /**
+     * The catalog as a CSV or NDJSON file, written row by row as it is read from the db. Gzipped when
+     * the client accepts it.
+     *
+     * @param valid    only valid or only invalid products, all when absent
+     * @param currency only products priced in this currency, all when absent
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "CSV") ProductExportFormat format,
+                                                                @RequestParam(required = false) Boolean valid,
+                                                                @RequestParam(required = false) Currencies currency,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String fileName = format == ProductExportFormat.CSV ? "products.csv" : "products.ndjson";
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, format == ProductExportFormat.CSV ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if(gzip){
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(outputStream -> {
+            if(gzip){
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE);
+                productExportService.exportProducts(format, valid, currency, gzipOutputStream);
+                gzipOutputStream.finish();
+            } else {
+                productExportService.exportProducts(format, valid, currency, outputStream);
+            }
+        });
+    }
+
+    /**
+     * Upserts the products of a CSV or JSON file sent as the request body. The answer is NDJSON
+     * written while the import runs: one line per rejected row and a progress line per committed
+     * chunk, the last one with {@code done} set.
+     *
+     * @param format CSV or JSON, taken from the content type when absent
+     */
+    @PostMapping("/import/{customerId}")
+    public void importProducts(@RequestParam(required = false) ProductImportFormat format, HttpServletRequest request, HttpServletResponse response,
+                               @PathVariable Long customerId) throws InvalidProductImportFileException, IOException {
+        if(format == null){
+            format = request.getContentType() != null && request.getContentType().contains("csv") ? ProductImportFormat.CSV : ProductImportFormat.JSON;
+        }
+        productImportService.importProducts(format, request.getInputStream(), new ProductImportListener() {
+            private JsonGenerator jsonGenerator;
+
+            @Override
+            public void onError(ProductImportErrorVO error) {
+                write(error, false);
+            }
+
+            @Override
+            public void onProgress(ProductImportProgressVO progress) {
+                write(progress, true);
+            }
+
+            // the response is started by the first line, so a rejected file still gets an error status
+            private void write(Object line, boolean flush) {
+                try {
+                    if(jsonGenerator == null){
+                        response.setContentType(APPLICATION_NDJSON);
+                        jsonGenerator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+                        jsonGenerator.setRootValueSeparator(null);
+                    }
+                    jsonGenerator.writeObject(line);
+                    jsonGenerator.writeRaw('\n');
+                    if(flush){
+                        jsonGenerator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }, customerId);
     }
+
     @PutMapping("/{customerId}")
     public void updateProduct(@RequestBody ProductVO productVO, @PathVariable Long customerId) throws InvalidProductCodeException {
         productService.updateProduct(productVO, customerId);
@@ -45,4 +236,25 @@ public class ProductController {
         productService.addStock(productCode,quantity,customerId);
     }
 
+    /**
+     * Also puts the ETag and Last-Modified of the version on the response. The version is read
+     * before the data, so a change made meanwhile can only make the ETag older than the body, which
+     * costs the client one more full read, never a stale one.
+     */
+    private boolean isNotModified(CatalogVersions.Version version, WebRequest webRequest) {
+        return catalogVersions.isEnabled() && webRequest.checkNotModified(version.getETag(), version.getLastModified());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null){
+            return false;
+        }
+        for(String coding : acceptEncoding.split(",")){
+            String[] parts = coding.trim().split(";");
+            if(parts[0].trim().equalsIgnoreCase("gzip")){
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
 }
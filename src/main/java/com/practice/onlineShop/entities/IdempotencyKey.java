@@ -0,0 +1,41 @@
+package com.practice.onlineShop.entities;
+
+import com.practice.onlineShop.enums.OrderResultStatus;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+/**
+ * An idempotency key of {@code POST /order} when they are kept in the db, written and read through
+ * {@code IdempotencyKeyJdbcRepository}. A null status means the request that claimed the key still runs.
+ */
+@Entity
+@Table(name = "idempotency_key", indexes = @Index(name = "idempotency_key_created_at_idx", columnList = "created_at"))
+@Setter
+@Getter
+public class IdempotencyKey {
+
+    // the customer and the key the client sent
+    @Id
+    @Column(name = "idempotency_key", length = 300)
+    private String key;
+
+    // the request that claimed the key, only it completes or releases it
+    @Column(name = "claimed_by", nullable = false, length = 36)
+    private String claimedBy;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private OrderResultStatus status;
+
+    // comma separated
+    @Column(name = "product_ids", length = 10000)
+    private String productIds;
+
+    @Column(name = "created_at", nullable = false)
+    private long createdAt;
+}
@@ -7,12 +7,14 @@ import lombok.Setter;
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = @Index(name = "order_item_order_id_idx", columnList = "order_id"))
 @Setter
 @Getter
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     private long id;
 
     @OneToOne
@@ -1,5 +1,6 @@
 package com.practice.onlineShop.entities;
 
+import com.practice.onlineShop.enums.OrderStatus;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -8,12 +9,18 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "orders_user_id_status_idx", columnList = "user_id, status, id"),
+        @Index(name = "orders_status_idx", columnList = "status, id"),
+        @Index(name = "orders_journal_sequence_idx", columnList = "journal_sequence", unique = true)})
 @Setter
 @Getter
 public class Orders {
 
+    // ids are handed out in blocks of 50, so the order and its items are inserted in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private long id;
 
     @OneToMany(cascade = CascadeType.ALL)
@@ -24,9 +31,15 @@ public class Orders {
     @JoinColumn(name = "user_id")
     private Users user;
 
-    private boolean isDelivered;
-    private boolean isReturned;
-    private boolean isCanceled;
+    // one indexed column instead of the delivered/returned/canceled flags, see OrderService for the transitions
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OrderStatus status = OrderStatus.PLACED;
+    @Version
+    private long version;
+    // the order's place in the order journal when it was placed through it, so it is never applied twice
+    @Column(name = "journal_sequence")
+    private Long journalSequence;
 
 
 
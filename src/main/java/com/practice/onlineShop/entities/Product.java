@@ -1,6 +1,7 @@
 package com.practice.onlineShop.entities;
 
 import com.practice.onlineShop.enums.Currencies;
+import com.practice.onlineShop.events.ProductEntityListener;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -12,7 +13,7 @@ import static javax.persistence.GenerationType.IDENTITY;
 @Entity
 @Setter
 @Getter
-
+@EntityListeners(ProductEntityListener.class)
 public class Product {
     @Id
     @GeneratedValue(strategy = IDENTITY)
@@ -25,4 +26,6 @@ public class Product {
     private boolean valid;
     @Enumerated(STRING)
     private Currencies currency;
+    @Version
+    private long version;
 }
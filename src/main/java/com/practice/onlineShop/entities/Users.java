@@ -1,6 +1,7 @@
 package com.practice.onlineShop.entities;
 
 import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.events.UserEntityListener;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -13,7 +14,7 @@ import static javax.persistence.GenerationType.IDENTITY;
 @Entity
 @Setter
 @Getter
-
+@EntityListeners(UserEntityListener.class)
 public class Users {
     @Id
     @GeneratedValue(strategy = IDENTITY)
@@ -29,5 +30,8 @@ public class Users {
     @Column(name = "roles")
     @Enumerated(EnumType.STRING)
     private Collection<Roles> roles;
+    // also moved on by a change of the roles alone, so the entity listener sees it
+    @Version
+    private long version;
 
 }
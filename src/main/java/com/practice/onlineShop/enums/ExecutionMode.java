@@ -0,0 +1,7 @@
+package com.practice.onlineShop.enums;
+
+public enum ExecutionMode {
+    SERVLET,
+    BOUNDED,
+    VIRTUAL
+}
@@ -0,0 +1,6 @@
+package com.practice.onlineShop.enums;
+
+public enum OrderBatchMode {
+    SINGLE_TRANSACTION,
+    PER_ORDER
+}
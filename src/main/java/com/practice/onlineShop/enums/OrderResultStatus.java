@@ -0,0 +1,10 @@
+package com.practice.onlineShop.enums;
+
+public enum OrderResultStatus {
+    PLACED,
+    INVALID_CUSTOMER,
+    INVALID_PRODUCTS,
+    INVALID_PRODUCT_IDS,
+    NOT_ENOUGH_STOCK,
+    NOT_PLACED
+}
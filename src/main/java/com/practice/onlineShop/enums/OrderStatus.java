@@ -0,0 +1,8 @@
+package com.practice.onlineShop.enums;
+
+public enum OrderStatus {
+    PLACED,
+    DELIVERED,
+    RETURNED,
+    CANCELED
+}
@@ -0,0 +1,10 @@
+package com.practice.onlineShop.enums;
+
+public enum OrderUpdateStatus {
+    DELIVERED,
+    CANCELED,
+    ALREADY_DELIVERED,
+    ALREADY_CANCELED,
+    ALREADY_RETURNED,
+    NOT_FOUND
+}
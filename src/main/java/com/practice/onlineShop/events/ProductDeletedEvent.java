@@ -0,0 +1,10 @@
+package com.practice.onlineShop.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class ProductDeletedEvent {
+    private final String productCode;
+}
@@ -0,0 +1,34 @@
+package com.practice.onlineShop.events;
+
+import com.practice.onlineShop.entities.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Created by Hibernate through the Spring bean container, so the publisher is injected.
+ * Turns every insert, update or delete of a {@link Product} made through JPA into a
+ * {@link ProductChangedEvent}, plus a {@link ProductSavedEvent} or {@link ProductDeletedEvent} for the
+ * search index. Bulk updates bypass entity callbacks and publish the events themselves.
+ */
+@RequiredArgsConstructor
+public class ProductEntityListener {
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void productSaved(Product product) {
+        applicationEventPublisher.publishEvent(new ProductChangedEvent(product.getCode()));
+        applicationEventPublisher.publishEvent(new ProductSavedEvent(product.getCode(), product.getDescription()));
+    }
+
+    @PostRemove
+    public void productRemoved(Product product) {
+        applicationEventPublisher.publishEvent(new ProductChangedEvent(product.getCode()));
+        applicationEventPublisher.publishEvent(new ProductDeletedEvent(product.getCode()));
+    }
+}
@@ -0,0 +1,14 @@
+package com.practice.onlineShop.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A product was inserted or updated, with the text the search index needs.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProductSavedEvent {
+    private final String productCode;
+    private final String description;
+}
@@ -0,0 +1,15 @@
+package com.practice.onlineShop.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The stock a product is sold from changed without a write to the product row, as it does with the
+ * stock ledger. Published by {@code StockService}; the product cache is not told, since it only
+ * holds the stock column and the current stock is put on top of it on every read.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProductStockChangedEvent {
+    private final String productCode;
+}
@@ -0,0 +1,25 @@
+package com.practice.onlineShop.events;
+
+import com.practice.onlineShop.entities.Users;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Created by Hibernate through the Spring bean container, so the publisher is injected.
+ * Turns every change of a {@link Users} row into a {@link UserChangedEvent}. A change of the roles
+ * alone moves the version of the user on, so it is an update of the user as well.
+ */
+@RequiredArgsConstructor
+public class UserEntityListener {
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @PostUpdate
+    @PostRemove
+    public void userChanged(Users user) {
+        applicationEventPublisher.publishEvent(new UserChangedEvent(user.getId()));
+    }
+}
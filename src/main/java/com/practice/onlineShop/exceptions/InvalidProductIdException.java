@@ -1,4 +1,21 @@
 package com.practice.onlineShop.exceptions;
 
+import java.util.Collection;
+import java.util.Collections;
+
 public class InvalidProductIdException extends Exception{
+
+    private final Collection<Integer> productIds;
+
+    public InvalidProductIdException(){
+        this(Collections.emptyList());
+    }
+
+    public InvalidProductIdException(Collection<Integer> productIds){
+        this.productIds = productIds;
+    }
+
+    public Collection<Integer> getProductIds() {
+        return productIds;
+    }
 }
@@ -0,0 +1,8 @@
+package com.practice.onlineShop.exceptions;
+
+public class InvalidProductRowException extends Exception{
+
+    public InvalidProductRowException(String message){
+        super(message);
+    }
+}
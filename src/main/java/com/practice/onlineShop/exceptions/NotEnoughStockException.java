@@ -1,4 +1,18 @@
 package com.practice.onlineShop.exceptions;
 
 public class NotEnoughStockException extends  Exception{
+
+    private final Integer productId;
+
+    public NotEnoughStockException(){
+        this(null);
+    }
+
+    public NotEnoughStockException(Integer productId){
+        this.productId = productId;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
 }
@@ -0,0 +1,93 @@
+package com.practice.onlineShop.exports;
+
+import com.practice.onlineShop.vos.ProductVO;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV as in RFC 4180, UTF-8, CRLF line ends. The header names the same columns the product import
+ * reads, so an export can be imported back as it is.
+ */
+public class CsvProductRowWriter implements ProductRowWriter {
+
+    static final String HEADER = "id,code,description,price,currency,stock,valid";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private boolean headerWritten;
+
+    public CsvProductRowWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(ProductVO product) throws IOException {
+        writeHeader();
+        writer.write(Long.toString(product.getId()));
+        writer.write(',');
+        writeText(product.getCode());
+        writer.write(',');
+        writeText(product.getDescription());
+        writer.write(',');
+        writer.write(Double.toString(product.getPrice()));
+        writer.write(',');
+        writeText(product.getCurrency() == null ? null : product.getCurrency().name());
+        writer.write(',');
+        writer.write(Integer.toString(product.getStock()));
+        writer.write(',');
+        writer.write(product.isValid() ? "true" : "false");
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writeHeader();
+        writer.flush();
+    }
+
+    private void writeHeader() throws IOException {
+        if(!headerWritten){
+            writer.write(HEADER);
+            writer.write("\r\n");
+            headerWritten = true;
+        }
+    }
+
+    /**
+     * Quotes the text only when it holds a comma, a quote or a line break.
+     */
+    private void writeText(String text) throws IOException {
+        if(text == null){
+            return;
+        }
+        if(!needsQuotes(text)){
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == '"'){
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static boolean needsQuotes(String text) {
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == ',' || c == '"' || c == '\r' || c == '\n'){
+                return true;
+            }
+        }
+        return false;
+    }
+}
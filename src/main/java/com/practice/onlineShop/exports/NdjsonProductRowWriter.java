@@ -0,0 +1,34 @@
+package com.practice.onlineShop.exports;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.onlineShop.vos.ProductVO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * One JSON product per line, the same objects {@code GET /product/stream} writes.
+ */
+public class NdjsonProductRowWriter implements ProductRowWriter {
+
+    private final JsonGenerator jsonGenerator;
+
+    public NdjsonProductRowWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.jsonGenerator = objectMapper.getFactory().createGenerator(outputStream);
+        this.jsonGenerator.setRootValueSeparator(null);
+        // the caller owns the stream, e.g. the gzip stream it has to finish itself
+        this.jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public void write(ProductVO product) throws IOException {
+        jsonGenerator.writeObject(product);
+        jsonGenerator.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        jsonGenerator.flush();
+    }
+}
@@ -0,0 +1,18 @@
+package com.practice.onlineShop.exports;
+
+import com.practice.onlineShop.vos.ProductVO;
+
+import java.io.IOException;
+
+/**
+ * Writes an export one product at a time, only a fixed size buffer is held in memory.
+ */
+public interface ProductRowWriter {
+
+    void write(ProductVO product) throws IOException;
+
+    /**
+     * Writes what is still buffered. The stream is left open, it belongs to the caller.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.practice.onlineShop.handlers;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.ResponseEntity.status;
+
+@ControllerAdvice
+public class ConflictHandler {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailureException() {
+        return status(CONFLICT).body("Resursa a fost modificata in acelasi timp de o alta cerere, va rugam reincercati");
+    }
+}
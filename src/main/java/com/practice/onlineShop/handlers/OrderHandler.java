@@ -6,6 +6,8 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 import static org.springframework.http.ResponseEntity.status;
 
 @ControllerAdvice
@@ -22,8 +24,11 @@ public class OrderHandler {
     }
 
     @ExceptionHandler(InvalidProductIdException.class)
-    public ResponseEntity<String> handleInvalidProductIdException() {
-        return status(BAD_REQUEST).body("Id-ul unui produc nu este valid in comanda curenta");
+    public ResponseEntity<String> handleInvalidProductIdException(InvalidProductIdException exception) {
+        if(exception.getProductIds().isEmpty()){
+            return status(BAD_REQUEST).body("Id-ul unui produc nu este valid in comanda curenta");
+        }
+        return status(BAD_REQUEST).body("Id-urile urmatoarelor produse nu sunt valide in comanda curenta: " + exception.getProductIds());
     }
 
     @ExceptionHandler(NotEnoughStockException.class)
@@ -51,4 +56,24 @@ public class OrderHandler {
         return status(BAD_REQUEST).body("Comanda nu a fost livrata");
 
     }
+    @ExceptionHandler(OrderBatchTooLargeException.class)
+    public ResponseEntity<String> handleOrderBatchTooLargeException() {
+        return status(BAD_REQUEST).body("Lotul trimis contine prea multe comenzi");
+
+    }
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<String> handleInvalidIdempotencyKeyException() {
+        return status(BAD_REQUEST).body("Cheia de idempotenta nu este valida");
+
+    }
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<String> handleIdempotencyKeyReusedException() {
+        return status(UNPROCESSABLE_ENTITY).body("Cheia de idempotenta a fost folosita pentru o alta comanda");
+
+    }
+    @ExceptionHandler(IdempotencyKeyInUseException.class)
+    public ResponseEntity<String> handleIdempotencyKeyInUseException() {
+        return status(CONFLICT).body("O comanda cu aceeasi cheie de idempotenta este inca in curs, va rugam reincercati");
+
+    }
 }
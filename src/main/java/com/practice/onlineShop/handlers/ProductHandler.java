@@ -2,6 +2,7 @@ package com.practice.onlineShop.handlers;
 
 import com.practice.onlineShop.exceptions.InvalidCustomerIdException;
 import com.practice.onlineShop.exceptions.InvalidProductCodeException;
+import com.practice.onlineShop.exceptions.InvalidProductImportFileException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -16,4 +17,9 @@ public class ProductHandler {
     public ResponseEntity<String> handleInvalidProductCodeException(){
         return status(BAD_REQUEST).body("Codul produsului trimis este invalid!");
     }
+
+    @ExceptionHandler(InvalidProductImportFileException.class)
+    public ResponseEntity<String> handleInvalidProductImportFileException(){
+        return status(BAD_REQUEST).body("Fisierul de import nu are formatul asteptat");
+    }
 }
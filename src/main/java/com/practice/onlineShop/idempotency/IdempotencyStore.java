@@ -0,0 +1,43 @@
+package com.practice.onlineShop.idempotency;
+
+import com.practice.onlineShop.exceptions.IdempotencyKeyInUseException;
+import com.practice.onlineShop.exceptions.IdempotencyKeyReusedException;
+
+import java.util.Optional;
+
+/**
+ * The idempotency keys of {@code POST /order} and the outcome stored for each of them. The first
+ * request with a key claims it; the repeats get its outcome once it is there, the ones that arrive
+ * while it runs wait for it. Every request names itself with an owner token of its own, only the
+ * owner of a claim completes or releases it.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * @param owner token of the request, unique to it
+     * @param fingerprint of the request, a repeat must send the same one
+     * @return empty when the caller claimed the key, it must then {@link #complete} or
+     * {@link #release} it; otherwise the outcome of the request that claimed it first
+     * @throws IdempotencyKeyReusedException when the key was claimed by a different request
+     * @throws IdempotencyKeyInUseException when the request that claimed it is still running after
+     * the in-flight timeout
+     */
+    Optional<IdempotentOutcome> claim(String key, String owner, String fingerprint) throws IdempotencyKeyReusedException, IdempotencyKeyInUseException;
+
+    /**
+     * Stores the outcome of the claimed key and hands it to the requests waiting for it. Called
+     * within a transaction, the outcome takes part in it: it is stored with the transaction's other
+     * writes and handed out only once they commit.
+     *
+     * @return false, without storing anything, when the key is no longer claimed by the owner
+     */
+    boolean complete(String key, String owner, IdempotentOutcome outcome);
+
+    /**
+     * Forgets the key claimed by the owner, after a failure the request is not to blame for: the
+     * next request with the key runs again. It forgets an outcome already stored too, so an order
+     * whose transaction committed but that was not placed after all is not replayed as placed.
+     * Nothing happens when the key is no longer claimed by the owner.
+     */
+    void release(String key, String owner);
+}
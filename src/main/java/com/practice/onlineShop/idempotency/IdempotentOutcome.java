@@ -0,0 +1,22 @@
+package com.practice.onlineShop.idempotency;
+
+import com.practice.onlineShop.enums.OrderResultStatus;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * What placing an order ended with, kept for its idempotency key: placed, or refused for one of
+ * the reasons the request itself is to blame for, with the products concerned.
+ */
+@Getter
+@RequiredArgsConstructor
+public class IdempotentOutcome {
+
+    public static final IdempotentOutcome PLACED = new IdempotentOutcome(OrderResultStatus.PLACED, Collections.emptyList());
+
+    private final OrderResultStatus status;
+    private final Collection<Integer> productIds;
+}
@@ -0,0 +1,161 @@
+package com.practice.onlineShop.idempotency;
+
+import com.practice.onlineShop.exceptions.IdempotencyKeyInUseException;
+import com.practice.onlineShop.exceptions.IdempotencyKeyReusedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Idempotency keys of this application instance, in a {@link ConcurrentHashMap} of at most
+ * {@code onlineshop.order.idempotency.max-keys} keys. A key is kept for the time to live once its
+ * outcome is there; when the map is full the expired keys go first, then a tenth of the others.
+ * A key whose request still runs is never dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "onlineshop.order.idempotency.store", havingValue = "MEMORY", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final long ttlNanos;
+    private final long inFlightTimeoutMillis;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public InMemoryIdempotencyStore(@Value("${onlineshop.order.idempotency.max-keys:100000}") int maxKeys,
+                                    @Value("${onlineshop.order.idempotency.ttl-hours:24}") long ttlHours,
+                                    @Value("${onlineshop.order.idempotency.in-flight-timeout-millis:30000}") long inFlightTimeoutMillis) {
+        this(maxKeys, TimeUnit.HOURS.toNanos(ttlHours), inFlightTimeoutMillis, System::nanoTime);
+    }
+
+    InMemoryIdempotencyStore(int maxKeys, long ttlNanos, long inFlightTimeoutMillis, LongSupplier nanoClock) {
+        this.maxKeys = maxKeys;
+        this.ttlNanos = ttlNanos;
+        this.inFlightTimeoutMillis = inFlightTimeoutMillis;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Optional<IdempotentOutcome> claim(String key, String owner, String fingerprint) throws IdempotencyKeyReusedException, IdempotencyKeyInUseException {
+        while(true){
+            Slot slot = new Slot(owner, fingerprint);
+            Slot claimed = slots.putIfAbsent(key, slot);
+            if(claimed == null){
+                makeRoom();
+                return Optional.empty();
+            }
+            if(isExpired(claimed, nanoClock.getAsLong())){
+                slots.remove(key, claimed);
+                continue;
+            }
+            if(!claimed.fingerprint.equals(fingerprint)){
+                throw new IdempotencyKeyReusedException();
+            }
+            IdempotentOutcome outcome = await(claimed);
+            if(outcome != null){
+                return Optional.of(outcome);
+            }
+            // released, the first request failed and this one runs instead
+        }
+    }
+
+    @Override
+    public boolean complete(String key, String owner, IdempotentOutcome outcome) {
+        Slot slot = slots.get(key);
+        if(slot == null || !slot.owner.equals(owner)){
+            return false;
+        }
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            complete(slot, outcome);
+            return true;
+        }
+        // the waiting requests get the outcome only once the order it belongs to has committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                complete(slot, outcome);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        Slot slot = slots.get(key);
+        if(slot != null && slot.owner.equals(owner) && slots.remove(key, slot)){
+            slot.outcome.complete(null);
+        }
+    }
+
+    private void complete(Slot slot, IdempotentOutcome outcome) {
+        slot.completedAt = nanoClock.getAsLong();
+        slot.outcome.complete(outcome);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    private IdempotentOutcome await(Slot slot) throws IdempotencyKeyInUseException {
+        try {
+            return slot.outcome.get(inFlightTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInUseException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInUseException();
+        } catch (ExecutionException e) {
+            // never completed exceptionally
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void makeRoom() {
+        if(slots.size() <= maxKeys){
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        slots.values().removeIf(slot -> isExpired(slot, now));
+
+        // still full: drop a tenth of the finished keys rather than scanning the map on every claim
+        int toEvict = slots.size() - maxKeys + Math.max(1, maxKeys / 10);
+        Iterator<Map.Entry<String, Slot>> iterator = slots.entrySet().iterator();
+        while(toEvict > 0 && iterator.hasNext()){
+            if(iterator.next().getValue().outcome.isDone()){
+                iterator.remove();
+                toEvict--;
+            }
+        }
+    }
+
+    private boolean isExpired(Slot slot, long now) {
+        return slot.outcome.isDone() && now - slot.completedAt - ttlNanos > 0;
+    }
+
+    private static final class Slot {
+        private final String owner;
+        private final String fingerprint;
+        // null once released
+        private final CompletableFuture<IdempotentOutcome> outcome = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        private Slot(String owner, String fingerprint) {
+            this.owner = owner;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
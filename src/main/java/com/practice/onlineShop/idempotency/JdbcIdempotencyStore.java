@@ -0,0 +1,129 @@
+package com.practice.onlineShop.idempotency;
+
+import com.practice.onlineShop.entities.IdempotencyKey;
+import com.practice.onlineShop.exceptions.IdempotencyKeyInUseException;
+import com.practice.onlineShop.exceptions.IdempotencyKeyReusedException;
+import com.practice.onlineShop.repositories.IdempotencyKeyJdbcRepository;
+import com.practice.onlineShop.tasks.PeriodicTask;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Idempotency keys in the idempotency_key table, shared by every application instance on the db.
+ * The insert of the key is the claim, under the owner token of the request; only that token
+ * completes or releases the row. Completed in the order's transaction, the outcome commits or rolls
+ * back together with the order; a journaled order gets it once it is appended, after that commit. A repeat polls the row until the outcome is there, for at most the
+ * in-flight timeout. A key whose request has not finished after the much longer abandoned timeout
+ * is taken to be left behind by an instance that stopped, and is claimed anew: the request that
+ * claimed it can no longer complete it. Keys past the time to live are purged in the background.
+ */
+@Component
+@ConditionalOnProperty(name = "onlineshop.order.idempotency.store", havingValue = "DATABASE")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final long POLL_INTERVAL_MILLIS = 10;
+    private static final long PURGE_INTERVAL_MINUTES = 10;
+
+    private final IdempotencyKeyJdbcRepository idempotencyKeyJdbcRepository;
+    private final long ttlMillis;
+    private final long inFlightTimeoutMillis;
+    private final long abandonedAfterMillis;
+    private PeriodicTask purgeTask;
+
+    public JdbcIdempotencyStore(IdempotencyKeyJdbcRepository idempotencyKeyJdbcRepository,
+                                @Value("${onlineshop.order.idempotency.ttl-hours:24}") long ttlHours,
+                                @Value("${onlineshop.order.idempotency.in-flight-timeout-millis:30000}") long inFlightTimeoutMillis,
+                                @Value("${onlineshop.order.idempotency.abandoned-after-millis:600000}") long abandonedAfterMillis) {
+        this.idempotencyKeyJdbcRepository = idempotencyKeyJdbcRepository;
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+        this.inFlightTimeoutMillis = inFlightTimeoutMillis;
+        this.abandonedAfterMillis = abandonedAfterMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        purgeTask = PeriodicTask.start("idempotency-key-purge", "purge the expired idempotency keys", this::purge,
+                PURGE_INTERVAL_MINUTES, PURGE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        purgeTask.stop();
+    }
+
+    @Override
+    public Optional<IdempotentOutcome> claim(String key, String owner, String fingerprint) throws IdempotencyKeyReusedException, IdempotencyKeyInUseException {
+        long deadline = System.currentTimeMillis() + inFlightTimeoutMillis;
+        while(true){
+            long now = System.currentTimeMillis();
+            if(idempotencyKeyJdbcRepository.insert(key, owner, fingerprint, now)){
+                return Optional.empty();
+            }
+            Optional<IdempotencyKey> claimed = idempotencyKeyJdbcRepository.find(key);
+            if(!claimed.isPresent()){
+                // released or purged meanwhile
+                continue;
+            }
+            IdempotencyKey idempotencyKey = claimed.get();
+            if(idempotencyKey.getStatus() != null && now - idempotencyKey.getCreatedAt() > ttlMillis
+                    || idempotencyKey.getStatus() == null && now - idempotencyKey.getCreatedAt() > abandonedAfterMillis){
+                idempotencyKeyJdbcRepository.delete(key, idempotencyKey.getClaimedBy());
+                continue;
+            }
+            if(!idempotencyKey.getFingerprint().equals(fingerprint)){
+                throw new IdempotencyKeyReusedException();
+            }
+            if(idempotencyKey.getStatus() != null){
+                return Optional.of(new IdempotentOutcome(idempotencyKey.getStatus(), toProductIds(idempotencyKey.getProductIds())));
+            }
+            if(now >= deadline){
+                throw new IdempotencyKeyInUseException();
+            }
+            sleep();
+        }
+    }
+
+    @Override
+    public boolean complete(String key, String owner, IdempotentOutcome outcome) {
+        String productIds = outcome.getProductIds().stream().map(String::valueOf).collect(Collectors.joining(","));
+        return idempotencyKeyJdbcRepository.complete(key, owner, outcome.getStatus(), productIds);
+    }
+
+    @Override
+    public void release(String key, String owner) {
+        idempotencyKeyJdbcRepository.delete(key, owner);
+    }
+
+    /**
+     * Deletes the keys whose outcome is older than the time to live.
+     */
+    public int purge() {
+        return idempotencyKeyJdbcRepository.deleteCompletedBefore(System.currentTimeMillis() - ttlMillis);
+    }
+
+    private void sleep() throws IdempotencyKeyInUseException {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInUseException();
+        }
+    }
+
+    private static List<Integer> toProductIds(String productIds) {
+        if(productIds == null || productIds.isEmpty()){
+            return Collections.emptyList();
+        }
+        return Arrays.stream(productIds.split(",")).map(Integer::valueOf).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,120 @@
+package com.practice.onlineShop.imports;
+
+import com.practice.onlineShop.exceptions.InvalidProductImportFileException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV as in RFC 4180: a header row naming the columns, comma separated fields, fields in double
+ * quotes may hold commas, line breaks and doubled quotes. The columns can come in any order and
+ * unknown columns are ignored.
+ */
+public class CsvProductRowReader implements ProductRowReader {
+
+    static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private final Reader reader;
+    private final List<String> header;
+    private final StringBuilder field = new StringBuilder();
+    private long rowNumber;
+    private int recordLength;
+    private boolean endOfFile;
+
+    public CsvProductRowReader(Reader reader) throws InvalidProductImportFileException {
+        this.reader = reader;
+        try {
+            this.header = readRecord();
+        } catch (IOException e) {
+            throw new InvalidProductImportFileException();
+        }
+        if(header == null || !header.contains("code")){
+            throw new InvalidProductImportFileException();
+        }
+    }
+
+    @Override
+    public ProductRow next() throws IOException {
+        List<String> record;
+        do {
+            record = readRecord();
+            if(record == null){
+                return null;
+            }
+            rowNumber++;
+        } while(record.size() == 1 && record.get(0).isEmpty());
+
+        Map<String, String> values = new HashMap<>();
+        for(int i = 0; i < header.size() && i < record.size(); i++){
+            values.put(header.get(i), record.get(i));
+        }
+        return new ProductRow(rowNumber, values);
+    }
+
+    private List<String> readRecord() throws IOException {
+        if(endOfFile){
+            return null;
+        }
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        recordLength = 0;
+        boolean quoted = false;
+        boolean empty = true;
+        while(true){
+            int c = read();
+            if(c == -1){
+                endOfFile = true;
+                if(quoted){
+                    throw new IOException("unterminated quoted field");
+                }
+                if(empty && record.isEmpty()){
+                    return null;
+                }
+                record.add(field.toString());
+                return record;
+            }
+            empty = false;
+            if(quoted){
+                if(c == '"'){
+                    int next = read();
+                    if(next == '"'){
+                        field.append('"');
+                        continue;
+                    }
+                    quoted = false;
+                    if(next == -1){
+                        endOfFile = true;
+                        record.add(field.toString());
+                        return record;
+                    }
+                    c = next;
+                } else {
+                    field.append((char) c);
+                    continue;
+                }
+            }
+            if(c == '"' && field.length() == 0){
+                quoted = true;
+            } else if(c == ','){
+                record.add(field.toString());
+                field.setLength(0);
+            } else if(c == '\n'){
+                record.add(field.toString());
+                return record;
+            } else if(c != '\r'){
+                field.append((char) c);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if(++recordLength > MAX_RECORD_LENGTH){
+            throw new IOException("row longer than " + MAX_RECORD_LENGTH + " characters");
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,58 @@
+package com.practice.onlineShop.imports;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.onlineShop.exceptions.InvalidProductImportFileException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Either one JSON array of products or a stream of product objects, one after the other as in
+ * NDJSON. The parser only materializes the product being read.
+ */
+public class JsonProductRowReader implements ProductRowReader {
+
+    private final JsonParser parser;
+    private final boolean array;
+    private JsonToken nextToken;
+    private long rowNumber;
+
+    public JsonProductRowReader(ObjectMapper objectMapper, InputStream inputStream) throws InvalidProductImportFileException {
+        try {
+            this.parser = objectMapper.getFactory().createParser(inputStream);
+            JsonToken firstToken = parser.nextToken();
+            this.array = firstToken == JsonToken.START_ARRAY;
+            this.nextToken = array ? parser.nextToken() : firstToken;
+        } catch (IOException e) {
+            throw new InvalidProductImportFileException();
+        }
+    }
+
+    @Override
+    public ProductRow next() throws IOException {
+        if(nextToken == null || nextToken == JsonToken.END_ARRAY){
+            return null;
+        }
+        JsonNode node = parser.readValueAsTree();
+        rowNumber++;
+        nextToken = parser.nextToken();
+
+        Map<String, String> values = new HashMap<>();
+        if(node != null && node.isObject()){
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while(fields.hasNext()){
+                Map.Entry<String, JsonNode> field = fields.next();
+                if(field.getValue().isValueNode() && !field.getValue().isNull()){
+                    values.put(field.getKey(), field.getValue().asText());
+                }
+            }
+        }
+        return new ProductRow(rowNumber, values);
+    }
+}
@@ -0,0 +1,17 @@
+package com.practice.onlineShop.imports;
+
+import com.practice.onlineShop.vos.ProductImportErrorVO;
+import com.practice.onlineShop.vos.ProductImportProgressVO;
+
+/**
+ * Told about the import while it runs, so the caller can pass it on without collecting it.
+ */
+public interface ProductImportListener {
+
+    void onError(ProductImportErrorVO error);
+
+    /**
+     * After every committed chunk, and once more with {@code done} set at the end.
+     */
+    void onProgress(ProductImportProgressVO progress);
+}
@@ -0,0 +1,29 @@
+package com.practice.onlineShop.imports;
+
+import java.util.Map;
+
+/**
+ * One row of an import file as read, field name to text, before it is validated.
+ */
+public class ProductRow {
+
+    private final long number;
+    private final Map<String, String> values;
+
+    public ProductRow(long number, Map<String, String> values) {
+        this.number = number;
+        this.values = values;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    /**
+     * @return null when the field is missing or empty
+     */
+    public String get(String field) {
+        String value = values.get(field);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
@@ -0,0 +1,15 @@
+package com.practice.onlineShop.imports;
+
+import java.io.IOException;
+
+/**
+ * Reads an import file one row at a time, so only the current row is held in memory.
+ */
+public interface ProductRowReader {
+
+    /**
+     * @return the next row, null at the end of the file
+     * @throws IOException when the rest of the file cannot be read, e.g. it is not well formed
+     */
+    ProductRow next() throws IOException;
+}
@@ -0,0 +1,15 @@
+package com.practice.onlineShop.journal;
+
+import com.practice.onlineShop.vos.OrderVO;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * An order as it was acknowledged, and its place in the journal.
+ */
+@Getter
+@RequiredArgsConstructor
+public class JournalEntry {
+    private final long sequence;
+    private final OrderVO orderVO;
+}
@@ -0,0 +1,179 @@
+package com.practice.onlineShop.journal;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * One file of the {@link OrderJournal}, mapped into memory at its full size when it is created.
+ *
+ * <pre>
+ *   header:  magic (int), format version (int), sequence of the first record (long)
+ *   record:  payload length (int), CRC32 of sequence and payload (int), sequence (long), payload
+ * </pre>
+ *
+ * The unused rest of the file is zeros, so a length of 0 marks the end. Sequences are consecutive
+ * within a segment. Only the appending thread writes; readers see a record once the journal says
+ * it was written, and check it again against its checksum.
+ */
+final class JournalSegment {
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 16;
+
+    private static final int MAGIC = 0x4F4A524E;
+    private static final int FORMAT_VERSION = 1;
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    private final Path file;
+    private final long firstSequence;
+    private final MappedByteBuffer buffer;
+    private long lastSequence;
+    private volatile int sealedEnd = -1;
+
+    private JournalSegment(Path file, long firstSequence, MappedByteBuffer buffer) {
+        this.file = file;
+        this.firstSequence = firstSequence;
+        this.buffer = buffer;
+        this.lastSequence = firstSequence - 1;
+    }
+
+    static JournalSegment create(Path file, long firstSequence, int size) throws IOException {
+        MappedByteBuffer buffer;
+        try(RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")){
+            randomAccessFile.setLength(size);
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(firstSequence);
+        buffer.force();
+        return new JournalSegment(file, firstSequence, buffer);
+    }
+
+    /**
+     * Maps an existing segment and finds the end of its last whole record, see {@link #getLastSequence}.
+     * Anything after it, a record torn by a crash, is zeroed so the next append starts on a clean end.
+     */
+    static JournalSegment open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try(RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")){
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length());
+        }
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION){
+            throw new IOException(file + " is not an order journal segment");
+        }
+        JournalSegment segment = new JournalSegment(file, buffer.getLong(8), buffer);
+        int position = HEADER_SIZE;
+        Record record;
+        while((record = segment.read(position)) != null && record.sequence == segment.lastSequence + 1){
+            segment.lastSequence = record.sequence;
+            position = record.next;
+        }
+        buffer.position(position);
+        if(position + 4 <= buffer.capacity() && buffer.getInt(position) != 0){
+            ByteBuffer rest = buffer.duplicate();
+            while(rest.hasRemaining()){
+                rest.put(ZEROS, 0, Math.min(ZEROS.length, rest.remaining()));
+            }
+            buffer.force();
+        }
+        return segment;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    /**
+     * The sequence of the last record appended, {@code firstSequence - 1} while there is none.
+     */
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return false, and nothing written, when the record does not fit in the rest of the segment
+     */
+    boolean tryAppend(long sequence, byte[] payload) {
+        int size = RECORD_HEADER_SIZE + payload.length;
+        // the 4 bytes after the record stay zero, as the end marker
+        if(buffer.remaining() < size + 4){
+            return false;
+        }
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.putInt(payload.length).putInt(0).putLong(sequence).put(payload);
+        record.putInt(4, checksum(record.array(), 8, size - 8));
+        record.flip();
+        buffer.put(record);
+        lastSequence = sequence;
+        return true;
+    }
+
+    /**
+     * @return the record at this position, null when there is none or it is not whole
+     */
+    Record read(int position) {
+        if(position + RECORD_HEADER_SIZE > buffer.capacity()){
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if(length <= 0 || length > buffer.capacity() - position - RECORD_HEADER_SIZE){
+            return null;
+        }
+        byte[] bytes = new byte[8 + length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + 8);
+        source.get(bytes);
+        if(checksum(bytes, 0, bytes.length) != buffer.getInt(position + 4)){
+            return null;
+        }
+        ByteBuffer recordBytes = ByteBuffer.wrap(bytes);
+        long sequence = recordBytes.getLong();
+        byte[] payload = new byte[length];
+        recordBytes.get(payload);
+        return new Record(sequence, payload, position + RECORD_HEADER_SIZE + length);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * No record is appended after this, the readers may move on to the next segment once they are
+     * past the last one.
+     */
+    void seal() {
+        sealedEnd = buffer.position();
+    }
+
+    boolean isReadPast(int position) {
+        int end = sealedEnd;
+        return end >= 0 && position >= end;
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, offset, length);
+        return (int) crc32.getValue();
+    }
+
+    static final class Record {
+        final long sequence;
+        final byte[] payload;
+        // position of the record after this one
+        final int next;
+
+        private Record(long sequence, byte[] payload, int next) {
+            this.sequence = sequence;
+            this.payload = payload;
+            this.next = next;
+        }
+    }
+}
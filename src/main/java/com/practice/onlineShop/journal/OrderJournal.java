@@ -0,0 +1,320 @@
+package com.practice.onlineShop.journal;
+
+import com.practice.onlineShop.repositories.OrderRepository;
+import com.practice.onlineShop.vos.OrderVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Write-ahead journal of the placed orders, used instead of inserting them in the request when
+ * {@code onlineshop.order.write-mode=JOURNAL}. {@link #append} copies the order into a memory-mapped
+ * {@link JournalSegment} and returns once the segment is on disk; the {@link OrderJournalApplier}
+ * inserts the journaled orders into the order tables afterwards.
+ *
+ * The fsyncs are shared: the first appender that has to wait forces the segment for every order
+ * written so far, the ones that arrive meanwhile wait for it and are covered by the next force. With
+ * {@code onlineshop.order.journal.fsync=false} an append returns once it is in the mapped file,
+ * which survives a crash of the application but not of the machine.
+ *
+ * Segments are rolled once full and deleted once the applier is past them. On start the journal
+ * reopens the segments left in its directory, drops a record torn by a crash and goes on from the
+ * last whole one; the applier inserts whatever was not in the order tables yet.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "onlineshop.order.write-mode", havingValue = "JOURNAL")
+public class OrderJournal {
+
+    private static final String SEGMENT_PREFIX = "orders-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final OrderRepository orderRepository;
+    private final Path directory;
+    private final int segmentSizeBytes;
+    private final boolean fsync;
+
+    private final List<JournalSegment> segments = new CopyOnWriteArrayList<>();
+    // guards current and nextSequence
+    private final Object appendLock = new Object();
+    // guards syncing and the changes of durableSequence
+    private final Object syncMonitor = new Object();
+    private JournalSegment current;
+    private long nextSequence;
+    private volatile long writtenSequence;
+    private volatile long durableSequence;
+    private boolean syncing;
+
+    public OrderJournal(OrderRepository orderRepository,
+                        @Value("${onlineshop.order.journal.directory:journal}") String directory,
+                        @Value("${onlineshop.order.journal.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${onlineshop.order.journal.fsync:true}") boolean fsync) {
+        this.orderRepository = orderRepository;
+        this.directory = Paths.get(directory);
+        this.segmentSizeBytes = segmentSizeMb * 1024 * 1024;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Reopens the segments of a previous run. The sequences go on after the last one journaled or
+     * applied, whichever is higher, so they never repeat one the order tables already have.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try(DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)){
+            directoryStream.forEach(files::add);
+        }
+        // the names hold the zero-padded first sequence
+        Collections.sort(files);
+        long lastSequence = 0;
+        for(Path file : files){
+            JournalSegment segment = JournalSegment.open(file);
+            if(!segments.isEmpty()){
+                segments.get(segments.size() - 1).seal();
+            }
+            if(segment.getFirstSequence() != lastSequence + 1 && lastSequence != 0){
+                log.warn("The order journal has no record between {} and {}", lastSequence, segment.getFirstSequence());
+            }
+            segments.add(segment);
+            lastSequence = segment.getLastSequence();
+        }
+        Long appliedSequence = orderRepository.findMaxJournalSequence();
+        nextSequence = Math.max(lastSequence, appliedSequence == null ? 0 : appliedSequence) + 1;
+        writtenSequence = nextSequence - 1;
+        durableSequence = nextSequence - 1;
+        if(!segments.isEmpty() && lastSequence == nextSequence - 1){
+            current = segments.get(segments.size() - 1);
+        } else {
+            if(!segments.isEmpty()){
+                segments.get(segments.size() - 1).seal();
+            }
+            current = newSegment(nextSequence);
+        }
+        log.info("Opened the order journal in {}, {} segments, next sequence {}", directory.toAbsolutePath(), segments.size(), nextSequence);
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized(appendLock){
+            current.force();
+        }
+    }
+
+    /**
+     * Journals the order and waits until it is on disk.
+     *
+     * @return the sequence of the order in the journal
+     */
+    public long append(OrderVO orderVO) {
+        byte[] payload = encode(orderVO);
+        long sequence;
+        synchronized(appendLock){
+            sequence = nextSequence;
+            if(!current.tryAppend(sequence, payload)){
+                roll(sequence);
+                if(!current.tryAppend(sequence, payload)){
+                    throw new IllegalArgumentException("An order of " + payload.length + " bytes does not fit in a journal segment");
+                }
+            }
+            nextSequence++;
+            writtenSequence = sequence;
+        }
+        if(fsync){
+            awaitDurable(sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * The last sequence the readers may see: every order up to it was acknowledged or is about to be.
+     */
+    public long getDurableSequence() {
+        return fsync ? durableSequence : writtenSequence;
+    }
+
+    /**
+     * A cursor before the first record still in the journal.
+     */
+    Cursor start() {
+        return new Cursor(segments.get(0), JournalSegment.HEADER_SIZE);
+    }
+
+    /**
+     * Reads the durable entries after the cursor, at most {@code maxEntries} of them.
+     *
+     * @return the cursor after the entries read
+     */
+    Cursor read(Cursor from, int maxEntries, List<JournalEntry> entries) {
+        long durable = getDurableSequence();
+        JournalSegment segment = from.segment;
+        int position = from.position;
+        while(entries.size() < maxEntries){
+            JournalSegment.Record record = segment.read(position);
+            if(record != null && record.sequence <= durable){
+                entries.add(new JournalEntry(record.sequence, decode(record.payload)));
+                position = record.next;
+                continue;
+            }
+            int index = segments.indexOf(segment);
+            if(segment.isReadPast(position) && index + 1 < segments.size()){
+                segment = segments.get(index + 1);
+                position = JournalSegment.HEADER_SIZE;
+                continue;
+            }
+            break;
+        }
+        return new Cursor(segment, position);
+    }
+
+    /**
+     * Deletes the segments before the cursor's, the cursor's reader must be done with them.
+     */
+    void deleteBefore(Cursor cursor) {
+        for(JournalSegment segment : segments){
+            if(segment == cursor.segment){
+                return;
+            }
+            segments.remove(segment);
+            try {
+                Files.deleteIfExists(segment.getFile());
+            } catch (IOException e) {
+                log.warn("Could not delete the applied journal segment {}", segment.getFile(), e);
+            }
+        }
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * The segment is forced before the next one gets any record, so a synced sequence never
+     * depends on a segment that was not synced.
+     */
+    private void roll(long firstSequence) {
+        current.force();
+        current.seal();
+        current = newSegment(firstSequence);
+    }
+
+    private JournalSegment newSegment(long firstSequence) {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        try {
+            JournalSegment segment = JournalSegment.create(file, firstSequence, segmentSizeBytes);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the journal segment " + file, e);
+        }
+    }
+
+    /**
+     * Group commit: becomes the one who forces the segment when nobody is, otherwise waits for
+     * the force under way and checks again.
+     */
+    private void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        try {
+            while(true){
+                synchronized(syncMonitor){
+                    while(syncing && durableSequence < sequence){
+                        try {
+                            syncMonitor.wait();
+                        } catch (InterruptedException e) {
+                            // the order is already journaled, it has to be acknowledged
+                            interrupted = true;
+                        }
+                    }
+                    if(durableSequence >= sequence){
+                        return;
+                    }
+                    syncing = true;
+                }
+                long synced = -1;
+                try {
+                    synced = forceWritten();
+                } finally {
+                    synchronized(syncMonitor){
+                        syncing = false;
+                        if(synced > durableSequence){
+                            durableSequence = synced;
+                        }
+                        syncMonitor.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if(interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return the last sequence now on disk
+     */
+    private long forceWritten() {
+        JournalSegment segment;
+        long written;
+        synchronized(appendLock){
+            segment = current;
+            written = writtenSequence;
+        }
+        segment.force();
+        return written;
+    }
+
+    static byte[] encode(OrderVO orderVO) {
+        Map<Integer, Integer> productsIdsToQuantity = orderVO.getProductsIdsToQuantity();
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 8 * productsIdsToQuantity.size());
+        buffer.putInt(orderVO.getUserId());
+        buffer.putInt(productsIdsToQuantity.size());
+        productsIdsToQuantity.forEach((productId, quantity) -> buffer.putInt(productId).putInt(quantity));
+        return buffer.array();
+    }
+
+    static OrderVO decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId(buffer.getInt());
+        int itemCount = buffer.getInt();
+        Map<Integer, Integer> productsIdsToQuantity = new LinkedHashMap<>();
+        for(int i = 0; i < itemCount; i++){
+            productsIdsToQuantity.put(buffer.getInt(), buffer.getInt());
+        }
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+        return orderVO;
+    }
+
+    /**
+     * A position in the journal, between two records.
+     */
+    static final class Cursor {
+        private final JournalSegment segment;
+        private final int position;
+
+        private Cursor(JournalSegment segment, int position) {
+            this.segment = segment;
+            this.position = position;
+        }
+    }
+}
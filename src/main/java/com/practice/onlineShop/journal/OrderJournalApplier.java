@@ -0,0 +1,173 @@
+package com.practice.onlineShop.journal;
+
+import com.practice.onlineShop.entities.OrderItem;
+import com.practice.onlineShop.entities.Orders;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.repositories.OrderRepository;
+import com.practice.onlineShop.tasks.PeriodicTask;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts the orders of the {@link OrderJournal} into the order tables, in journal order, a batch
+ * of them per transaction. The stock was reserved when the order was placed, only the order and
+ * its items are written here.
+ *
+ * Every order carries its journal sequence into a unique column, so an order is never inserted
+ * twice: after a restart the applier starts after the highest sequence in the table, and an order
+ * of a batch that was committed but not yet past the cursor is rejected by the constraint. A batch
+ * rejected by the db is applied again order by order; an order rejected on its own, e.g. because
+ * its product was deleted meanwhile, is logged and skipped so the ones after it are not held up.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "onlineshop.order.write-mode", havingValue = "JOURNAL")
+public class OrderJournalApplier {
+
+    private final OrderJournal orderJournal;
+    private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final long applyIntervalMillis;
+    private final int applyBatchSize;
+    private final int jdbcBatchSize;
+
+    private OrderJournal.Cursor cursor;
+    private long appliedSequence;
+    private PeriodicTask applyTask;
+
+    public OrderJournalApplier(OrderJournal orderJournal,
+                               OrderRepository orderRepository,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${onlineshop.order.journal.apply-interval-millis:50}") long applyIntervalMillis,
+                               @Value("${onlineshop.order.journal.apply-batch-size:500}") int applyBatchSize,
+                               @Value("${onlineshop.order.batch.jdbc-batch-size:50}") int jdbcBatchSize) {
+        this.orderJournal = orderJournal;
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.applyIntervalMillis = applyIntervalMillis;
+        this.applyBatchSize = applyBatchSize;
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    /**
+     * Replays what the previous run journaled but did not apply, then keeps applying.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        Long maxJournalSequence = orderRepository.findMaxJournalSequence();
+        appliedSequence = maxJournalSequence == null ? 0 : maxJournalSequence;
+        cursor = orderJournal.start();
+        int replayed = apply();
+        if(replayed > 0){
+            log.info("Applied {} orders journaled before the restart", replayed);
+        }
+        applyTask = PeriodicTask.start("order-journal-applier", "apply the order journal", this::apply,
+                applyIntervalMillis, applyIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if(applyTask == null){
+            return;
+        }
+        applyTask.stop();
+        applyTask.runQuietly();
+    }
+
+    /**
+     * Applies every durable entry after the cursor, batch by batch, and deletes the segments left
+     * behind. A batch that fails for another reason than a rejected order is read again next time.
+     *
+     * @return the number of orders inserted or skipped
+     */
+    public synchronized int apply() {
+        int applied = 0;
+        while(true){
+            List<JournalEntry> entries = new ArrayList<>(applyBatchSize);
+            OrderJournal.Cursor next = orderJournal.read(cursor, applyBatchSize, entries);
+            List<JournalEntry> unapplied = new ArrayList<>(entries.size());
+            for(JournalEntry entry : entries){
+                if(entry.getSequence() > appliedSequence){
+                    unapplied.add(entry);
+                }
+            }
+            if(!unapplied.isEmpty()){
+                try {
+                    insert(unapplied);
+                } catch (DataIntegrityViolationException e) {
+                    insertEachOrder(unapplied);
+                }
+                appliedSequence = unapplied.get(unapplied.size() - 1).getSequence();
+                applied += unapplied.size();
+            }
+            cursor = next;
+            orderJournal.deleteBefore(cursor);
+            if(entries.size() < applyBatchSize){
+                return applied;
+            }
+        }
+    }
+
+    private void insertEachOrder(List<JournalEntry> entries) {
+        for(JournalEntry entry : entries){
+            try {
+                insert(Collections.singletonList(entry));
+            } catch (DataIntegrityViolationException e) {
+                log.error("Skipped the journaled order {} for user {} with products {}, the db rejected it or has it already",
+                        entry.getSequence(), entry.getOrderVO().getUserId(), entry.getOrderVO().getProductsIdsToQuantity(), e);
+            }
+        }
+    }
+
+    private void insert(List<JournalEntry> entries) {
+        transactionTemplate.executeWithoutResult(transactionStatus -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            List<Orders> orders = new ArrayList<>(entries.size());
+            for(JournalEntry entry : entries){
+                orders.add(toEntity(entry));
+            }
+            // inserted at the commit, which reports a rejected insert as a DataIntegrityViolationException
+            orderRepository.saveAll(orders);
+        });
+    }
+
+    /**
+     * The customer and the products were checked when the order was placed, references are enough.
+     */
+    private Orders toEntity(JournalEntry entry) {
+        Orders order = new Orders();
+        order.setJournalSequence(entry.getSequence());
+        order.setUser(entityManager.getReference(Users.class, entry.getOrderVO().getUserId().longValue()));
+        List<OrderItem> orderItems = new ArrayList<>();
+        for(Map.Entry<Integer, Integer> productIdToQuantity : entry.getOrderVO().getProductsIdsToQuantity().entrySet()){
+            OrderItem orderItem = new OrderItem();
+            orderItem.setProduct(entityManager.getReference(Product.class, productIdToQuantity.getKey().longValue()));
+            orderItem.setQuantity(productIdToQuantity.getValue());
+            orderItems.add(orderItem);
+        }
+        order.setOrderItems(orderItems);
+        return order;
+    }
+}
@@ -7,8 +7,10 @@ import com.practice.onlineShop.entities.Users;
 import com.practice.onlineShop.exceptions.InvalidCustomerIdException;
 import com.practice.onlineShop.exceptions.InvalidProductIdException;
 import com.practice.onlineShop.exceptions.InvalidProductsException;
-import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.repositories.OrderItemRow;
 import com.practice.onlineShop.repositories.UserRepository;
+import com.practice.onlineShop.vos.OrderDetailsVO;
+import com.practice.onlineShop.vos.OrderItemDetailsVO;
 import com.practice.onlineShop.vos.OrderVO;
 
 import lombok.RequiredArgsConstructor;
@@ -16,6 +18,7 @@ import org.springframework.stereotype.Component;
 
 import javax.persistence.criteria.Order;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,33 +28,53 @@ import java.util.Optional;
 public class OrderMapper {
 
     private final UserRepository userRepository;
-    private final ProductRepository productRepository;
 
-    public Orders toEntity(OrderVO orderVO) throws InvalidCustomerIdException, InvalidProductsException, InvalidProductIdException {
+    /**
+     * The caller runs {@link #validateOrder} first, before it loads the products of the order.
+     */
+    public Orders toEntity(OrderVO orderVO, Map<Integer, Product> productsById) throws InvalidCustomerIdException, InvalidProductIdException {
         if(orderVO == null){
             return null;
         }
-        validateOrder(orderVO);
-
-        Orders order = new Orders();
 
         Optional<Users> userOptional = userRepository.findById(orderVO.getUserId().longValue());
 
         if(!userOptional.isPresent()){
             throw new InvalidCustomerIdException();
         }
-        order.setUser(userOptional.get());
+        return toOrder(orderVO, userOptional.get(), productsById);
+    }
+
+    /**
+     * For callers that already loaded the user, e.g. a batch of orders of the same customers.
+     */
+    public Orders toEntity(OrderVO orderVO, Users user, Map<Integer, Product> productsById) throws InvalidCustomerIdException, InvalidProductsException, InvalidProductIdException {
+        if(orderVO == null){
+            return null;
+        }
+        validateOrder(orderVO);
+        if(user == null){
+            throw new InvalidCustomerIdException();
+        }
+        return toOrder(orderVO, user, productsById);
+    }
+
+    private Orders toOrder(OrderVO orderVO, Users user, Map<Integer, Product> productsById) throws InvalidProductIdException {
+        Orders order = new Orders();
+        order.setUser(user);
 
         Map<Integer, Integer> productsIdsToQuantityMap = orderVO.getProductsIdsToQuantity();
         List<OrderItem> orderItemList = new ArrayList<>();
+        List<Integer> missingProductIds = new ArrayList<>();
 
         for(Integer productId : productsIdsToQuantityMap.keySet()){
             OrderItem orderItem = new OrderItem();
-            Optional<Product> productOptional = productRepository.findById(productId.longValue());
-            if(!productOptional.isPresent()){
-                throw new InvalidProductIdException();
+            Product product = productsById.get(productId);
+            if(product == null){
+                missingProductIds.add(productId);
+                continue;
             }
-            orderItem.setProduct(productOptional.get());
+            orderItem.setProduct(product);
 
             Integer productQuantity = productsIdsToQuantityMap.get(productId);
             orderItem.setQuantity(productQuantity);
@@ -59,15 +82,60 @@ public class OrderMapper {
             orderItemList.add(orderItem);
 
         }
+        if(!missingProductIds.isEmpty()){
+            throw new InvalidProductIdException(missingProductIds);
+        }
         order.setOrderItems(orderItemList);
 
         return order;
     }
 
-    private void validateOrder(OrderVO orderVO) throws InvalidCustomerIdException, InvalidProductsException {
+    /**
+     * Rejects an order without products or with a quantity that is not positive, before its products are loaded.
+     */
+    public void validateOrder(OrderVO orderVO) throws InvalidCustomerIdException, InvalidProductsException {
 
-        if(orderVO.getProductsIdsToQuantity().keySet().isEmpty()){
+        if(orderVO.getProductsIdsToQuantity() == null || orderVO.getProductsIdsToQuantity().keySet().isEmpty()){
             throw new InvalidProductsException();
         }
+        for(Integer quantity : orderVO.getProductsIdsToQuantity().values()){
+            if(quantity == null || quantity <= 0){
+                throw new InvalidProductsException();
+            }
+        }
+    }
+
+    /**
+     * Groups the rows of the order queries by order, keeping the order of the rows.
+     */
+    public List<OrderDetailsVO> toDetailsVOs(List<OrderItemRow> rows) {
+        Map<Long, OrderDetailsVO> ordersById = new LinkedHashMap<>();
+        for(OrderItemRow row : rows){
+            OrderDetailsVO orderDetailsVO = ordersById.computeIfAbsent(row.getOrderId(), orderId -> toDetailsVO(row));
+            if(row.getProductId() != null){
+                orderDetailsVO.getItems().add(toItemDetailsVO(row));
+            }
+        }
+        return new ArrayList<>(ordersById.values());
+    }
+
+    private OrderDetailsVO toDetailsVO(OrderItemRow row) {
+        OrderDetailsVO orderDetailsVO = new OrderDetailsVO();
+        orderDetailsVO.setId(row.getOrderId());
+        orderDetailsVO.setUserId(row.getUserId());
+        orderDetailsVO.setStatus(row.getStatus());
+        orderDetailsVO.setItems(new ArrayList<>());
+        return orderDetailsVO;
+    }
+
+    private OrderItemDetailsVO toItemDetailsVO(OrderItemRow row) {
+        OrderItemDetailsVO orderItemDetailsVO = new OrderItemDetailsVO();
+        orderItemDetailsVO.setProductId(row.getProductId());
+        orderItemDetailsVO.setProductCode(row.getProductCode());
+        orderItemDetailsVO.setProductDescription(row.getProductDescription());
+        orderItemDetailsVO.setPrice(row.getProductPrice());
+        orderItemDetailsVO.setCurrency(row.getProductCurrency());
+        orderItemDetailsVO.setQuantity(row.getQuantity());
+        return orderItemDetailsVO;
     }
 }
@@ -1,12 +1,19 @@
 package com.practice.onlineShop.mappers;
 
 import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.Currencies;
+import com.practice.onlineShop.exceptions.InvalidProductRowException;
+import com.practice.onlineShop.imports.ProductRow;
 import com.practice.onlineShop.vos.ProductVO;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+
 @Component
 public class ProductMapper {
 
+    private static final int MAX_TEXT_LENGTH = 255;
+
     public Product toEntity (ProductVO productVO){
         if(productVO == null){
             return null;
@@ -35,4 +42,88 @@ public class ProductMapper {
             productVO.setCurrency(product.getCurrency());
             return productVO;
         }
+        public ProductVO copy(ProductVO productVO){
+            if(productVO == null){
+                return null;
+            }
+            ProductVO copy = new ProductVO();
+            copy.setId(productVO.getId());
+            copy.setPrice(productVO.getPrice());
+            copy.setCode(productVO.getCode());
+            copy.setDescription(productVO.getDescription());
+            copy.setStock(productVO.getStock());
+            copy.setValid(productVO.isValid());
+            copy.setCurrency(productVO.getCurrency());
+            return copy;
+        }
+
+        /**
+         * Validates a row of an import file. Code, price, stock and currency are required, a
+         * missing {@code valid} means the product is valid.
+         */
+        public Product toEntityFromRow(ProductRow row) throws InvalidProductRowException {
+            String code = row.get("code");
+            if(code == null || code.length() > MAX_TEXT_LENGTH){
+                throw new InvalidProductRowException("Codul produsului lipseste sau are mai mult de " + MAX_TEXT_LENGTH + " de caractere");
+            }
+            String description = row.get("description");
+            if(description != null && description.length() > MAX_TEXT_LENGTH){
+                throw new InvalidProductRowException("Descrierea are mai mult de " + MAX_TEXT_LENGTH + " de caractere");
+            }
+            Product product = new Product();
+            product.setCode(code);
+            product.setDescription(description);
+            product.setPrice(parsePrice(row.get("price")));
+            product.setStock(parseStock(row.get("stock")));
+            product.setCurrency(parseCurrency(row.get("currency")));
+            product.setValid(parseValid(row.get("valid")));
+            return product;
+        }
+
+        private double parsePrice(String price) throws InvalidProductRowException {
+            if(price != null){
+                try {
+                    double value = Double.parseDouble(price);
+                    if(value >= 0 && !Double.isInfinite(value)){
+                        return value;
+                    }
+                } catch (NumberFormatException e) {
+                    // reported below
+                }
+            }
+            throw new InvalidProductRowException("Pretul lipseste sau nu este un numar pozitiv");
+        }
+
+        private int parseStock(String stock) throws InvalidProductRowException {
+            try {
+                int value = Integer.parseInt(stock);
+                if(value >= 0){
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // reported below, parseInt(null) throws this one too
+            }
+            throw new InvalidProductRowException("Stocul lipseste sau nu este un numar intreg pozitiv");
+        }
+
+        private Currencies parseCurrency(String currency) throws InvalidProductRowException {
+            if(currency != null){
+                try {
+                    return Currencies.valueOf(currency.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    // reported below
+                }
+            }
+            throw new InvalidProductRowException("Moneda lipseste sau nu este una dintre " + Arrays.toString(Currencies.values()));
+        }
+
+        private boolean parseValid(String valid) throws InvalidProductRowException {
+            if(valid == null || valid.equalsIgnoreCase("true")){
+                return true;
+            }
+            if(valid.equalsIgnoreCase("false")){
+                return false;
+            }
+            throw new InvalidProductRowException("Campul valid trebuie sa fie true sau false");
+        }
 }
@@ -0,0 +1,79 @@
+package com.practice.onlineShop.metrics;
+
+import com.practice.onlineShop.vos.OperationMetricsVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-operation metrics, keyed by the invoked {@link Method} so that looking up the metrics of a
+ * call allocates nothing. The operation name is built once, the first time a method is seen.
+ */
+@Component
+public class MetricsRegistry {
+
+    private final boolean enabled;
+    private final ConcurrentHashMap<Method, OperationMetrics> metricsByMethod = new ConcurrentHashMap<>();
+    private volatile long startedAtNanos = System.nanoTime();
+
+    public MetricsRegistry(@Value("${onlineshop.metrics.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public OperationMetrics getMetrics(Method method) {
+        OperationMetrics metrics = metricsByMethod.get(method);
+        if(metrics == null){
+            metrics = metricsByMethod.computeIfAbsent(method,
+                    key -> new OperationMetrics(key.getDeclaringClass().getSimpleName() + "." + key.getName()));
+        }
+        return metrics;
+    }
+
+    public List<OperationMetricsVO> getSnapshot() {
+        double elapsedSeconds = Math.max(System.nanoTime() - startedAtNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        List<OperationMetricsVO> snapshot = new ArrayList<>();
+        for(OperationMetrics metrics : metricsByMethod.values()){
+            snapshot.add(toVO(metrics, elapsedSeconds));
+        }
+        snapshot.sort(Comparator.comparing(OperationMetricsVO::getOperation));
+        return snapshot;
+    }
+
+    public void reset() {
+        metricsByMethod.values().forEach(OperationMetrics::reset);
+        startedAtNanos = System.nanoTime();
+    }
+
+    private OperationMetricsVO toVO(OperationMetrics metrics, double elapsedSeconds) {
+        LatencyHistogram latencies = metrics.getLatencies();
+        OperationMetricsVO operationMetricsVO = new OperationMetricsVO();
+        operationMetricsVO.setOperation(metrics.getOperation());
+        operationMetricsVO.setCount(latencies.getCount());
+        operationMetricsVO.setThroughputPerSecond(latencies.getCount() / elapsedSeconds);
+        operationMetricsVO.setMeanMillis(toMillis(latencies.getMeanNanos()));
+        operationMetricsVO.setP50Millis(toMillis(latencies.getValueAtPercentile(50)));
+        operationMetricsVO.setP99Millis(toMillis(latencies.getValueAtPercentile(99)));
+        operationMetricsVO.setP999Millis(toMillis(latencies.getValueAtPercentile(99.9)));
+        operationMetricsVO.setMaxMillis(toMillis(latencies.getMaxNanos()));
+        operationMetricsVO.setErrors(metrics.getErrorCount());
+        operationMetricsVO.setErrorsByType(metrics.getErrorCountsByType());
+        operationMetricsVO.setConflicts(metrics.getConflictCount());
+        operationMetricsVO.setConflictRate(latencies.getCount() == 0 ? 0 : (double) metrics.getConflictCount() / latencies.getCount());
+        operationMetricsVO.setRetriesExhausted(metrics.getRetriesExhaustedCount());
+        return operationMetricsVO;
+    }
+
+    private double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,79 @@
+package com.practice.onlineShop.metrics;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and failures of one controller or service method. Successful and failed calls go in
+ * the same histogram; failures are also counted by exception type.
+ */
+public class OperationMetrics {
+
+    @Getter
+    private final String operation;
+    @Getter
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final ConcurrentHashMap<Class<?>, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retriesExhausted = new LongAdder();
+
+    public OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    public void recordSuccess(long latencyNanos) {
+        latencies.record(latencyNanos);
+    }
+
+    public void recordFailure(long latencyNanos, Class<?> exceptionType) {
+        latencies.record(latencyNanos);
+        errors.increment();
+        LongAdder counter = errorsByType.get(exceptionType);
+        if(counter == null){
+            counter = errorsByType.computeIfAbsent(exceptionType, type -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * An attempt lost an optimistic locking race, see {@code RetryAspect}.
+     */
+    public void recordConflict() {
+        conflicts.increment();
+    }
+
+    public void recordRetriesExhausted() {
+        retriesExhausted.increment();
+    }
+
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    public long getRetriesExhaustedCount() {
+        return retriesExhausted.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public Map<String, Long> getErrorCountsByType() {
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errorsByType.forEach((type, counter) -> errorCounts.put(type.getSimpleName(), counter.sum()));
+        return errorCounts;
+    }
+
+    public void reset() {
+        latencies.reset();
+        errors.reset();
+        errorsByType.clear();
+        conflicts.reset();
+        retriesExhausted.reset();
+    }
+}
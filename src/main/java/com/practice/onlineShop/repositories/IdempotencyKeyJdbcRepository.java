@@ -0,0 +1,78 @@
+package com.practice.onlineShop.repositories;
+
+import com.practice.onlineShop.entities.IdempotencyKey;
+import com.practice.onlineShop.enums.OrderResultStatus;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Plain JDBC on the idempotency_key table. Outside a transaction every statement commits on its own,
+ * so a claimed key is seen by the other application instances before the order is placed; within
+ * one, such as the order's, the statement joins it.
+ */
+@Repository
+public class IdempotencyKeyJdbcRepository {
+
+    private static final String INSERT = "insert into idempotency_key (idempotency_key, claimed_by, fingerprint, created_at) values (?, ?, ?, ?)";
+    private static final String SELECT = "select idempotency_key, claimed_by, fingerprint, status, product_ids, created_at from idempotency_key where idempotency_key = ?";
+    private static final String COMPLETE = "update idempotency_key set status = ?, product_ids = ? where idempotency_key = ? and claimed_by = ? and status is null";
+    private static final String DELETE = "delete from idempotency_key where idempotency_key = ? and claimed_by = ?";
+    private static final String DELETE_COMPLETED_BEFORE = "delete from idempotency_key where created_at < ? and status is not null";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * @return false when the key is already there
+     */
+    public boolean insert(String key, String claimedBy, String fingerprint, long createdAt) {
+        try {
+            return jdbcTemplate.update(INSERT, key, claimedBy, fingerprint, createdAt) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public Optional<IdempotencyKey> find(String key) {
+        List<IdempotencyKey> keys = jdbcTemplate.query(SELECT, (resultSet, rowNumber) -> {
+            IdempotencyKey idempotencyKey = new IdempotencyKey();
+            idempotencyKey.setKey(resultSet.getString("idempotency_key"));
+            idempotencyKey.setClaimedBy(resultSet.getString("claimed_by"));
+            idempotencyKey.setFingerprint(resultSet.getString("fingerprint"));
+            String status = resultSet.getString("status");
+            idempotencyKey.setStatus(status == null ? null : OrderResultStatus.valueOf(status));
+            idempotencyKey.setProductIds(resultSet.getString("product_ids"));
+            idempotencyKey.setCreatedAt(resultSet.getLong("created_at"));
+            return idempotencyKey;
+        }, key);
+        return keys.isEmpty() ? Optional.empty() : Optional.of(keys.get(0));
+    }
+
+    /**
+     * Stores the outcome only while the key is still claimed by that request, not taken over since.
+     *
+     * @return false when it is not
+     */
+    public boolean complete(String key, String claimedBy, OrderResultStatus status, String productIds) {
+        return jdbcTemplate.update(COMPLETE, status.name(), productIds, key, claimedBy) == 1;
+    }
+
+    /**
+     * Deletes the key only if it is still the one claimed by that request, not one claimed again since.
+     */
+    public void delete(String key, String claimedBy) {
+        jdbcTemplate.update(DELETE, key, claimedBy);
+    }
+
+    public int deleteCompletedBefore(long createdAt) {
+        return jdbcTemplate.update(DELETE_COMPLETED_BEFORE, createdAt);
+    }
+}
@@ -0,0 +1,20 @@
+package com.practice.onlineShop.repositories;
+
+import com.practice.onlineShop.enums.Currencies;
+import com.practice.onlineShop.enums.OrderStatus;
+
+/**
+ * One item of an order with the order's own columns and a summary of the product, as read by the
+ * order queries. An order without items gives one row with the item columns null.
+ */
+public interface OrderItemRow {
+    long getOrderId();
+    long getUserId();
+    OrderStatus getStatus();
+    Long getProductId();
+    String getProductCode();
+    String getProductDescription();
+    Double getProductPrice();
+    Currencies getProductCurrency();
+    Integer getQuantity();
+}
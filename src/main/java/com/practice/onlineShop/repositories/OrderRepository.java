@@ -1,12 +1,72 @@
 package com.practice.onlineShop.repositories;
 
 import com.practice.onlineShop.entities.Orders;
+import com.practice.onlineShop.enums.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.stereotype.Service;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends CrudRepository<Orders, Long> {
 
+    String SELECT_ORDER_ITEM_ROWS = "select o.id as orderId, o.user.id as userId, o.status as status, " +
+            "p.id as productId, p.code as productCode, p.description as productDescription, p.price as productPrice, p.currency as productCurrency, i.quantity as quantity " +
+            "from Orders o left join o.orderItems i left join i.product p ";
+
+    /**
+     * The order, its items and their products in one statement, without loading the entities.
+     */
+    @Query(SELECT_ORDER_ITEM_ROWS + "where o.id = :orderId order by i.id")
+    List<OrderItemRow> findOrderItemRows(@Param("orderId") long orderId);
+
+    @Query(SELECT_ORDER_ITEM_ROWS + "where o.id in :orderIds order by o.id, i.id")
+    List<OrderItemRow> findOrderItemRows(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("select o.user.id from Orders o where o.id = :orderId")
+    Optional<Long> findUserId(@Param("orderId") long orderId);
+
+    @Query("select o.id from Orders o where o.id > :afterId order by o.id")
+    List<Long> findIds(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select o.id from Orders o where o.user.id = :userId and o.id > :afterId order by o.id")
+    List<Long> findIdsByUser(@Param("userId") long userId, @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select o.id from Orders o where o.status = :status and o.id > :afterId order by o.id")
+    List<Long> findIdsByStatus(@Param("status") OrderStatus status, @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select o.id from Orders o where o.user.id = :userId and o.status = :status and o.id > :afterId order by o.id")
+    List<Long> findIdsByUserAndStatus(@Param("userId") long userId, @Param("status") OrderStatus status, @Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * The last order applied from the order journal, null when there is none.
+     */
+    @Query("select max(o.journalSequence) from Orders o")
+    Long findMaxJournalSequence();
+
+    /**
+     * Locks the rows of the listed orders until the end of the transaction, in id order so that two
+     * batches sharing orders do not deadlock: their statuses cannot change before the transaction's
+     * own update.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o.id as id, o.status as status from Orders o where o.id in :orderIds order by o.id")
+    List<OrderStatusRow> findStatusesForUpdate(@Param("orderIds") Collection<Long> orderIds);
 
+    /**
+     * Moves every listed order that is in one of the given statuses to the new status, bumping the
+     * version so that a concurrent update through the entity fails its version check.
+     */
+    @Modifying
+    @Query("update Orders o set o.status = :newStatus, o.version = o.version + 1 where o.id in :orderIds and o.status in :fromStatuses")
+    int updateStatuses(@Param("orderIds") Collection<Long> orderIds, @Param("fromStatuses") Collection<OrderStatus> fromStatuses,
+                       @Param("newStatus") OrderStatus newStatus);
 }
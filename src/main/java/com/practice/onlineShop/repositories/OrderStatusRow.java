@@ -0,0 +1,8 @@
+package com.practice.onlineShop.repositories;
+
+import com.practice.onlineShop.enums.OrderStatus;
+
+public interface OrderStatusRow {
+    long getId();
+    OrderStatus getStatus();
+}
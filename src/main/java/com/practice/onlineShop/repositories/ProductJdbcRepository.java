@@ -0,0 +1,199 @@
+package com.practice.onlineShop.repositories;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.Currencies;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Reads the product table through a forward-only JDBC cursor, one row at a time, for the
+ * paths that must not load the whole catalog in memory. Nothing read here is attached to
+ * a persistence context. Also holds the plain JDBC writes of the stock ledger and of the product
+ * import.
+ */
+@Repository
+public class ProductJdbcRepository {
+
+    private static final String SELECT_PRODUCTS = "select id, code, description, price, stock, valid, currency from product";
+    private static final String SELECT_STOCKS = "select id, stock from product";
+    private static final String SELECT_STOCK = "select stock from product where id = ?";
+    private static final String ADD_TO_STOCK = "update product set stock = stock + ?, version = version + 1 where id = ?";
+    private static final String UPDATE_BY_CODE = "update product set description = ?, price = ?, valid = ?, currency = ?, version = version + 1 where code = ?";
+    private static final String UPDATE_WITH_STOCK_BY_CODE = "update product set description = ?, price = ?, valid = ?, currency = ?, stock = ?, version = version + 1 where code = ?";
+    private static final String INSERT = "insert into product (code, description, price, valid, currency, stock, version) values (?, ?, ?, ?, ?, ?, 0)";
+    private static final String SELECT_IDS_BY_CODE = "select id, code from product where code in (%s)";
+    private static final String SELECT_PRODUCTS_BY_CODE = SELECT_PRODUCTS + " where code in (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductJdbcRepository(DataSource dataSource, @Value("${onlineshop.catalog.stream.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public void forEachProduct(Consumer<Product> consumer) {
+        forEachProduct(null, null, consumer);
+    }
+
+    /**
+     * Same cursor, in id order, limited to the products matching every filter that is given.
+     *
+     * @param valid    all products when null
+     * @param currency all currencies when null
+     */
+    public void forEachProduct(Boolean valid, Currencies currency, Consumer<Product> consumer) {
+        List<String> conditions = new ArrayList<>(2);
+        List<Object> arguments = new ArrayList<>(2);
+        if(valid != null){
+            conditions.add("valid = ?");
+            arguments.add(valid);
+        }
+        if(currency != null){
+            conditions.add("currency = ?");
+            arguments.add(currency.name());
+        }
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+        jdbcTemplate.query(SELECT_PRODUCTS + where + " order by id", resultSet -> {
+            consumer.accept(toProduct(resultSet));
+        }, arguments.toArray());
+    }
+
+    public void forEachStock(BiConsumer<Long, Integer> consumer) {
+        jdbcTemplate.query(SELECT_STOCKS, resultSet -> {
+            consumer.accept(resultSet.getLong("id"), resultSet.getInt("stock"));
+        });
+    }
+
+    public Optional<Integer> findStock(long productId) {
+        List<Integer> stocks = jdbcTemplate.queryForList(SELECT_STOCK, Integer.class, productId);
+        return stocks.isEmpty() ? Optional.empty() : Optional.of(stocks.get(0));
+    }
+
+    /**
+     * Adds each delta to the stock of its product in one JDBC batch, bumping the version like the
+     * JPA writes do.
+     *
+     * @return the updated row count per delta, 0 for a product that no longer exists
+     */
+    public int[] addToStock(List<Map.Entry<Long, Integer>> deltasByProductId) {
+        return jdbcTemplate.batchUpdate(ADD_TO_STOCK, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+                preparedStatement.setInt(1, deltasByProductId.get(i).getValue());
+                preparedStatement.setLong(2, deltasByProductId.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deltasByProductId.size();
+            }
+        });
+    }
+
+    /**
+     * Updates the products that already exist, matched by code, in one JDBC batch.
+     *
+     * @param withStock false to leave the stock column as it is
+     * @return the updated row count per product, 0 for a code that is not in the db yet
+     */
+    public int[] updateByCode(List<Product> products, boolean withStock) {
+        return jdbcTemplate.batchUpdate(withStock ? UPDATE_WITH_STOCK_BY_CODE : UPDATE_BY_CODE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+                Product product = products.get(i);
+                int index = setColumns(preparedStatement, 1, product);
+                if(withStock){
+                    preparedStatement.setInt(index++, product.getStock());
+                }
+                preparedStatement.setString(index, product.getCode());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return products.size();
+            }
+        });
+    }
+
+    public void insert(List<Product> products) {
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
+                preparedStatement.setString(1, products.get(i).getCode());
+                int index = setColumns(preparedStatement, 2, products.get(i));
+                preparedStatement.setInt(index, products.get(i).getStock());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return products.size();
+            }
+        });
+    }
+
+    public Map<String, Long> findIdsByCode(Collection<String> codes) {
+        Map<String, Long> idsByCode = new HashMap<>();
+        if(codes.isEmpty()){
+            return idsByCode;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(codes.size(), "?"));
+        jdbcTemplate.query(String.format(SELECT_IDS_BY_CODE, placeholders), resultSet -> {
+            idsByCode.put(resultSet.getString("code"), resultSet.getLong("id"));
+        }, codes.toArray());
+        return idsByCode;
+    }
+
+    public List<Product> findByCodes(Collection<String> codes) {
+        List<Product> products = new ArrayList<>(codes.size());
+        if(codes.isEmpty()){
+            return products;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(codes.size(), "?"));
+        jdbcTemplate.query(String.format(SELECT_PRODUCTS_BY_CODE, placeholders), resultSet -> {
+            products.add(toProduct(resultSet));
+        }, codes.toArray());
+        return products;
+    }
+
+    /**
+     * Sets description, price, valid and currency, in this order, from the given parameter on.
+     *
+     * @return the index of the next parameter
+     */
+    private int setColumns(PreparedStatement preparedStatement, int index, Product product) throws SQLException {
+        preparedStatement.setString(index++, product.getDescription());
+        preparedStatement.setDouble(index++, product.getPrice());
+        preparedStatement.setBoolean(index++, product.isValid());
+        preparedStatement.setString(index++, product.getCurrency() == null ? null : product.getCurrency().name());
+        return index;
+    }
+
+    private Product toProduct(ResultSet resultSet) throws SQLException {
+        Product product = new Product();
+        product.setId(resultSet.getLong("id"));
+        product.setCode(resultSet.getString("code"));
+        product.setDescription(resultSet.getString("description"));
+        product.setPrice(resultSet.getDouble("price"));
+        product.setStock(resultSet.getInt("stock"));
+        product.setValid(resultSet.getBoolean("valid"));
+        String currency = resultSet.getString("currency");
+        product.setCurrency(currency == null ? null : Currencies.valueOf(currency));
+        return product;
+    }
+}
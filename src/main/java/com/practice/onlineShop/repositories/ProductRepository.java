@@ -2,12 +2,33 @@ package com.practice.onlineShop.repositories;
 
 
 import com.practice.onlineShop.entities.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends CrudRepository<Product, Long> {
 
 
     Optional<Product> findByCode(String productCode);
+
+    List<Product> findByCodeIn(Collection<String> productCodes);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    /**
+     * Bumps the version too, so a concurrent read-modify-write of the same product fails its version check.
+     */
+    @Modifying
+    @Query("update Product p set p.stock = p.stock - :quantity, p.version = p.version + 1 where p.id = :productId and p.stock >= :quantity")
+    int decrementStockIfAvailable(@Param("productId") long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update Product p set p.stock = p.stock + :quantity, p.version = p.version + 1 where p.id = :productId")
+    int incrementStock(@Param("productId") long productId, @Param("quantity") int quantity);
 }
@@ -1,7 +1,14 @@
 package com.practice.onlineShop.repositories;
 
 import com.practice.onlineShop.entities.Users;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface UserRepository extends CrudRepository<Users, Long> {
+
+    @Query("select distinct u from Users u left join fetch u.roles where u.id = :id")
+    Optional<Users> findWithRolesById(@Param("id") long id);
 }
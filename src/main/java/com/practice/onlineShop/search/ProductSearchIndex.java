@@ -0,0 +1,693 @@
+package com.practice.onlineShop.search;
+
+import com.practice.onlineShop.events.ProductDeletedEvent;
+import com.practice.onlineShop.events.ProductSavedEvent;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the code and description of every product, for
+ * {@code GET /product/search}. Text is split on anything that is not a letter or a digit,
+ * lowercased and stripped of diacritics, so "sosete" finds "Șosete". Every query term must match,
+ * either as a whole term or as the prefix of one; products are ranked by the rarity of the matched
+ * terms (idf), a match in the code counting more than one in the description and a prefix match
+ * less than a whole one, over the square root of the product's term count.
+ *
+ * Products are numbered in the order they are indexed and every term keeps the sorted numbers of
+ * its products, so a query walks the shortest posting list and binary searches the others; a
+ * single term query skips the blocks of its list that cannot make the top results. An
+ * update indexes the product again under a new number; the old entries are dropped from a posting
+ * list once they are the majority, and all products are renumbered once most numbers are dead.
+ *
+ * Built from the db when the application is ready and kept up to date by the product events after
+ * their transaction commits. Queries share a read lock, changes take the write lock.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    static final int MAX_QUERY_TERMS = 8;
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final byte IN_CODE = 1;
+    private static final byte IN_DESCRIPTION = 2;
+    private static final float CODE_WEIGHT = 2;
+    private static final float DESCRIPTION_WEIGHT = 1;
+    private static final float PREFIX_WEIGHT = 0.5f;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_DEAD_DOCUMENTS_TO_RENUMBER = 1024;
+    private static final int BLOCK_SIZE = 64;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> postingsByTerm = new TreeMap<>();
+    private final Map<String, Integer> documentsByCode = new HashMap<>();
+    // by product number, null once the product was removed or indexed again under a new number
+    private String[] codes = new String[INITIAL_CAPACITY];
+    private Postings[][] termsByDocument = new Postings[INITIAL_CAPACITY][];
+    // 1 / sqrt(term count) of every product, 0 for a dead number
+    private float[] norms = new float[INITIAL_CAPACITY];
+    private int documentCount;
+    private int liveDocumentCount;
+
+    public ProductSearchIndex(ProductJdbcRepository productJdbcRepository) {
+        this.productJdbcRepository = productJdbcRepository;
+    }
+
+    /**
+     * Indexes every product in the db, through the JDBC cursor so the products are not loaded all
+     * at once. Queries and changes wait until it is done.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            productJdbcRepository.forEachProduct(product -> {
+                removeDocument(product.getCode());
+                addDocument(product.getCode(), product.getDescription());
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} products for search in {} ms", size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductSaved(ProductSavedEvent event) {
+        index(event.getProductCode(), event.getDescription());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        remove(event.getProductCode());
+    }
+
+    /**
+     * Adds the product, or replaces what was indexed for its code.
+     */
+    public void index(String code, String description) {
+        if(code == null){
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(code);
+            addDocument(code, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String code) {
+        if(code == null){
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(code);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocumentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the codes of the best matching products, best first, at most {@code limit}
+     */
+    public List<String> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if(terms.isEmpty() || limit <= 0){
+            return Collections.emptyList();
+        }
+        if(terms.size() > MAX_QUERY_TERMS){
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        lock.readLock().lock();
+        try {
+            List<TermMatch> matches = new ArrayList<>(terms.size());
+            for(String term : terms){
+                TermMatch match = match(term);
+                if(match.count == 0){
+                    return Collections.emptyList();
+                }
+                matches.add(match);
+            }
+            matches.sort(Comparator.comparingLong(match -> match.cost));
+
+            TopDocuments top = new TopDocuments(limit);
+            if(matches.size() == 1){
+                // nothing to intersect, the matches go straight to the top list
+                matches.get(0).collectTop(norms, top);
+            } else {
+                Candidates candidates = new Candidates();
+                matches.get(0).forEachMatch(norms, candidates::add);
+                for(int i = 1; i < matches.size() && candidates.size > 0; i++){
+                    candidates.retain(matches.get(i));
+                }
+                for(int i = 0; i < candidates.size; i++){
+                    top.offer(candidates.documents[i], candidates.scores[i] * norms[candidates.documents[i]]);
+                }
+            }
+            return top.toCodes(codes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lowercase terms without diacritics, in the order they appear.
+     */
+    static List<String> tokenize(String text) {
+        if(text == null || text.isEmpty()){
+            return Collections.emptyList();
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        if(!isAscii(normalized)){
+            normalized = COMBINING_MARKS.matcher(Normalizer.normalize(normalized, Normalizer.Form.NFD)).replaceAll("");
+        }
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for(int i = 0; i <= normalized.length(); i++){
+            boolean partOfTerm = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if(partOfTerm && start < 0){
+                start = i;
+            } else if(!partOfTerm && start >= 0){
+                terms.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isAscii(String text) {
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) > 127){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The whole term and up to {@value #MAX_PREFIX_EXPANSIONS} longer terms starting with it.
+     */
+    private TermMatch match(String term) {
+        TermMatch match = new TermMatch();
+        Postings exact = postingsByTerm.get(term);
+        if(exact != null){
+            match.add(exact, idf(exact));
+        }
+        for(Postings postings : postingsByTerm.subMap(term, false, term + Character.MAX_VALUE, false).values()){
+            if(match.count == MAX_PREFIX_EXPANSIONS + 1){
+                break;
+            }
+            match.add(postings, PREFIX_WEIGHT * idf(postings));
+        }
+        return match;
+    }
+
+    private float idf(Postings postings) {
+        return (float) Math.log(1 + (double) liveDocumentCount / postings.live);
+    }
+
+    private void addDocument(String code, String description) {
+        Map<String, Byte> fieldsByTerm = new LinkedHashMap<>();
+        for(String term : tokenize(code)){
+            fieldsByTerm.merge(term, IN_CODE, (fields, field) -> (byte) (fields | field));
+        }
+        for(String term : tokenize(description)){
+            fieldsByTerm.merge(term, IN_DESCRIPTION, (fields, field) -> (byte) (fields | field));
+        }
+        if(documentCount == codes.length){
+            codes = Arrays.copyOf(codes, codes.length * 2);
+            termsByDocument = Arrays.copyOf(termsByDocument, termsByDocument.length * 2);
+            norms = Arrays.copyOf(norms, norms.length * 2);
+        }
+        int document = documentCount++;
+        norms[document] = (float) (1 / Math.sqrt(Math.max(1, fieldsByTerm.size())));
+        Postings[] terms = new Postings[fieldsByTerm.size()];
+        int i = 0;
+        for(Map.Entry<String, Byte> entry : fieldsByTerm.entrySet()){
+            Postings postings = postingsByTerm.computeIfAbsent(entry.getKey(), Postings::new);
+            postings.add(document, entry.getValue(), norms[document]);
+            terms[i++] = postings;
+        }
+        codes[document] = code;
+        termsByDocument[document] = terms;
+        documentsByCode.put(code, document);
+        liveDocumentCount++;
+    }
+
+    private void removeDocument(String code) {
+        Integer document = documentsByCode.remove(code);
+        if(document == null){
+            return;
+        }
+        Postings[] terms = termsByDocument[document];
+        codes[document] = null;
+        termsByDocument[document] = null;
+        norms[document] = 0;
+        liveDocumentCount--;
+        for(Postings postings : terms){
+            if(--postings.live == 0){
+                postingsByTerm.remove(postings.term);
+            } else if(postings.size - postings.live > postings.live){
+                postings.compact(norms);
+            }
+        }
+        if(documentCount - liveDocumentCount > Math.max(liveDocumentCount, MIN_DEAD_DOCUMENTS_TO_RENUMBER)){
+            renumber();
+        }
+    }
+
+    /**
+     * Gives the live products the numbers 0..n-1, in the same order, so the posting lists stay
+     * sorted.
+     */
+    private void renumber() {
+        int[] newNumbers = new int[documentCount];
+        int next = 0;
+        for(int document = 0; document < documentCount; document++){
+            if(codes[document] == null){
+                newNumbers[document] = -1;
+                continue;
+            }
+            newNumbers[document] = next;
+            codes[next] = codes[document];
+            termsByDocument[next] = termsByDocument[document];
+            norms[next] = norms[document];
+            documentsByCode.put(codes[next], next);
+            next++;
+        }
+        Arrays.fill(codes, next, documentCount, null);
+        Arrays.fill(termsByDocument, next, documentCount, null);
+        Arrays.fill(norms, next, documentCount, 0);
+        documentCount = next;
+        for(Postings postings : postingsByTerm.values()){
+            postings.renumber(newNumbers, norms);
+        }
+    }
+
+    private static float fieldWeight(byte fields) {
+        return ((fields & IN_CODE) != 0 ? CODE_WEIGHT : 0) + ((fields & IN_DESCRIPTION) != 0 ? DESCRIPTION_WEIGHT : 0);
+    }
+
+    /**
+     * What a match of the term in the product is worth before the idf.
+     */
+    private static float impact(byte fields, float norm) {
+        return fieldWeight(fields) * norm;
+    }
+
+    private interface MatchConsumer {
+        void accept(int document, float score);
+    }
+
+    /**
+     * The products of one term, by number, and where in each product the term is. Also the highest
+     * impact in every block of {@value #BLOCK_SIZE} entries, so a single term query can skip the
+     * blocks that cannot beat its top list.
+     */
+    private static final class Postings {
+        private final String term;
+        private int[] documents = new int[2];
+        private byte[] fields = new byte[2];
+        private float[] blockMaxImpacts = new float[1];
+        private int size;
+        private int live;
+
+        private Postings(String term) {
+            this.term = term;
+        }
+
+        private void add(int document, byte field, float norm) {
+            if(size == documents.length){
+                documents = Arrays.copyOf(documents, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            int block = size / BLOCK_SIZE;
+            if(block == blockMaxImpacts.length){
+                blockMaxImpacts = Arrays.copyOf(blockMaxImpacts, block * 2);
+            }
+            blockMaxImpacts[block] = Math.max(blockMaxImpacts[block], impact(field, norm));
+            documents[size] = document;
+            fields[size] = field;
+            size++;
+            live++;
+        }
+
+        private void computeBlockMaxImpacts(float[] norms) {
+            Arrays.fill(blockMaxImpacts, 0);
+            for(int i = 0; i < size; i++){
+                int block = i / BLOCK_SIZE;
+                blockMaxImpacts[block] = Math.max(blockMaxImpacts[block], impact(fields[i], norms[documents[i]]));
+            }
+        }
+
+        private int indexOf(int document) {
+            return Arrays.binarySearch(documents, 0, size, document);
+        }
+
+        private void compact(float[] norms) {
+            int kept = 0;
+            for(int i = 0; i < size; i++){
+                if(norms[documents[i]] != 0){
+                    documents[kept] = documents[i];
+                    fields[kept] = fields[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            computeBlockMaxImpacts(norms);
+        }
+
+        private void renumber(int[] newNumbers, float[] norms) {
+            int kept = 0;
+            for(int i = 0; i < size; i++){
+                int newNumber = newNumbers[documents[i]];
+                if(newNumber >= 0){
+                    documents[kept] = newNumber;
+                    fields[kept] = fields[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            computeBlockMaxImpacts(norms);
+        }
+    }
+
+    /**
+     * The posting lists one query term matches, each with the weight of a match in it.
+     */
+    private static final class TermMatch {
+        private final Postings[] postings = new Postings[MAX_PREFIX_EXPANSIONS + 1];
+        private final float[] weights = new float[MAX_PREFIX_EXPANSIONS + 1];
+        private int count;
+        private long cost;
+
+        private void add(Postings termPostings, float weight) {
+            postings[count] = termPostings;
+            weights[count] = weight;
+            count++;
+            cost += termPostings.size;
+        }
+
+        /**
+         * Ranks the matches of a query with only this term. Each posting list goes to the top list
+         * on its own, which keeps the best score of a product found in several, and a block is
+         * skipped when even its best entry would not make the top list.
+         */
+        private void collectTop(float[] norms, TopDocuments top) {
+            for(int list = 0; list < count; list++){
+                Postings termPostings = postings[list];
+                float weight = weights[list];
+                for(int start = 0; start < termPostings.size; start += BLOCK_SIZE){
+                    if(!top.wouldTake(termPostings.documents[start], weight * termPostings.blockMaxImpacts[start / BLOCK_SIZE])){
+                        continue;
+                    }
+                    int end = Math.min(start + BLOCK_SIZE, termPostings.size);
+                    for(int i = start; i < end; i++){
+                        int document = termPostings.documents[i];
+                        if(norms[document] != 0){
+                            top.offer(document, weight * impact(termPostings.fields[i], norms[document]));
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Every live product of the posting lists in number order, once, with its best score for
+         * this term before the norm. Several lists are merged through a small heap of their current
+         * positions.
+         */
+        private void forEachMatch(float[] norms, MatchConsumer consumer) {
+            if(count == 1){
+                Postings termPostings = postings[0];
+                for(int i = 0; i < termPostings.size; i++){
+                    int document = termPostings.documents[i];
+                    if(norms[document] != 0){
+                        consumer.accept(document, weights[0] * fieldWeight(termPostings.fields[i]));
+                    }
+                }
+                return;
+            }
+            int[] positions = new int[count];
+            int[] heap = new int[count];
+            int heapSize = 0;
+            for(int i = 0; i < count; i++){
+                if(postings[i].size > 0){
+                    heap[heapSize] = i;
+                    siftUp(heap, heapSize++, positions);
+                }
+            }
+            int current = -1;
+            float best = 0;
+            while(heapSize > 0){
+                int list = heap[0];
+                Postings termPostings = postings[list];
+                int document = termPostings.documents[positions[list]];
+                float score = weights[list] * fieldWeight(termPostings.fields[positions[list]]);
+                if(++positions[list] == termPostings.size){
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, positions);
+                if(document == current){
+                    best = Math.max(best, score);
+                    continue;
+                }
+                if(current >= 0 && norms[current] != 0){
+                    consumer.accept(current, best);
+                }
+                current = document;
+                best = score;
+            }
+            if(current >= 0 && norms[current] != 0){
+                consumer.accept(current, best);
+            }
+        }
+
+        private int currentDocument(int list, int[] positions) {
+            return postings[list].documents[positions[list]];
+        }
+
+        private void siftUp(int[] heap, int index, int[] positions) {
+            int list = heap[index];
+            while(index > 0){
+                int parent = (index - 1) / 2;
+                if(currentDocument(heap[parent], positions) <= currentDocument(list, positions)){
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = list;
+        }
+
+        private void siftDown(int[] heap, int heapSize, int[] positions) {
+            if(heapSize == 0){
+                return;
+            }
+            int list = heap[0];
+            int index = 0;
+            while(true){
+                int child = 2 * index + 1;
+                if(child >= heapSize){
+                    break;
+                }
+                if(child + 1 < heapSize && currentDocument(heap[child + 1], positions) < currentDocument(heap[child], positions)){
+                    child++;
+                }
+                if(currentDocument(list, positions) <= currentDocument(heap[child], positions)){
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = list;
+        }
+
+        /**
+         * @return the best score of the product for this term, 0 when it does not match
+         */
+        private float score(int document) {
+            float best = 0;
+            for(int i = 0; i < count; i++){
+                Postings termPostings = postings[i];
+                int index = termPostings.indexOf(document);
+                if(index >= 0){
+                    best = Math.max(best, weights[i] * fieldWeight(termPostings.fields[index]));
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * The products matching every term so far, by number, with their summed scores.
+     */
+    private static final class Candidates {
+        private int[] documents = new int[16];
+        private float[] scores = new float[16];
+        private int size;
+
+        private void add(int document, float score) {
+            if(size == documents.length){
+                documents = Arrays.copyOf(documents, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            documents[size] = document;
+            scores[size] = score;
+            size++;
+        }
+
+        private void retain(TermMatch match) {
+            int kept = 0;
+            for(int i = 0; i < size; i++){
+                float score = match.score(documents[i]);
+                if(score > 0){
+                    documents[kept] = documents[i];
+                    scores[kept] = scores[i] + score;
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    /**
+     * The best products seen so far, in a min-heap of at most {@code limit} entries so that most
+     * matches are turned away by one comparison with the root. A product offered again keeps its
+     * best score. Of two equal scores the product indexed first wins.
+     */
+    private static final class TopDocuments {
+        private final int[] documents;
+        private final float[] scores;
+        private int size;
+
+        private TopDocuments(int limit) {
+            this.documents = new int[limit];
+            this.scores = new float[limit];
+        }
+
+        /**
+         * @return false when no product numbered from {@code document} on with at most this score
+         * would get in
+         */
+        private boolean wouldTake(int document, float score) {
+            return size < documents.length || isWorse(documents[0], scores[0], document, score);
+        }
+
+        private void offer(int document, float score) {
+            if(!wouldTake(document, score)){
+                return;
+            }
+            for(int i = 0; i < size; i++){
+                if(documents[i] == document){
+                    if(score > scores[i]){
+                        scores[i] = score;
+                        siftDown(i);
+                    }
+                    return;
+                }
+            }
+            if(size < documents.length){
+                documents[size] = document;
+                scores[size] = score;
+                siftUp(size++);
+            } else {
+                documents[0] = document;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private List<String> toCodes(String[] codes) {
+            String[] result = new String[size];
+            while(size > 0){
+                result[size - 1] = codes[documents[0]];
+                size--;
+                documents[0] = documents[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            return Arrays.asList(result);
+        }
+
+        private static boolean isWorse(int document, float score, int otherDocument, float otherScore) {
+            return score < otherScore || score == otherScore && document > otherDocument;
+        }
+
+        private void siftUp(int index) {
+            int document = documents[index];
+            float score = scores[index];
+            while(index > 0){
+                int parent = (index - 1) / 2;
+                if(!isWorse(document, score, documents[parent], scores[parent])){
+                    break;
+                }
+                documents[index] = documents[parent];
+                scores[index] = scores[parent];
+                index = parent;
+            }
+            documents[index] = document;
+            scores[index] = score;
+        }
+
+        private void siftDown(int index) {
+            if(index >= size){
+                return;
+            }
+            int document = documents[index];
+            float score = scores[index];
+            while(true){
+                int child = 2 * index + 1;
+                if(child >= size){
+                    break;
+                }
+                if(child + 1 < size && isWorse(documents[child + 1], scores[child + 1], documents[child], scores[child])){
+                    child++;
+                }
+                if(!isWorse(documents[child], scores[child], document, score)){
+                    break;
+                }
+                documents[index] = documents[child];
+                scores[index] = scores[child];
+                index = child;
+            }
+            documents[index] = document;
+            scores[index] = score;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.enums.OrderResultStatus;
+import com.practice.onlineShop.exceptions.*;
+import com.practice.onlineShop.idempotency.IdempotencyStore;
+import com.practice.onlineShop.idempotency.IdempotentOutcome;
+import com.practice.onlineShop.vos.OrderVO;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Places an order once per idempotency key: a repeat of the request gets the outcome of the first
+ * one, the order placed or the same refusal, without validating it, reserving the stock or
+ * inserting it again. A repeat that arrives while the first one runs waits for its outcome.
+ * Failures the request is not to blame for are not kept, the next repeat runs again.
+ */
+@Service
+public class IdempotentOrderService {
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orderService;
+    private final IdempotencyStore idempotencyStore;
+    private final OrderJournalWriter orderJournalWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    public IdempotentOrderService(OrderService orderService, IdempotencyStore idempotencyStore, OrderJournalWriter orderJournalWriter,
+                                  PlatformTransactionManager transactionManager) {
+        this.orderService = orderService;
+        this.idempotencyStore = idempotencyStore;
+        this.orderJournalWriter = orderJournalWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void addOrder(String idempotencyKey, OrderVO orderVO) throws InvalidIdempotencyKeyException, IdempotencyKeyReusedException, IdempotencyKeyInUseException,
+            InvalidCustomerIdException, InvalidProductsException, InvalidProductIdException, NotEnoughStockException {
+        if(idempotencyKey.trim().isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH){
+            throw new InvalidIdempotencyKeyException();
+        }
+        // the same key sent by two customers is two keys
+        String key = orderVO.getUserId() + ":" + idempotencyKey;
+        String owner = UUID.randomUUID().toString();
+
+        Optional<IdempotentOutcome> outcome = idempotencyStore.claim(key, owner, fingerprint(orderVO));
+        if(outcome.isPresent()){
+            replay(outcome.get());
+            return;
+        }
+        Exception refusal;
+        try {
+            refusal = placeOrder(key, owner, orderVO);
+        } catch (Throwable e) {
+            idempotencyStore.release(key, owner);
+            throw e;
+        }
+        if(refusal == null && orderJournalWriter.isEnabled()){
+            completeJournaledOrder(key, owner);
+            return;
+        }
+        if(refusal instanceof IdempotencyKeyInUseException){
+            // taken over meanwhile, the order was rolled back and the request that took the key places it
+            throw (IdempotencyKeyInUseException) refusal;
+        }
+        if(refusal != null){
+            refuse(key, owner, refusal);
+        }
+    }
+
+    /**
+     * Places the order and stores its {@code PLACED} outcome in one transaction, so a failure to
+     * store the outcome rolls the order back and the key can be released for a retry: a committed
+     * order always has its outcome. A journaled order only exists once it is appended, after the
+     * commit, so its outcome is stored by {@link #completeJournaledOrder} instead.
+     *
+     * @return the refusal of the order, which was rolled back, or null once it is placed
+     */
+    private Exception placeOrder(String key, String owner, OrderVO orderVO) {
+        return transactionTemplate.execute(transactionStatus -> {
+            try {
+                orderService.addOrder(orderVO);
+            } catch (InvalidCustomerIdException | InvalidProductsException | InvalidProductIdException | NotEnoughStockException e) {
+                transactionStatus.setRollbackOnly();
+                return e;
+            }
+            if(orderJournalWriter.isEnabled()){
+                return null;
+            }
+            if(!idempotencyStore.complete(key, owner, IdempotentOutcome.PLACED)){
+                transactionStatus.setRollbackOnly();
+                return new IdempotencyKeyInUseException();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Stores {@code PLACED} once the order is in the journal, so a repeat is never told an order
+     * was placed whose append failed and whose stock was given back. The order can no longer be
+     * taken back here: if the outcome cannot be stored the claim is kept rather than released,
+     * and the repeats are answered that the key is in use until it is taken to be abandoned.
+     */
+    private void completeJournaledOrder(String key, String owner) {
+        // false when the key was taken over meanwhile, the order is placed all the same
+        idempotencyStore.complete(key, owner, IdempotentOutcome.PLACED);
+    }
+
+    /**
+     * Stores the refusal as the outcome of the key, after the order was rolled back, and throws it.
+     */
+    private void refuse(String key, String owner, Exception refusal) throws InvalidCustomerIdException, InvalidProductsException, InvalidProductIdException, NotEnoughStockException {
+        if(refusal instanceof InvalidCustomerIdException){
+            idempotencyStore.complete(key, owner, new IdempotentOutcome(OrderResultStatus.INVALID_CUSTOMER, Collections.emptyList()));
+            throw (InvalidCustomerIdException) refusal;
+        }
+        if(refusal instanceof InvalidProductsException){
+            idempotencyStore.complete(key, owner, new IdempotentOutcome(OrderResultStatus.INVALID_PRODUCTS, Collections.emptyList()));
+            throw (InvalidProductsException) refusal;
+        }
+        if(refusal instanceof InvalidProductIdException){
+            InvalidProductIdException invalidProductIds = (InvalidProductIdException) refusal;
+            idempotencyStore.complete(key, owner, new IdempotentOutcome(OrderResultStatus.INVALID_PRODUCT_IDS, invalidProductIds.getProductIds()));
+            throw invalidProductIds;
+        }
+        NotEnoughStockException notEnoughStock = (NotEnoughStockException) refusal;
+        idempotencyStore.complete(key, owner, new IdempotentOutcome(OrderResultStatus.NOT_ENOUGH_STOCK,
+                notEnoughStock.getProductId() == null ? Collections.emptyList() : Collections.singletonList(notEnoughStock.getProductId())));
+        throw notEnoughStock;
+    }
+
+    private void replay(IdempotentOutcome outcome) throws InvalidCustomerIdException, InvalidProductsException, InvalidProductIdException, NotEnoughStockException {
+        switch (outcome.getStatus()) {
+            case INVALID_CUSTOMER:
+                throw new InvalidCustomerIdException();
+            case INVALID_PRODUCTS:
+                throw new InvalidProductsException();
+            case INVALID_PRODUCT_IDS:
+                throw new InvalidProductIdException(outcome.getProductIds());
+            case NOT_ENOUGH_STOCK:
+                throw new NotEnoughStockException(outcome.getProductIds().isEmpty() ? null : outcome.getProductIds().iterator().next());
+            default:
+                // placed
+        }
+    }
+
+    /**
+     * Hash of what the order asks for, the items in product id order.
+     */
+    static String fingerprint(OrderVO orderVO) {
+        Map<Integer, Integer> items = orderVO.getProductsIdsToQuantity() == null ? Collections.emptyMap()
+                : new TreeMap<>(orderVO.getProductsIdsToQuantity());
+        String request = orderVO.getUserId() + "|" + items;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+            StringBuilder fingerprint = new StringBuilder(hash.length * 2);
+            for(byte b : hash){
+                fingerprint.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return fingerprint.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
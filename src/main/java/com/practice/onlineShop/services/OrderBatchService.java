@@ -0,0 +1,314 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Orders;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.OrderBatchMode;
+import com.practice.onlineShop.enums.OrderStatus;
+import com.practice.onlineShop.enums.OrderUpdateStatus;
+import com.practice.onlineShop.exceptions.*;
+import com.practice.onlineShop.mappers.OrderMapper;
+import com.practice.onlineShop.repositories.OrderRepository;
+import com.practice.onlineShop.repositories.OrderStatusRow;
+import com.practice.onlineShop.repositories.UserRepository;
+import com.practice.onlineShop.vos.OrderResultVO;
+import com.practice.onlineShop.vos.OrderUpdateResultVO;
+import com.practice.onlineShop.vos.OrderVO;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.*;
+
+import static com.practice.onlineShop.enums.OrderBatchMode.PER_ORDER;
+import static com.practice.onlineShop.enums.OrderResultStatus.*;
+
+/**
+ * Places many orders in one call. The customers and every referenced product are loaded once for
+ * the whole batch, then the orders are stored either all together in one transaction or each in
+ * its own transaction, see {@link OrderBatchMode}. Every order gets a result, in request order.
+ * With {@code onlineshop.order.write-mode=JOURNAL} the placed orders are journaled after the stock
+ * reservation commits, like a single order, and come back without an order id: the applier
+ * inserts them a moment later.
+ *
+ * Also delivers or cancels many orders at once, with one UPDATE for all of them instead of loading
+ * each order.
+ */
+@Service
+public class OrderBatchService {
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final OrderMapper orderMapper;
+    private final StockService stockService;
+    private final OrderJournalWriter orderJournalWriter;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderBatchMode defaultMode;
+    private final int maxSize;
+    private final int jdbcBatchSize;
+
+    public OrderBatchService(OrderRepository orderRepository,
+                             UserRepository userRepository,
+                             OrderMapper orderMapper,
+                             StockService stockService,
+                             OrderJournalWriter orderJournalWriter,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${onlineshop.order.batch.mode:PER_ORDER}") OrderBatchMode defaultMode,
+                             @Value("${onlineshop.order.batch.max-size:1000}") int maxSize,
+                             @Value("${onlineshop.order.batch.jdbc-batch-size:50}") int jdbcBatchSize) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.orderMapper = orderMapper;
+        this.stockService = stockService;
+        this.orderJournalWriter = orderJournalWriter;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.defaultMode = defaultMode;
+        this.maxSize = maxSize;
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    /**
+     * The customers were already authorized by the security advice, once per distinct user.
+     *
+     * @param mode how the orders are committed, the configured default when null
+     */
+    public List<OrderResultVO> addOrders(List<OrderVO> orderVOs, OrderBatchMode mode) throws OrderBatchTooLargeException {
+        if(orderVOs.size() > maxSize){
+            throw new OrderBatchTooLargeException();
+        }
+        Map<Integer, Product> productsById = stockService.findProducts(getProductIds(orderVOs));
+        Map<Long, Users> usersById = findUsers(orderVOs);
+
+        List<OrderResultVO> results = new ArrayList<>(orderVOs.size());
+        Map<Integer, Orders> ordersByIndex = new LinkedHashMap<>();
+        for(int index = 0; index < orderVOs.size(); index++){
+            OrderResultVO result = new OrderResultVO();
+            result.setIndex(index);
+            results.add(result);
+            Orders order = toEntity(orderVOs.get(index), usersById, productsById, result);
+            if(order != null){
+                ordersByIndex.put(index, order);
+            }
+        }
+
+        if((mode == null ? defaultMode : mode) == PER_ORDER){
+            placeEachOrder(orderVOs, ordersByIndex, productsById, results);
+        } else {
+            placeAllOrders(orderVOs, ordersByIndex, productsById, results);
+        }
+        return results;
+    }
+
+    /**
+     * Same rules as {@link OrderService#deliver}: a placed order becomes delivered, a delivered or
+     * returned one stays as it is, a canceled one is not delivered. The expeditor was already
+     * authorized by the security advice.
+     */
+    @Transactional
+    public List<OrderUpdateResultVO> deliverOrders(List<Long> orderIds, Long customerId) throws OrderBatchTooLargeException {
+        return updateStatuses(orderIds, EnumSet.of(OrderStatus.PLACED), OrderStatus.DELIVERED, OrderUpdateStatus.DELIVERED);
+    }
+
+    /**
+     * Same rules as {@link OrderService#cancelOrder}: any order that was not returned becomes canceled.
+     */
+    @Transactional
+    public List<OrderUpdateResultVO> cancelOrders(List<Long> orderIds, Long customerId) throws OrderBatchTooLargeException {
+        return updateStatuses(orderIds, EnumSet.of(OrderStatus.PLACED, OrderStatus.DELIVERED), OrderStatus.CANCELED, OrderUpdateStatus.CANCELED);
+    }
+
+    /**
+     * Locks the rows of the orders and reads their statuses, then runs the guarded UPDATE: with the
+     * rows locked, an order that was in one of the statuses it may leave is the one this call moves,
+     * whatever other request looks at it at the same time, and any other one is reported by the
+     * status it was already in. One result per requested id, in request order.
+     */
+    private List<OrderUpdateResultVO> updateStatuses(List<Long> orderIds, Set<OrderStatus> fromStatuses, OrderStatus newStatus,
+                                                     OrderUpdateStatus changed) throws OrderBatchTooLargeException {
+        if(orderIds.size() > maxSize){
+            throw new OrderBatchTooLargeException();
+        }
+        Set<Long> distinctOrderIds = new HashSet<>(orderIds);
+        distinctOrderIds.remove(null);
+
+        Map<Long, OrderStatus> statusesById = new HashMap<>();
+        if(!distinctOrderIds.isEmpty()){
+            for(OrderStatusRow row : orderRepository.findStatusesForUpdate(distinctOrderIds)){
+                statusesById.put(row.getId(), row.getStatus());
+            }
+            orderRepository.updateStatuses(distinctOrderIds, fromStatuses, newStatus);
+        }
+
+        List<OrderUpdateResultVO> results = new ArrayList<>(orderIds.size());
+        for(Long orderId : orderIds){
+            OrderUpdateResultVO result = new OrderUpdateResultVO();
+            result.setOrderId(orderId);
+            OrderStatus status = statusesById.get(orderId);
+            if(status == null){
+                result.setStatus(OrderUpdateStatus.NOT_FOUND);
+            } else if(fromStatuses.contains(status)){
+                result.setStatus(changed);
+            } else {
+                result.setStatus(toAlreadyStatus(status));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private OrderUpdateStatus toAlreadyStatus(OrderStatus status) {
+        switch (status) {
+            case DELIVERED:
+                return OrderUpdateStatus.ALREADY_DELIVERED;
+            case RETURNED:
+                return OrderUpdateStatus.ALREADY_RETURNED;
+            case CANCELED:
+                return OrderUpdateStatus.ALREADY_CANCELED;
+            default:
+                // a placed order is always one the update may move
+                throw new IllegalStateException("Order status " + status + " was not expected for an order the update leaves alone");
+        }
+    }
+
+    private Orders toEntity(OrderVO orderVO, Map<Long, Users> usersById, Map<Integer, Product> productsById, OrderResultVO result) {
+        if(orderVO == null){
+            result.setStatus(INVALID_PRODUCTS);
+            return null;
+        }
+        try {
+            Users user = orderVO.getUserId() == null ? null : usersById.get(orderVO.getUserId().longValue());
+            return orderMapper.toEntity(orderVO, user, productsById);
+        } catch (InvalidCustomerIdException e) {
+            result.setStatus(INVALID_CUSTOMER);
+        } catch (InvalidProductsException e) {
+            result.setStatus(INVALID_PRODUCTS);
+        } catch (InvalidProductIdException e) {
+            result.setStatus(INVALID_PRODUCT_IDS);
+            result.setProductIds(e.getProductIds());
+        }
+        return null;
+    }
+
+    /**
+     * One transaction per order, an order without stock does not stop the ones after it.
+     */
+    private void placeEachOrder(List<OrderVO> orderVOs, Map<Integer, Orders> ordersByIndex, Map<Integer, Product> productsById, List<OrderResultVO> results) {
+        for(Map.Entry<Integer, Orders> entry : ordersByIndex.entrySet()){
+            Map<Integer, Integer> productsIdsToQuantity = orderVOs.get(entry.getKey()).getProductsIdsToQuantity();
+            OrderResultVO result = results.get(entry.getKey());
+            Integer productWithoutStock = transactionTemplate.execute(transactionStatus -> {
+                useJdbcBatching();
+                try {
+                    stockService.validateStock(productsIdsToQuantity, productsById);
+                    stockService.reserveStock(productsIdsToQuantity, productsById);
+                    if(orderJournalWriter.isEnabled()){
+                        orderJournalWriter.appendAfterCommit(Collections.singletonList(orderVOs.get(entry.getKey())), productsById);
+                    } else {
+                        orderRepository.save(entry.getValue());
+                    }
+                    return null;
+                } catch (NotEnoughStockException e) {
+                    transactionStatus.setRollbackOnly();
+                    return e.getProductId();
+                }
+            });
+            if(productWithoutStock == null){
+                result.setStatus(PLACED);
+                result.setOrderId(getOrderId(entry.getValue()));
+            } else {
+                result.setStatus(NOT_ENOUGH_STOCK);
+                result.setProductIds(Collections.singletonList(productWithoutStock));
+            }
+        }
+    }
+
+    /**
+     * All or nothing: the stock of each product is reserved once for the quantity the whole batch
+     * asks for, and the orders are inserted together. If any order is invalid or a product runs out,
+     * nothing is stored and the orders that were fine come back as {@code NOT_PLACED}.
+     */
+    private void placeAllOrders(List<OrderVO> orderVOs, Map<Integer, Orders> ordersByIndex, Map<Integer, Product> productsById, List<OrderResultVO> results) {
+        if(ordersByIndex.size() != orderVOs.size()){
+            ordersByIndex.keySet().forEach(index -> results.get(index).setStatus(NOT_PLACED));
+            return;
+        }
+        Map<Integer, Integer> totalQuantities = new HashMap<>();
+        for(OrderVO orderVO : orderVOs){
+            orderVO.getProductsIdsToQuantity().forEach((productId, quantity) -> totalQuantities.merge(productId, quantity, Integer::sum));
+        }
+
+        Integer productWithoutStock = transactionTemplate.execute(transactionStatus -> {
+            useJdbcBatching();
+            try {
+                stockService.validateStock(totalQuantities, productsById);
+                stockService.reserveStock(totalQuantities, productsById);
+                if(orderJournalWriter.isEnabled()){
+                    orderJournalWriter.appendAfterCommit(orderVOs, productsById);
+                } else {
+                    orderRepository.saveAll(ordersByIndex.values());
+                }
+                return null;
+            } catch (NotEnoughStockException e) {
+                transactionStatus.setRollbackOnly();
+                return e.getProductId();
+            }
+        });
+
+        for(Map.Entry<Integer, Orders> entry : ordersByIndex.entrySet()){
+            OrderResultVO result = results.get(entry.getKey());
+            if(productWithoutStock == null){
+                result.setStatus(PLACED);
+                result.setOrderId(getOrderId(entry.getValue()));
+            } else if(orderVOs.get(entry.getKey()).getProductsIdsToQuantity().containsKey(productWithoutStock)){
+                result.setStatus(NOT_ENOUGH_STOCK);
+                result.setProductIds(Collections.singletonList(productWithoutStock));
+            } else {
+                result.setStatus(NOT_PLACED);
+            }
+        }
+    }
+
+    /**
+     * Null for a journaled order, it has no id until the applier inserts it.
+     */
+    private Long getOrderId(Orders order) {
+        return orderJournalWriter.isEnabled() ? null : order.getId();
+    }
+
+    private void useJdbcBatching() {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+    }
+
+    private Set<Integer> getProductIds(List<OrderVO> orderVOs) {
+        Set<Integer> productIds = new HashSet<>();
+        for(OrderVO orderVO : orderVOs){
+            if(orderVO != null && orderVO.getProductsIdsToQuantity() != null){
+                productIds.addAll(orderVO.getProductsIdsToQuantity().keySet());
+            }
+        }
+        return productIds;
+    }
+
+    private Map<Long, Users> findUsers(List<OrderVO> orderVOs) {
+        Set<Long> userIds = new HashSet<>();
+        for(OrderVO orderVO : orderVOs){
+            if(orderVO != null && orderVO.getUserId() != null){
+                userIds.add(orderVO.getUserId().longValue());
+            }
+        }
+        Map<Long, Users> usersById = new HashMap<>();
+        for(Users user : userRepository.findAllById(userIds)){
+            usersById.put(user.getId(), user);
+        }
+        return usersById;
+    }
+}
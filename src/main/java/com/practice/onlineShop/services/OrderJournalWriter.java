@@ -0,0 +1,77 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.journal.OrderJournal;
+import com.practice.onlineShop.vos.OrderVO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Hands the placed orders to the {@link OrderJournal} when {@code onlineshop.order.write-mode=JOURNAL},
+ * for the single orders of {@link OrderService} and the batches of {@link OrderBatchService} alike.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderJournalWriter {
+
+    private final Optional<OrderJournal> orderJournal;
+    private final StockService stockService;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * @return true when the placed orders are journaled instead of inserted
+     */
+    public boolean isEnabled() {
+        return orderJournal.isPresent();
+    }
+
+    /**
+     * Journals the orders only once their stock reservation has committed, still before the request
+     * returns, so the applier never inserts an order whose reservation was rolled back. A failed
+     * append gives back the stock of that order and of the ones after it, in a transaction of its
+     * own, and fails the request; the orders before it stay journaled. A crash between the commit
+     * and the append leaves the stock reserved for orders that never come, it is never sold twice.
+     */
+    public void appendAfterCommit(List<OrderVO> orderVOs, Map<Integer, Product> productsById) {
+        OrderJournal journal = orderJournal.orElseThrow(() -> new IllegalStateException("The order journal is not enabled"));
+        Runnable append = () -> {
+            for(int index = 0; index < orderVOs.size(); index++){
+                try {
+                    journal.append(orderVOs.get(index));
+                } catch (RuntimeException e) {
+                    releaseStock(orderVOs.subList(index, orderVOs.size()), productsById);
+                    throw e;
+                }
+            }
+        };
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            append.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append.run();
+            }
+        });
+    }
+
+    private void releaseStock(List<OrderVO> orderVOs, Map<Integer, Product> productsById) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.executeWithoutResult(status -> {
+            for(OrderVO orderVO : orderVOs){
+                stockService.releaseStock(orderVO.getProductsIdsToQuantity(), productsById);
+            }
+        });
+    }
+}
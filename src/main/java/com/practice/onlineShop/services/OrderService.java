@@ -1,99 +1,142 @@
 package com.practice.onlineShop.services;
 
+import com.practice.onlineShop.aspects.RetryOnConflict;
 import com.practice.onlineShop.entities.Orders;
 import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.OrderStatus;
 import com.practice.onlineShop.exceptions.*;
 import com.practice.onlineShop.mappers.OrderMapper;
+import com.practice.onlineShop.repositories.OrderItemRow;
 import com.practice.onlineShop.repositories.OrderRepository;
+import com.practice.onlineShop.vos.OrderDetailsVO;
+import com.practice.onlineShop.vos.OrderPageVO;
 import com.practice.onlineShop.vos.OrderVO;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.transaction.Transactional;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final OrderRepository orderRepository;
     private final OrderMapper orderMapper;
     private final StockService stockService;
+    private final OrderJournalWriter orderJournalWriter;
 
+    @Transactional(rollbackOn = Exception.class)
     public void addOrder(OrderVO orderVO) throws InvalidCustomerIdException, InvalidProductsException, InvalidProductIdException, NotEnoughStockException {
-
-        validateStock(orderVO);
-
-        Orders order = orderMapper.toEntity(orderVO);
-        order.getOrderItems().forEach(orderItem -> {
-            int oldProductStock = orderItem.getProduct().getStock();
-            int productId = (int) orderItem.getProduct().getId();
-            int sellStock = orderVO.getProductsIdsToQuantity().get(productId);
-            orderItem.getProduct().setStock(oldProductStock - sellStock);
-        });
-
+        orderMapper.validateOrder(orderVO);
+
+        Map<Integer, Integer> productsIdsToQuantity = orderVO.getProductsIdsToQuantity();
+        Map<Integer, Product> productsById = stockService.loadProducts(productsIdsToQuantity.keySet());
+        Orders order = orderMapper.toEntity(orderVO, productsById);
+        stockService.validateStock(productsIdsToQuantity, productsById);
+        stockService.reserveStock(productsIdsToQuantity, productsById);
+
+        if(orderJournalWriter.isEnabled()){
+            // acknowledged once it is on disk, the applier inserts it
+            orderJournalWriter.appendAfterCommit(Collections.singletonList(orderVO), productsById);
+            return;
+        }
         orderRepository.save(order);
 
     }
 
-    private void validateStock(OrderVO orderVO) throws NotEnoughStockException {
-        Map<Integer, Integer> productsIdsToQuantityMap = orderVO.getProductsIdsToQuantity();
-        Set<Integer> productIds = productsIdsToQuantityMap.keySet();
-
-        for(Integer productId : productIds){
-            Integer quantity = productsIdsToQuantityMap.get(productId);
-            boolean havingEnoughStock = stockService.isHavingEnoughStock(productId, quantity);
-            if(!havingEnoughStock){
-                throw new NotEnoughStockException();
-            }
-        }
-    }
+    @RetryOnConflict
     @Transactional
     public void deliver(Integer orderId, Long customerId) throws InvalidOrderIdException, OrderCanceledException {
-        System.out.println("Customer-ul cu id-ul: " + customerId + " este in service");
         throwExceptionIfOrderIdIsAbsent(orderId);
 
         Orders order = getOrderOrThrowException(orderId);
-        if(order.isCanceled()){
+        if(order.getStatus() == OrderStatus.CANCELED){
             throw new OrderCanceledException();
         }
-        order.setDelivered(true);
+        if(order.getStatus() == OrderStatus.PLACED){
+            order.setStatus(OrderStatus.DELIVERED);
+        }
          //   orderRepository.save(order); am fol adnotarea transactional
     }
 
 
-@Transactional
+    @RetryOnConflict
+    @Transactional
     public void cancelOrder(Integer orderId, Long customerId) throws InvalidOrderIdException, OrderAlreadyDeliveredException {
-        System.out.println("Customer-ul cu id-ul: " + customerId + " este in service penru a anula comanda " + orderId);
         throwExceptionIfOrderIdIsAbsent(orderId);
         Orders order = getOrderOrThrowException(orderId);
-        if(order.isReturned()){
+        if(order.getStatus() == OrderStatus.RETURNED){
             throw new OrderAlreadyDeliveredException();
         }
-        order.setCanceled(true);
+        order.setStatus(OrderStatus.CANCELED);
     }
+    @RetryOnConflict
     @Transactional
     public void returnOrder(Integer orderId, Long customerId) throws InvalidOrderIdException, OrderNotDeliveredYet, OrderCanceledException {
-        System.out.println("Customer-ul cu id-ul: " + customerId + " este in service penru a returna comanda " + orderId);
         throwExceptionIfOrderIdIsAbsent(orderId);
         Orders order = getOrderOrThrowException(orderId);
 
-        if(!order.isDelivered()){
+        if(order.getStatus() == OrderStatus.CANCELED){
+            throw new OrderCanceledException();
+        }
+        if(order.getStatus() == OrderStatus.PLACED){
             throw new OrderNotDeliveredYet();
         }
-        if(order.isCanceled()){
-            throw new OrderCanceledException();
+        if(order.getStatus() == OrderStatus.RETURNED){
+            return;
+        }
+
+        order.setStatus(OrderStatus.RETURNED);
+        order.getOrderItems().forEach(orderItem -> stockService.addStock(orderItem.getProduct(), orderItem.getQuantity()));
+    }
+
+    public OrderDetailsVO getOrder(Integer orderId, Long customerId) throws InvalidOrderIdException {
+        throwExceptionIfOrderIdIsAbsent(orderId);
+        List<OrderItemRow> rows = orderRepository.findOrderItemRows(orderId.longValue());
+        if(rows.isEmpty()){
+            throw new InvalidOrderIdException();
+        }
+        return orderMapper.toDetailsVOs(rows).get(0);
+    }
+
+    /**
+     * Keyset paging by id: one statement picks the ids of the page, a second one reads those orders
+     * with their items and products, whatever the page size.
+     *
+     * @param userId only the orders of this customer, all orders when null
+     * @param status only the orders in this status, any status when null
+     * @param customerId who asks, a client may only read its own orders
+     */
+    public OrderPageVO getOrders(Long userId, OrderStatus status, long afterId, Integer size, Long customerId) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        List<Long> orderIds = findOrderIds(userId, status, afterId, PageRequest.of(0, pageSize));
+        List<OrderItemRow> rows = orderIds.isEmpty() ? Collections.emptyList() : orderRepository.findOrderItemRows(orderIds);
+
+        OrderPageVO orderPageVO = new OrderPageVO();
+        orderPageVO.setOrders(orderMapper.toDetailsVOs(rows));
+        if(orderIds.size() == pageSize){
+            orderPageVO.setNextAfterId(orderIds.get(pageSize - 1));
         }
+        return orderPageVO;
+    }
 
-        order.setReturned(true);
-        order.getOrderItems().forEach(orderItem -> {
-            Product product = orderItem.getProduct();
-            int oldStock = product.getStock();
-            product.setStock(oldStock + orderItem.getQuantity());
-                }
-                );
+    private List<Long> findOrderIds(Long userId, OrderStatus status, long afterId, Pageable pageable) {
+        if(status == null){
+            return userId == null ? orderRepository.findIds(afterId, pageable) : orderRepository.findIdsByUser(userId, afterId, pageable);
+        }
+        return userId == null
+                ? orderRepository.findIdsByStatus(status, afterId, pageable)
+                : orderRepository.findIdsByUserAndStatus(userId, status, afterId, pageable);
     }
 
     private void throwExceptionIfOrderIdIsAbsent(Integer orderId) throws InvalidOrderIdException {
@@ -0,0 +1,63 @@
+package com.practice.onlineShop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.onlineShop.enums.Currencies;
+import com.practice.onlineShop.enums.ProductExportFormat;
+import com.practice.onlineShop.exports.CsvProductRowWriter;
+import com.practice.onlineShop.exports.NdjsonProductRowWriter;
+import com.practice.onlineShop.exports.ProductRowWriter;
+import com.practice.onlineShop.mappers.ProductMapper;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import com.practice.onlineShop.vos.ProductVO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Dumps the catalog of any size: the products are read through the forward-only cursor of
+ * {@link ProductJdbcRepository}, {@code onlineshop.catalog.stream.fetch-size} rows per round
+ * trip, and each one is written out before the next is read. The heap use does not grow with the
+ * catalog.
+ *
+ * The read runs in one transaction, so the dump is a consistent snapshot and drivers that only
+ * fetch in chunks with auto-commit off (PostgreSQL) do not load the whole result first.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductExportService {
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductMapper productMapper;
+    private final StockService stockService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param valid    only valid or only invalid products, all when null
+     * @param currency only products priced in this currency, all when null
+     */
+    @Transactional
+    public void exportProducts(ProductExportFormat format, Boolean valid, Currencies currency, OutputStream outputStream) throws IOException {
+        ProductRowWriter writer = format == ProductExportFormat.CSV
+                ? new CsvProductRowWriter(outputStream)
+                : new NdjsonProductRowWriter(objectMapper, outputStream);
+        try {
+            productJdbcRepository.forEachProduct(valid, currency, product -> {
+                ProductVO productVO = productMapper.toVO(product);
+                productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
+                try {
+                    writer.write(productVO);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // the write failed, usually because the client went away
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+}
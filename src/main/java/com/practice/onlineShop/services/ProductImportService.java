@@ -0,0 +1,196 @@
+package com.practice.onlineShop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.ProductImportFormat;
+import com.practice.onlineShop.events.ProductChangedEvent;
+import com.practice.onlineShop.events.ProductSavedEvent;
+import com.practice.onlineShop.exceptions.InvalidProductImportFileException;
+import com.practice.onlineShop.exceptions.InvalidProductRowException;
+import com.practice.onlineShop.imports.CsvProductRowReader;
+import com.practice.onlineShop.imports.JsonProductRowReader;
+import com.practice.onlineShop.imports.ProductImportListener;
+import com.practice.onlineShop.imports.ProductRow;
+import com.practice.onlineShop.imports.ProductRowReader;
+import com.practice.onlineShop.mappers.ProductMapper;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import com.practice.onlineShop.vos.ProductImportErrorVO;
+import com.practice.onlineShop.vos.ProductImportProgressVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports a catalog file of any size: the rows are read one at a time, validated, and upserted by
+ * product code in chunks of {@code onlineshop.product.import.batch-size}, each chunk in its own
+ * transaction with one JDBC batch of updates and one of inserts. Invalid rows are reported and
+ * skipped, a committed chunk stays committed whatever comes after it. Only the current chunk is
+ * held in memory, errors and progress go to the {@link ProductImportListener} as they happen.
+ */
+@Service
+public class ProductImportService {
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductMapper productMapper;
+    private final StockService stockService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public ProductImportService(ProductJdbcRepository productJdbcRepository,
+                                ProductMapper productMapper,
+                                StockService stockService,
+                                ApplicationEventPublisher applicationEventPublisher,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${onlineshop.product.import.batch-size:1000}") int batchSize) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.productMapper = productMapper;
+        this.stockService = stockService;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * The admin was already authorized by the security advice.
+     *
+     * @throws InvalidProductImportFileException when the file does not start like a file of the given format,
+     *                                           nothing was written then
+     */
+    public ProductImportProgressVO importProducts(ProductImportFormat format, InputStream inputStream, ProductImportListener listener, Long customerId) throws InvalidProductImportFileException {
+        ProductRowReader reader = format == ProductImportFormat.CSV
+                ? new CsvProductRowReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)))
+                : new JsonProductRowReader(objectMapper, inputStream);
+
+        ProductImportProgressVO progress = new ProductImportProgressVO();
+        List<Product> chunk = new ArrayList<>(batchSize);
+        List<Long> rowNumbers = new ArrayList<>(batchSize);
+        Set<String> codesInChunk = new HashSet<>();
+        try {
+            ProductRow row;
+            while((row = reader.next()) != null){
+                progress.setRowsRead(progress.getRowsRead() + 1);
+                Product product;
+                try {
+                    product = productMapper.toEntityFromRow(row);
+                } catch (InvalidProductRowException e) {
+                    reportError(progress, listener, row.getNumber(), row.get("code"), e.getMessage());
+                    continue;
+                }
+                if(!codesInChunk.add(product.getCode())){
+                    // a later row for the same code must be written after the earlier one
+                    writeChunk(chunk, rowNumbers, progress, listener);
+                    codesInChunk.clear();
+                    codesInChunk.add(product.getCode());
+                }
+                chunk.add(product);
+                rowNumbers.add(row.getNumber());
+                if(chunk.size() == batchSize){
+                    writeChunk(chunk, rowNumbers, progress, listener);
+                    codesInChunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            progress.setAbortReason("Fisierul nu a putut fi citit dupa randul " + progress.getRowsRead() + ": " + e.getMessage());
+        }
+        writeChunk(chunk, rowNumbers, progress, listener);
+        progress.setDone(true);
+        listener.onProgress(progress);
+        return progress;
+    }
+
+    /**
+     * One transaction for the chunk. If the batch fails, e.g. a code is inserted by someone else
+     * meanwhile, the chunk is rolled back and written row by row to report just the rows that fail.
+     */
+    private void writeChunk(List<Product> chunk, List<Long> rowNumbers, ProductImportProgressVO progress, ProductImportListener listener) {
+        if(chunk.isEmpty()){
+            return;
+        }
+        try {
+            int inserted = transactionTemplate.execute(status -> upsert(chunk));
+            progress.setInserted(progress.getInserted() + inserted);
+            progress.setUpdated(progress.getUpdated() + chunk.size() - inserted);
+        } catch (DataAccessException e) {
+            for(int i = 0; i < chunk.size(); i++){
+                List<Product> single = chunk.subList(i, i + 1);
+                try {
+                    int inserted = transactionTemplate.execute(status -> upsert(single));
+                    progress.setInserted(progress.getInserted() + inserted);
+                    progress.setUpdated(progress.getUpdated() + 1 - inserted);
+                } catch (DataAccessException rowException) {
+                    reportError(progress, listener, rowNumbers.get(i), chunk.get(i).getCode(),
+                            "Randul nu a putut fi salvat: " + NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+                }
+            }
+        }
+        chunk.clear();
+        rowNumbers.clear();
+        listener.onProgress(progress);
+    }
+
+    /**
+     * @return how many of the products were inserted, the others were updated
+     */
+    private int upsert(List<Product> products) {
+        boolean usesLedger = stockService.usesLedger();
+        int[] updatedRows = productJdbcRepository.updateByCode(products, !usesLedger);
+
+        List<Product> newProducts = new ArrayList<>();
+        List<String> updatedCodes = new ArrayList<>();
+        for(int i = 0; i < products.size(); i++){
+            if(updatedRows[i] == 0){
+                newProducts.add(products.get(i));
+            } else {
+                updatedCodes.add(products.get(i).getCode());
+            }
+        }
+        if(!newProducts.isEmpty()){
+            productJdbcRepository.insert(newProducts);
+        }
+        if(usesLedger && !updatedCodes.isEmpty()){
+            Map<String, Long> idsByCode = productJdbcRepository.findIdsByCode(updatedCodes);
+            for(Product product : products){
+                Long id = idsByCode.get(product.getCode());
+                if(id != null){
+                    stockService.setStock(id, product.getStock());
+                }
+            }
+        }
+        // JDBC writes skip the entity callbacks, every cached product is dropped after the commit
+        applicationEventPublisher.publishEvent(new ProductChangedEvent(null));
+        for(Product product : products){
+            applicationEventPublisher.publishEvent(new ProductSavedEvent(product.getCode(), product.getDescription()));
+        }
+        return newProducts.size();
+    }
+
+    private void reportError(ProductImportProgressVO progress, ProductImportListener listener, long rowNumber, String code, String message) {
+        progress.setFailed(progress.getFailed() + 1);
+        ProductImportErrorVO error = new ProductImportErrorVO();
+        error.setRow(rowNumber);
+        error.setCode(code);
+        error.setMessage(message);
+        listener.onError(error);
+    }
+}
@@ -1,53 +1,198 @@
 package com.practice.onlineShop.services;
 
+import com.practice.onlineShop.aspects.RetryOnConflict;
+import com.practice.onlineShop.caches.ProductCache;
+import com.practice.onlineShop.catalog.CatalogFilter;
+import com.practice.onlineShop.catalog.CatalogMatches;
+import com.practice.onlineShop.catalog.CatalogSnapshotStore;
+import com.practice.onlineShop.catalog.OffHeapProductStore;
 import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.Currencies;
 import com.practice.onlineShop.exceptions.InvalidProductCodeException;
 import com.practice.onlineShop.mappers.ProductMapper;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
 import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.search.ProductSearchIndex;
+import com.practice.onlineShop.vos.ProductFilterPageVO;
+import com.practice.onlineShop.vos.ProductPageVO;
 import com.practice.onlineShop.vos.ProductVO;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 import java.sql.SQLOutput;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final ProductMapper productMapper;
     private final ProductRepository productRepository;
+    private final ProductJdbcRepository productJdbcRepository;
+    private final ProductCache productCache;
+    private final StockService stockService;
+    private final ProductSearchIndex productSearchIndex;
+    private final CatalogSnapshotStore catalogSnapshotStore;
+    private final Optional<OffHeapProductStore> offHeapProductStore;
     public void addProduct(ProductVO productVO, Long customerId){
-        System.out.println("Customer with id " + customerId + " is in service") ;
         Product product = productMapper.toEntity(productVO);
         productRepository.save(product);
     }
     public ProductVO getProduct(String productCode) throws InvalidProductCodeException {
-        Product product = getProductEntity(productCode);
-
-        return productMapper.toVO(product);
+        if(offHeapProductStore.isPresent()){
+            // a new VO per read, the stock can go on it
+            ProductVO productVO = offHeapProductStore.get().find(productCode).orElseThrow(InvalidProductCodeException::new);
+            productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
+            return productVO;
+        }
+        ProductVO productVO = productCache.get(productCode, code -> productRepository.findByCode(code)
+                .map(productMapper::toVO)
+                .orElse(null));
+        if(productVO == null){
+            throw new InvalidProductCodeException();
+        }
+        int availableStock = stockService.getAvailableStock(productVO.getId(), productVO.getStock());
+        if(availableStock != productVO.getStock()){
+            // the cached product is shared, the current stock goes on a copy
+            ProductVO productWithCurrentStock = productMapper.copy(productVO);
+            productWithCurrentStock.setStock(availableStock);
+            return productWithCurrentStock;
+        }
+        return productVO;
 
     }
 
 
 
     public List<ProductVO> getProducts(){
+        if(offHeapProductStore.isPresent()){
+            List<ProductVO> products = offHeapProductStore.get().findAll();
+            for(ProductVO productVO : products){
+                productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
+            }
+            return products;
+        }
         List<ProductVO> products = new ArrayList<>();
         Iterable<Product> productsFromDbIterable = productRepository.findAll();
         Iterator<Product> iterator = productsFromDbIterable.iterator();
         while(iterator.hasNext()){
             Product product = iterator.next();
             ProductVO productVO = productMapper.toVO(product);
+            productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
             products.add(productVO);
         }
         return  products;
     }
 
+    public ProductPageVO getProductsPage(long afterId, Integer size){
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        List<Product> productsFromDb = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize));
+        List<ProductVO> products = new ArrayList<>(productsFromDb.size());
+        for(Product product : productsFromDb){
+            ProductVO productVO = productMapper.toVO(product);
+            productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
+            products.add(productVO);
+        }
+
+        ProductPageVO productPageVO = new ProductPageVO();
+        productPageVO.setProducts(products);
+        if(productsFromDb.size() == pageSize){
+            productPageVO.setNextAfterId(productsFromDb.get(pageSize - 1).getId());
+        }
+        return productPageVO;
+    }
+
+    /**
+     * The products best matching the query, best first, see {@link ProductSearchIndex} for the
+     * ranking. Only the matches are read from the db.
+     */
+    public List<ProductVO> searchProducts(String query, Integer limit){
+        int searchLimit = limit == null || limit <= 0 ? DEFAULT_SEARCH_LIMIT : Math.min(limit, MAX_SEARCH_LIMIT);
+        List<String> productCodes = productSearchIndex.search(query, searchLimit);
+        if(productCodes.isEmpty()){
+            return new ArrayList<>();
+        }
+        Map<String, Product> productsByCode = new HashMap<>();
+        for(Product product : productRepository.findByCodeIn(productCodes)){
+            productsByCode.put(product.getCode(), product);
+        }
+        List<ProductVO> products = new ArrayList<>(productCodes.size());
+        for(String productCode : productCodes){
+            Product product = productsByCode.get(productCode);
+            // deleted after the index was read
+            if(product != null){
+                ProductVO productVO = productMapper.toVO(product);
+                productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
+                products.add(productVO);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * One page of the products matching every criterion given, in id order. The matches come from
+     * the {@link CatalogSnapshotStore} snapshot, so a change shows up in the filter a refresh
+     * interval after it was made; only the products of the page are read from the db.
+     *
+     * @param inStock true for products with stock left, false for the sold out ones
+     */
+    public ProductFilterPageVO filterProducts(Double minPrice, Double maxPrice, Currencies currency, Boolean inStock, Boolean valid,
+                                              long afterId, Integer size){
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        CatalogMatches matches = catalogSnapshotStore.filter(new CatalogFilter(minPrice, maxPrice, currency, inStock, valid), afterId, pageSize);
+
+        List<Long> productIds = new ArrayList<>(matches.getIds().length);
+        for(long productId : matches.getIds()){
+            productIds.add(productId);
+        }
+        Map<Long, Product> productsById = new HashMap<>();
+        for(Product product : productRepository.findAllById(productIds)){
+            productsById.put(product.getId(), product);
+        }
+        List<ProductVO> products = new ArrayList<>(productIds.size());
+        for(Long productId : productIds){
+            Product product = productsById.get(productId);
+            // deleted after the snapshot was taken
+            if(product != null){
+                ProductVO productVO = productMapper.toVO(product);
+                productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
+                products.add(productVO);
+            }
+        }
+
+        ProductFilterPageVO productFilterPageVO = new ProductFilterPageVO();
+        productFilterPageVO.setProducts(products);
+        productFilterPageVO.setTotalCount(matches.getTotalCount());
+        if(productIds.size() == pageSize){
+            productFilterPageVO.setNextAfterId(productIds.get(pageSize - 1));
+        }
+        return productFilterPageVO;
+    }
+
+    public void streamProducts(Consumer<ProductVO> consumer){
+        productJdbcRepository.forEachProduct(product -> {
+            ProductVO productVO = productMapper.toVO(product);
+            productVO.setStock(stockService.getAvailableStock(productVO.getId(), productVO.getStock()));
+            consumer.accept(productVO);
+        });
+    }
+
+    @RetryOnConflict
+    @Transactional
     public void updateProduct(ProductVO productVO, Long customerId) throws InvalidProductCodeException {
-        System.out.println("Customer with id " + customerId + "is in service for update");
         veirfyProductCode(productVO.getCode());
 
         Product product =  getProductEntity(productVO.getCode());
@@ -55,14 +200,13 @@ public class ProductService {
         product.setPrice(productVO.getPrice());
         product.setDescription(productVO.getDescription());
         product.setCurrency(productVO.getCurrency());
-        product.setStock(productVO.getStock());
+        stockService.setStock(product, productVO.getStock());
 
         productRepository.save(product);
 
 
     }
     public void deleteProduct(String productCode, Long customerId) throws InvalidProductCodeException {
-        System.out.println("User with id: " + customerId + " is deleting " + productCode);
         veirfyProductCode(productCode);
         Product product = getProductEntity(productCode);
 
@@ -71,14 +215,13 @@ public class ProductService {
     }
 
 
+    @RetryOnConflict
     @Transactional
     public void addStock(String productCode, Integer quantity, Long customerId) throws InvalidProductCodeException {
-        System.out.println("User with id: " + customerId + " is adding stock for " + productCode + ", " + "number of items: " + quantity);
         veirfyProductCode(productCode);
         Product product = getProductEntity(productCode);
 
-        int oldStock = product.getStock();
-        product.setStock(oldStock + quantity);
+        stockService.addStock(product, quantity);
     }
     private Product getProductEntity(String productCode) throws InvalidProductCodeException {
         Optional<Product> productOptional = productRepository.findByCode(productCode);
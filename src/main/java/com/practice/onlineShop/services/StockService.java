@@ -1,20 +1,213 @@
 package com.practice.onlineShop.services;
 
 import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.events.ProductChangedEvent;
+import com.practice.onlineShop.events.ProductStockChangedEvent;
+import com.practice.onlineShop.exceptions.InvalidProductIdException;
+import com.practice.onlineShop.exceptions.NotEnoughStockException;
 import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.stock.StockLedger;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Optional;
+import java.util.*;
 
+/**
+ * Every change of a product's stock goes through here. By default the stock is changed in the
+ * product row, inside the caller's transaction. With {@code onlineshop.stock.engine=LEDGER} it is
+ * changed in the in-memory {@link StockLedger} instead, which writes it to the db later.
+ */
 @Service
 @RequiredArgsConstructor
 public class StockService {
     private final ProductRepository productRepository;
-    public boolean isHavingEnoughStock(Integer productId, Integer quantity){
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final Optional<StockLedger> stockLedger;
 
-        Product product = productRepository.findById(productId.longValue()).get();
-        return product.getStock() >= quantity;
+    /**
+     * Loads every product of an order with a single query. All ids that are not in the db
+     * are reported together in the thrown exception.
+     */
+    public Map<Integer, Product> loadProducts(Collection<Integer> productIds) throws InvalidProductIdException {
+        Map<Integer, Product> productsById = findProducts(productIds);
 
+        if(productsById.size() != productIds.size()){
+            List<Integer> missingProductIds = new ArrayList<>();
+            for(Integer productId : productIds){
+                if(!productsById.containsKey(productId)){
+                    missingProductIds.add(productId);
+                }
+            }
+            throw new InvalidProductIdException(missingProductIds);
+        }
+        return productsById;
+    }
+
+    /**
+     * Same single query as {@link #loadProducts(Collection)}, ids that are not in the db are simply
+     * absent from the result.
+     */
+    public Map<Integer, Product> findProducts(Collection<Integer> productIds) {
+        List<Long> ids = new ArrayList<>(productIds.size());
+        for(Integer productId : productIds){
+            ids.add(productId.longValue());
+        }
+
+        Map<Integer, Product> productsById = new HashMap<>();
+        for(Product product : productRepository.findAllById(ids)){
+            productsById.put((int) product.getId(), product);
+        }
+        return productsById;
+    }
+
+    /**
+     * Rejects the order early, on the already loaded products, when a line asks for more than the
+     * stock we read. The conditional update in {@link #reserveStock(Map, Map)} stays the one that decides.
+     */
+    public void validateStock(Map<Integer, Integer> productsIdsToQuantity, Map<Integer, Product> productsById) throws NotEnoughStockException {
+        if(stockLedger.isPresent()){
+            // the stock column lags behind the ledger, the reservation itself is just as cheap
+            return;
+        }
+        for(Map.Entry<Integer, Integer> entry : productsIdsToQuantity.entrySet()){
+            Product product = productsById.get(entry.getKey());
+            if(product.getStock() < entry.getValue()){
+                throw new NotEnoughStockException(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Takes the requested quantities out of stock with one conditional update per product,
+     * so two orders can never both sell the last item. Must run inside the caller's transaction:
+     * if one line cannot be served the exception rolls back the lines already reserved.
+     * Products are updated in id order so concurrent orders lock rows in the same order.
+     */
+    public void reserveStock(Map<Integer, Integer> productsIdsToQuantity, Map<Integer, Product> productsById) throws NotEnoughStockException {
+        Map<Integer, Integer> orderedProductsIdsToQuantity = new TreeMap<>(productsIdsToQuantity);
+        if(stockLedger.isPresent()){
+            reserveInLedger(stockLedger.get(), orderedProductsIdsToQuantity);
+            for(Integer productId : orderedProductsIdsToQuantity.keySet()){
+                applicationEventPublisher.publishEvent(new ProductStockChangedEvent(productsById.get(productId).getCode()));
+            }
+            return;
+        }
+
+        for(Map.Entry<Integer, Integer> entry : orderedProductsIdsToQuantity.entrySet()){
+            int updatedRows = productRepository.decrementStockIfAvailable(entry.getKey().longValue(), entry.getValue());
+            if(updatedRows == 0){
+                throw new NotEnoughStockException(entry.getKey());
+            }
+            // the bulk update skips the entity callbacks, so readers of the product are told here
+            applicationEventPublisher.publishEvent(new ProductChangedEvent(productsById.get(entry.getKey()).getCode()));
+        }
+    }
+
+    /**
+     * Gives back what {@link #reserveStock(Map, Map)} took, for an order that is not placed after
+     * all although its reservation committed. Must run inside the caller's transaction.
+     */
+    public void releaseStock(Map<Integer, Integer> productsIdsToQuantity, Map<Integer, Product> productsById) {
+        for(Map.Entry<Integer, Integer> entry : productsIdsToQuantity.entrySet()){
+            String productCode = productsById.get(entry.getKey()).getCode();
+            if(stockLedger.isPresent()){
+                stockLedger.get().add(entry.getKey(), entry.getValue());
+                applicationEventPublisher.publishEvent(new ProductStockChangedEvent(productCode));
+            } else {
+                productRepository.incrementStock(entry.getKey().longValue(), entry.getValue());
+                applicationEventPublisher.publishEvent(new ProductChangedEvent(productCode));
+            }
+        }
+    }
+
+    /**
+     * Adds stock to a product loaded in the caller's transaction, for restocks and returns.
+     */
+    public void addStock(Product product, int quantity) {
+        if(stockLedger.isPresent()){
+            afterCommit(() -> stockLedger.get().add(product.getId(), quantity));
+            applicationEventPublisher.publishEvent(new ProductStockChangedEvent(product.getCode()));
+            return;
+        }
+        product.setStock(product.getStock() + quantity);
+    }
+
+    /**
+     * Sets the stock of a product loaded by the caller to an absolute value.
+     */
+    public void setStock(Product product, int stock) {
+        if(stockLedger.isPresent()){
+            afterCommit(() -> stockLedger.get().set(product.getId(), stock));
+            applicationEventPublisher.publishEvent(new ProductStockChangedEvent(product.getCode()));
+            return;
+        }
+        product.setStock(stock);
+    }
+
+    /**
+     * Whether the stock lives in the ledger, in which case writers that bypass JPA must leave the
+     * stock column alone and set the stock through {@link #setStock(long, int)}.
+     */
+    public boolean usesLedger() {
+        return stockLedger.isPresent();
+    }
+
+    /**
+     * Sets the ledger stock of a product written with plain JDBC, once the caller's transaction
+     * has committed.
+     */
+    public void setStock(long productId, int stock) {
+        stockLedger.ifPresent(ledger -> afterCommit(() -> ledger.set(productId, stock)));
+    }
+
+    /**
+     * The stock that can be sold right now, which with the ledger can be ahead of the stock column.
+     */
+    public int getAvailableStock(long productId, int stockInDb) {
+        if(stockLedger.isPresent()){
+            return stockLedger.get().getAvailable(productId).orElse(stockInDb);
+        }
+        return stockInDb;
+    }
+
+    /**
+     * Reserves line by line in id order and gives back what was taken if a line cannot be served.
+     * The ledger is not part of the transaction, so a rollback of the order gives the stock back too.
+     */
+    private void reserveInLedger(StockLedger ledger, Map<Integer, Integer> orderedProductsIdsToQuantity) throws NotEnoughStockException {
+        Map<Integer, Integer> reserved = new LinkedHashMap<>();
+        for(Map.Entry<Integer, Integer> entry : orderedProductsIdsToQuantity.entrySet()){
+            if(!ledger.tryReserve(entry.getKey(), entry.getValue())){
+                reserved.forEach((productId, quantity) -> ledger.add(productId, quantity));
+                throw new NotEnoughStockException(entry.getKey());
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if(status != STATUS_COMMITTED){
+                        reserved.forEach((productId, quantity) -> ledger.add(productId, quantity));
+                    }
+                }
+            });
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
     }
 }
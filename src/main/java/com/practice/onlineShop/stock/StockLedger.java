@@ -0,0 +1,209 @@
+package com.practice.onlineShop.stock;
+
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import com.practice.onlineShop.tasks.PeriodicTask;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stock of every product, used instead of row updates when
+ * {@code onlineshop.stock.engine=LEDGER}. Each product has its own counter, changed with
+ * compare-and-set, so orders for different products never contend and orders for the same
+ * product never wait on a db lock. The changes are written behind: a scheduler adds the
+ * accumulated delta of each changed product to the {@code product} table in JDBC batches.
+ *
+ * The db stays the source of truth at startup, the counters are loaded from it. Only one
+ * application instance may use the ledger on the same database, since other writers of the
+ * stock column are not seen until the product is loaded again.
+ */
+@Component
+@ConditionalOnProperty(name = "onlineshop.stock.engine", havingValue = "LEDGER")
+public class StockLedger {
+
+    private final ProductJdbcRepository productJdbcRepository;
+    private final long flushIntervalMillis;
+    private final int flushBatchSize;
+    private final boolean preload;
+
+    private final ConcurrentHashMap<Long, StockCell> cells = new ConcurrentHashMap<>();
+    private final Set<Long> changedProductIds = ConcurrentHashMap.newKeySet();
+    private PeriodicTask flushTask;
+
+    public StockLedger(ProductJdbcRepository productJdbcRepository,
+                       @Value("${onlineshop.stock.ledger.flush-interval-millis:100}") long flushIntervalMillis,
+                       @Value("${onlineshop.stock.ledger.flush-batch-size:500}") int flushBatchSize,
+                       @Value("${onlineshop.stock.ledger.preload:true}") boolean preload) {
+        this.productJdbcRepository = productJdbcRepository;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushBatchSize = flushBatchSize;
+        this.preload = preload;
+    }
+
+    @PostConstruct
+    public void start() {
+        flushTask = PeriodicTask.start("stock-ledger-flush", "write the stock ledger to the db", this::flush,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads the stock of every product once the schema is in place. A product already loaded by a
+     * reservation keeps its counter.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromDatabase() {
+        if(preload){
+            productJdbcRepository.forEachStock((productId, stock) -> cells.putIfAbsent(productId, new StockCell(stock)));
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flushTask.stop();
+        flush();
+    }
+
+    /**
+     * Takes the quantity out of the product's stock if there is enough of it.
+     *
+     * @return false when the stock is too low or the product does not exist
+     */
+    public boolean tryReserve(long productId, int quantity) {
+        StockCell cell = getCell(productId);
+        if(cell == null){
+            return false;
+        }
+        int available;
+        do {
+            available = cell.available.get();
+            if(available < quantity){
+                return false;
+            }
+        } while(!cell.available.compareAndSet(available, available - quantity));
+        cell.unflushed.addAndGet(-quantity);
+        changedProductIds.add(productId);
+        return true;
+    }
+
+    /**
+     * Puts stock back or adds new stock, for released reservations, returns and restocks.
+     */
+    public void add(long productId, int quantity) {
+        StockCell cell = getCell(productId);
+        if(cell == null){
+            return;
+        }
+        cell.available.addAndGet(quantity);
+        cell.unflushed.addAndGet(quantity);
+        changedProductIds.add(productId);
+    }
+
+    /**
+     * Sets the stock to an absolute value, as an update of the product does.
+     */
+    public void set(long productId, int stock) {
+        StockCell cell = getCell(productId);
+        if(cell == null){
+            return;
+        }
+        int previous = cell.available.getAndSet(stock);
+        cell.unflushed.addAndGet(stock - previous);
+        changedProductIds.add(productId);
+    }
+
+    public Optional<Integer> getAvailable(long productId) {
+        StockCell cell = cells.get(productId);
+        return cell == null ? Optional.empty() : Optional.of(cell.available.get());
+    }
+
+    /**
+     * Writes the delta of every changed product to the db. Runs on the scheduler; a failed batch
+     * is put back and written by the next run.
+     */
+    public void flush() {
+        List<Map.Entry<Long, Integer>> batch = new ArrayList<>(flushBatchSize);
+        Iterator<Long> iterator = changedProductIds.iterator();
+        while(iterator.hasNext()){
+            Long productId = iterator.next();
+            iterator.remove();
+            StockCell cell = cells.get(productId);
+            int delta = cell == null ? 0 : cell.unflushed.getAndSet(0);
+            if(delta != 0){
+                batch.add(new AbstractMap.SimpleImmutableEntry<>(productId, delta));
+            }
+            if(batch.size() == flushBatchSize){
+                write(batch);
+                batch.clear();
+            }
+        }
+        if(!batch.isEmpty()){
+            write(batch);
+        }
+    }
+
+    private void write(List<Map.Entry<Long, Integer>> batch) {
+        int[] updatedRows;
+        try {
+            updatedRows = productJdbcRepository.addToStock(batch);
+        } catch (RuntimeException e) {
+            for(Map.Entry<Long, Integer> delta : batch){
+                putBack(delta.getKey(), delta.getValue());
+            }
+            throw e;
+        }
+        for(int i = 0; i < batch.size(); i++){
+            if(updatedRows[i] == 0){
+                // the product was deleted, there is nothing left to keep in sync
+                cells.remove(batch.get(i).getKey());
+            }
+        }
+    }
+
+    private void putBack(long productId, int delta) {
+        StockCell cell = cells.get(productId);
+        if(cell != null){
+            cell.unflushed.addAndGet(delta);
+            changedProductIds.add(productId);
+        }
+    }
+
+
+    private StockCell getCell(long productId) {
+        StockCell cell = cells.get(productId);
+        if(cell != null){
+            return cell;
+        }
+        Optional<Integer> stock = productJdbcRepository.findStock(productId);
+        if(!stock.isPresent()){
+            return null;
+        }
+        return cells.computeIfAbsent(productId, id -> new StockCell(stock.get()));
+    }
+
+    /**
+     * What can still be reserved, and how much of it the db has not seen yet.
+     */
+    private static final class StockCell {
+        private final AtomicInteger available;
+        private final AtomicInteger unflushed = new AtomicInteger();
+
+        private StockCell(int stock) {
+            this.available = new AtomicInteger(stock);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.practice.onlineShop.tasks;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A task run in the background on its own named daemon thread, with a fixed delay between two
+ * runs. A run that fails is logged and the task is simply run again after the delay.
+ */
+@Slf4j
+public final class PeriodicTask {
+
+    private final String activity;
+    private final Runnable task;
+    private final long delay;
+    private final TimeUnit unit;
+    private final ScheduledExecutorService scheduler;
+
+    private PeriodicTask(String threadName, String activity, Runnable task, long delay, TimeUnit unit) {
+        this.activity = activity;
+        this.task = task;
+        this.delay = delay;
+        this.unit = unit;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param activity what the task does, for the log: "Could not {activity}, retrying in ..."
+     */
+    public static PeriodicTask start(String threadName, String activity, Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        PeriodicTask periodicTask = new PeriodicTask(threadName, activity, task, delay, unit);
+        periodicTask.scheduler.scheduleWithFixedDelay(periodicTask::runQuietly, initialDelay, delay, unit);
+        return periodicTask;
+    }
+
+    /**
+     * Runs something else on the same thread at a fixed rate, never at the same time as the task.
+     */
+    public void scheduleAtFixedRate(Runnable action, long period, TimeUnit periodUnit) {
+        scheduler.scheduleAtFixedRate(action, period, period, periodUnit);
+    }
+
+    /**
+     * Runs the task once on the caller's thread, logging a failure like a scheduled run does.
+     */
+    public void runQuietly() {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.warn("Could not {}, retrying in {} {}", activity, delay, unit.name().toLowerCase(), e);
+        }
+    }
+
+    /**
+     * Waits for a run in progress, for at most 10 seconds; no run starts afterwards.
+     */
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
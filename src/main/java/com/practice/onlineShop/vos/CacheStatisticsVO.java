@@ -0,0 +1,14 @@
+package com.practice.onlineShop.vos;
+
+import lombok.Data;
+
+@Data
+public class CacheStatisticsVO {
+    private String name;
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRatio;
+    private double averageLoadMillis;
+}
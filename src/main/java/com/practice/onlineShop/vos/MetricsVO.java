@@ -0,0 +1,15 @@
+package com.practice.onlineShop.vos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MetricsVO {
+    private List<OperationMetricsVO> operations;
+    private List<CacheStatisticsVO> caches;
+    private long droppedAuditEvents;
+    private int inFlightRequests;
+    private int inFlightStreams;
+    private long shedRequests;
+}
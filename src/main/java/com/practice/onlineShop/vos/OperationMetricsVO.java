@@ -0,0 +1,22 @@
+package com.practice.onlineShop.vos;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class OperationMetricsVO {
+    private String operation;
+    private long count;
+    private double throughputPerSecond;
+    private double meanMillis;
+    private double p50Millis;
+    private double p99Millis;
+    private double p999Millis;
+    private double maxMillis;
+    private long errors;
+    private Map<String, Long> errorsByType;
+    private long conflicts;
+    private double conflictRate;
+    private long retriesExhausted;
+}
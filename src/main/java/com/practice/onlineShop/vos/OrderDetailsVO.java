@@ -0,0 +1,14 @@
+package com.practice.onlineShop.vos;
+
+import com.practice.onlineShop.enums.OrderStatus;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OrderDetailsVO {
+    private long id;
+    private long userId;
+    private OrderStatus status;
+    private List<OrderItemDetailsVO> items;
+}
@@ -0,0 +1,14 @@
+package com.practice.onlineShop.vos;
+
+import com.practice.onlineShop.enums.Currencies;
+import lombok.Data;
+
+@Data
+public class OrderItemDetailsVO {
+    private long productId;
+    private String productCode;
+    private String productDescription;
+    private double price;
+    private Currencies currency;
+    private int quantity;
+}
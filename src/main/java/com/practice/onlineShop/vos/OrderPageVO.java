@@ -0,0 +1,11 @@
+package com.practice.onlineShop.vos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OrderPageVO {
+    private List<OrderDetailsVO> orders;
+    private Long nextAfterId; // null when this is the last page
+}
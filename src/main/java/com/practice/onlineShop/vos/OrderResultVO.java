@@ -0,0 +1,14 @@
+package com.practice.onlineShop.vos;
+
+import com.practice.onlineShop.enums.OrderResultStatus;
+import lombok.Data;
+
+import java.util.Collection;
+
+@Data
+public class OrderResultVO {
+    private int index;
+    private Long orderId;
+    private OrderResultStatus status;
+    private Collection<Integer> productIds;
+}
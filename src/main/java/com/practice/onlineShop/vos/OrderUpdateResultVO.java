@@ -0,0 +1,10 @@
+package com.practice.onlineShop.vos;
+
+import com.practice.onlineShop.enums.OrderUpdateStatus;
+import lombok.Data;
+
+@Data
+public class OrderUpdateResultVO {
+    private Long orderId;
+    private OrderUpdateStatus status;
+}
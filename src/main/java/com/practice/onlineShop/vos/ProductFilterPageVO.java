@@ -0,0 +1,12 @@
+package com.practice.onlineShop.vos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProductFilterPageVO {
+    private List<ProductVO> products;
+    private Long nextAfterId; // null when this is the last page
+    private long totalCount; // matching products in the whole catalog, not only after afterId
+}
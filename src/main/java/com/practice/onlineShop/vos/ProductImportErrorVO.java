@@ -0,0 +1,10 @@
+package com.practice.onlineShop.vos;
+
+import lombok.Data;
+
+@Data
+public class ProductImportErrorVO {
+    private long row;
+    private String code;
+    private String message;
+}
@@ -0,0 +1,13 @@
+package com.practice.onlineShop.vos;
+
+import lombok.Data;
+
+@Data
+public class ProductImportProgressVO {
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long failed;
+    private boolean done;
+    private String abortReason; // set when the file could not be read to the end
+}
@@ -0,0 +1,101 @@
+package com.practice.onlineShop.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets at most {@code maxInFlight} requests run at the same time and answers the others right
+ * away with 503 and a {@code Retry-After}, instead of queueing them until they time out. A request
+ * that continues asynchronously, like the catalog stream or the export, gives its permit back once
+ * it leaves the request thread and is only counted among the streams: a slow client may hold it for
+ * up to the async request timeout, and a few hundred of them would otherwise get every other
+ * request shed. {@code /metrics} is never shed, so an overloaded shop can still be looked at.
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private static final String METRICS_PATH = "/metrics";
+    private static final String SHED_MESSAGE = "Serverul este supraincarcat, va rugam reincercati";
+
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final LongAdder shedRequests = new LongAdder();
+    private final AtomicInteger inFlightStreams = new AtomicInteger();
+
+    public LoadSheddingFilter(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(Math.max(maxInFlight, 0));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if(maxInFlight <= 0 || METRICS_PATH.equals(request.getServletPath())){
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if(!permits.tryAcquire()){
+            shedRequests.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getOutputStream().write(SHED_MESSAGE.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+            if(request.isAsyncStarted()){
+                inFlightStreams.incrementAndGet();
+                request.getAsyncContext().addListener(new StreamCompletionListener());
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getInFlightRequests() {
+        return maxInFlight <= 0 ? 0 : maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Requests that went on asynchronously and have not completed yet, they hold no permit.
+     */
+    public int getInFlightStreams() {
+        return inFlightStreams.get();
+    }
+
+    public long getShedRequests() {
+        return shedRequests.sum();
+    }
+
+    private class StreamCompletionListener implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            inFlightStreams.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
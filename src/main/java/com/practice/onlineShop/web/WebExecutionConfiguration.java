@@ -0,0 +1,118 @@
+package com.practice.onlineShop.web;
+
+import com.practice.onlineShop.enums.ExecutionMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.practice.onlineShop.enums.ExecutionMode.SERVLET;
+import static com.practice.onlineShop.enums.ExecutionMode.VIRTUAL;
+
+/**
+ * Chooses the threads the embedded Tomcat runs requests on, see {@link ExecutionMode}, and puts
+ * the {@link LoadSheddingFilter} in front of every request.
+ *
+ * The controllers call JPA and block while the db answers, so the executor is swapped under
+ * Tomcat rather than making every controller method asynchronous: the handlers, advices and
+ * transactions stay on the thread that runs the request, only the thread changes.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebExecutionConfiguration {
+
+    private final ExecutionMode executionMode;
+    private final int threads;
+    private final int queueCapacity;
+    private final int maxInFlight;
+
+    private ExecutorService requestExecutor;
+
+    public WebExecutionConfiguration(@Value("${onlineshop.web.execution-mode:SERVLET}") ExecutionMode executionMode,
+                                     @Value("${onlineshop.web.executor.threads:64}") int threads,
+                                     @Value("${onlineshop.web.executor.queue-capacity:1000}") int queueCapacity,
+                                     @Value("${onlineshop.web.max-in-flight:256}") int maxInFlight) {
+        this.executionMode = executionMode;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Bean
+    public LoadSheddingFilter loadSheddingFilter() {
+        return new LoadSheddingFilter(maxInFlight);
+    }
+
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilterRegistration(LoadSheddingFilter loadSheddingFilter) {
+        FilterRegistrationBean<LoadSheddingFilter> registration = new FilterRegistrationBean<>(loadSheddingFilter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> requestExecutorCustomizer() {
+        return protocolHandler -> {
+            if(executionMode == SERVLET){
+                return;
+            }
+            requestExecutor = executionMode == VIRTUAL ? newVirtualThreadExecutor() : newBoundedExecutor();
+            protocolHandler.setExecutor(requestExecutor);
+            log.info("Requests run on the {} executor", executionMode);
+        };
+    }
+
+    /**
+     * Tomcat does not stop an executor it did not create.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if(requestExecutor != null){
+            requestExecutor.shutdown();
+            requestExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Fixed number of threads and a bounded queue. When both are full Tomcat closes the new
+     * connection, so the in-flight limit should stay below {@code threads + queue-capacity} for
+     * the filter to answer 503 first.
+     */
+    private ExecutorService newBoundedExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "http-bounded-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * One virtual thread per request on Java 21 and later. The shop is built for Java 8, so the
+     * factory is looked up by reflection and the bounded executor is used on older JVMs.
+     */
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not supported by Java {}, using the BOUNDED executor", System.getProperty("java.version"));
+            return newBoundedExecutor();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.practice.onlineShop.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditRingBufferTest {
+
+    @Test
+    public void offer_whenBufferIsFull_shouldRejectTheEvent(){
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(4);
+
+        for(int i = 0; i < 4; i++){
+            assertThat(ringBuffer.offer(event(i))).isTrue();
+        }
+
+        assertThat(ringBuffer.offer(event(4))).isFalse();
+        assertThat(ringBuffer.poll().getLatencyNanos()).isZero();
+        assertThat(ringBuffer.offer(event(4))).isTrue();
+    }
+
+    @Test
+    public void poll_whenBufferIsEmpty_shouldReturnNull(){
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(4);
+
+        assertThat(ringBuffer.poll()).isNull();
+    }
+
+    @Test
+    public void offer_whenManyThreadsProduce_shouldDeliverEveryEventExactlyOnce() throws Exception {
+        int producers = 8;
+        int eventsPerProducer = 50_000;
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(1024);
+        ExecutorService executorService = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for(int producer = 0; producer < producers; producer++){
+            long firstEvent = (long) producer * eventsPerProducer;
+            futures.add(executorService.submit(() -> {
+                for(long i = firstEvent; i < firstEvent + eventsPerProducer; i++){
+                    while(!ringBuffer.offer(event(i))){
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        Set<Long> consumedEvents = new HashSet<>();
+        List<AuditEvent> batch = new ArrayList<>();
+        while(consumedEvents.size() < producers * eventsPerProducer){
+            ringBuffer.drainTo(batch, 256);
+            for(AuditEvent event : batch){
+                assertThat(consumedEvents.add(event.getLatencyNanos())).isTrue();
+            }
+            batch.clear();
+        }
+
+        for(Future<?> future : futures){
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+        assertThat(ringBuffer.poll()).isNull();
+    }
+
+    private AuditEvent event(long id) {
+        return new AuditEvent(0, "operation", 1L, new Object[0], id, "OK");
+    }
+}
@@ -0,0 +1,77 @@
+package com.practice.onlineShop.caches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void get_whenValueIsCached_shouldNotCallTheLoaderAgain(){
+        ExpiringCache<Long, String> cache = new ExpiringCache<>(10, 1, TimeUnit.SECONDS, now::get);
+
+        cache.get(1L, this::load);
+        String value = cache.get(1L, this::load);
+
+        assertThat(value).isEqualTo("value1");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_whenEntryExpired_shouldLoadItAgain(){
+        ExpiringCache<Long, String> cache = new ExpiringCache<>(10, 1, TimeUnit.SECONDS, now::get);
+
+        cache.get(1L, this::load);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cache.get(1L, this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void get_whenLoaderReturnsNull_shouldNotCacheIt(){
+        ExpiringCache<Long, String> cache = new ExpiringCache<>(10, 1, TimeUnit.SECONDS, now::get);
+
+        cache.get(1L, key -> null);
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void get_whenCacheIsFull_shouldStayWithinItsBound(){
+        ExpiringCache<Long, String> cache = new ExpiringCache<>(10, 1, TimeUnit.SECONDS, now::get);
+
+        for(long key = 0; key < 100; key++){
+            cache.get(key, this::load);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(cache.getEvictionCount()).isPositive();
+    }
+
+    @Test
+    public void get_whenInvalidatedWhileLoading_shouldNotStoreTheLoadedValue(){
+        ExpiringCache<Long, String> cache = new ExpiringCache<>(10, 1, TimeUnit.SECONDS, now::get);
+
+        cache.get(1L, key -> {
+            cache.invalidate(key);
+            return "stale";
+        });
+
+        assertThat(cache.get(1L, this::load)).isEqualTo("value1");
+    }
+
+    private String load(Long key) {
+        loads.incrementAndGet();
+        return "value" + key;
+    }
+}
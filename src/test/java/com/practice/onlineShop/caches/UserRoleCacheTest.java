@@ -0,0 +1,44 @@
+package com.practice.onlineShop.caches;
+
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.repositories.UserRepository;
+import com.practice.onlineShop.utils.UtilsComponent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class UserRoleCacheTest {
+
+    @Autowired
+    private UserRoleCache userRoleCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Test
+    public void getRoles_afterOnlyTheRolesChanged_shouldLoadTheNewRoles() {
+        Users user = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        assertThat(userRoleCache.getRoles(user.getId())).contains(EnumSet.of(Roles.CLIENT));
+        long missesBefore = userRoleCache.getStatistics().getMisses();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                userRepository.findWithRolesById(user.getId()).get().getRoles().add(Roles.EXPEDITOR));
+
+        assertThat(userRoleCache.getRoles(user.getId())).contains(EnumSet.of(Roles.CLIENT, Roles.EXPEDITOR));
+        assertThat(userRoleCache.getStatistics().getMisses()).isEqualTo(missesBefore + 1);
+    }
+}
@@ -0,0 +1,124 @@
+package com.practice.onlineShop.catalog;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.Currencies;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.practice.onlineShop.enums.Currencies.EUR;
+import static com.practice.onlineShop.enums.Currencies.RON;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTest {
+
+    private static final CatalogFilter ALL = new CatalogFilter(null, null, null, null, null);
+
+    @Test
+    public void filter_shouldMatchEveryCriterion(){
+        CatalogSnapshot snapshot = CatalogSnapshot.of(Arrays.asList(
+                product(1, 10, 5, RON, true),
+                product(2, 20, 0, RON, true),
+                product(3, 30, 5, EUR, true),
+                product(4, 20, 5, RON, false),
+                product(5, 40, 5, null, true)));
+
+        assertThat(ids(snapshot, new CatalogFilter(15.0, 30.0, null, null, null))).containsExactly(2L, 3L, 4L);
+        assertThat(ids(snapshot, new CatalogFilter(null, null, RON, null, null))).containsExactly(1L, 2L, 4L);
+        assertThat(ids(snapshot, new CatalogFilter(null, null, null, true, null))).containsExactly(1L, 3L, 4L, 5L);
+        assertThat(ids(snapshot, new CatalogFilter(null, null, null, false, null))).containsExactly(2L);
+        assertThat(ids(snapshot, new CatalogFilter(null, null, null, null, false))).containsExactly(4L);
+        assertThat(ids(snapshot, new CatalogFilter(10.0, 20.0, RON, true, true))).containsExactly(1L);
+        assertThat(ids(snapshot, ALL)).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    public void filter_shouldCountEveryMatchAndPageAfterTheGivenId(){
+        List<Product> products = new ArrayList<>();
+        for(int id = 1; id <= 10_000; id++){
+            products.add(product(id * 2, id % 100, id % 3, id % 2 == 0 ? RON : EUR, true));
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.of(products);
+        CatalogFilter cheapInRon = new CatalogFilter(null, 49.0, RON, null, null);
+
+        CatalogMatches sequential = snapshot.filter(cheapInRon, 9000, 3, Integer.MAX_VALUE);
+        CatalogMatches parallel = snapshot.filter(cheapInRon, 9000, 3, 0);
+
+        assertThat(sequential.getTotalCount()).isEqualTo(2500);
+        assertThat(sequential.getIds()).containsExactly(9004L, 9008L, 9012L);
+        assertThat(parallel.getTotalCount()).isEqualTo(sequential.getTotalCount());
+        assertThat(parallel.getIds()).containsExactly(sequential.getIds());
+        assertThat(snapshot.filter(ALL, 20_000, 3, 0).getIds()).isEmpty();
+    }
+
+    @Test
+    public void patch_shouldUpdateAddAndRemoveWithoutChangingThePreviousSnapshot(){
+        CatalogSnapshot snapshot = CatalogSnapshot.of(Arrays.asList(
+                product(1, 10, 5, RON, true),
+                product(2, 20, 5, RON, true)));
+
+        CatalogSnapshot patched = snapshot.patch(
+                Arrays.asList(product(1, 10, 0, RON, true), product(3, 30, 5, RON, true)),
+                Collections.singleton("P-2"));
+
+        CatalogFilter inStock = new CatalogFilter(null, null, null, true, null);
+        assertThat(ids(patched, inStock)).containsExactly(3L);
+        assertThat(ids(patched, ALL)).containsExactly(1L, 3L);
+        assertThat(patched.size()).isEqualTo(2);
+        assertThat(ids(snapshot, inStock)).containsExactly(1L, 2L);
+        assertThat(snapshot.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void patch_shouldRebuildForProductsBeforeTheLastIdAndRecreatedCodes(){
+        CatalogSnapshot snapshot = CatalogSnapshot.of(Arrays.asList(
+                product(1, 10, 5, RON, true),
+                product(5, 50, 5, RON, true)));
+
+        Product recreated = product(7, 70, 5, RON, true);
+        recreated.setCode("P-1");
+        CatalogSnapshot patched = snapshot.patch(Arrays.asList(product(3, 30, 5, RON, true), recreated), Collections.emptySet());
+
+        assertThat(ids(patched, ALL)).containsExactly(3L, 5L, 7L);
+        assertThat(patched.getDeadCount()).isZero();
+    }
+
+    @Test
+    public void compact_shouldDropTheRowsOfDeletedProducts(){
+        List<Product> products = new ArrayList<>();
+        List<String> removedCodes = new ArrayList<>();
+        for(int id = 1; id <= 3 * CatalogSnapshot.CHUNK_SIZE; id++){
+            products.add(product(id, id, 1, RON, true));
+            if(id % 2 == 0){
+                removedCodes.add("P-" + id);
+            }
+        }
+
+        CatalogSnapshot patched = CatalogSnapshot.of(products).patch(Collections.emptyList(), new HashSet<>(removedCodes));
+        assertThat(patched.needsCompaction()).isTrue();
+        CatalogSnapshot compacted = patched.compact();
+
+        assertThat(compacted.getDeadCount()).isZero();
+        assertThat(compacted.size()).isEqualTo(patched.size()).isEqualTo(3 * CatalogSnapshot.CHUNK_SIZE / 2);
+        assertThat(compacted.filter(ALL, 100, 2, 0).getIds()).containsExactly(101L, 103L);
+    }
+
+    private static long[] ids(CatalogSnapshot snapshot, CatalogFilter filter) {
+        return snapshot.filter(filter, 0, 100, Integer.MAX_VALUE).getIds();
+    }
+
+    private static Product product(long id, double price, int stock, Currencies currency, boolean valid) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCode("P-" + id);
+        product.setPrice(price);
+        product.setStock(stock);
+        product.setCurrency(currency);
+        product.setValid(valid);
+        return product;
+    }
+}
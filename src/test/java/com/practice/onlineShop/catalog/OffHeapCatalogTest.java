@@ -0,0 +1,115 @@
+package com.practice.onlineShop.catalog;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.enums.Currencies;
+import com.practice.onlineShop.vos.ProductVO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.practice.onlineShop.enums.Currencies.EUR;
+import static com.practice.onlineShop.enums.Currencies.RON;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapCatalogTest {
+
+    @Test
+    public void put_shouldStoreEveryFieldAndOverwriteTheProductWithTheSameCode(){
+        OffHeapCatalog catalog = new OffHeapCatalog();
+        catalog.put(product(1, "P-1", "Pantofi din piele întoarsă", 199.99, 5, RON, true));
+        catalog.put(product(2, "P-2", null, 10, 0, null, false));
+
+        ProductVO first = catalog.get("P-1");
+        assertThat(first.getId()).isEqualTo(1);
+        assertThat(first.getCode()).isEqualTo("P-1");
+        assertThat(first.getDescription()).isEqualTo("Pantofi din piele întoarsă");
+        assertThat(first.getPrice()).isEqualTo(199.99);
+        assertThat(first.getStock()).isEqualTo(5);
+        assertThat(first.getCurrency()).isEqualTo(RON);
+        assertThat(first.isValid()).isTrue();
+        ProductVO second = catalog.get("P-2");
+        assertThat(second.getDescription()).isNull();
+        assertThat(second.getCurrency()).isNull();
+        assertThat(second.isValid()).isFalse();
+        assertThat(catalog.get("P-3")).isNull();
+
+        catalog.put(product(1, "P-1", "Pantofi", 149.99, 2, EUR, false));
+
+        assertThat(catalog.size()).isEqualTo(2);
+        assertThat(catalog.get("P-1").getDescription()).isEqualTo("Pantofi");
+        assertThat(catalog.get("P-1").getPrice()).isEqualTo(149.99);
+        assertThat(catalog.get("P-1").getCurrency()).isEqualTo(EUR);
+    }
+
+    @Test
+    public void remove_shouldKeepTheOtherCodesReachableWhileTheIndexGrows(){
+        OffHeapCatalog catalog = new OffHeapCatalog();
+        for(int id = 1; id <= 20_000; id++){
+            catalog.put(product(id, "P-" + id, "shared description", id, id % 7, RON, true));
+        }
+        for(int id = 1; id <= 20_000; id += 3){
+            assertThat(catalog.remove("P-" + id)).isTrue();
+        }
+
+        assertThat(catalog.remove("P-1")).isFalse();
+        assertThat(catalog.size()).isEqualTo(20_000 - 6667);
+        for(int id = 1; id <= 20_000; id++){
+            ProductVO productVO = catalog.get("P-" + id);
+            if(id % 3 == 1){
+                assertThat(productVO).isNull();
+            } else {
+                assertThat(productVO.getId()).isEqualTo(id);
+            }
+        }
+    }
+
+    @Test
+    public void forEach_shouldVisitTheLiveProductsInTheOrderTheyWereAdded(){
+        OffHeapCatalog catalog = new OffHeapCatalog();
+        catalog.put(product(1, "P-1", "a", 1, 1, RON, true));
+        catalog.put(product(2, "P-2", "b", 2, 1, RON, true));
+        catalog.put(product(3, "P-3", "c", 3, 1, RON, true));
+        catalog.remove("P-2");
+        catalog.put(product(2, "P-2", "b", 2, 1, RON, true));
+
+        assertThat(ids(catalog)).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    public void compact_shouldKeepOnlyTheLiveProducts(){
+        OffHeapCatalog catalog = new OffHeapCatalog();
+        for(int id = 1; id <= 1000; id++){
+            catalog.put(product(id, "P-" + id, "description " + id, id, 1, EUR, true));
+        }
+        for(int id = 1; id <= 1000; id += 2){
+            catalog.remove("P-" + id);
+        }
+
+        OffHeapCatalog compacted = catalog.compact();
+
+        assertThat(compacted.size()).isEqualTo(500);
+        assertThat(ids(compacted)).isEqualTo(ids(catalog));
+        assertThat(compacted.get("P-2").getDescription()).isEqualTo("description 2");
+        assertThat(compacted.get("P-1")).isNull();
+        assertThat(catalog.get("P-2")).isNotNull();
+    }
+
+    private static List<Long> ids(OffHeapCatalog catalog) {
+        List<Long> ids = new ArrayList<>();
+        catalog.forEach(productVO -> ids.add(productVO.getId()));
+        return ids;
+    }
+
+    private static Product product(long id, String code, String description, double price, int stock, Currencies currency, boolean valid) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCode(code);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setStock(stock);
+        product.setCurrency(currency);
+        product.setValid(valid);
+        return product;
+    }
+}
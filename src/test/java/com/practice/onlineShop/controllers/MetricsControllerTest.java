@@ -0,0 +1,49 @@
+package com.practice.onlineShop.controllers;
+
+import com.practice.onlineShop.vos.MetricsVO;
+import com.practice.onlineShop.vos.OperationMetricsVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+
+import static com.practice.onlineShop.utils.UtilsComponent.LOCALHOST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpStatus.OK;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "onlineshop.metrics.endpoint.enabled=true")
+class MetricsControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Test
+    public void getMetrics_shouldReportLatenciesAndErrorsPerOperation(){
+        testRestTemplate.getForEntity(LOCALHOST + port + "/product", String.class);
+        testRestTemplate.getForEntity(LOCALHOST + port + "/product/aCodeThatDoesNotExistForMetrics", String.class);
+
+        ResponseEntity<MetricsVO> response = testRestTemplate.getForEntity(LOCALHOST + port + "/metrics", MetricsVO.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(OK);
+        OperationMetricsVO getProducts = findOperation(response.getBody(), "ProductController.getProducts").get();
+        assertThat(getProducts.getCount()).isGreaterThanOrEqualTo(1);
+        assertThat(getProducts.getP999Millis()).isGreaterThanOrEqualTo(getProducts.getP50Millis());
+        OperationMetricsVO getProduct = findOperation(response.getBody(), "ProductService.getProduct").get();
+        assertThat(getProduct.getErrorsByType()).containsKey("InvalidProductCodeException");
+        assertThat(findOperation(response.getBody(), "MetricsController.getMetrics")).isEmpty();
+        assertThat(response.getBody().getCaches()).hasSize(2);
+    }
+
+    private Optional<OperationMetricsVO> findOperation(MetricsVO metricsVO, String operation) {
+        return metricsVO.getOperations().stream()
+                .filter(operationMetricsVO -> operationMetricsVO.getOperation().equals(operation))
+                .findFirst();
+    }
+}
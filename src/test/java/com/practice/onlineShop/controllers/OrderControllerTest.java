@@ -4,9 +4,16 @@ import com.practice.onlineShop.entities.OrderItem;
 import com.practice.onlineShop.entities.Orders;
 import com.practice.onlineShop.entities.Product;
 import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.OrderStatus;
+import com.practice.onlineShop.enums.OrderUpdateStatus;
 import com.practice.onlineShop.enums.Roles;
 import com.practice.onlineShop.repositories.OrderRepository;
+import com.practice.onlineShop.repositories.ProductRepository;
 import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.OrderDetailsVO;
+import com.practice.onlineShop.vos.OrderPageVO;
+import com.practice.onlineShop.vos.OrderResultVO;
+import com.practice.onlineShop.vos.OrderUpdateResultVO;
 import com.practice.onlineShop.vos.OrderVO;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +22,9 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
@@ -25,9 +34,12 @@ import org.springframework.web.client.RestTemplate;
 import javax.transaction.Transactional;
 import java.util.*;
 
+import static com.practice.onlineShop.enums.OrderResultStatus.*;
 import static com.practice.onlineShop.utils.UtilsComponent.LOCALHOST;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 
 @SpringBootTest(webEnvironment =  SpringBootTest.WebEnvironment.RANDOM_PORT)
 class OrderControllerIntegrationTest {
@@ -56,6 +68,9 @@ class OrderControllerIntegrationTest {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private ProductRepository productRepository;
+
     @Test
     @Transactional
     public void addOrder_whenOrderIsValid_shouldAssItToDb(){
@@ -105,6 +120,162 @@ class OrderControllerIntegrationTest {
         assertThat(responseEntity.getBody()).isEqualTo("Utilizatorul nu are permisiunea de a exeuta aceasta operatiune");
 
     }
+    @Test
+    public void addOrder_whenProductIdsAreNotInDb_shouldReportAllOfThem(){
+        Users user = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForMissingIds", "code2ForMissingIds");
+
+        OrderVO orderVO = createOrderVO(user, product);
+        orderVO.getProductsIdsToQuantity().put(999998, 1);
+        orderVO.getProductsIdsToQuantity().put(999999, 1);
+
+        ResponseEntity<String> responseEntity = testRestTemplate.postForEntity(LOCALHOST + port + "/order",orderVO, String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(responseEntity.getBody()).contains("999998").contains("999999");
+    }
+
+    @Test
+    public void addOrder_whenProductsAreMissing_shouldThrowAnException(){
+        Users user = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId((int) user.getId());
+
+        ResponseEntity<String> responseEntity = testRestTemplate.postForEntity(LOCALHOST + port + "/order",orderVO, String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(responseEntity.getBody()).isEqualTo("Comanda dumneavoastra nu continue niciun produs!");
+    }
+
+    @Test
+    public void addOrder_whenAnUnknownProductHasNoQuantity_shouldReportTheInvalidQuantity(){
+        Users user = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId((int) user.getId());
+        orderVO.setProductsIdsToQuantity(Collections.singletonMap(999995, 0));
+
+        ResponseEntity<String> responseEntity = testRestTemplate.postForEntity(LOCALHOST + port + "/order",orderVO, String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(responseEntity.getBody()).isEqualTo("Comanda dumneavoastra nu continue niciun produs!");
+    }
+
+    @Test
+    public void addOrder_whenRepeatedWithTheSameIdempotencyKey_shouldPlaceItOnce(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForIdempotencyKey", "code2ForIdempotencyKey");
+        HttpEntity<OrderVO> request = new HttpEntity<>(createOrderVO(client, product), idempotencyKeyHeader("order-1"));
+
+        ResponseEntity<String> first = testRestTemplate.postForEntity(LOCALHOST + port + "/order", request, String.class);
+        ResponseEntity<String> repeat = testRestTemplate.postForEntity(LOCALHOST + port + "/order", request, String.class);
+
+        assertThat(first.getStatusCode()).isEqualTo(OK);
+        assertThat(repeat.getStatusCode()).isEqualTo(OK);
+        assertThat(orderRepository.findIdsByUser(client.getId(), 0, PageRequest.of(0, 10)).size()).isEqualTo(1);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isZero();
+    }
+
+    @Test
+    public void addOrder_whenIdempotencyKeyIsReusedForAnotherOrder_shouldRejectIt(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForReusedIdempotencyKey", "code2ForReusedIdempotencyKey");
+        Product otherProduct = productRepository.findByCode("code2ForReusedIdempotencyKey").get();
+
+        testRestTemplate.postForEntity(LOCALHOST + port + "/order",
+                new HttpEntity<>(createOrderVO(client, product), idempotencyKeyHeader("order-1")), String.class);
+        ResponseEntity<String> responseEntity = testRestTemplate.postForEntity(LOCALHOST + port + "/order",
+                new HttpEntity<>(createOrderVO(client, otherProduct), idempotencyKeyHeader("order-1")), String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(UNPROCESSABLE_ENTITY);
+        assertThat(productRepository.findById(otherProduct.getId()).get().getStock()).isEqualTo(1);
+    }
+
+    @Test
+    public void addOrder_whenRefusedOrderIsRepeatedWithTheSameIdempotencyKey_shouldGetTheSameRefusal(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForRefusedIdempotencyKey", "code2ForRefusedIdempotencyKey");
+        OrderVO orderVO = createOrderVO(client, product);
+        orderVO.getProductsIdsToQuantity().put(999996, 1);
+        HttpEntity<OrderVO> request = new HttpEntity<>(orderVO, idempotencyKeyHeader("order-1"));
+
+        ResponseEntity<String> first = testRestTemplate.postForEntity(LOCALHOST + port + "/order", request, String.class);
+        ResponseEntity<String> repeat = testRestTemplate.postForEntity(LOCALHOST + port + "/order", request, String.class);
+
+        assertThat(first.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(repeat.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(repeat.getBody()).isEqualTo(first.getBody());
+    }
+
+    @Test
+    public void addOrders_whenOrdersArePlacedOneByOne_shouldReportTheOutcomeOfEachOrder(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForBatchPerOrder", "code2ForBatchPerOrder");
+        OrderVO orderWithUnknownProduct = createOrderVO(client, product);
+        orderWithUnknownProduct.getProductsIdsToQuantity().put(999997, 1);
+
+        List<OrderVO> orderVOs = Arrays.asList(createOrderVO(client, product), createOrderVO(client, product), orderWithUnknownProduct);
+        ResponseEntity<OrderResultVO[]> responseEntity = testRestTemplate.postForEntity(LOCALHOST + port + "/order/batch?mode=PER_ORDER", orderVOs, OrderResultVO[].class);
+
+        OrderResultVO[] results = responseEntity.getBody();
+        assertThat(results[0].getStatus()).isEqualTo(PLACED);
+        assertThat(orderRepository.findById(results[0].getOrderId())).isPresent();
+        assertThat(results[1].getStatus()).isEqualTo(NOT_ENOUGH_STOCK);
+        assertThat(results[2].getStatus()).isEqualTo(INVALID_PRODUCT_IDS);
+        assertThat(results[2].getProductIds().contains(999997)).isTrue();
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isZero();
+    }
+
+    @Test
+    public void addOrders_whenOneProductRunsOutInASingleTransaction_shouldStoreNothing(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForBatchSingleTransaction", "code2ForBatchSingleTransaction");
+        Product otherProduct = productRepository.findByCode("code2ForBatchSingleTransaction").get();
+
+        List<OrderVO> orderVOs = Arrays.asList(createOrderVO(client, product), createOrderVO(client, product), createOrderVO(client, otherProduct));
+        ResponseEntity<OrderResultVO[]> responseEntity = testRestTemplate.postForEntity(LOCALHOST + port + "/order/batch?mode=SINGLE_TRANSACTION", orderVOs, OrderResultVO[].class);
+
+        OrderResultVO[] results = responseEntity.getBody();
+        assertThat(results[0].getStatus()).isEqualTo(NOT_ENOUGH_STOCK);
+        assertThat(results[1].getStatus()).isEqualTo(NOT_ENOUGH_STOCK);
+        assertThat(results[2].getStatus()).isEqualTo(NOT_PLACED);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(1);
+        assertThat(productRepository.findById(otherProduct.getId()).get().getStock()).isEqualTo(1);
+    }
+
+    @Test
+    public void addOrders_whenOneCustomerIsUnknown_shouldReportItForThatOrderOnly(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForBatchWithUnknownUser", "code2ForBatchWithUnknownUser");
+        OrderVO orderOfUnknownUser = createOrderVO(client, product);
+        orderOfUnknownUser.setUserId(999998);
+        OrderVO orderWithoutUser = createOrderVO(client, product);
+        orderWithoutUser.setUserId(null);
+
+        List<OrderVO> orderVOs = Arrays.asList(orderOfUnknownUser, orderWithoutUser, createOrderVO(client, product));
+        ResponseEntity<OrderResultVO[]> responseEntity = testRestTemplate.postForEntity(LOCALHOST + port + "/order/batch?mode=PER_ORDER", orderVOs, OrderResultVO[].class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(OK);
+        OrderResultVO[] results = responseEntity.getBody();
+        assertThat(results[0].getStatus()).isEqualTo(INVALID_CUSTOMER);
+        assertThat(results[1].getStatus()).isEqualTo(INVALID_CUSTOMER);
+        assertThat(results[2].getStatus()).isEqualTo(PLACED);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isZero();
+    }
+
+    @Test
+    public void addOrders_whenOneUserIsNotAClient_shouldRejectTheBatch(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Users admin = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForBatchWithAdmin", "code2ForBatchWithAdmin");
+
+        List<OrderVO> orderVOs = Arrays.asList(createOrderVO(client, product), createOrderVO(admin, product));
+        ResponseEntity<String> responseEntity = testRestTemplate.postForEntity(LOCALHOST + port + "/order/batch", orderVOs, String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(responseEntity.getBody()).isEqualTo("Utilizatorul nu are permisiunea de a exeuta aceasta operatiune");
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(1);
+    }
+
     @Test
     public void deliver_whenHavingAnOrderWhichIsNotCanceled_shouldDeliverItByExpeditor(){
         Users expeditor = utilsComponent.saveUserWithRole(Roles.EXPEDITOR);
@@ -122,7 +293,7 @@ class OrderControllerIntegrationTest {
 
         Orders orderFromDb  = orderRepository.findById(orderWithProducts.getId()).get();
 
-        assertThat( orderFromDb.isDelivered()).isTrue();
+        assertThat( orderFromDb.getStatus()).isEqualTo(OrderStatus.DELIVERED);
     }
 
 
@@ -174,7 +345,7 @@ try {
         Product product = utilsComponent.storeTwoProductsInDatabase("code1ForExpeditorForCanceledOrder", "code2ForExpeditorForCanceledOrder");
 
         Orders orderWithProducts = utilsComponent.generateOrderItems(product, expeditor);
-        orderWithProducts.setCanceled(true);
+        orderWithProducts.setStatus(OrderStatus.CANCELED);
         orderRepository.save(orderWithProducts);
 
         try {
@@ -186,6 +357,72 @@ try {
 
         }
     }
+    @Test
+    public void deliverOrders_whenSomeOrdersAreCanceledOrMissing_shouldReportTheOutcomeOfEachOrder(){
+        Users expeditor = utilsComponent.saveUserWithRole(Roles.EXPEDITOR);
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForBulkDeliver", "code2ForBulkDeliver");
+        Orders placedOrder = utilsComponent.saveOrder(client, product);
+        Orders deliveredOrder = utilsComponent.saveDeliveredOrder(client, product);
+        Orders canceledOrder = utilsComponent.saveCanceledAndDeliveredOrder(client, product);
+        Orders returnedOrder = utilsComponent.saveDeliveredOrder(client, product);
+        restTemplateForPatch.exchange(LOCALHOST + port + "/order/return/" + returnedOrder.getId() + "/" + client.getId(),
+                HttpMethod.PATCH, HttpEntity.EMPTY, Void.class);
+
+        List<Long> orderIds = Arrays.asList(placedOrder.getId(), deliveredOrder.getId(), canceledOrder.getId(), 999999L, returnedOrder.getId());
+        ResponseEntity<OrderUpdateResultVO[]> responseEntity = restTemplateForPatch.exchange(LOCALHOST + port + "/order/deliver/" + expeditor.getId(),
+                HttpMethod.PATCH, new HttpEntity<>(orderIds), OrderUpdateResultVO[].class);
+
+        OrderUpdateResultVO[] results = responseEntity.getBody();
+        assertThat(results[0].getStatus()).isEqualTo(OrderUpdateStatus.DELIVERED);
+        assertThat(results[1].getStatus()).isEqualTo(OrderUpdateStatus.ALREADY_DELIVERED);
+        assertThat(results[2].getStatus()).isEqualTo(OrderUpdateStatus.ALREADY_CANCELED);
+        assertThat(results[3].getStatus()).isEqualTo(OrderUpdateStatus.NOT_FOUND);
+        assertThat(results[4].getStatus()).isEqualTo(OrderUpdateStatus.ALREADY_RETURNED);
+        Orders placedOrderFromDb = orderRepository.findById(placedOrder.getId()).get();
+        assertThat(placedOrderFromDb.getStatus()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(placedOrderFromDb.getVersion()).isEqualTo(placedOrder.getVersion() + 1);
+        assertThat(orderRepository.findById(canceledOrder.getId()).get().getStatus()).isEqualTo(OrderStatus.CANCELED);
+    }
+
+    @Test
+    public void deliverOrders_whenUserIsClient_shouldThrowAnException(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForBulkDeliverByClient", "code2ForBulkDeliverByClient");
+        Orders placedOrder = utilsComponent.saveOrder(client, product);
+
+        try {
+            restTemplateForPatch.exchange(LOCALHOST + port + "/order/deliver/" + client.getId(),
+                    HttpMethod.PATCH, new HttpEntity<>(Collections.singletonList(placedOrder.getId())), String.class);
+        }catch (RestClientException exception){
+            assertThat(exception.getMessage()).isEqualTo("400 : \"Utilizatorul nu are permisiunea de a exeuta aceasta operatiune\"");
+        }
+        assertThat(orderRepository.findById(placedOrder.getId()).get().getStatus()).isEqualTo(OrderStatus.PLACED);
+    }
+
+    @Test
+    public void cancelOrders_whenOneOrderIsReturned_shouldCancelTheOthers(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForBulkCancel", "code2ForBulkCancel");
+        Orders placedOrder = utilsComponent.saveOrder(client, product);
+        Orders returnedOrder = utilsComponent.saveDeliveredOrder(client, product);
+        restTemplateForPatch.exchange(LOCALHOST + port + "/order/return/" + returnedOrder.getId() + "/" + client.getId(),
+                HttpMethod.PATCH, HttpEntity.EMPTY, Void.class);
+
+        Orders canceledOrder = utilsComponent.saveCanceledAndDeliveredOrder(client, product);
+
+        List<Long> orderIds = Arrays.asList(placedOrder.getId(), returnedOrder.getId(), canceledOrder.getId());
+        ResponseEntity<OrderUpdateResultVO[]> responseEntity = restTemplateForPatch.exchange(LOCALHOST + port + "/order/cancel/" + client.getId(),
+                HttpMethod.PATCH, new HttpEntity<>(orderIds), OrderUpdateResultVO[].class);
+
+        OrderUpdateResultVO[] results = responseEntity.getBody();
+        assertThat(results[0].getStatus()).isEqualTo(OrderUpdateStatus.CANCELED);
+        assertThat(results[1].getStatus()).isEqualTo(OrderUpdateStatus.ALREADY_RETURNED);
+        assertThat(results[2].getStatus()).isEqualTo(OrderUpdateStatus.ALREADY_CANCELED);
+        assertThat(orderRepository.findById(placedOrder.getId()).get().getStatus()).isEqualTo(OrderStatus.CANCELED);
+        assertThat(orderRepository.findById(returnedOrder.getId()).get().getStatus()).isEqualTo(OrderStatus.RETURNED);
+    }
+
     @Test
     public void cancel_whenValidOrder_shouldCancelIt(){
 
@@ -199,7 +436,7 @@ try {
 
         Orders orderFromDb  = orderRepository.findById(orderWithProducts.getId()).get();
 
-        assertThat( orderFromDb.isCanceled()).isTrue();
+        assertThat( orderFromDb.getStatus()).isEqualTo(OrderStatus.CANCELED);
     }
     @Test
     public void cancel_whenOrderIsAlreadySent_shouldThrowAnException(){
@@ -207,7 +444,7 @@ try {
         Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
         Product product = utilsComponent.storeTwoProductsInDatabase("code1ForExpeditorForCanceledOrder2", "code2ForExpeditorForCanceledOrder2");
         Orders orderWithProducts = utilsComponent.generateOrderItems(product, client);
-        orderWithProducts.setDelivered(true);
+        orderWithProducts.setStatus(OrderStatus.DELIVERED);
         orderRepository.save(orderWithProducts);
 
         try {
@@ -265,12 +502,27 @@ try {
                 HttpMethod.PATCH, HttpEntity.EMPTY, Void.class);
 
         Orders orderFromDb = orderRepository.findById(orderWithProducts.getId()).get();
-        assertThat(orderFromDb.isReturned()).isTrue();
+        assertThat(orderFromDb.getStatus()).isEqualTo(OrderStatus.RETURNED);
         assertThat(orderFromDb.getOrderItems().get(0).getProduct().getStock()).isEqualTo(product.getStock() + orderWithProducts.getOrderItems().get(0).getQuantity());
     }
 
 
 
+    @Test
+    public void return_whenOrderIsAlreadyReturned_shouldNotAddTheStockAgain(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForReturnTwice", "code2ForReturnTwice");
+        Orders orderWithProducts = utilsComponent.saveDeliveredOrder(client, product);
+
+        for(int i = 0; i < 2; i++){
+            restTemplateForPatch.exchange(LOCALHOST + port + "/order/return/" + orderWithProducts.getId() + "/" + client.getId(),
+                    HttpMethod.PATCH, HttpEntity.EMPTY, Void.class);
+        }
+
+        assertThat(orderRepository.findById(orderWithProducts.getId()).get().getStatus()).isEqualTo(OrderStatus.RETURNED);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(product.getStock() + 1);
+    }
+
     @Test
     public void return_whenOrderisNotDelivered_shouldThrowAnException(){
         Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
@@ -329,6 +581,99 @@ try {
         }
     }
 
+    @Test
+    public void getOrder_whenOrderExists_shouldReturnItsItemsAndStatus(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForGetOrder", "code2ForGetOrder");
+        Orders order = utilsComponent.saveDeliveredOrder(client, product);
+
+        ResponseEntity<OrderDetailsVO> responseEntity = testRestTemplate.getForEntity(LOCALHOST + port + "/order/" + order.getId() + "/" + client.getId(), OrderDetailsVO.class);
+
+        OrderDetailsVO orderDetailsVO = responseEntity.getBody();
+        assertThat(orderDetailsVO.getUserId()).isEqualTo(client.getId());
+        assertThat(orderDetailsVO.getStatus()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(orderDetailsVO.getItems().size()).isEqualTo(1);
+        assertThat(orderDetailsVO.getItems().get(0).getProductCode()).isEqualTo("code1ForGetOrder");
+        assertThat(orderDetailsVO.getItems().get(0).getQuantity()).isEqualTo(order.getOrderItems().get(0).getQuantity());
+    }
+
+    @Test
+    public void getOrder_whenOrderBelongsToAnotherClient_shouldThrowAnException(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Users otherClient = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForGetOrderOfAnotherClient", "code2ForGetOrderOfAnotherClient");
+        Orders order = utilsComponent.saveOrder(client, product);
+
+        ResponseEntity<String> responseEntity = testRestTemplate.getForEntity(LOCALHOST + port + "/order/" + order.getId() + "/" + otherClient.getId(), String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(responseEntity.getBody()).isEqualTo("Utilizatorul nu are permisiunea de a exeuta aceasta operatiune");
+    }
+
+    @Test
+    public void getOrder_whenRequestIsMadeByExpeditor_shouldReturnTheOrderOfAnyClient(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Users expeditor = utilsComponent.saveUserWithRole(Roles.EXPEDITOR);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForGetOrderByExpeditor", "code2ForGetOrderByExpeditor");
+        Orders order = utilsComponent.saveOrder(client, product);
+
+        ResponseEntity<OrderDetailsVO> responseEntity = testRestTemplate.getForEntity(LOCALHOST + port + "/order/" + order.getId() + "/" + expeditor.getId(), OrderDetailsVO.class);
+
+        assertThat(responseEntity.getBody().getId()).isEqualTo(order.getId());
+    }
+
+    @Test
+    public void getOrder_whenOrderDoesNotExist_shouldThrowAnException(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+
+        ResponseEntity<String> responseEntity = testRestTemplate.getForEntity(LOCALHOST + port + "/order/999999/" + client.getId(), String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(responseEntity.getBody()).isEqualTo("Id-ul comenzii nu este valid");
+    }
+
+    @Test
+    public void getOrders_byUserAndStatus_shouldPageThroughTheMatchingOrders(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForGetOrders", "code2ForGetOrders");
+        Orders firstOrder = utilsComponent.saveOrder(client, product);
+        utilsComponent.saveDeliveredOrder(client, product);
+        Orders secondOrder = utilsComponent.saveOrder(client, product);
+        Orders thirdOrder = utilsComponent.saveOrder(client, product);
+
+        String url = LOCALHOST + port + "/order/list/" + client.getId() + "?userId=" + client.getId() + "&status=PLACED&size=2";
+        OrderPageVO firstPage = testRestTemplate.getForEntity(url, OrderPageVO.class).getBody();
+        OrderPageVO secondPage = testRestTemplate.getForEntity(url + "&afterId=" + firstPage.getNextAfterId(), OrderPageVO.class).getBody();
+
+        assertThat(firstPage.getOrders().size()).isEqualTo(2);
+        assertThat(firstPage.getOrders().get(0).getId()).isEqualTo(firstOrder.getId());
+        assertThat(firstPage.getOrders().get(1).getId()).isEqualTo(secondOrder.getId());
+        assertThat(firstPage.getNextAfterId()).isEqualTo(secondOrder.getId());
+        assertThat(secondPage.getOrders().size()).isEqualTo(1);
+        assertThat(secondPage.getOrders().get(0).getId()).isEqualTo(thirdOrder.getId());
+        assertThat(secondPage.getOrders().get(0).getItems().get(0).getProductId()).isEqualTo(product.getId());
+        assertThat(secondPage.getNextAfterId()).isNull();
+    }
+
+
+    @Test
+    public void getOrders_whenClientAsksForTheOrdersOfOthers_shouldThrowAnException(){
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Users otherClient = utilsComponent.saveUserWithRole(Roles.CLIENT);
+
+        ResponseEntity<String> ofAnotherClient = testRestTemplate.getForEntity(LOCALHOST + port + "/order/list/" + client.getId() + "?userId=" + otherClient.getId(), String.class);
+        ResponseEntity<String> ofEveryone = testRestTemplate.getForEntity(LOCALHOST + port + "/order/list/" + client.getId(), String.class);
+
+        assertThat(ofAnotherClient.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(ofEveryone.getStatusCode()).isEqualTo(BAD_REQUEST);
+    }
+
+
+    private HttpHeaders idempotencyKeyHeader(String idempotencyKey) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", idempotencyKey);
+        return headers;
+    }
 
     private OrderVO createOrderVO(Users user, Product product) {
         OrderVO orderVO = new OrderVO();
@@ -0,0 +1,79 @@
+package com.practice.onlineShop.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.stock.StockLedger;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.ProductPageVO;
+import com.practice.onlineShop.vos.ProductVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import static com.practice.onlineShop.utils.UtilsComponent.LOCALHOST;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"onlineshop.stock.engine=LEDGER", "onlineshop.stock.ledger.flush-interval-millis=3600000"})
+class ProductControllerLedgerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void getProductsPage_whenStockIsNotWrittenYet_shouldReturnTheStockOfTheLedger(){
+        Product product = saveProductReservedInTheLedger("aPagedProductOfTheLedger");
+
+        ProductPageVO page = testRestTemplate.getForObject(LOCALHOST + port + "/product/page?size=1&afterId=" + (product.getId() - 1), ProductPageVO.class);
+
+        assertThat(page.getProducts()).extracting(ProductVO::getCode).containsExactly(product.getCode());
+        assertThat(page.getProducts().get(0).getStock()).isEqualTo(7);
+    }
+
+    @Test
+    public void streamProducts_whenStockIsNotWrittenYet_shouldStreamTheStockOfTheLedger() throws Exception {
+        Product product = saveProductReservedInTheLedger("aStreamedProductOfTheLedger");
+
+        String response = testRestTemplate.getForObject(LOCALHOST + port + "/product/stream", String.class);
+
+        ProductVO streamedProduct = null;
+        for(String line : response.split("\n")){
+            ProductVO productVO = objectMapper.readValue(line, ProductVO.class);
+            if(productVO.getCode().equals(product.getCode())){
+                streamedProduct = productVO;
+            }
+        }
+        assertThat(streamedProduct).isNotNull();
+        assertThat(streamedProduct.getStock()).isEqualTo(7);
+    }
+
+    /**
+     * A product with 10 in the db and 7 in the ledger, the reservation of 3 not written behind yet.
+     */
+    private Product saveProductReservedInTheLedger(String code) {
+        Product product = utilsComponent.generateProduct(code);
+        product.setStock(10);
+        productRepository.save(product);
+        assertThat(stockLedger.tryReserve(product.getId(), 3)).isTrue();
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(10);
+        return product;
+    }
+}
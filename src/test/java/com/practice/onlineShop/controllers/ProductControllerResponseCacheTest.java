@@ -0,0 +1,105 @@
+package com.practice.onlineShop.controllers;
+
+import com.practice.onlineShop.catalog.CatalogResponseCache;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.ProductVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static com.practice.onlineShop.utils.UtilsComponent.LOCALHOST;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"onlineshop.catalog.response-cache.enabled=true", "onlineshop.catalog.response-cache.min-rebuild-interval-millis=0"})
+class ProductControllerResponseCacheTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Autowired
+    private CatalogResponseCache catalogResponseCache;
+
+    @Test
+    public void getProducts_shouldServeTheBuiltBodyOfTheCurrentVersion() throws Exception {
+        productRepository.save(utilsComponent.generateProduct("aCachedProduct"));
+        awaitCatalogResponse();
+
+        ProductVO[] products = testRestTemplate.getForObject(LOCALHOST + port + "/product", ProductVO[].class);
+
+        assertThat(products).extracting(ProductVO::getCode).contains("aCachedProduct");
+        assertThat(products).hasSize((int) productRepository.count());
+    }
+
+    @Test
+    public void getProducts_shouldServeTheBodyOfTheCurrentVersionConditionallyAndGzipped() throws Exception {
+        for(int i = 0; i < 30; i++){
+            productRepository.save(utilsComponent.generateProduct("aCachedListedProduct" + i));
+        }
+        String url = LOCALHOST + port + "/product";
+        awaitCatalogResponse();
+        String eTag = testRestTemplate.getForEntity(url, ProductVO[].class).getHeaders().getETag();
+
+        assertThat(testRestTemplate.exchange(url, HttpMethod.GET, ifNoneMatch(eTag), ProductVO[].class).getStatusCode()).isEqualTo(NOT_MODIFIED);
+        productRepository.save(utilsComponent.generateProduct("aCachedListedProductAddedLater"));
+        // read right away, before the new body is built in the background
+        ResponseEntity<ProductVO[]> afterWrite = testRestTemplate.exchange(url, HttpMethod.GET, ifNoneMatch(eTag), ProductVO[].class);
+        assertThat(afterWrite.getStatusCode()).isEqualTo(OK);
+        assertThat(afterWrite.getBody()).extracting(ProductVO::getCode).contains("aCachedListedProductAddedLater");
+        awaitCatalogResponse();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        // a client that does not decompress on its own
+        ResponseEntity<byte[]> response = new RestTemplate().exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        try(InputStreamReader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(response.getBody())), StandardCharsets.UTF_8)){
+            StringBuilder json = new StringBuilder();
+            char[] buffer = new char[4096];
+            for(int read = reader.read(buffer); read != -1; read = reader.read(buffer)){
+                json.append(buffer, 0, read);
+            }
+            assertThat(json.toString()).contains("\"code\":\"aCachedListedProductAddedLater\"");
+        }
+    }
+
+    /**
+     * The body is built in the background, the reads before it are served without it.
+     */
+    private void awaitCatalogResponse() throws InterruptedException {
+        for(int attempt = 0; attempt < 500 && !catalogResponseCache.get().isPresent(); attempt++){
+            Thread.sleep(20);
+        }
+        assertThat(catalogResponseCache.get()).isPresent();
+    }
+
+    private static HttpEntity<Void> ifNoneMatch(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return new HttpEntity<>(headers);
+    }
+}
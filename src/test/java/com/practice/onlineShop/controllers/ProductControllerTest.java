@@ -1,11 +1,14 @@
 package com.practice.onlineShop.controllers;
 
+import com.practice.onlineShop.catalog.CatalogSnapshotStore;
 import com.practice.onlineShop.entities.Address;
 import com.practice.onlineShop.entities.Product;
 import com.practice.onlineShop.entities.Users;
 import com.practice.onlineShop.enums.Roles;
 import com.practice.onlineShop.repositories.ProductRepository;
 import com.practice.onlineShop.repositories.UserRepository;
+import com.practice.onlineShop.vos.ProductFilterPageVO;
+import com.practice.onlineShop.vos.ProductPageVO;
 import com.practice.onlineShop.vos.ProductVO;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,21 +18,31 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import com.practice.onlineShop.utils.UtilsComponent;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static com.practice.onlineShop.enums.Currencies.EUR;
 import static com.practice.onlineShop.enums.Currencies.RON;
 import static com.practice.onlineShop.utils.UtilsComponent.LOCALHOST;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class ProductControllerIntegrationTest {
@@ -62,6 +75,8 @@ class ProductControllerIntegrationTest {
     private UserRepository userRepository;
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private CatalogSnapshotStore catalogSnapshotStore;
 
     @Test
     public void  contextLoads(){
@@ -178,6 +193,36 @@ class ProductControllerIntegrationTest {
         assertThat(products[0].getCode()).contains("aWonderfulCode500");
         assertThat(products[1].getCode()).contains("aWonderfulCode200");
     }
+    @Test
+    public void getProductsPage_whenFollowingTheCursor_shouldReturnEveryProductOnce(){
+        productRepository.deleteAll();
+        utilsComponent.storeTwoProductsInDatabase("aPagedCode1", "aPagedCode2");
+        utilsComponent.storeTwoProductsInDatabase("aPagedCode3", "aPagedCode4");
+
+        List<String> codes = new ArrayList<>();
+        Long afterId = 0L;
+        while(afterId != null){
+            ProductPageVO page = testRestTemplate.getForObject(LOCALHOST + port + "/product/page?size=3&afterId=" + afterId, ProductPageVO.class);
+            page.getProducts().forEach(productVO -> codes.add(productVO.getCode()));
+            afterId = page.getNextAfterId();
+        }
+
+        assertThat(codes).containsExactly("aPagedCode1", "aPagedCode2", "aPagedCode3", "aPagedCode4");
+    }
+
+    @Test
+    public void streamProducts_shouldWriteOneJsonProductPerLine(){
+        productRepository.deleteAll();
+        utilsComponent.storeTwoProductsInDatabase("aStreamedCode1", "aStreamedCode2");
+
+        String response = testRestTemplate.getForObject(LOCALHOST + port + "/product/stream", String.class);
+
+        String[] lines = response.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{").contains("aStreamedCode1");
+        assertThat(lines[1]).startsWith("{").contains("aStreamedCode2");
+    }
+
     @Test
     public void updateProductwhenUserIsAdmin_shouldUpdateTheProduct(){
         Product product = utilsComponent.generateProduct("aProduct");
@@ -287,7 +332,201 @@ class ProductControllerIntegrationTest {
         assertThat(productFromDb.getStock()).isEqualTo(4);
 
     }
+    @Test
+    public void importProducts_whenUserIsAdmin_shouldInsertUpdateAndReportTheInvalidRows(){
+        Product existingProduct = productRepository.save(utilsComponent.generateProduct("anExistingProductForImport"));
+        Users user = utilsComponent.saveUserWithRole(Roles.ADMIN);
 
+        String csv = "code,description,price,currency,stock,valid\n" +
+                "aNewProductForImport,\"new, imported\",150,EUR,5,true\n" +
+                "anExistingProductForImport,updated,250,RON,9,false\n" +
+                "anInvalidProductForImport,invalid,-1,RON,1,true\n";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf("text/csv"));
+
+        ResponseEntity<String> response = testRestTemplate.exchange(LOCALHOST + port + "/product/import/" + user.getId(), HttpMethod.POST,
+                new HttpEntity<>(csv, headers), String.class);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).contains("\"row\":3").contains("anInvalidProductForImport");
+        assertThat(lines[lines.length - 1]).contains("\"inserted\":1", "\"updated\":1", "\"failed\":1", "\"done\":true");
+
+        Product newProduct = productRepository.findByCode("aNewProductForImport").get();
+        assertThat(newProduct.getDescription()).isEqualTo("new, imported");
+        assertThat(newProduct.getPrice()).isEqualTo(150);
+        assertThat(newProduct.getCurrency()).isEqualTo(EUR);
+        assertThat(newProduct.getStock()).isEqualTo(5);
+
+        Product updatedProduct = productRepository.findByCode(existingProduct.getCode()).get();
+        assertThat(updatedProduct.getId()).isEqualTo(existingProduct.getId());
+        assertThat(updatedProduct.getPrice()).isEqualTo(250);
+        assertThat(updatedProduct.getStock()).isEqualTo(9);
+        assertThat(updatedProduct.isValid()).isFalse();
+
+        assertThat(productRepository.findByCode("anInvalidProductForImport")).isNotPresent();
+    }
+    @Test
+    public void importProducts_whenUserIsNotAdmin_shouldReturnBadRequest(){
+        Users user = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf("text/csv"));
 
+        ResponseEntity<String> response = testRestTemplate.exchange(LOCALHOST + port + "/product/import/" + user.getId(), HttpMethod.POST,
+                new HttpEntity<>("code\naProductImportedByAClient\n", headers), String.class);
 
-}
\ No newline at end of file
+        assertThat(response.getStatusCode()).isEqualTo(BAD_REQUEST);
+        assertThat(productRepository.findByCode("aProductImportedByAClient")).isNotPresent();
+    }
+    @Test
+    public void exportProducts_whenFilteredByValidAndCurrency_shouldStreamOnlyTheMatchingProducts(){
+        Product matchingProduct = utilsComponent.generateProduct("anExportedProduct,EUR");
+        matchingProduct.setCurrency(EUR);
+        matchingProduct.setValid(false);
+        productRepository.save(matchingProduct);
+        Product otherProduct = utilsComponent.generateProduct("aProductNotExported");
+        otherProduct.setValid(false);
+        productRepository.save(otherProduct);
+
+        ResponseEntity<String> response = testRestTemplate.getForEntity(LOCALHOST + port + "/product/export?valid=false&currency=EUR", String.class);
+
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("text/csv");
+        String[] lines = response.getBody().split("\r\n");
+        assertThat(lines[0]).isEqualTo("id,code,description,price,currency,stock,valid");
+        assertThat(lines).contains(matchingProduct.getId() + ",\"anExportedProduct,EUR\",a description,100.0,EUR,1,false");
+        assertThat(response.getBody()).doesNotContain(otherProduct.getCode());
+    }
+    @Test
+    public void exportProducts_whenTheClientAcceptsGzip_shouldCompressTheNdjson() throws IOException {
+        Product product = productRepository.save(utilsComponent.generateProduct("aGzipExportedProduct"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        // a client that does not decompress on its own
+        ResponseEntity<byte[]> response = new RestTemplate().exchange(LOCALHOST + port + "/product/export?format=NDJSON", HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        StringBuilder ndjson = new StringBuilder();
+        try(InputStreamReader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(response.getBody())), StandardCharsets.UTF_8)){
+            char[] buffer = new char[4096];
+            for(int read = reader.read(buffer); read != -1; read = reader.read(buffer)){
+                ndjson.append(buffer, 0, read);
+            }
+        }
+        assertThat(ndjson.toString()).contains("\"code\":\"" + product.getCode() + "\"");
+    }
+    @Test
+    public void searchProducts_shouldFindAddedProductsAndForgetDeletedOnes(){
+        Users user = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        ProductVO productVO = new ProductVO();
+        productVO.setCode("aSearchedProduct");
+        productVO.setPrice(100);
+        productVO.setCurrency(RON);
+        productVO.setStock(12);
+        productVO.setDescription("Lampa de birou verde");
+        productVO.setValid(true);
+        testRestTemplate.postForEntity(LOCALHOST + port + "/product/" + user.getId(), productVO, Void.class);
+
+        ProductVO[] products = testRestTemplate.getForObject(LOCALHOST + port + "/product/search?q=birou ver", ProductVO[].class);
+        assertThat(products).extracting(ProductVO::getCode).containsExactly("aSearchedProduct");
+        assertThat(products[0].getDescription()).isEqualTo("Lampa de birou verde");
+
+        testRestTemplate.delete(LOCALHOST + port + "/product/aSearchedProduct/" + user.getId());
+
+        assertThat(testRestTemplate.getForObject(LOCALHOST + port + "/product/search?q=birou ver", ProductVO[].class)).isEmpty();
+    }
+
+    @Test
+    public void filterProducts_shouldPageThroughTheMatchesOfTheRefreshedSnapshot(){
+        Users user = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        String[] codes = {"aFilteredProduct", "aSoldOutFilteredProduct", "aFilteredProductInEuro"};
+        int[] stocks = {5, 0, 5};
+        for(int i = 0; i < codes.length; i++){
+            ProductVO productVO = new ProductVO();
+            productVO.setCode(codes[i]);
+            productVO.setPrice(7001 + i);
+            productVO.setCurrency(i == 2 ? EUR : RON);
+            productVO.setStock(stocks[i]);
+            productVO.setDescription("filtered product");
+            productVO.setValid(true);
+            testRestTemplate.postForEntity(LOCALHOST + port + "/product/" + user.getId(), productVO, Void.class);
+        }
+        catalogSnapshotStore.refresh();
+
+        ProductFilterPageVO page = testRestTemplate.getForObject(LOCALHOST + port + "/product/filter?minPrice=7000&maxPrice=7010&size=2", ProductFilterPageVO.class);
+        assertThat(page.getTotalCount()).isEqualTo(3);
+        assertThat(page.getProducts()).extracting(ProductVO::getCode).containsExactly("aFilteredProduct", "aSoldOutFilteredProduct");
+        ProductFilterPageVO lastPage = testRestTemplate.getForObject(LOCALHOST + port + "/product/filter?minPrice=7000&maxPrice=7010&size=2&afterId=" + page.getNextAfterId(), ProductFilterPageVO.class);
+        assertThat(lastPage.getProducts()).extracting(ProductVO::getCode).containsExactly("aFilteredProductInEuro");
+        assertThat(lastPage.getNextAfterId()).isNull();
+
+        String inStockInRon = LOCALHOST + port + "/product/filter?minPrice=7000&maxPrice=7010&currency=RON&inStock=true";
+        assertThat(testRestTemplate.getForObject(inStockInRon, ProductFilterPageVO.class).getProducts())
+                .extracting(ProductVO::getCode).containsExactly("aFilteredProduct");
+
+        testRestTemplate.delete(LOCALHOST + port + "/product/aFilteredProduct/" + user.getId());
+        catalogSnapshotStore.refresh();
+
+        ProductFilterPageVO afterDelete = testRestTemplate.getForObject(inStockInRon, ProductFilterPageVO.class);
+        assertThat(afterDelete.getProducts()).isEmpty();
+        assertThat(afterDelete.getTotalCount()).isZero();
+    }
+
+    @Test
+    public void getProduct_whenTheETagStillMatches_shouldAnswerNotModifiedUntilTheProductChanges(){
+        Product product = productRepository.save(utilsComponent.generateProduct("aConditionallyReadProduct"));
+        Users user = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        String url = LOCALHOST + port + "/product/" + product.getCode();
+
+        ResponseEntity<ProductVO> first = testRestTemplate.getForEntity(url, ProductVO.class);
+        String eTag = first.getHeaders().getETag();
+        assertThat(eTag).startsWith("W/\"");
+        assertThat(first.getHeaders().getCacheControl()).isEqualTo("no-cache");
+
+        ResponseEntity<ProductVO> unchanged = testRestTemplate.exchange(url, HttpMethod.GET, ifNoneMatch(eTag), ProductVO.class);
+        assertThat(unchanged.getStatusCode()).isEqualTo(NOT_MODIFIED);
+        assertThat(unchanged.getBody()).isNull();
+
+        restTemplateForPatch.exchange(LOCALHOST + port + "/product/" + product.getCode() + "/3/" + user.getId(), HttpMethod.PATCH, HttpEntity.EMPTY, Void.class);
+
+        ResponseEntity<ProductVO> changed = testRestTemplate.exchange(url, HttpMethod.GET, ifNoneMatch(eTag), ProductVO.class);
+        assertThat(changed.getStatusCode()).isEqualTo(OK);
+        assertThat(changed.getBody().getStock()).isEqualTo(product.getStock() + 3);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void getProducts_shouldBeConditionalOnTheWholeCatalogAndGzipped() throws IOException {
+        for(int i = 0; i < 30; i++){
+            productRepository.save(utilsComponent.generateProduct("aListedProduct" + i));
+        }
+        String url = LOCALHOST + port + "/product";
+        String eTag = testRestTemplate.getForEntity(url, ProductVO[].class).getHeaders().getETag();
+
+        assertThat(testRestTemplate.exchange(url, HttpMethod.GET, ifNoneMatch(eTag), ProductVO[].class).getStatusCode()).isEqualTo(NOT_MODIFIED);
+        productRepository.save(utilsComponent.generateProduct("aListedProductAddedLater"));
+        assertThat(testRestTemplate.exchange(url, HttpMethod.GET, ifNoneMatch(eTag), ProductVO[].class).getStatusCode()).isEqualTo(OK);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        // a client that does not decompress on its own
+        ResponseEntity<byte[]> response = new RestTemplate().exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        try(InputStreamReader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(response.getBody())), StandardCharsets.UTF_8)){
+            StringBuilder json = new StringBuilder();
+            char[] buffer = new char[4096];
+            for(int read = reader.read(buffer); read != -1; read = reader.read(buffer)){
+                json.append(buffer, 0, read);
+            }
+            assertThat(json.toString()).contains("\"code\":\"aListedProductAddedLater\"");
+        }
+    }
+
+    private static HttpEntity<Void> ifNoneMatch(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return new HttpEntity<>(headers);
+    }
+}
@@ -0,0 +1,49 @@
+package com.practice.onlineShop.exports;
+
+import com.practice.onlineShop.imports.CsvProductRowReader;
+import com.practice.onlineShop.imports.ProductRow;
+import com.practice.onlineShop.vos.ProductVO;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static com.practice.onlineShop.enums.Currencies.EUR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvProductRowWriterTest {
+
+    @Test
+    public void write_whenTextHoldsCommasQuotesOrLineBreaks_shouldQuoteItSoTheImportReadsItBack() throws Exception {
+        ProductVO product = new ProductVO();
+        product.setId(7);
+        product.setCode("aCode");
+        product.setDescription("a, \"quoted\"\ndescription");
+        product.setPrice(12.5);
+        product.setCurrency(EUR);
+        product.setStock(3);
+        product.setValid(true);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CsvProductRowWriter writer = new CsvProductRowWriter(outputStream);
+        writer.write(product);
+        writer.finish();
+
+        String csv = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(csv).isEqualTo(CsvProductRowWriter.HEADER + "\r\n7,aCode,\"a, \"\"quoted\"\"\ndescription\",12.5,EUR,3,true\r\n");
+
+        ProductRow row = new CsvProductRowReader(new StringReader(csv)).next();
+        assertThat(row.get("code")).isEqualTo("aCode");
+        assertThat(row.get("description")).isEqualTo(product.getDescription());
+        assertThat(row.get("price")).isEqualTo("12.5");
+    }
+
+    @Test
+    public void finish_whenNothingWasWritten_shouldWriteTheHeader() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new CsvProductRowWriter(outputStream).finish();
+
+        assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(CsvProductRowWriter.HEADER + "\r\n");
+    }
+}
@@ -0,0 +1,116 @@
+package com.practice.onlineShop.idempotency;
+
+import com.practice.onlineShop.enums.OrderResultStatus;
+import com.practice.onlineShop.exceptions.IdempotencyKeyInUseException;
+import com.practice.onlineShop.exceptions.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryIdempotencyStoreTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(100, TimeUnit.HOURS.toNanos(1), 10_000, now::get);
+
+    @Test
+    public void claim_whenManyThreadsSendTheSameKey_shouldRunItOnce() throws Exception {
+        int threads = 16;
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<IdempotentOutcome>> requests = new ArrayList<>();
+        for(int thread = 0; thread < threads; thread++){
+            String owner = "owner-" + thread;
+            requests.add(executorService.submit(() -> {
+                start.await();
+                Optional<IdempotentOutcome> outcome = store.claim("1:order-1", owner, "fingerprint");
+                if(outcome.isPresent()){
+                    return outcome.get();
+                }
+                runs.incrementAndGet();
+                Thread.sleep(50);
+                store.complete("1:order-1", owner, IdempotentOutcome.PLACED);
+                return IdempotentOutcome.PLACED;
+            }));
+        }
+
+        start.countDown();
+        for(Future<IdempotentOutcome> request : requests){
+            assertThat(request.get(1, TimeUnit.MINUTES).getStatus()).isEqualTo(OrderResultStatus.PLACED);
+        }
+        executorService.shutdown();
+
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void claim_whenFingerprintDiffers_shouldThrowAnException() throws Exception {
+        store.claim("1:order-1", "owner", "fingerprint");
+        store.complete("1:order-1", "owner", IdempotentOutcome.PLACED);
+
+        assertThatThrownBy(() -> store.claim("1:order-1", "other owner", "other fingerprint")).isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+
+    @Test
+    public void claim_whenKeyIsReleased_shouldLetAWaitingRequestRunIt() throws Exception {
+        store.claim("1:order-1", "owner", "fingerprint");
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<Optional<IdempotentOutcome>> repeat = executorService.submit(() -> store.claim("1:order-1", "other owner", "fingerprint"));
+
+        Thread.sleep(50);
+        store.release("1:order-1", "owner");
+
+        assertThat(repeat.get(1, TimeUnit.MINUTES)).isEmpty();
+        executorService.shutdown();
+    }
+
+    @Test
+    public void complete_whenCallerIsNotTheOwner_shouldLeaveTheClaimAlone() throws Exception {
+        InMemoryIdempotencyStore impatientStore = new InMemoryIdempotencyStore(100, TimeUnit.HOURS.toNanos(1), 20, now::get);
+        impatientStore.claim("1:order-1", "owner", "fingerprint");
+
+        impatientStore.complete("1:order-1", "other owner", IdempotentOutcome.PLACED);
+        impatientStore.release("1:order-1", "other owner");
+
+        assertThatThrownBy(() -> impatientStore.claim("1:order-1", "other owner", "fingerprint")).isInstanceOf(IdempotencyKeyInUseException.class);
+    }
+
+    @Test
+    public void claim_whenFirstRequestRunsPastTheTimeout_shouldThrowAnException() throws Exception {
+        InMemoryIdempotencyStore impatientStore = new InMemoryIdempotencyStore(100, TimeUnit.HOURS.toNanos(1), 20, now::get);
+        impatientStore.claim("1:order-1", "owner", "fingerprint");
+
+        assertThatThrownBy(() -> impatientStore.claim("1:order-1", "other owner", "fingerprint")).isInstanceOf(IdempotencyKeyInUseException.class);
+    }
+
+    @Test
+    public void claim_whenOutcomeIsExpired_shouldRunTheRequestAgain() throws Exception {
+        store.claim("1:order-1", "owner", "fingerprint");
+        store.complete("1:order-1", "owner", new IdempotentOutcome(OrderResultStatus.NOT_ENOUGH_STOCK, Collections.singletonList(3)));
+
+        assertThat(store.claim("1:order-1", "other owner", "fingerprint").get().getProductIds()).containsExactly(3);
+        now.addAndGet(TimeUnit.HOURS.toNanos(2));
+        assertThat(store.claim("1:order-1", "other owner", "fingerprint")).isEmpty();
+    }
+
+    @Test
+    public void claim_whenStoreIsFull_shouldEvictFinishedKeysOnly() throws Exception {
+        store.claim("in-flight", "owner", "fingerprint");
+        for(int key = 0; key < 150; key++){
+            store.claim("key-" + key, "owner", "fingerprint");
+            store.complete("key-" + key, "owner", IdempotentOutcome.PLACED);
+        }
+
+        assertThat(store.size()).isLessThanOrEqualTo(100);
+        assertThatThrownBy(() -> store.claim("in-flight", "other owner", "other fingerprint")).isInstanceOf(IdempotencyKeyReusedException.class);
+    }
+}
@@ -0,0 +1,69 @@
+package com.practice.onlineShop.idempotency;
+
+import com.practice.onlineShop.enums.OrderResultStatus;
+import com.practice.onlineShop.exceptions.IdempotencyKeyInUseException;
+import com.practice.onlineShop.repositories.IdempotencyKeyJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "onlineshop.order.idempotency.store=DATABASE")
+class JdbcIdempotencyStoreTest {
+
+    private static final long ABANDONED_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private IdempotencyKeyJdbcRepository idempotencyKeyJdbcRepository;
+
+    private JdbcIdempotencyStore store;
+    private String key;
+
+    @BeforeEach
+    public void setUp() {
+        store = new JdbcIdempotencyStore(idempotencyKeyJdbcRepository, 24, 50, ABANDONED_AFTER_MILLIS);
+        key = "1:" + UUID.randomUUID();
+    }
+
+    @Test
+    public void claim_whenFirstRequestRunsPastTheTimeout_shouldThrowAnExceptionAndKeepItsClaim() throws Exception {
+        store.claim(key, "owner", "fingerprint");
+
+        assertThatThrownBy(() -> store.claim(key, "other owner", "fingerprint")).isInstanceOf(IdempotencyKeyInUseException.class);
+        assertThat(idempotencyKeyJdbcRepository.find(key).get().getClaimedBy()).isEqualTo("owner");
+
+        store.complete(key, "owner", IdempotentOutcome.PLACED);
+        assertThat(store.claim(key, "other owner", "fingerprint").get().getStatus()).isEqualTo(OrderResultStatus.PLACED);
+    }
+
+    @Test
+    public void claim_whenKeyIsAbandoned_shouldTakeItOverFromItsOwner() throws Exception {
+        idempotencyKeyJdbcRepository.insert(key, "owner", "fingerprint", System.currentTimeMillis() - ABANDONED_AFTER_MILLIS - 1);
+
+        assertThat(store.claim(key, "other owner", "fingerprint")).isEmpty();
+        assertThat(store.complete(key, "owner", new IdempotentOutcome(OrderResultStatus.NOT_ENOUGH_STOCK, Collections.singletonList(3)))).isFalse();
+        store.release(key, "owner");
+        assertThat(store.complete(key, "other owner", IdempotentOutcome.PLACED)).isTrue();
+
+        assertThat(store.claim(key, "third owner", "fingerprint").get().getStatus()).isEqualTo(OrderResultStatus.PLACED);
+    }
+
+    @Test
+    public void release_whenCallerIsNotTheOwner_shouldLeaveTheClaimAlone() throws Exception {
+        store.claim(key, "owner", "fingerprint");
+
+        store.release(key, "other owner");
+        assertThat(idempotencyKeyJdbcRepository.complete(key, "other owner", OrderResultStatus.PLACED, "")).isFalse();
+
+        assertThat(idempotencyKeyJdbcRepository.find(key).get().getStatus()).isNull();
+        store.release(key, "owner");
+        assertThat(idempotencyKeyJdbcRepository.find(key)).isEmpty();
+    }
+}
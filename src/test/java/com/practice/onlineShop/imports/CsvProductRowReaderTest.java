@@ -0,0 +1,55 @@
+package com.practice.onlineShop.imports;
+
+import com.practice.onlineShop.exceptions.InvalidProductImportFileException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvProductRowReaderTest {
+
+    @Test
+    public void next_whenFieldsAreQuoted_shouldKeepCommasLineBreaksAndQuotes() throws Exception {
+        CsvProductRowReader reader = new CsvProductRowReader(new StringReader(
+                "price,code,description\r\n10,aCode,\"a, \"\"quoted\"\"\r\ndescription\"\r\n\r\n20,otherCode,plain\n"));
+
+        ProductRow first = reader.next();
+        assertThat(first.getNumber()).isEqualTo(1);
+        assertThat(first.get("code")).isEqualTo("aCode");
+        assertThat(first.get("price")).isEqualTo("10");
+        assertThat(first.get("description")).isEqualTo("a, \"quoted\"\r\ndescription");
+
+        ProductRow second = reader.next();
+        assertThat(second.getNumber()).isEqualTo(3);
+        assertThat(second.get("code")).isEqualTo("otherCode");
+        assertThat(second.get("description")).isEqualTo("plain");
+
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    public void next_whenAFieldIsMissing_shouldReturnNullForIt() throws Exception {
+        CsvProductRowReader reader = new CsvProductRowReader(new StringReader("code,stock\naCode"));
+
+        ProductRow row = reader.next();
+        assertThat(row.get("code")).isEqualTo("aCode");
+        assertThat(row.get("stock")).isNull();
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    public void next_whenAQuoteIsNotClosed_shouldThrowAnException() throws Exception {
+        CsvProductRowReader reader = new CsvProductRowReader(new StringReader("code,description\naCode,\"not closed"));
+
+        assertThatThrownBy(reader::next).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void newReader_whenTheHeaderHasNoCode_shouldThrowAnException() {
+        assertThatThrownBy(() -> new CsvProductRowReader(new StringReader("description,price\nsomething,10\n")))
+                .isInstanceOf(InvalidProductImportFileException.class);
+    }
+}
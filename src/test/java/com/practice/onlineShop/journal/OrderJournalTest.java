@@ -0,0 +1,148 @@
+package com.practice.onlineShop.journal;
+
+import com.practice.onlineShop.repositories.OrderRepository;
+import com.practice.onlineShop.vos.OrderVO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void append_whenManyThreadsShareTheFsyncs_shouldHandOutEverySequenceOnce() throws Exception {
+        OrderJournal orderJournal = open(null, true);
+        int threads = 8;
+        int ordersPerThread = 250;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for(int thread = 0; thread < threads; thread++){
+            int userId = thread;
+            futures.add(executorService.submit(() -> {
+                List<Long> sequences = new ArrayList<>();
+                for(int i = 0; i < ordersPerThread; i++){
+                    sequences.add(orderJournal.append(order(userId, i + 1, 1)));
+                }
+                return sequences;
+            }));
+        }
+        Set<Long> sequences = new HashSet<>();
+        for(Future<List<Long>> future : futures){
+            sequences.addAll(future.get(1, TimeUnit.MINUTES));
+        }
+        executorService.shutdown();
+
+        assertThat(sequences).hasSize(threads * ordersPerThread);
+        assertThat(orderJournal.getDurableSequence()).isEqualTo(threads * ordersPerThread);
+        List<JournalEntry> entries = readAll(orderJournal);
+        assertThat(entries).hasSize(threads * ordersPerThread);
+        for(int i = 0; i < entries.size(); i++){
+            assertThat(entries.get(i).getSequence()).isEqualTo(i + 1);
+        }
+    }
+
+    @Test
+    public void read_shouldFollowTheOrdersIntoTheNextSegmentsAndDeleteTheOnesLeftBehind() throws Exception {
+        OrderJournal orderJournal = open(null, false);
+        int orderCount = 60_000;
+        for(int i = 1; i <= orderCount; i++){
+            orderJournal.append(order(i, i, i % 10 + 1));
+        }
+        assertThat(orderJournal.getSegmentCount()).isGreaterThan(1);
+
+        List<JournalEntry> entries = new ArrayList<>();
+        OrderJournal.Cursor cursor = orderJournal.read(orderJournal.start(), orderCount + 1, entries);
+        orderJournal.deleteBefore(cursor);
+
+        assertThat(entries).hasSize(orderCount);
+        assertThat(entries.get(41_999).getSequence()).isEqualTo(42_000);
+        assertThat(entries.get(41_999).getOrderVO().getUserId()).isEqualTo(42_000);
+        assertThat(entries.get(41_999).getOrderVO().getProductsIdsToQuantity()).containsOnly(entry(42_000, 1));
+        assertThat(orderJournal.getSegmentCount()).isEqualTo(1);
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    @Test
+    public void open_shouldDropATornRecordAndGoOnAfterTheLastWholeOne() throws Exception {
+        OrderJournal orderJournal = open(null, true);
+        for(int i = 1; i <= 3; i++){
+            orderJournal.append(order(i, i, 1));
+        }
+        // a crash in the middle of the fourth record: its length is there, the rest is not
+        int end = JournalSegment.HEADER_SIZE + 3 * (JournalSegment.RECORD_HEADER_SIZE + 16);
+        try(RandomAccessFile file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")){
+            file.seek(end);
+            file.writeInt(16);
+            file.writeInt(12345);
+        }
+
+        OrderJournal reopened = open(null, true);
+        assertThat(readAll(reopened)).extracting(JournalEntry::getSequence).containsExactly(1L, 2L, 3L);
+
+        assertThat(reopened.append(order(4, 4, 1))).isEqualTo(4);
+        assertThat(readAll(reopened)).extracting(JournalEntry::getSequence).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    public void open_whenTheOrdersTableIsAhead_shouldNotRepeatItsSequences() throws Exception {
+        OrderJournal orderJournal = open(null, true);
+        orderJournal.append(order(1, 1, 1));
+
+        OrderJournal reopened = open(10L, true);
+
+        assertThat(reopened.append(order(2, 2, 1))).isEqualTo(11);
+        assertThat(readAll(reopened)).extracting(JournalEntry::getSequence).containsExactly(1L, 11L);
+    }
+
+    private OrderJournal open(Long appliedSequence, boolean fsync) throws Exception {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findMaxJournalSequence()).thenReturn(appliedSequence);
+        OrderJournal orderJournal = new OrderJournal(orderRepository, directory.toString(), 1, fsync);
+        orderJournal.open();
+        return orderJournal;
+    }
+
+    private static List<JournalEntry> readAll(OrderJournal orderJournal) {
+        List<JournalEntry> entries = new ArrayList<>();
+        orderJournal.read(orderJournal.start(), Integer.MAX_VALUE, entries);
+        return entries;
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try(Stream<Path> files = Files.list(directory)){
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static OrderVO order(int userId, int productId, int quantity) {
+        Map<Integer, Integer> productsIdsToQuantity = new LinkedHashMap<>();
+        productsIdsToQuantity.put(productId, quantity);
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId(userId);
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+        return orderVO;
+    }
+}
@@ -0,0 +1,60 @@
+package com.practice.onlineShop.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    public void getValueAtPercentile_shouldStayWithinTheBucketPrecision(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long micros = 1; micros <= 10_000; micros++){
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(10_000);
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(5_000_000, within(5_000_000 * 0.04));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(9_900_000, within(9_900_000 * 0.04));
+        assertThat((double) histogram.getValueAtPercentile(99.9)).isCloseTo(9_990_000, within(9_990_000 * 0.04));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(10_000_000);
+        assertThat(histogram.getMaxNanos()).isEqualTo(10_000_000);
+    }
+
+    @Test
+    public void getBucketIndex_shouldCoverEveryValueWithContiguousBuckets(){
+        for(long value = 0; value < 1_000_000; value++){
+            int index = LatencyHistogram.getBucketIndex(value);
+            assertThat(LatencyHistogram.getHighestValueInBucket(index)).isGreaterThanOrEqualTo(value);
+            if(index > 0){
+                assertThat(LatencyHistogram.getHighestValueInBucket(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    public void record_whenValueIsOutOfRange_shouldClampIt(){
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.getCount()).isEqualTo(2);
+        assertThat(histogram.getValueAtPercentile(0)).isZero();
+        assertThat(histogram.getMaxNanos()).isEqualTo(LatencyHistogram.MAX_TRACKABLE_NANOS);
+    }
+
+    @Test
+    public void reset_shouldForgetTheRecordedValues(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+
+        histogram.reset();
+
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getValueAtPercentile(99)).isZero();
+    }
+}
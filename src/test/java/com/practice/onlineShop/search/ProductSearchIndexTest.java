@@ -0,0 +1,95 @@
+package com.practice.onlineShop.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex(null);
+
+    @Test
+    public void tokenize_shouldLowercaseStripDiacriticsAndSplitOnPunctuation(){
+        assertThat(ProductSearchIndex.tokenize("Șosete-LÂNĂ, 40/42")).containsExactly("sosete", "lana", "40", "42");
+    }
+
+    @Test
+    public void search_shouldMatchEveryTermAsAWordOrAPrefix(){
+        index.index("SOCK-1", "wool socks, grey");
+        index.index("SOCK-2", "cotton socks");
+        index.index("HAT-1", "wool hat");
+
+        assertThat(index.search("wool", 10)).containsExactlyInAnyOrder("SOCK-1", "HAT-1");
+        assertThat(index.search("wool so", 10)).containsExactly("SOCK-1");
+        assertThat(index.search("cot", 10)).containsExactly("SOCK-2");
+        assertThat(index.search("wool silk", 10)).isEmpty();
+        assertThat(index.search(" ,. ", 10)).isEmpty();
+    }
+
+    @Test
+    public void search_shouldRankCodeMatchesAndWholeWordsFirst(){
+        index.index("LAMP-1", "a lamp");
+        index.index("DESK-1", "desk lamp");
+        index.index("SHADE-1", "lampshade");
+
+        assertThat(index.search("lamp", 10)).containsExactly("LAMP-1", "DESK-1", "SHADE-1");
+        assertThat(index.search("lamp", 2)).containsExactly("LAMP-1", "DESK-1");
+    }
+
+    @Test
+    public void search_whenAProductMatchesAWordAndItsPrefix_shouldReturnItOnce(){
+        index.index("LAMP-2", "lamp with lampshade");
+
+        assertThat(index.search("lamp", 10)).containsExactly("LAMP-2");
+    }
+
+    @Test
+    public void search_withASmallLimit_shouldReturnTheHeadOfTheFullRanking(){
+        for(int i = 0; i < 2000; i++){
+            StringBuilder description = new StringBuilder("chair");
+            for(int j = 0; j < i % 7; j++){
+                description.append(" word").append(j);
+            }
+            index.index("CHAIR-" + i, i % 3 == 0 ? description + " chairs" : description.toString());
+        }
+
+        List<String> fullRanking = index.search("chair", 2000);
+        assertThat(fullRanking).hasSize(2000).doesNotHaveDuplicates();
+        assertThat(index.search("chair", 10)).isEqualTo(fullRanking.subList(0, 10));
+        assertThat(index.search("chair", 100)).isEqualTo(fullRanking.subList(0, 100));
+    }
+
+    @Test
+    public void index_whenTheProductChangesOrIsRemoved_shouldOnlyFindItsCurrentText(){
+        index.index("CUP-1", "red cup");
+        index.index("CUP-1", "blue cup");
+
+        assertThat(index.search("red", 10)).isEmpty();
+        assertThat(index.search("blue", 10)).containsExactly("CUP-1");
+
+        index.remove("CUP-1");
+
+        assertThat(index.search("cup", 10)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    public void index_afterManyUpdates_shouldRenumberAndKeepFindingTheProducts(){
+        for(int i = 0; i < 100; i++){
+            index.index("KEPT-" + i, "kept product");
+        }
+        for(int round = 0; round < 50; round++){
+            for(int i = 0; i < 100; i++){
+                index.index("CHANGED-" + i, "changed product round" + round);
+            }
+        }
+
+        assertThat(index.size()).isEqualTo(200);
+        assertThat(index.search("kept", 1000)).hasSize(100);
+        assertThat(index.search("round49", 1000)).hasSize(100);
+        assertThat(index.search("round48", 1000)).isEmpty();
+        assertThat(index.search("product", 1000)).hasSize(200);
+    }
+}
@@ -0,0 +1,103 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.exceptions.IdempotencyKeyInUseException;
+import com.practice.onlineShop.journal.OrderJournal;
+import com.practice.onlineShop.journal.OrderJournalApplier;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.OrderVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(properties = {
+        "onlineshop.order.idempotency.store=DATABASE",
+        "onlineshop.order.idempotency.in-flight-timeout-millis=300",
+        "onlineshop.order.write-mode=JOURNAL",
+        "onlineshop.order.journal.directory=target/order-journal-test/${random.uuid}",
+        "onlineshop.order.journal.segment-size-mb=1",
+        "onlineshop.order.journal.apply-interval-millis=60000"})
+class IdempotentJournalOrderTest {
+
+    @Autowired
+    private IdempotentOrderService idempotentOrderService;
+
+    @SpyBean
+    private OrderJournal orderJournal;
+
+    @Autowired
+    private OrderJournalApplier orderJournalApplier;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Test
+    public void addOrder_whenTheAppendFails_shouldNeverAnswerARepeatThatTheOrderWasPlaced() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.generateProduct("aJournaledIdempotentProduct");
+        product.setStock(10);
+        productRepository.save(product);
+        orderJournalApplier.apply();
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Throwable[] repeatOutcome = new Throwable[1];
+        // the repeat comes in after the stock reservation committed and before the append fails
+        doAnswer(invocation -> {
+            Future<?> repeat = executorService.submit(() -> {
+                idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2));
+                return null;
+            });
+            repeatOutcome[0] = catchThrowable(() -> repeat.get(1, TimeUnit.MINUTES));
+            throw new UncheckedIOException(new IOException("the journal disk is full"));
+        }).doCallRealMethod().when(orderJournal).append(any(OrderVO.class));
+
+        assertThatThrownBy(() -> idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2)))
+                .isInstanceOf(UncheckedIOException.class);
+        executorService.shutdown();
+
+        assertThat(repeatOutcome[0]).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IdempotencyKeyInUseException.class);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(10);
+
+        idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2));
+        idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2));
+
+        assertThat(orderJournalApplier.apply()).isEqualTo(1);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(8);
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders()).hasSize(1);
+    }
+
+    private OrderVO createOrderVO(Users user, Product product, int quantity) {
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId((int) user.getId());
+        Map<Integer, Integer> productsIdsToQuantity = new HashMap<>();
+        productsIdsToQuantity.put((int) product.getId(), quantity);
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+        return orderVO;
+    }
+}
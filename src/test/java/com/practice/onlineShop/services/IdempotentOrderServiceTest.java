@@ -0,0 +1,152 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.exceptions.IdempotencyKeyReusedException;
+import com.practice.onlineShop.exceptions.InvalidIdempotencyKeyException;
+import com.practice.onlineShop.exceptions.NotEnoughStockException;
+import com.practice.onlineShop.idempotency.IdempotentOutcome;
+import com.practice.onlineShop.idempotency.JdbcIdempotencyStore;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.OrderVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = "onlineshop.order.idempotency.store=DATABASE")
+class IdempotentOrderServiceTest {
+
+    @Autowired
+    private IdempotentOrderService idempotentOrderService;
+
+    @SpyBean
+    private JdbcIdempotencyStore jdbcIdempotencyStore;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Test
+    public void addOrder_whenTheSameKeyIsSentAtOnce_shouldPlaceTheOrderOnce() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = saveProductWithStock("anIdempotentProduct", 10);
+
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> requests = new ArrayList<>();
+        for(int thread = 0; thread < threads; thread++){
+            requests.add(executorService.submit(() -> {
+                start.await();
+                idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2));
+                return null;
+            }));
+        }
+        start.countDown();
+        for(Future<?> request : requests){
+            request.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(8);
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders()).hasSize(1);
+    }
+
+    @Test
+    public void addOrder_whenRefusedOrderIsRepeated_shouldReplayTheRefusalWithoutCheckingTheStockAgain() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = saveProductWithStock("aScarceIdempotentProduct", 1);
+
+        assertThatThrownBy(() -> idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2)))
+                .isInstanceOf(NotEnoughStockException.class);
+        product.setStock(10);
+        productRepository.save(product);
+
+        assertThatThrownBy(() -> idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2)))
+                .isInstanceOf(NotEnoughStockException.class);
+        assertThatThrownBy(() -> idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 3)))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(10);
+    }
+
+    @Test
+    public void addOrder_whenTheOutcomeCannotBeStored_shouldRollBackTheOrderSoTheRetryPlacesItOnce() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = saveProductWithStock("anUnrecordedIdempotentProduct", 10);
+        doThrow(new DataAccessResourceFailureException("the idempotency_key table is not reachable"))
+                .doCallRealMethod()
+                .when(jdbcIdempotencyStore).complete(endsWith(":order-1"), anyString(), eq(IdempotentOutcome.PLACED));
+
+        assertThatThrownBy(() -> idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2)))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(10);
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders()).isEmpty();
+
+        idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2));
+        idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 2));
+
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(8);
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders()).hasSize(1);
+    }
+
+    @Test
+    public void addOrder_whenKeyIsBlank_shouldThrowAnException() {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = saveProductWithStock("aBlankKeyProduct", 1);
+
+        assertThatThrownBy(() -> idempotentOrderService.addOrder(" ", createOrderVO(client, product, 1)))
+                .isInstanceOf(InvalidIdempotencyKeyException.class);
+    }
+
+    @Test
+    public void purge_shouldKeepTheKeysWithinTheTimeToLive() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = saveProductWithStock("aPurgedIdempotentProduct", 10);
+        idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 1));
+
+        assertThat(jdbcIdempotencyStore.purge()).isZero();
+        idempotentOrderService.addOrder("order-1", createOrderVO(client, product, 1));
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(9);
+    }
+
+    private Product saveProductWithStock(String code, int stock) {
+        Product product = utilsComponent.generateProduct(code);
+        product.setStock(stock);
+        return productRepository.save(product);
+    }
+
+    private OrderVO createOrderVO(Users user, Product product, int quantity) {
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId((int) user.getId());
+        Map<Integer, Integer> productsIdsToQuantity = new HashMap<>();
+        productsIdsToQuantity.put((int) product.getId(), quantity);
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+        return orderVO;
+    }
+}
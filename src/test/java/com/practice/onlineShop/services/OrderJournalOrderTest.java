@@ -0,0 +1,167 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.OrderBatchMode;
+import com.practice.onlineShop.enums.OrderResultStatus;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.journal.OrderJournal;
+import com.practice.onlineShop.journal.OrderJournalApplier;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.OrderDetailsVO;
+import com.practice.onlineShop.vos.OrderResultVO;
+import com.practice.onlineShop.vos.OrderVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "onlineshop.order.write-mode=JOURNAL",
+        "onlineshop.order.journal.directory=target/order-journal-test/${random.uuid}",
+        "onlineshop.order.journal.segment-size-mb=1",
+        "onlineshop.order.journal.apply-interval-millis=60000"})
+class OrderJournalOrderTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderBatchService orderBatchService;
+
+    @Autowired
+    private OrderJournal orderJournal;
+
+    @Autowired
+    private OrderJournalApplier orderJournalApplier;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void addOrder_shouldReserveTheStockAtOnceAndInsertTheOrderWhenApplied() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.generateProduct("aJournaledProduct");
+        product.setStock(10);
+        productRepository.save(product);
+
+        orderService.addOrder(createOrderVO(client, product, 3));
+
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(7);
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders()).isEmpty();
+        assertThat(orderJournal.getDurableSequence()).isPositive();
+
+        orderJournalApplier.apply();
+
+        List<OrderDetailsVO> orders = orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders();
+        assertThat(orders).hasSize(1);
+        assertThat(orders.get(0).getItems()).hasSize(1);
+        assertThat(orders.get(0).getItems().get(0).getProductId()).isEqualTo(product.getId());
+        assertThat(orders.get(0).getItems().get(0).getQuantity()).isEqualTo(3);
+    }
+
+    @Test
+    public void addOrders_shouldJournalTheBatchInEitherModeAndInsertItWhenApplied() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.generateProduct("aProductOfAJournaledOrderBatch");
+        product.setStock(10);
+        productRepository.save(product);
+        orderJournalApplier.apply();
+
+        List<OrderResultVO> perOrder = orderBatchService.addOrders(
+                Arrays.asList(createOrderVO(client, product, 1), createOrderVO(client, product, 20)), OrderBatchMode.PER_ORDER);
+        List<OrderResultVO> singleTransaction = orderBatchService.addOrders(
+                Arrays.asList(createOrderVO(client, product, 2), createOrderVO(client, product, 3)), OrderBatchMode.SINGLE_TRANSACTION);
+
+        assertThat(perOrder).extracting(OrderResultVO::getStatus).containsExactly(OrderResultStatus.PLACED, OrderResultStatus.NOT_ENOUGH_STOCK);
+        assertThat(singleTransaction).extracting(OrderResultVO::getStatus).containsExactly(OrderResultStatus.PLACED, OrderResultStatus.PLACED);
+        assertThat(singleTransaction).extracting(OrderResultVO::getOrderId).containsOnlyNulls();
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(4);
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders()).isEmpty();
+
+        assertThat(orderJournalApplier.apply()).isEqualTo(3);
+
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders())
+                .extracting(order -> order.getItems().get(0).getQuantity())
+                .containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void apply_whenAnOrderIsRejected_shouldSkipItAndInsertTheOthers() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.generateProduct("aProductOfAJournaledBatch");
+        product.setStock(10);
+        productRepository.save(product);
+        orderJournalApplier.apply();
+
+        orderService.addOrder(createOrderVO(client, product, 1));
+        OrderVO orderOfAMissingProduct = createOrderVO(client, product, 1);
+        orderOfAMissingProduct.setProductsIdsToQuantity(new HashMap<>());
+        orderOfAMissingProduct.getProductsIdsToQuantity().put(Integer.MAX_VALUE, 1);
+        orderJournal.append(orderOfAMissingProduct);
+        orderService.addOrder(createOrderVO(client, product, 2));
+
+        assertThat(orderJournalApplier.apply()).isEqualTo(3);
+
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders())
+                .extracting(order -> order.getItems().get(0).getQuantity())
+                .containsExactly(1, 2);
+    }
+
+    @Test
+    public void addOrder_whenTheCommitFails_shouldNeitherJournalTheOrderNorKeepTheStock() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.generateProduct("aProductOfAFailedCommit");
+        product.setStock(10);
+        productRepository.save(product);
+        orderJournalApplier.apply();
+        long durableSequence = orderJournal.getDurableSequence();
+
+        assertThatThrownBy(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try {
+                orderService.addOrder(createOrderVO(client, product, 4));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    throw new IllegalStateException("the commit fails");
+                }
+            });
+        })).hasMessage("the commit fails");
+
+        assertThat(orderJournal.getDurableSequence()).isEqualTo(durableSequence);
+        assertThat(orderJournalApplier.apply()).isZero();
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(10);
+        assertThat(orderService.getOrders(client.getId(), null, 0, null, client.getId()).getOrders()).isEmpty();
+    }
+
+    private OrderVO createOrderVO(Users user, Product product, int quantity) {
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId((int) user.getId());
+
+        Map<Integer, Integer> orderMap = new HashMap<>();
+        orderMap.put((int) product.getId(), quantity);
+        orderVO.setProductsIdsToQuantity(orderMap);
+        return orderVO;
+    }
+}
@@ -0,0 +1,158 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Orders;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.OrderUpdateStatus;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.exceptions.NotEnoughStockException;
+import com.practice.onlineShop.repositories.OrderRepository;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.OrderUpdateResultVO;
+import com.practice.onlineShop.vos.OrderVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class OrderServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 25;
+    private static final int INITIAL_STOCK = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderBatchService orderBatchService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Test
+    public void addOrder_whenManyClientsBuyTheSameProduct_shouldNeverOversell() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.generateProduct("aHotProductForConcurrentOrders");
+        product.setStock(INITIAL_STOCK);
+        productRepository.save(product);
+
+        AtomicInteger placedOrders = new AtomicInteger();
+        AtomicInteger rejectedOrders = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for(int thread = 0; thread < THREADS; thread++){
+            futures.add(executorService.submit(() -> {
+                start.await();
+                for(int i = 0; i < ORDERS_PER_THREAD; i++){
+                    try {
+                        orderService.addOrder(createOrderVO(client, product));
+                        placedOrders.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        rejectedOrders.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for(Future<?> future : futures){
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        Product productFromDb = productRepository.findById(product.getId()).get();
+        assertThat(placedOrders.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(rejectedOrders.get()).isEqualTo(THREADS * ORDERS_PER_THREAD - INITIAL_STOCK);
+        assertThat(productFromDb.getStock()).isZero();
+    }
+
+    @Test
+    public void addOrder_whenOneLineHasNotEnoughStock_shouldRollBackTheWholeOrder() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product availableProduct = utilsComponent.generateProduct("anAvailableProductForRollback");
+        availableProduct.setStock(5);
+        productRepository.save(availableProduct);
+        Product soldOutProduct = utilsComponent.generateProduct("aSoldOutProductForRollback");
+        soldOutProduct.setStock(0);
+        productRepository.save(soldOutProduct);
+
+        OrderVO orderVO = createOrderVO(client, availableProduct);
+        orderVO.getProductsIdsToQuantity().put((int) soldOutProduct.getId(), 1);
+
+        try {
+            orderService.addOrder(orderVO);
+        } catch (NotEnoughStockException e) {
+            assertThat(productRepository.findById(availableProduct.getId()).get().getStock()).isEqualTo(5);
+            return;
+        }
+        assert false;
+    }
+
+    @Test
+    public void cancelOrders_whenManyRequestsCancelTheSameOrders_shouldReportEachOrderCanceledOnce() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.storeTwoProductsInDatabase("code1ForConcurrentCancel", "code2ForConcurrentCancel");
+        List<Long> orderIds = new ArrayList<>();
+        for(int i = 0; i < ORDERS_PER_THREAD; i++){
+            Orders order = utilsComponent.generateOrderItems(product, client);
+            orderRepository.save(order);
+            orderIds.add(order.getId());
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<OrderUpdateResultVO>>> futures = new ArrayList<>();
+        for(int thread = 0; thread < THREADS; thread++){
+            futures.add(executorService.submit(() -> {
+                start.await();
+                return orderBatchService.cancelOrders(orderIds, client.getId());
+            }));
+        }
+
+        start.countDown();
+        Map<Long, Integer> canceledCountsById = new HashMap<>();
+        for(Future<List<OrderUpdateResultVO>> future : futures){
+            for(OrderUpdateResultVO result : future.get(1, TimeUnit.MINUTES)){
+                if(result.getStatus() == OrderUpdateStatus.CANCELED){
+                    canceledCountsById.merge(result.getOrderId(), 1, Integer::sum);
+                } else {
+                    assertThat(result.getStatus()).isEqualTo(OrderUpdateStatus.ALREADY_CANCELED);
+                }
+            }
+        }
+        executorService.shutdown();
+
+        assertThat(canceledCountsById).hasSize(ORDERS_PER_THREAD);
+        assertThat(canceledCountsById.values()).containsOnly(1);
+    }
+
+    private OrderVO createOrderVO(Users user, Product product) {
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId((int) user.getId());
+
+        Map<Integer, Integer> orderMap = new HashMap<>();
+        orderMap.put((int) product.getId(), 1);
+        orderVO.setProductsIdsToQuantity(orderMap);
+        return orderVO;
+    }
+}
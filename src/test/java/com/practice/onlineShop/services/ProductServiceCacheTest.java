@@ -0,0 +1,115 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.OrderVO;
+import com.practice.onlineShop.vos.ProductVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.practice.onlineShop.enums.Currencies.EUR;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductServiceCacheTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Test
+    public void getProduct_afterUpdate_shouldReturnTheNewPriceAndStock() throws Exception {
+        Users admin = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        Product product = productRepository.save(utilsComponent.generateProduct("aCachedProductForUpdate"));
+
+        assertThat(productService.getProduct(product.getCode()).getPrice()).isEqualTo(100);
+
+        ProductVO productVO = productService.getProduct(product.getCode());
+        ProductVO updatedProductVO = new ProductVO();
+        updatedProductVO.setCode(productVO.getCode());
+        updatedProductVO.setDescription(productVO.getDescription());
+        updatedProductVO.setValid(true);
+        updatedProductVO.setCurrency(EUR);
+        updatedProductVO.setPrice(250);
+        updatedProductVO.setStock(7);
+        productService.updateProduct(updatedProductVO, admin.getId());
+
+        ProductVO productAfterUpdate = productService.getProduct(product.getCode());
+        assertThat(productAfterUpdate.getPrice()).isEqualTo(250);
+        assertThat(productAfterUpdate.getStock()).isEqualTo(7);
+        assertThat(productAfterUpdate.getCurrency()).isEqualTo(EUR);
+    }
+
+    @Test
+    public void getProduct_afterAnOrder_shouldReturnTheRemainingStock() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.generateProduct("aCachedProductForOrder");
+        product.setStock(10);
+        productRepository.save(product);
+
+        assertThat(productService.getProduct(product.getCode()).getStock()).isEqualTo(10);
+
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId((int) client.getId());
+        Map<Integer, Integer> productsIdsToQuantity = new HashMap<>();
+        productsIdsToQuantity.put((int) product.getId(), 3);
+        orderVO.setProductsIdsToQuantity(productsIdsToQuantity);
+        orderService.addOrder(orderVO);
+
+        assertThat(productService.getProduct(product.getCode()).getStock()).isEqualTo(7);
+    }
+
+    @Test
+    public void getProduct_whileOtherThreadsReadTheProduct_shouldNeverReturnStockOlderThanTheLastAddStock() throws Exception {
+        Users admin = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        Product product = productRepository.save(utilsComponent.generateProduct("aCachedProductForAddStock"));
+        String productCode = product.getCode();
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int i = 0; i < 4; i++){
+            futures.add(readers.submit(() -> {
+                while(writing.get()){
+                    productService.getProduct(productCode);
+                }
+                return null;
+            }));
+        }
+
+        int expectedStock = product.getStock();
+        for(int i = 0; i < 50; i++){
+            productService.addStock(productCode, 1, admin.getId());
+            expectedStock++;
+            assertThat(productService.getProduct(productCode).getStock()).isEqualTo(expectedStock);
+        }
+
+        writing.set(false);
+        for(Future<?> future : futures){
+            future.get(1, TimeUnit.MINUTES);
+        }
+        readers.shutdown();
+    }
+}
@@ -1,9 +1,13 @@
 package com.practice.onlineShop.services;
 
+import com.practice.onlineShop.caches.ProductCache;
+import com.practice.onlineShop.catalog.CatalogSnapshotStore;
 import com.practice.onlineShop.entities.Product;
 import com.practice.onlineShop.exceptions.InvalidProductCodeException;
 import com.practice.onlineShop.mappers.ProductMapper;
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
 import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.search.ProductSearchIndex;
 import com.practice.onlineShop.vos.ProductVO;
 
 
@@ -41,10 +45,15 @@ public class ProductServiceTest {
         private ProductMapper productMapper;
         @MockBean
         private ProductRepository productRepository;
+        @MockBean
+        private ProductJdbcRepository productJdbcRepository;
 
         @Bean
         public ProductService productService(){
-            return new ProductService(productMapper, productRepository);
+            StockService stockService = new StockService(productRepository, event -> {}, Optional.empty());
+            return new ProductService(productMapper, productRepository, productJdbcRepository, new ProductCache(100, 60), stockService,
+                    new ProductSearchIndex(productJdbcRepository), new CatalogSnapshotStore(productJdbcRepository, 100, 0, 131072),
+                    Optional.empty());
 
         }
     }
@@ -0,0 +1,109 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Orders;
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.metrics.MetricsRegistry;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.OperationMetricsVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "onlineshop.retry.max-attempts=100")
+class StockConflictRetryTest {
+
+    private static final int THREADS = 8;
+    private static final int RESTOCKS_PER_THREAD = 25;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Test
+    public void addStock_whenManyAdminsRestockTheSameProduct_shouldNotLoseAnyUpdate() throws Exception {
+        Users admin = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        Product product = productRepository.save(utilsComponent.generateProduct("aHotProductForConcurrentRestocks"));
+
+        runConcurrently(THREADS, () -> {
+            for(int i = 0; i < RESTOCKS_PER_THREAD; i++){
+                productService.addStock(product.getCode(), 1, admin.getId());
+            }
+            return null;
+        });
+
+        assertThat(productRepository.findById(product.getId()).get().getStock())
+                .isEqualTo(product.getStock() + THREADS * RESTOCKS_PER_THREAD);
+        OperationMetricsVO addStockMetrics = metricsRegistry.getSnapshot().stream()
+                .filter(operationMetricsVO -> operationMetricsVO.getOperation().equals("ProductService.addStock"))
+                .findFirst().get();
+        assertThat(addStockMetrics.getRetriesExhausted()).isZero();
+    }
+
+    @Test
+    public void returnOrder_whileTheProductIsRestocked_shouldKeepBothStockChanges() throws Exception {
+        Users admin = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = productRepository.save(utilsComponent.generateProduct("aProductReturnedWhileRestocked"));
+        List<Orders> deliveredOrders = new ArrayList<>();
+        for(int i = 0; i < RESTOCKS_PER_THREAD; i++){
+            deliveredOrders.add(utilsComponent.saveDeliveredOrder(client, product));
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Future<?> restocks = executorService.submit(() -> {
+            for(int i = 0; i < RESTOCKS_PER_THREAD; i++){
+                productService.addStock(product.getCode(), 1, admin.getId());
+            }
+            return null;
+        });
+        Future<?> returns = executorService.submit(() -> {
+            for(Orders order : deliveredOrders){
+                orderService.returnOrder((int) order.getId(), client.getId());
+            }
+            return null;
+        });
+        restocks.get(1, TimeUnit.MINUTES);
+        returns.get(1, TimeUnit.MINUTES);
+        executorService.shutdown();
+
+        assertThat(productRepository.findById(product.getId()).get().getStock())
+                .isEqualTo(product.getStock() + 2 * RESTOCKS_PER_THREAD);
+    }
+
+    private void runConcurrently(int threads, Callable<Void> task) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int thread = 0; thread < threads; thread++){
+            futures.add(executorService.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        for(Future<?> future : futures){
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+    }
+}
@@ -0,0 +1,146 @@
+package com.practice.onlineShop.services;
+
+import com.practice.onlineShop.entities.Product;
+import com.practice.onlineShop.entities.Users;
+import com.practice.onlineShop.enums.Roles;
+import com.practice.onlineShop.exceptions.NotEnoughStockException;
+import com.practice.onlineShop.repositories.ProductRepository;
+import com.practice.onlineShop.stock.StockLedger;
+import com.practice.onlineShop.utils.UtilsComponent;
+import com.practice.onlineShop.vos.OrderVO;
+import com.practice.onlineShop.vos.ProductVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "onlineshop.stock.engine=LEDGER")
+class StockLedgerOrderTest {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 25;
+    private static final int INITIAL_STOCK = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UtilsComponent utilsComponent;
+
+    @Test
+    public void addOrder_whenManyClientsBuyTheSameProduct_shouldNeverOversellAndWriteTheStockBehind() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product product = utilsComponent.generateProduct("aHotProductForTheLedger");
+        product.setStock(INITIAL_STOCK);
+        productRepository.save(product);
+
+        AtomicInteger placedOrders = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int thread = 0; thread < THREADS; thread++){
+            futures.add(executorService.submit(() -> {
+                for(int i = 0; i < ORDERS_PER_THREAD; i++){
+                    try {
+                        orderService.addOrder(createOrderVO(client, product, 1));
+                        placedOrders.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        // sold out
+                    }
+                }
+                return null;
+            }));
+        }
+        for(Future<?> future : futures){
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+        stockLedger.flush();
+
+        assertThat(placedOrders.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(stockLedger.getAvailable(product.getId())).contains(0);
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isZero();
+    }
+
+    @Test
+    public void addOrder_whenOneLineHasNotEnoughStock_shouldGiveBackTheOtherLines() throws Exception {
+        Users client = utilsComponent.saveUserWithRole(Roles.CLIENT);
+        Product availableProduct = utilsComponent.generateProduct("anAvailableProductForTheLedger");
+        availableProduct.setStock(5);
+        productRepository.save(availableProduct);
+        Product soldOutProduct = utilsComponent.generateProduct("aSoldOutProductForTheLedger");
+        soldOutProduct.setStock(0);
+        productRepository.save(soldOutProduct);
+
+        OrderVO orderVO = createOrderVO(client, availableProduct, 2);
+        orderVO.getProductsIdsToQuantity().put((int) soldOutProduct.getId(), 1);
+
+        try {
+            orderService.addOrder(orderVO);
+        } catch (NotEnoughStockException e) {
+            assertThat(stockLedger.getAvailable(availableProduct.getId())).contains(5);
+            return;
+        }
+        assert false;
+    }
+
+    @Test
+    public void addStock_shouldBeVisibleBeforeTheLedgerIsWritten() throws Exception {
+        Users admin = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        Product product = productRepository.save(utilsComponent.generateProduct("aRestockedProductForTheLedger"));
+
+        productService.addStock(product.getCode(), 9, admin.getId());
+
+        assertThat(productService.getProduct(product.getCode()).getStock()).isEqualTo(product.getStock() + 9);
+        stockLedger.flush();
+        assertThat(productRepository.findById(product.getId()).get().getStock()).isEqualTo(product.getStock() + 9);
+    }
+
+    @Test
+    public void updateProduct_whenTheProductCannotBeSaved_shouldLeaveTheLedgerStockAlone() throws Exception {
+        Users admin = utilsComponent.saveUserWithRole(Roles.ADMIN);
+        Product product = utilsComponent.generateProduct("aProductNotSavedWithTheLedger");
+        product.setStock(4);
+        productRepository.save(product);
+        stockLedger.set(product.getId(), 4);
+
+        ProductVO productVO = new ProductVO();
+        productVO.setCode(product.getCode());
+        productVO.setDescription(String.join("", Collections.nCopies(300, "x")));
+        productVO.setCurrency(product.getCurrency());
+        productVO.setPrice(product.getPrice());
+        productVO.setStock(40);
+        productVO.setValid(true);
+
+        assertThatThrownBy(() -> productService.updateProduct(productVO, admin.getId())).isInstanceOf(RuntimeException.class);
+        assertThat(stockLedger.getAvailable(product.getId())).contains(4);
+    }
+
+    private OrderVO createOrderVO(Users user, Product product, int quantity) {
+        OrderVO orderVO = new OrderVO();
+        orderVO.setUserId((int) user.getId());
+
+        Map<Integer, Integer> orderMap = new HashMap<>();
+        orderMap.put((int) product.getId(), quantity);
+        orderVO.setProductsIdsToQuantity(orderMap);
+        return orderVO;
+    }
+}
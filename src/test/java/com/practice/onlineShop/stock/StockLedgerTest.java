@@ -0,0 +1,158 @@
+package com.practice.onlineShop.stock;
+
+import com.practice.onlineShop.repositories.ProductJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockLedgerTest {
+
+    private final Map<Long, Integer> stockInDb = new ConcurrentHashMap<>();
+    private ProductJdbcRepository productJdbcRepository;
+    private StockLedger stockLedger;
+
+    @BeforeEach
+    public void setUp(){
+        productJdbcRepository = mock(ProductJdbcRepository.class);
+        when(productJdbcRepository.findStock(anyLong())).thenAnswer(invocation -> Optional.ofNullable(stockInDb.get(invocation.<Long>getArgument(0))));
+        when(productJdbcRepository.addToStock(any())).thenAnswer(invocation -> addToStockInDb(invocation.getArgument(0)));
+        stockLedger = new StockLedger(productJdbcRepository, 100, 500, false);
+    }
+
+    @Test
+    public void tryReserve_whenManyThreadsBuyTheSameProduct_shouldSellExactlyTheStock() throws Exception {
+        int initialStock = 200_000;
+        stockInDb.put(1L, initialStock);
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+        AtomicLong sold = new AtomicLong();
+        AtomicBoolean selling = new AtomicBoolean(true);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads + 1);
+        Future<?> flusher = executorService.submit(() -> {
+            while(selling.get()){
+                stockLedger.flush();
+            }
+            return null;
+        });
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> buyers = new ArrayList<>();
+        for(int thread = 0; thread < threads; thread++){
+            buyers.add(executorService.submit(() -> {
+                start.await();
+                while(stockLedger.tryReserve(1L, 1)){
+                    sold.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for(Future<?> buyer : buyers){
+            buyer.get(1, TimeUnit.MINUTES);
+        }
+        selling.set(false);
+        flusher.get(1, TimeUnit.MINUTES);
+        executorService.shutdown();
+        stockLedger.flush();
+
+        assertThat(sold.get()).isEqualTo(initialStock);
+        assertThat(stockLedger.getAvailable(1L)).contains(0);
+        assertThat(stockInDb.get(1L)).isZero();
+    }
+
+    @Test
+    public void add_whileOtherThreadsReserve_shouldKeepTheDbInSyncWithTheLedger() throws Exception {
+        int products = 64;
+        for(long productId = 1; productId <= products; productId++){
+            stockInDb.put(productId, 1_000);
+        }
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int thread = 0; thread < threads; thread++){
+            futures.add(executorService.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for(int i = 0; i < 20_000; i++){
+                    long productId = 1 + random.nextInt(products);
+                    if(random.nextBoolean()){
+                        stockLedger.tryReserve(productId, 1 + random.nextInt(3));
+                    } else {
+                        stockLedger.add(productId, 1 + random.nextInt(3));
+                    }
+                    if(i % 1_000 == 0){
+                        stockLedger.flush();
+                    }
+                }
+                return null;
+            }));
+        }
+        for(Future<?> future : futures){
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+        stockLedger.flush();
+
+        for(long productId = 1; productId <= products; productId++){
+            assertThat(stockLedger.getAvailable(productId).get()).isGreaterThanOrEqualTo(0);
+            assertThat(stockInDb.get(productId)).isEqualTo(stockLedger.getAvailable(productId).get());
+        }
+    }
+
+    @Test
+    public void flush_whenTheDbWriteFails_shouldWriteTheDeltaNextTime(){
+        stockInDb.put(1L, 10);
+        stockLedger.tryReserve(1L, 4);
+        doThrow(new IllegalStateException("db is down")).when(productJdbcRepository).addToStock(any());
+
+        assertThatThrownBy(() -> stockLedger.flush()).isInstanceOf(IllegalStateException.class);
+        assertThat(stockInDb.get(1L)).isEqualTo(10);
+
+        doAnswer(invocation -> addToStockInDb(invocation.getArgument(0))).when(productJdbcRepository).addToStock(any());
+        stockLedger.flush();
+        assertThat(stockInDb.get(1L)).isEqualTo(6);
+    }
+
+    @Test
+    public void set_shouldWriteTheDifferenceToTheDb(){
+        stockInDb.put(1L, 10);
+        stockLedger.tryReserve(1L, 3);
+
+        stockLedger.set(1L, 50);
+        stockLedger.flush();
+
+        assertThat(stockLedger.getAvailable(1L)).contains(50);
+        assertThat(stockInDb.get(1L)).isEqualTo(50);
+    }
+
+    @Test
+    public void tryReserve_whenProductDoesNotExist_shouldRefuse(){
+        assertThat(stockLedger.tryReserve(42L, 1)).isFalse();
+        assertThat(stockLedger.getAvailable(42L)).isEmpty();
+    }
+
+    private int[] addToStockInDb(List<Map.Entry<Long, Integer>> deltas) {
+        int[] updatedRows = new int[deltas.size()];
+        for(int i = 0; i < deltas.size(); i++){
+            Map.Entry<Long, Integer> delta = deltas.get(i);
+            updatedRows[i] = stockInDb.computeIfPresent(delta.getKey(), (id, stock) -> stock + delta.getValue()) == null ? 0 : 1;
+        }
+        return updatedRows;
+    }
+}
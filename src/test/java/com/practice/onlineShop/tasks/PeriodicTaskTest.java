@@ -0,0 +1,30 @@
+package com.practice.onlineShop.tasks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PeriodicTaskTest {
+
+    @Test
+    public void start_whenARunFails_shouldRunTheTaskAgain() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch thirdRun = new CountDownLatch(3);
+        PeriodicTask periodicTask = PeriodicTask.start("periodic-task-test", "run the test task", () -> {
+            runs.incrementAndGet();
+            thirdRun.countDown();
+            throw new IllegalStateException("failing on purpose");
+        }, 0, 1, TimeUnit.MILLISECONDS);
+
+        assertThat(thirdRun.await(1, TimeUnit.MINUTES)).isTrue();
+        periodicTask.stop();
+        int runsWhenStopped = runs.get();
+        Thread.sleep(20);
+
+        assertThat(runs.get()).isEqualTo(runsWhenStopped);
+    }
+}
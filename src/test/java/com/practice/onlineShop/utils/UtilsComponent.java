@@ -1,6 +1,7 @@
 package com.practice.onlineShop.utils;
 
 import com.practice.onlineShop.entities.*;
+import com.practice.onlineShop.enums.OrderStatus;
 import com.practice.onlineShop.enums.Roles;
 import com.practice.onlineShop.repositories.OrderRepository;
 import com.practice.onlineShop.repositories.ProductRepository;
@@ -71,7 +72,7 @@ public class UtilsComponent {
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public Orders saveDeliveredOrder(Users client, Product product) {
         Orders orderWithProducts = generateOrderItems(product, client);
-        orderWithProducts.setDelivered(true);
+        orderWithProducts.setStatus(OrderStatus.DELIVERED);
         orderRepository.save(orderWithProducts);
         return orderWithProducts;
     }
@@ -84,8 +85,7 @@ public class UtilsComponent {
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public Orders saveCanceledAndDeliveredOrder(Users client, Product product) {
         Orders orderWithProducts = generateOrderItems(product, client);
-        orderWithProducts.setCanceled(true);
-        orderWithProducts.setDelivered(true);
+        orderWithProducts.setStatus(OrderStatus.CANCELED);
         orderRepository.save(orderWithProducts);
         return orderWithProducts;
     }
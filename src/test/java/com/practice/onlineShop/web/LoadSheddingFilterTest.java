@@ -0,0 +1,107 @@
+package com.practice.onlineShop.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.FilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadSheddingFilterTest {
+
+    @Test
+    public void doFilter_whenTheLimitIsReached_shouldAnswer503(){
+        LoadSheddingFilter filter = new LoadSheddingFilter(1);
+        MockHttpServletResponse[] innerResponse = new MockHttpServletResponse[1];
+        FilterChain chain = (request, response) -> {
+            innerResponse[0] = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/product/aCode"), innerResponse[0], (innerRequest, ignored) -> {});
+        };
+
+        assertThatFilterPasses(filter, "/product/aCode", chain);
+
+        assertThat(innerResponse[0].getStatus()).isEqualTo(503);
+        assertThat(innerResponse[0].getHeader("Retry-After")).isEqualTo("1");
+        assertThat(filter.getShedRequests()).isEqualTo(1);
+        assertThat(filter.getInFlightRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void doFilter_onMetrics_shouldNeverShed(){
+        LoadSheddingFilter filter = new LoadSheddingFilter(1);
+        MockHttpServletResponse[] innerResponse = new MockHttpServletResponse[1];
+        FilterChain chain = (request, response) -> {
+            innerResponse[0] = new MockHttpServletResponse();
+            filter.doFilter(servletRequest("/shop", "/metrics"), innerResponse[0], (innerRequest, ignored) -> {});
+        };
+
+        assertThatFilterPasses(filter, "/product/aCode", chain);
+
+        assertThat(innerResponse[0].getStatus()).isEqualTo(200);
+        assertThat(filter.getShedRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void doFilter_onAPathThatOnlyStartsWithMetrics_shouldShed(){
+        LoadSheddingFilter filter = new LoadSheddingFilter(1);
+        MockHttpServletResponse[] innerResponse = new MockHttpServletResponse[1];
+        FilterChain chain = (request, response) -> {
+            innerResponse[0] = new MockHttpServletResponse();
+            filter.doFilter(servletRequest("", "/metricsAndMore"), innerResponse[0], (innerRequest, ignored) -> {});
+        };
+
+        assertThatFilterPasses(filter, "/product/aCode", chain);
+
+        assertThat(innerResponse[0].getStatus()).isEqualTo(503);
+    }
+
+    @Test
+    public void doFilter_whenTheRequestGoesAsync_shouldCountItAsAStreamWithoutHoldingAPermit() throws Exception {
+        LoadSheddingFilter filter = new LoadSheddingFilter(1);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/stream");
+        request.setAsyncSupported(true);
+        AsyncContext[] asyncContext = new AsyncContext[1];
+
+        filter.doFilter(request, new MockHttpServletResponse(), (innerRequest, innerResponse) -> asyncContext[0] = innerRequest.startAsync());
+
+        assertThat(filter.getInFlightRequests()).isEqualTo(0);
+        assertThat(filter.getInFlightStreams()).isEqualTo(1);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/product/aCode"), response, (innerRequest, innerResponse) -> {});
+        assertThat(response.getStatus()).isEqualTo(200);
+
+        asyncContext[0].complete();
+
+        assertThat(filter.getInFlightStreams()).isEqualTo(0);
+    }
+
+    @Test
+    public void doFilter_whenTheLimitIsZero_shouldLetEverythingThrough() throws Exception {
+        LoadSheddingFilter filter = new LoadSheddingFilter(0);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/product/aCode"), response, (innerRequest, innerResponse) -> {});
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(filter.getShedRequests()).isEqualTo(0);
+    }
+
+    private MockHttpServletRequest servletRequest(String contextPath, String servletPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", contextPath + servletPath);
+        request.setContextPath(contextPath);
+        request.setServletPath(servletPath);
+        return request;
+    }
+
+    private void assertThatFilterPasses(LoadSheddingFilter filter, String uri, FilterChain chain) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(new MockHttpServletRequest("GET", uri), response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+}